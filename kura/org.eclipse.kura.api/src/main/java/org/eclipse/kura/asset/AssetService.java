@@ -13,7 +13,13 @@
  *******************************************************************************/
 package org.eclipse.kura.asset;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.ChannelType;
 
 import org.osgi.annotation.versioning.ProviderType;
 
@@ -59,4 +65,28 @@ public interface AssetService {
      */
     public List<Asset> listAssets();
 
+    /**
+     * Reads all the channels of type {@link ChannelType#READ} or {@link ChannelType#READ_WRITE} of the assets with
+     * the provided PIDs ({@code kura.service.pid}), as if {@link Asset#readAllChannels()} was called on each of them.
+     * <br/>
+     * The assets are read concurrently, the number of concurrent reads performed on assets attached to the same
+     * driver may be limited by the implementation. This method returns as soon as all the reads complete or the
+     * provided timeout elapses, whichever comes first.
+     * <br/>
+     * The records of an asset whose read failed or did not complete within the timeout report a
+     * {@link ChannelFlag#FAILURE} status. The returned map does not contain entries for the PIDs that do not
+     * correspond to an asset instance.
+     *
+     * @param assetPids
+     *            the PIDs of the assets to be read
+     * @param timeout
+     *            the maximum time to wait for the reads to complete, in milliseconds
+     * @return a map containing the read results of each asset, keyed by asset PID, whose iteration order follows
+     *         the order of the provided PIDs
+     * @throws NullPointerException
+     *             if the provided collection is null
+     * @since 1.4
+     */
+    public Map<String, List<ChannelRecord>> readAllChannels(Collection<String> assetPids, long timeout);
+
 }
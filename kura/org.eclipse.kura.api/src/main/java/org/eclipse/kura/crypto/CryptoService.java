@@ -12,6 +12,8 @@
 package org.eclipse.kura.crypto;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -26,6 +28,8 @@ import org.osgi.annotation.versioning.ProviderType;
 /**
  * The CryptoService is used to provide AES encrypt and decrypt functionality, Base64 encoding and
  * decoding, and SHA1 hash generation.
+ * <p>
+ * Large amounts of data can be encrypted and decrypted as streams, in an authenticated mode.
  *
  * @noimplement This interface is not intended to be implemented by clients.
  */
@@ -52,6 +56,39 @@ public interface CryptoService {
      */
     public char[] decryptAes(char[] encryptedValue) throws KuraException;
 
+    /**
+     * Returns a stream that encrypts the data written to it with AES in an authenticated mode and writes the
+     * encrypted data to the provided destination. The data is encrypted with a new initialization vector each time,
+     * and its integrity is verified when it is decrypted.
+     * <p>
+     * The encryption is completed when the returned stream is closed, which also closes the destination.
+     *
+     * @param destination
+     *            the stream the encrypted data is written to
+     * @return the stream the data to be encrypted is written to
+     * @throws KuraException
+     *             if the encryption cannot be started
+     * @since 1.4
+     */
+    public OutputStream aesEncryptingStream(OutputStream destination) throws KuraException;
+
+    /**
+     * Returns a stream that decrypts the data read from the provided source. Both the data encrypted by
+     * {@link #aesEncryptingStream(OutputStream)} and the values encrypted by {@link #encryptAes(char[])} are
+     * supported, the latter are decrypted as their UTF-8 encoded characters.
+     * <p>
+     * If the integrity of the encrypted data cannot be verified, an {@link IOException} is thrown while reading from
+     * the returned stream. Closing the returned stream also closes the source.
+     *
+     * @param source
+     *            the stream the encrypted data is read from
+     * @return the stream the decrypted data is read from
+     * @throws KuraException
+     *             if the decryption cannot be started or the source is not encrypted
+     * @since 1.4
+     */
+    public InputStream aesDecryptingStream(InputStream source) throws KuraException;
+
     /**
      * Returns an AES encrypted string based on the provided value.
      *
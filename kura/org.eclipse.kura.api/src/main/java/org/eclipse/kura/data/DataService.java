@@ -116,7 +116,8 @@ public interface DataService {
      *
      * A unique identifier is always returned, independently on the specified
      * QoS or priority level, which can be used to match the asynchronous
-     * message confirm.
+     * message confirm. The identifier stays the same if a QoS 0 message kept
+     * in memory is moved to the persistent store on disconnection.
      *
      * The actual semantics associated to a message confirm is as follows:
      * <ul>
@@ -211,4 +212,22 @@ public interface DataService {
      * @since 1.0.8
      */
     public void removeDataServiceListener(DataServiceListener listener);
+
+    /**
+     * Returns a snapshot of the flow control state of the in-flight messages.
+     *
+     * @return the in-flight statistics
+     *
+     * @since 1.4
+     */
+    public InFlightStatistics getInFlightStatistics();
+
+    /**
+     * Returns a snapshot of the sizes of the batches in which the published messages are written to the store.
+     *
+     * @return the store batch statistics
+     *
+     * @since 1.4
+     */
+    public StoreBatchStatistics getStoreBatchStatistics();
 }
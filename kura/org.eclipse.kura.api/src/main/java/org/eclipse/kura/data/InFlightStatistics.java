@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.data;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+
+import org.eclipse.kura.annotation.Immutable;
+import org.eclipse.kura.annotation.ThreadSafe;
+import org.osgi.annotation.versioning.ProviderType;
+
+/**
+ * The Class {@link InFlightStatistics} represents a snapshot of the flow control state of a {@link DataService}: the
+ * number of messages published with QoS &gt; 0 and not confirmed yet, the in-flight window limiting them, the number
+ * of congestion events and the distribution of the confirmation latencies.
+ * <p>
+ * The latency histogram is described by an array of bucket upper bounds, in milliseconds, and an array of counts
+ * with one more element. The count at index {@code i} is the number of confirmations received in less than or
+ * exactly {@code getLatencyBucketBounds()[i]} milliseconds and more than the previous bound, the last count is the
+ * number of confirmations received after the last bound.
+ *
+ * @noextend This class is not intended to be extended by clients.
+ * @since 1.4
+ */
+@Immutable
+@ThreadSafe
+@ProviderType
+public final class InFlightStatistics {
+
+    private final int inFlightCount;
+
+    private final int windowSize;
+
+    private final int maxWindowSize;
+
+    private final long confirmedCount;
+
+    private final long congestionCount;
+
+    private final long[] latencyBucketBounds;
+
+    private final long[] latencyBucketCounts;
+
+    /**
+     * Instantiates a new {@link InFlightStatistics}.
+     *
+     * @param inFlightCount
+     *            the number of messages currently in-flight
+     * @param windowSize
+     *            the current maximum number of in-flight messages
+     * @param maxWindowSize
+     *            the configured maximum number of in-flight messages
+     * @param confirmedCount
+     *            the number of confirmed messages
+     * @param congestionCount
+     *            the number of congestion events
+     * @param latencyBucketBounds
+     *            the upper bounds in milliseconds of the latency histogram buckets, in increasing order
+     * @param latencyBucketCounts
+     *            the number of confirmations in each latency bucket
+     * @throws NullPointerException
+     *             if any of the arrays is null
+     * @throws IllegalArgumentException
+     *             if the number of counts is not the number of bounds plus one
+     */
+    public InFlightStatistics(final int inFlightCount, final int windowSize, final int maxWindowSize,
+            final long confirmedCount, final long congestionCount, final long[] latencyBucketBounds,
+            final long[] latencyBucketCounts) {
+        requireNonNull(latencyBucketBounds, "Latency bucket bounds cannot be null");
+        requireNonNull(latencyBucketCounts, "Latency bucket counts cannot be null");
+        if (latencyBucketCounts.length != latencyBucketBounds.length + 1) {
+            throw new IllegalArgumentException("Latency bucket counts must be one more than the bounds");
+        }
+
+        this.inFlightCount = inFlightCount;
+        this.windowSize = windowSize;
+        this.maxWindowSize = maxWindowSize;
+        this.confirmedCount = confirmedCount;
+        this.congestionCount = congestionCount;
+        this.latencyBucketBounds = latencyBucketBounds.clone();
+        this.latencyBucketCounts = latencyBucketCounts.clone();
+    }
+
+    /**
+     * Gets the number of messages currently in-flight.
+     *
+     * @return the number of in-flight messages
+     */
+    public int getInFlightCount() {
+        return this.inFlightCount;
+    }
+
+    /**
+     * Gets the current maximum number of in-flight messages. It is lower than the configured maximum when the
+     * in-flight window has been reduced because of congestion or increasing confirmation latencies.
+     *
+     * @return the current in-flight window size
+     */
+    public int getWindowSize() {
+        return this.windowSize;
+    }
+
+    /**
+     * Gets the configured maximum number of in-flight messages.
+     *
+     * @return the maximum in-flight window size
+     */
+    public int getMaxWindowSize() {
+        return this.maxWindowSize;
+    }
+
+    /**
+     * Gets the number of in-flight messages confirmed.
+     *
+     * @return the number of confirmed messages
+     */
+    public long getConfirmedCount() {
+        return this.confirmedCount;
+    }
+
+    /**
+     * Gets the number of times publishing has been suspended because the in-flight window was full.
+     *
+     * @return the number of congestion events
+     */
+    public long getCongestionCount() {
+        return this.congestionCount;
+    }
+
+    /**
+     * Gets the upper bounds of the latency histogram buckets.
+     *
+     * @return a copy of the bucket bounds in milliseconds
+     */
+    public long[] getLatencyBucketBounds() {
+        return this.latencyBucketBounds.clone();
+    }
+
+    /**
+     * Gets the number of confirmations in each latency histogram bucket.
+     *
+     * @return a copy of the bucket counts
+     */
+    public long[] getLatencyBucketCounts() {
+        return this.latencyBucketCounts.clone();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "InFlightStatistics [inFlightCount=" + this.inFlightCount + ", windowSize=" + this.windowSize
+                + ", maxWindowSize=" + this.maxWindowSize + ", confirmedCount=" + this.confirmedCount
+                + ", congestionCount=" + this.congestionCount + ", latencyBucketBounds="
+                + Arrays.toString(this.latencyBucketBounds) + ", latencyBucketCounts="
+                + Arrays.toString(this.latencyBucketCounts) + "]";
+    }
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.data;
+
+import org.eclipse.kura.annotation.Immutable;
+import org.eclipse.kura.annotation.ThreadSafe;
+import org.osgi.annotation.versioning.ProviderType;
+
+/**
+ * The Class {@link StoreBatchStatistics} represents a snapshot of the batches in which a {@link DataService} writes
+ * the published messages to its store: concurrent publishers are grouped into a single store write, the size of
+ * these batches shows how much grouping is achieved.
+ *
+ * @noextend This class is not intended to be extended by clients.
+ * @since 1.4
+ */
+@Immutable
+@ThreadSafe
+@ProviderType
+public final class StoreBatchStatistics {
+
+    private final long batchCount;
+
+    private final long messageCount;
+
+    private final int lastBatchSize;
+
+    private final int maxBatchSize;
+
+    /**
+     * Instantiates a new {@link StoreBatchStatistics}.
+     *
+     * @param batchCount
+     *            the number of batches written to the store
+     * @param messageCount
+     *            the number of messages written to the store
+     * @param lastBatchSize
+     *            the number of messages of the last batch
+     * @param maxBatchSize
+     *            the number of messages of the largest batch
+     */
+    public StoreBatchStatistics(final long batchCount, final long messageCount, final int lastBatchSize,
+            final int maxBatchSize) {
+        this.batchCount = batchCount;
+        this.messageCount = messageCount;
+        this.lastBatchSize = lastBatchSize;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Gets the number of batches written to the store.
+     *
+     * @return the number of batches
+     */
+    public long getBatchCount() {
+        return this.batchCount;
+    }
+
+    /**
+     * Gets the number of messages written to the store.
+     *
+     * @return the number of messages
+     */
+    public long getMessageCount() {
+        return this.messageCount;
+    }
+
+    /**
+     * Gets the number of messages of the last batch.
+     *
+     * @return the last batch size
+     */
+    public int getLastBatchSize() {
+        return this.lastBatchSize;
+    }
+
+    /**
+     * Gets the number of messages of the largest batch.
+     *
+     * @return the maximum batch size
+     */
+    public int getMaxBatchSize() {
+        return this.maxBatchSize;
+    }
+
+    /**
+     * Gets the average number of messages per batch.
+     *
+     * @return the average batch size, 0 if no batch has been written
+     */
+    public double getAverageBatchSize() {
+        return this.batchCount == 0 ? 0 : (double) this.messageCount / this.batchCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "StoreBatchStatistics [batchCount=" + this.batchCount + ", messageCount=" + this.messageCount
+                + ", lastBatchSize=" + this.lastBatchSize + ", maxBatchSize=" + this.maxBatchSize + "]";
+    }
+}
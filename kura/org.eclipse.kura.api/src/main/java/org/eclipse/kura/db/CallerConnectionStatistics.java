@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.db;
+
+import static java.util.Objects.requireNonNull;
+
+import org.eclipse.kura.annotation.Immutable;
+import org.eclipse.kura.annotation.ThreadSafe;
+import org.osgi.annotation.versioning.ProviderType;
+
+/**
+ * The Class {@link CallerConnectionStatistics} represents a snapshot of the use of the connections of a pool by a
+ * single caller, usually identified by the symbolic name of the bundle requesting the connections.
+ * <p>
+ * Wait times are measured from the request of a connection to the moment it is handed to the caller, hold times from
+ * that moment to the moment the connection is closed. Connections still held are not included in the hold times.
+ *
+ * @noextend This class is not intended to be extended by clients.
+ * @since 1.4
+ */
+@Immutable
+@ThreadSafe
+@ProviderType
+public final class CallerConnectionStatistics {
+
+    private final String caller;
+
+    private final int activeCount;
+
+    private final long acquiredCount;
+
+    private final long timeoutCount;
+
+    private final long leakCount;
+
+    private final long totalWaitTime;
+
+    private final long maxWaitTime;
+
+    private final long totalHoldTime;
+
+    private final long maxHoldTime;
+
+    /**
+     * Instantiates a new {@link CallerConnectionStatistics}.
+     *
+     * @param caller
+     *            the caller identifier
+     * @param activeCount
+     *            the number of connections currently held by the caller
+     * @param acquiredCount
+     *            the number of connections acquired by the caller
+     * @param timeoutCount
+     *            the number of connection requests of the caller that timed out
+     * @param leakCount
+     *            the number of connections held by the caller longer than the leak detection threshold
+     * @param totalWaitTime
+     *            the total time in milliseconds the caller waited for connections
+     * @param maxWaitTime
+     *            the longest time in milliseconds the caller waited for a connection
+     * @param totalHoldTime
+     *            the total time in milliseconds the caller held the connections it closed
+     * @param maxHoldTime
+     *            the longest time in milliseconds the caller held a connection it closed
+     * @throws NullPointerException
+     *             if the caller is null
+     */
+    public CallerConnectionStatistics(final String caller, final int activeCount, final long acquiredCount,
+            final long timeoutCount, final long leakCount, final long totalWaitTime, final long maxWaitTime,
+            final long totalHoldTime, final long maxHoldTime) {
+        requireNonNull(caller, "Caller cannot be null");
+
+        this.caller = caller;
+        this.activeCount = activeCount;
+        this.acquiredCount = acquiredCount;
+        this.timeoutCount = timeoutCount;
+        this.leakCount = leakCount;
+        this.totalWaitTime = totalWaitTime;
+        this.maxWaitTime = maxWaitTime;
+        this.totalHoldTime = totalHoldTime;
+        this.maxHoldTime = maxHoldTime;
+    }
+
+    /**
+     * Gets the caller identifier.
+     *
+     * @return the caller
+     */
+    public String getCaller() {
+        return this.caller;
+    }
+
+    /**
+     * Gets the number of connections currently held by the caller.
+     *
+     * @return the number of active connections
+     */
+    public int getActiveCount() {
+        return this.activeCount;
+    }
+
+    /**
+     * Gets the number of connections acquired by the caller.
+     *
+     * @return the number of acquired connections
+     */
+    public long getAcquiredCount() {
+        return this.acquiredCount;
+    }
+
+    /**
+     * Gets the number of connection requests of the caller that timed out.
+     *
+     * @return the number of timeouts
+     */
+    public long getTimeoutCount() {
+        return this.timeoutCount;
+    }
+
+    /**
+     * Gets the number of connections held by the caller longer than the leak detection threshold.
+     *
+     * @return the number of possibly leaked connections
+     */
+    public long getLeakCount() {
+        return this.leakCount;
+    }
+
+    /**
+     * Gets the total time the caller waited for connections.
+     *
+     * @return the total wait time in milliseconds
+     */
+    public long getTotalWaitTime() {
+        return this.totalWaitTime;
+    }
+
+    /**
+     * Gets the longest time the caller waited for a connection.
+     *
+     * @return the maximum wait time in milliseconds
+     */
+    public long getMaxWaitTime() {
+        return this.maxWaitTime;
+    }
+
+    /**
+     * Gets the total time the caller held the connections it closed.
+     *
+     * @return the total hold time in milliseconds
+     */
+    public long getTotalHoldTime() {
+        return this.totalHoldTime;
+    }
+
+    /**
+     * Gets the longest time the caller held a connection it closed.
+     *
+     * @return the maximum hold time in milliseconds
+     */
+    public long getMaxHoldTime() {
+        return this.maxHoldTime;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "CallerConnectionStatistics [caller=" + this.caller + ", activeCount=" + this.activeCount
+                + ", acquiredCount=" + this.acquiredCount + ", timeoutCount=" + this.timeoutCount + ", leakCount="
+                + this.leakCount + ", totalWaitTime=" + this.totalWaitTime + ", maxWaitTime=" + this.maxWaitTime
+                + ", totalHoldTime=" + this.totalHoldTime + ", maxHoldTime=" + this.maxHoldTime + "]";
+    }
+}
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.db;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.kura.annotation.Immutable;
+import org.eclipse.kura.annotation.ThreadSafe;
+import org.osgi.annotation.versioning.ProviderType;
+
+/**
+ * The Class {@link ConnectionPoolStatistics} represents a snapshot of the state of the connection pool of a
+ * {@link H2DbService}: the number of open, idle and active connections, the configured bounds, the number of callers
+ * waiting for a connection and the {@link CallerConnectionStatistics} of each caller.
+ *
+ * @noextend This class is not intended to be extended by clients.
+ * @since 1.4
+ */
+@Immutable
+@ThreadSafe
+@ProviderType
+public final class ConnectionPoolStatistics {
+
+    private final int size;
+
+    private final int idleCount;
+
+    private final int activeCount;
+
+    private final int minSize;
+
+    private final int maxSize;
+
+    private final int waitingCount;
+
+    private final Map<String, CallerConnectionStatistics> callerStatistics;
+
+    /**
+     * Instantiates a new {@link ConnectionPoolStatistics}.
+     *
+     * @param size
+     *            the number of open connections
+     * @param idleCount
+     *            the number of open connections not in use
+     * @param activeCount
+     *            the number of connections in use
+     * @param minSize
+     *            the configured minimum number of open connections
+     * @param maxSize
+     *            the configured maximum number of connections
+     * @param waitingCount
+     *            the number of callers waiting for a connection
+     * @param callerStatistics
+     *            the statistics of each caller, by caller identifier
+     * @throws NullPointerException
+     *             if the caller statistics are null
+     */
+    public ConnectionPoolStatistics(final int size, final int idleCount, final int activeCount, final int minSize,
+            final int maxSize, final int waitingCount,
+            final Map<String, CallerConnectionStatistics> callerStatistics) {
+        requireNonNull(callerStatistics, "Caller statistics cannot be null");
+
+        this.size = size;
+        this.idleCount = idleCount;
+        this.activeCount = activeCount;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.waitingCount = waitingCount;
+        this.callerStatistics = Collections.unmodifiableMap(new LinkedHashMap<>(callerStatistics));
+    }
+
+    /**
+     * Gets the number of open connections, idle or in use.
+     *
+     * @return the pool size
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Gets the number of open connections not in use.
+     *
+     * @return the number of idle connections
+     */
+    public int getIdleCount() {
+        return this.idleCount;
+    }
+
+    /**
+     * Gets the number of connections in use.
+     *
+     * @return the number of active connections
+     */
+    public int getActiveCount() {
+        return this.activeCount;
+    }
+
+    /**
+     * Gets the configured minimum number of open connections.
+     *
+     * @return the minimum pool size
+     */
+    public int getMinSize() {
+        return this.minSize;
+    }
+
+    /**
+     * Gets the configured maximum number of connections.
+     *
+     * @return the maximum pool size
+     */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Gets the number of callers waiting for a connection.
+     *
+     * @return the number of waiting callers
+     */
+    public int getWaitingCount() {
+        return this.waitingCount;
+    }
+
+    /**
+     * Gets the statistics of each caller that requested a connection.
+     *
+     * @return an unmodifiable map of the caller statistics, by caller identifier
+     */
+    public Map<String, CallerConnectionStatistics> getCallerStatistics() {
+        return this.callerStatistics;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "ConnectionPoolStatistics [size=" + this.size + ", idleCount=" + this.idleCount + ", activeCount="
+                + this.activeCount + ", minSize=" + this.minSize + ", maxSize=" + this.maxSize + ", waitingCount="
+                + this.waitingCount + ", callerStatistics=" + this.callerStatistics.values() + "]";
+    }
+}
@@ -24,4 +24,14 @@ import org.osgi.annotation.versioning.ProviderType;
 public interface H2DbService extends BaseDbService {
 
     public static final String DEFAULT_INSTANCE_PID = "org.eclipse.kura.db.H2DbService";
+
+    /**
+     * Returns a snapshot of the state of the connection pool, including the wait and hold times of the connections
+     * of each caller.
+     *
+     * @return the connection pool statistics, or null if the database instance is not initialized
+     *
+     * @since 1.4
+     */
+    public ConnectionPoolStatistics getConnectionPoolStatistics();
 }
@@ -11,6 +11,8 @@
  *******************************************************************************/
 package org.eclipse.kura.marshalling;
 
+import java.io.Writer;
+
 import org.eclipse.kura.KuraException;
 import org.osgi.annotation.versioning.ProviderType;
 
@@ -33,4 +35,19 @@ public interface Marshaller {
      *             when the marshalling operation fails.
      */
     public String marshal(Object object) throws KuraException;
+
+    /**
+     * Writes the representation of the {@link Object} passed as input to the provided {@link Writer}, without
+     * building the whole representation in memory when the implementation supports it. The writer is flushed but not
+     * closed.
+     *
+     * @param object
+     *            the object that will be marshalled.
+     * @param writer
+     *            the writer the representation of the object is written to
+     * @throws KuraException
+     *             when the marshalling operation fails.
+     * @since 1.4
+     */
+    public void marshal(Object object, Writer writer) throws KuraException;
 }
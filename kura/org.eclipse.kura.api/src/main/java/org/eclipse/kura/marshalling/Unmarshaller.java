@@ -11,6 +11,8 @@
  *******************************************************************************/
 package org.eclipse.kura.marshalling;
 
+import java.io.Reader;
+
 import org.eclipse.kura.KuraException;
 import org.osgi.annotation.versioning.ProviderType;
 
@@ -35,4 +37,19 @@ public interface Unmarshaller {
      *             when the unmarshaling operation fails.
      */
     public <T> T unmarshal(String string, Class<T> clazz) throws KuraException;
+
+    /**
+     * This method reads a representation from the provided {@link Reader} and constructs an object of the provided
+     * class, without loading the whole input in memory when the implementation supports it. The reader is not closed.
+     *
+     * @param reader
+     *            the input reader
+     * @param clazz
+     *            the class representing the type of object expected for the result
+     * @return an object that is constructed from the content of the reader
+     * @throws KuraException
+     *             when the unmarshaling operation fails.
+     * @since 1.4
+     */
+    public <T> T unmarshal(Reader reader, Class<T> clazz) throws KuraException;
 }
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.wire;
+
+import static java.util.Objects.requireNonNull;
+
+import org.eclipse.kura.annotation.Immutable;
+import org.eclipse.kura.annotation.ThreadSafe;
+import org.osgi.annotation.versioning.ProviderType;
+
+/**
+ * The Class {@link WireEmitStatistics} represents a snapshot of the emit activity of a Wire Emitter: the number of
+ * Wire Envelopes emitted since the emitter has been created and the emit rate measured over the last sampling
+ * interval.
+ *
+ * @noextend This class is not intended to be extended by clients.
+ * @since 1.4
+ */
+@Immutable
+@ThreadSafe
+@ProviderType
+public final class WireEmitStatistics {
+
+    private final String emitterPid;
+
+    private final long emitCount;
+
+    private final double emitRate;
+
+    private final long lastEmitTimestamp;
+
+    /**
+     * Instantiates a new {@link WireEmitStatistics}.
+     *
+     * @param emitterPid
+     *            the Wire Emitter PID
+     * @param emitCount
+     *            the number of emitted Wire Envelopes
+     * @param emitRate
+     *            the number of Wire Envelopes emitted per second over the last sampling interval
+     * @param lastEmitTimestamp
+     *            the time of the last emit in milliseconds since the epoch or 0 if nothing has been emitted
+     * @throws NullPointerException
+     *             if the Wire Emitter PID is null
+     */
+    public WireEmitStatistics(final String emitterPid, final long emitCount, final double emitRate,
+            final long lastEmitTimestamp) {
+        requireNonNull(emitterPid, "Emitter PID cannot be null");
+
+        this.emitterPid = emitterPid;
+        this.emitCount = emitCount;
+        this.emitRate = emitRate;
+        this.lastEmitTimestamp = lastEmitTimestamp;
+    }
+
+    /**
+     * Gets the Wire Emitter PID.
+     *
+     * @return the Wire Emitter PID
+     */
+    public String getEmitterPid() {
+        return this.emitterPid;
+    }
+
+    /**
+     * Gets the number of Wire Envelopes emitted.
+     *
+     * @return the number of emitted Wire Envelopes
+     */
+    public long getEmitCount() {
+        return this.emitCount;
+    }
+
+    /**
+     * Gets the number of Wire Envelopes emitted per second over the last sampling interval.
+     *
+     * @return the emit rate
+     */
+    public double getEmitRate() {
+        return this.emitRate;
+    }
+
+    /**
+     * Gets the time of the last emit.
+     *
+     * @return the time of the last emit in milliseconds since the epoch or 0 if nothing has been emitted
+     */
+    public long getLastEmitTimestamp() {
+        return this.lastEmitTimestamp;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "WireEmitStatistics [emitterPid=" + this.emitterPid + ", emitCount=" + this.emitCount + ", emitRate="
+                + this.emitRate + ", lastEmitTimestamp=" + this.lastEmitTimestamp + "]";
+    }
+}
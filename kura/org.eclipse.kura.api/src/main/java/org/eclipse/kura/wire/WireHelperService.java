@@ -13,6 +13,8 @@
  *******************************************************************************/
 package org.eclipse.kura.wire;
 
+import java.util.Map;
+
 import org.osgi.annotation.versioning.ProviderType;
 
 /**
@@ -100,4 +102,12 @@ public interface WireHelperService {
      */
     public WireSupport newWireSupport(WireComponent wireComponent);
 
+    /**
+     * Returns the emit statistics of the available Wire Emitters
+     *
+     * @return the emit statistics mapped by the Wire Emitter PID (kura.service.pid)
+     * @since 1.4
+     */
+    public Map<String, WireEmitStatistics> getEmitStatistics();
+
 }
@@ -13,6 +13,7 @@
  *******************************************************************************/
 package org.eclipse.kura.wire;
 
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.kura.KuraException;
@@ -75,4 +76,13 @@ public interface WireService {
      */
     public Set<WireConfiguration> getWireConfigurations();
 
+    /**
+     * Returns the emit statistics of the available Wire Emitters: the number of Wire Envelopes emitted by each
+     * emitter and the emit rate sampled over the last second.
+     *
+     * @return the emit statistics mapped by the Wire Emitter PID (kura.service.pid)
+     * @since 1.4
+     */
+    public Map<String, WireEmitStatistics> getEmitStatistics();
+
 }
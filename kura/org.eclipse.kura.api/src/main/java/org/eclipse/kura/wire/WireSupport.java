@@ -31,7 +31,8 @@ import org.osgi.service.wireadmin.Producer;
 public interface WireSupport extends Producer, Consumer {
 
     /**
-     * The topic to be used for publishing and receiving the emit trigger events
+     * The topic to be used for publishing and receiving the emit trigger events. The events are published only
+     * while an {@code EventHandler} subscribed to this topic is registered.
      */
     public static final String EMIT_EVENT_TOPIC = "org/eclipse/kura/wires/emit";
 
@@ -53,6 +53,8 @@ public final class AssetCloudlet extends Cloudlet {
 
     private static final String APP_ID = "ASSET-V1";
 
+    private static final long READ_ALL_TIMEOUT_MS = 30000;
+
     private static final Logger logger = LoggerFactory.getLogger(AssetCloudlet.class);
 
     private static final AssetCloudletMessages message = LocalizationAdapter.adapt(AssetCloudletMessages.class);
@@ -223,16 +225,10 @@ public final class AssetCloudlet extends Cloudlet {
 
     private ChannelOperationResponse readAllAssets(final KuraResponsePayload respPayload) {
         ChannelOperationResponse response = new ChannelOperationResponse();
-        for (Entry<String, Asset> entry : this.assets.entrySet()) {
-            final String assetName = entry.getKey();
-            final Asset asset = entry.getValue();
-            try {
-                response.reportResult(assetName, asset.readAllChannels());
-            } catch (Exception e) {
-                response.reportAllFailed(assetName,
-                        asset.getAssetConfiguration().getAssetChannels().keySet().iterator(),
-                        Optional.ofNullable(e.getMessage()).orElse(message.unknownError()));
-            }
+        final Map<String, List<ChannelRecord>> results = this.assetService.readAllChannels(this.assets.keySet(),
+                READ_ALL_TIMEOUT_MS);
+        for (Entry<String, List<ChannelRecord>> entry : results.entrySet()) {
+            response.reportResult(entry.getKey(), entry.getValue());
         }
         return response;
     }
@@ -16,10 +16,31 @@ package org.eclipse.kura.internal.asset;
 import static java.util.Objects.requireNonNull;
 import static org.eclipse.kura.configuration.ConfigurationService.KURA_SERVICE_PID;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.kura.asset.Asset;
+import org.eclipse.kura.asset.AssetConfiguration;
 import org.eclipse.kura.asset.AssetService;
+import org.eclipse.kura.channel.Channel;
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.ChannelStatus;
+import org.eclipse.kura.channel.ChannelType;
 import org.eclipse.kura.localization.LocalizationAdapter;
 import org.eclipse.kura.localization.resources.AssetMessages;
 import org.eclipse.kura.util.collection.CollectionUtil;
@@ -27,15 +48,72 @@ import org.eclipse.kura.util.service.ServiceUtil;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.ServiceReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * The Class AssetServiceImpl is an implementation of the utility API
  * {@link AssetService} to provide useful factory methods for assets
+ * <br/>
+ * <br/>
+ * The reads requested through {@link #readAllChannels(Collection, long)} are performed by a thread pool whose size is
+ * specified by the {@code read.pool.size} component property. At most {@code read.max.concurrency.per.driver} assets
+ * attached to the same driver are read at the same time, so that the pool is not exhausted by reads waiting for a
+ * single slow driver.
  */
 public final class AssetServiceImpl implements AssetService {
 
+    private static final String READ_POOL_SIZE_PROP = "read.pool.size";
+
+    private static final String READ_MAX_CONCURRENCY_PER_DRIVER_PROP = "read.max.concurrency.per.driver";
+
+    private static final int DEFAULT_READ_POOL_SIZE = 8;
+
+    private static final int DEFAULT_READ_MAX_CONCURRENCY_PER_DRIVER = 1;
+
+    private static final AtomicInteger executorCount = new AtomicInteger();
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetServiceImpl.class);
+
     private static final AssetMessages message = LocalizationAdapter.adapt(AssetMessages.class);
 
+    private ExecutorService readExecutor;
+
+    private int maxConcurrencyPerDriver = DEFAULT_READ_MAX_CONCURRENCY_PER_DRIVER;
+
+    /**
+     * OSGi service component callback while activation.
+     *
+     * @param properties
+     *            the service properties
+     */
+    protected synchronized void activate(final Map<String, Object> properties) {
+        final int poolSize = Math.max(1, getInt(properties, READ_POOL_SIZE_PROP, DEFAULT_READ_POOL_SIZE));
+        this.maxConcurrencyPerDriver = Math.max(1, getInt(properties, READ_MAX_CONCURRENCY_PER_DRIVER_PROP,
+                DEFAULT_READ_MAX_CONCURRENCY_PER_DRIVER));
+
+        final String namePrefix = "AssetReadExecutor-" + executorCount.incrementAndGet() + "-";
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    final Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        this.readExecutor = executor;
+    }
+
+    /**
+     * OSGi service component callback while deactivation.
+     */
+    protected synchronized void deactivate() {
+        if (this.readExecutor != null) {
+            this.readExecutor.shutdownNow();
+            this.readExecutor = null;
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public Asset getAsset(final String assetPid) {
@@ -89,4 +167,137 @@ public final class AssetServiceImpl implements AssetService {
         }
         return assets;
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, List<ChannelRecord>> readAllChannels(final Collection<String> assetPids, final long timeout) {
+        requireNonNull(assetPids, message.assetPidsNonNull());
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeout));
+
+        final Map<String, Asset> assets = getAssets(assetPids);
+        final Map<String, List<ChannelRecord>> results = new ConcurrentHashMap<>();
+        final CountDownLatch completed = new CountDownLatch(assets.size());
+
+        final Map<String, Queue<Entry<String, Asset>>> readQueues = new HashMap<>();
+        for (final Entry<String, Asset> entry : assets.entrySet()) {
+            readQueues.computeIfAbsent(getDriverPid(entry.getValue()), driverPid -> new ConcurrentLinkedQueue<>())
+                    .add(entry);
+        }
+
+        final ExecutorService executor = getReadExecutor();
+        for (final Queue<Entry<String, Asset>> readQueue : readQueues.values()) {
+            final int workers = Math.min(readQueue.size(), this.maxConcurrencyPerDriver);
+            for (int i = 0; i < workers; i++) {
+                executor.execute(() -> readAll(readQueue, deadline, results, completed));
+            }
+        }
+
+        try {
+            completed.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (final InterruptedException e) {
+            logger.warn(message.readInterrupted());
+            Thread.currentThread().interrupt();
+        }
+
+        final Map<String, List<ChannelRecord>> result = new LinkedHashMap<>();
+        for (final Entry<String, Asset> entry : assets.entrySet()) {
+            final List<ChannelRecord> records = results.get(entry.getKey());
+            result.put(entry.getKey(), records != null ? records
+                    : createFailureRecords(entry.getValue(), new ChannelStatus(ChannelFlag.FAILURE,
+                            message.readTimedOut(), null)));
+        }
+        return result;
+    }
+
+    private static void readAll(final Queue<Entry<String, Asset>> readQueue, final long deadline,
+            final Map<String, List<ChannelRecord>> results, final CountDownLatch completed) {
+        Entry<String, Asset> entry;
+        while ((entry = readQueue.poll()) != null) {
+            try {
+                if (deadline - System.nanoTime() > 0) {
+                    results.put(entry.getKey(), read(entry.getKey(), entry.getValue()));
+                }
+            } finally {
+                completed.countDown();
+            }
+        }
+    }
+
+    private static List<ChannelRecord> read(final String assetPid, final Asset asset) {
+        try {
+            return asset.readAllChannels();
+        } catch (final Exception e) {
+            logger.warn(message.errorReadingAsset(assetPid), e);
+            return createFailureRecords(asset, new ChannelStatus(ChannelFlag.FAILURE, e.getMessage(), e));
+        }
+    }
+
+    private static List<ChannelRecord> createFailureRecords(final Asset asset, final ChannelStatus status) {
+        final List<ChannelRecord> result = new ArrayList<>();
+        final AssetConfiguration assetConfiguration = asset.getAssetConfiguration();
+        if (assetConfiguration == null) {
+            return result;
+        }
+        final long timestamp = System.currentTimeMillis();
+        for (final Channel channel : assetConfiguration.getAssetChannels().values()) {
+            if (channel.getType() == ChannelType.READ || channel.getType() == ChannelType.READ_WRITE) {
+                final ChannelRecord record = ChannelRecord.createStatusRecord(channel.getName(), status);
+                record.setTimestamp(timestamp);
+                result.add(record);
+            }
+        }
+        return result;
+    }
+
+    private Map<String, Asset> getAssets(final Collection<String> assetPids) {
+        final Map<String, Asset> registeredAssets = new HashMap<>();
+        final BundleContext context = FrameworkUtil.getBundle(this.getClass()).getBundleContext();
+        final ServiceReference<Asset>[] refs = ServiceUtil.getServiceReferences(context, Asset.class, null);
+        try {
+            for (final ServiceReference<Asset> ref : refs) {
+                final Object assetPid = ref.getProperty(KURA_SERVICE_PID);
+                if (assetPid != null) {
+                    registeredAssets.put(assetPid.toString(), context.getService(ref));
+                }
+            }
+        } finally {
+            ServiceUtil.ungetServiceReferences(context, refs);
+        }
+
+        final Map<String, Asset> result = new LinkedHashMap<>();
+        for (final String assetPid : assetPids) {
+            final Asset asset = registeredAssets.get(assetPid);
+            if (asset != null) {
+                result.put(assetPid, asset);
+            }
+        }
+        return result;
+    }
+
+    private static String getDriverPid(final Asset asset) {
+        final AssetConfiguration assetConfiguration = asset.getAssetConfiguration();
+        final String driverPid = assetConfiguration != null ? assetConfiguration.getDriverPid() : null;
+        return driverPid != null ? driverPid : "";
+    }
+
+    private synchronized ExecutorService getReadExecutor() {
+        if (this.readExecutor == null) {
+            throw new IllegalStateException("The asset service is not active");
+        }
+        return this.readExecutor;
+    }
+
+    private static int getInt(final Map<String, Object> properties, final String key, final int defaultValue) {
+        final Object value = properties != null ? properties.get(key) : null;
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        } else if (value != null) {
+            try {
+                return Integer.parseInt(value.toString().trim());
+            } catch (final NumberFormatException e) {
+                logger.warn("Invalid value for property {}: {}", key, value);
+            }
+        }
+        return defaultValue;
+    }
 }
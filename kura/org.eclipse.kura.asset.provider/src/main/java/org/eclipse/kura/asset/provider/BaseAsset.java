@@ -389,7 +389,7 @@ public class BaseAsset implements Asset, SelfConfiguringComponent {
             return;
         }
 
-        final ChannelDescriptor basicChanneldescriptor = new BaseChannelDescriptor();
+        final ChannelDescriptor basicChanneldescriptor = getBaseChannelDescriptor();
         final Object baseChannelDescriptor = basicChanneldescriptor.getDescriptor();
         if (nonNull(baseChannelDescriptor) && baseChannelDescriptor instanceof List<?>) {
             List<Tad> channelConfiguration = (List<Tad>) baseChannelDescriptor;
@@ -404,6 +404,20 @@ public class BaseAsset implements Asset, SelfConfiguringComponent {
         }
     }
 
+    /**
+     * Returns the descriptor of the generic channel properties, the elements of the returned descriptor are merged
+     * with the driver specific ones when building the component configuration. This method must return a new instance
+     * on each invocation, since the returned descriptor will be modified by the caller.
+     * Subclasses can override this method in order to define additional generic channel properties, the ids of these
+     * properties must begin with the '+' character.
+     *
+     * @return the descriptor of the generic channel properties, by default a new {@link BaseChannelDescriptor}
+     * @since 2.1
+     */
+    protected ChannelDescriptor getBaseChannelDescriptor() {
+        return new BaseChannelDescriptor();
+    }
+
     @SuppressWarnings("unchecked")
     private void updateExistingProperties(final Driver driver) throws KuraException {
         if (driver == null || properties == null || assetConfiguration == null) {
@@ -633,17 +647,23 @@ public class BaseAsset implements Asset, SelfConfiguringComponent {
     }
 
     private synchronized void tryPrepareRead(List<ChannelRecord> readRecords) {
-        if (this.preparedRead != null) {
-            try {
-                this.preparedRead.close();
-            } catch (Exception e) {
-                logger.warn(message.errorClosingPreparingRead(), e);
+        // the prepared read must not be replaced while readAllChannels() is executing it
+        this.monitor.lock();
+        try {
+            if (this.preparedRead != null) {
+                try {
+                    this.preparedRead.close();
+                } catch (Exception e) {
+                    logger.warn(message.errorClosingPreparingRead(), e);
+                }
+                this.preparedRead = null;
             }
-            this.preparedRead = null;
-        }
 
-        if (!readRecords.isEmpty() && driver != null) {
-            this.preparedRead = driver.prepareRead(readRecords);
+            if (!readRecords.isEmpty() && driver != null) {
+                this.preparedRead = driver.prepareRead(readRecords);
+            }
+        } finally {
+            this.monitor.unlock();
         }
     }
 
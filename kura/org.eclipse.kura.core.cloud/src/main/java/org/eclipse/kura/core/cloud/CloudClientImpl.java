@@ -121,8 +121,10 @@ public class CloudClientImpl implements CloudClient, CloudClientListener {
     @Override
     public int publish(String deviceId, String appTopic, KuraPayload payload, int qos, boolean retain, int priority)
             throws KuraException {
-        byte[] appPayload = this.cloudServiceImpl.encodePayload(payload);
-        return publish(deviceId, appTopic, appPayload, qos, retain, priority);
+        boolean isControl = false;
+        String fullTopic = encodeTopic(deviceId, appTopic, isControl);
+        byte[] appPayload = this.cloudServiceImpl.encodePayload(fullTopic, payload);
+        return this.dataService.publish(fullTopic, appPayload, qos, retain, priority);
     }
 
     @Override
@@ -149,8 +151,10 @@ public class CloudClientImpl implements CloudClient, CloudClientListener {
     @Override
     public int controlPublish(String deviceId, String appTopic, KuraPayload payload, int qos, boolean retain, int priority)
             throws KuraException {
-        byte[] appPayload = this.cloudServiceImpl.encodePayload(payload);
-        return controlPublish(deviceId, appTopic, appPayload, qos, retain, priority);
+        boolean isControl = true;
+        String fullTopic = encodeTopic(deviceId, appTopic, isControl);
+        byte[] appPayload = this.cloudServiceImpl.encodePayload(fullTopic, payload);
+        return this.dataService.publish(fullTopic, appPayload, qos, retain, priority);
     }
 
     @Override
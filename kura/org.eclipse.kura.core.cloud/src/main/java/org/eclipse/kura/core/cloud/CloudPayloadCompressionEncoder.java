@@ -13,22 +13,25 @@ package org.eclipse.kura.core.cloud;
 
 import java.io.IOException;
 
-import org.eclipse.kura.core.util.GZipUtil;
-
-public class CloudPayloadGZipEncoder implements CloudPayloadEncoder {
+/**
+ * Decorates a {@link CloudPayloadEncoder} compressing the encoded payload with a {@link CloudPayloadCompressor}.
+ */
+public class CloudPayloadCompressionEncoder implements CloudPayloadEncoder {
 
     private final CloudPayloadEncoder m_decorated;
+    private final CloudPayloadCompressor m_compressor;
+    private final String m_topic;
 
-    public CloudPayloadGZipEncoder(CloudPayloadEncoder decorated) {
+    public CloudPayloadCompressionEncoder(CloudPayloadEncoder decorated, CloudPayloadCompressor compressor,
+            String topic) {
         this.m_decorated = decorated;
+        this.m_compressor = compressor;
+        this.m_topic = topic;
     }
 
     @Override
     public byte[] getBytes() throws IOException {
-        byte[] source = this.m_decorated.getBytes();
-        byte[] compressed = GZipUtil.compress(source);
-
-        // Return gzip compressed data only if shorter than uncompressed one
-        return compressed.length < source.length ? compressed : source;
+        // The compressor returns compressed data only if shorter than uncompressed one
+        return this.m_compressor.compress(this.m_topic, this.m_decorated.getBytes());
     }
 }
@@ -0,0 +1,353 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import org.eclipse.kura.core.util.GZipUtil;
+
+/**
+ * Compresses and decompresses the encoded message payloads.
+ * <p>
+ * The {@link Deflater} and {@link Inflater} instances are pooled and reused across messages. Payloads smaller than
+ * the configured threshold are sent uncompressed, as well as payloads that would not be reduced by the compression.
+ * <p>
+ * By default payloads are compressed in the gzip format. If preset dictionaries are enabled, a dictionary is trained
+ * for each topic from the most recent payloads published or received on it, and the payloads are compressed in the
+ * zlib format with the dictionary identified by its Adler-32 checksum. The remote endpoint can only decompress such
+ * payloads if it trains its dictionaries from the same sequence of payloads, so dictionaries should be enabled only
+ * when both endpoints support them.
+ */
+public class CloudPayloadCompressor {
+
+    private static final int POOL_SIZE = 4;
+    private static final int MAX_DICTIONARY_TOPICS = 64;
+    private static final int MIN_DICTIONARY_SIZE = 256;
+
+    private static final int GZIP_HEADER_SIZE = 10;
+    private static final int GZIP_TRAILER_SIZE = 8;
+    private static final byte[] GZIP_HEADER = { (byte) GZIPInputStream.GZIP_MAGIC,
+            (byte) (GZIPInputStream.GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+    private final int threshold;
+    private final int dictionarySize;
+
+    private final BlockingQueue<Deflater> gzipDeflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final BlockingQueue<Deflater> zlibDeflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final BlockingQueue<Inflater> zlibInflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private final Map<String, TopicDictionary> dictionaries = new LinkedHashMap<String, TopicDictionary>(16, 0.75f,
+            true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TopicDictionary> eldest) {
+            return size() > MAX_DICTIONARY_TOPICS;
+        }
+    };
+
+    private volatile boolean closed;
+
+    /**
+     * @param threshold
+     *            the size in bytes below which payloads are not compressed
+     * @param dictionarySize
+     *            the size in bytes of the preset dictionaries, 0 disables them
+     */
+    public CloudPayloadCompressor(int threshold, int dictionarySize) {
+        this.threshold = Math.max(0, threshold);
+        this.dictionarySize = dictionarySize > 0 ? Math.max(MIN_DICTIONARY_SIZE, dictionarySize) : 0;
+    }
+
+    public boolean isDictionaryEnabled() {
+        return this.dictionarySize > 0;
+    }
+
+    /**
+     * Compresses the provided payload.
+     *
+     * @param topic
+     *            the topic the payload will be published on, or null if the topic is not known
+     * @param source
+     *            the encoded payload
+     * @return the compressed payload, or the source itself if it is smaller than the threshold or the compression
+     *         does not reduce its size
+     */
+    public byte[] compress(String topic, byte[] source) {
+        final TopicDictionary dictionary = getDictionary(topic);
+
+        byte[] result = source;
+        if (source.length >= this.threshold && source.length > GZIP_HEADER_SIZE + GZIP_TRAILER_SIZE) {
+            final byte[] preset = dictionary != null ? dictionary.getPreset() : null;
+            final byte[] compressed = preset != null ? deflateZlib(source, preset) : deflateGzip(source);
+            if (compressed != null) {
+                result = compressed;
+            }
+        }
+
+        if (dictionary != null) {
+            dictionary.train(source);
+        }
+        return result;
+    }
+
+    /**
+     * Decompresses a payload received on the provided topic. Payloads that are neither gzip compressed nor compressed
+     * with a known preset dictionary are returned unchanged.
+     *
+     * @param topic
+     *            the topic the payload has been received on
+     * @param source
+     *            the received payload
+     * @return the decompressed payload
+     * @throws IOException
+     *             if the payload looks compressed but cannot be decompressed
+     */
+    public byte[] decompress(String topic, byte[] source) throws IOException {
+        final TopicDictionary dictionary = getDictionary(topic);
+
+        byte[] result = source;
+        if (GZipUtil.isCompressed(source)) {
+            result = GZipUtil.decompress(source);
+        } else if (dictionary != null && isZlibWithDictionary(source)) {
+            result = inflateZlib(source, dictionary);
+        }
+
+        if (dictionary != null) {
+            dictionary.train(result);
+        }
+        return result;
+    }
+
+    /**
+     * Releases the pooled compressors. Compressors in use are released when they are returned to the pool.
+     */
+    public void close() {
+        this.closed = true;
+        endAll(this.gzipDeflaters);
+        endAll(this.zlibDeflaters);
+        for (Inflater inflater = this.zlibInflaters.poll(); inflater != null; inflater = this.zlibInflaters.poll()) {
+            inflater.end();
+        }
+    }
+
+    private TopicDictionary getDictionary(String topic) {
+        if (this.dictionarySize == 0 || topic == null) {
+            return null;
+        }
+        synchronized (this.dictionaries) {
+            TopicDictionary dictionary = this.dictionaries.get(topic);
+            if (dictionary == null) {
+                dictionary = new TopicDictionary(this.dictionarySize);
+                this.dictionaries.put(topic, dictionary);
+            }
+            return dictionary;
+        }
+    }
+
+    private byte[] deflateGzip(byte[] source) {
+        final Deflater deflater = acquire(this.gzipDeflaters, true);
+        try {
+            deflater.setInput(source);
+            deflater.finish();
+
+            // the compressed payload is used only if smaller than the source, no bigger buffer is needed
+            final byte[] buffer = new byte[source.length];
+            System.arraycopy(GZIP_HEADER, 0, buffer, 0, GZIP_HEADER_SIZE);
+            final int limit = source.length - GZIP_TRAILER_SIZE - 1;
+            final int length = deflate(deflater, buffer, GZIP_HEADER_SIZE, limit);
+            if (length < 0) {
+                return null;
+            }
+
+            final CRC32 crc = new CRC32();
+            crc.update(source);
+            writeIntLE(buffer, length, (int) crc.getValue());
+            writeIntLE(buffer, length + 4, source.length);
+            return Arrays.copyOf(buffer, length + GZIP_TRAILER_SIZE);
+        } finally {
+            release(this.gzipDeflaters, deflater);
+        }
+    }
+
+    private byte[] deflateZlib(byte[] source, byte[] preset) {
+        final Deflater deflater = acquire(this.zlibDeflaters, false);
+        try {
+            deflater.setDictionary(preset);
+            deflater.setInput(source);
+            deflater.finish();
+
+            final byte[] buffer = new byte[source.length];
+            final int length = deflate(deflater, buffer, 0, source.length - 1);
+            return length < 0 ? null : Arrays.copyOf(buffer, length);
+        } finally {
+            release(this.zlibDeflaters, deflater);
+        }
+    }
+
+    private static int deflate(Deflater deflater, byte[] buffer, int offset, int limit) {
+        int length = offset;
+        while (!deflater.finished()) {
+            if (length >= limit) {
+                return -1;
+            }
+            length += deflater.deflate(buffer, length, limit - length);
+        }
+        return length;
+    }
+
+    private byte[] inflateZlib(byte[] source, TopicDictionary dictionary) throws IOException {
+        final Inflater inflater = acquireInflater();
+        try {
+            inflater.setInput(source);
+
+            byte[] buffer = new byte[Math.max(64, source.length * 4)];
+            int length = 0;
+            while (!inflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                final int count = inflater.inflate(buffer, length, buffer.length - length);
+                if (count == 0) {
+                    if (inflater.needsDictionary()) {
+                        final byte[] preset = dictionary.getPreset(inflater.getAdler());
+                        if (preset == null) {
+                            throw new IOException("Unknown preset dictionary: " + inflater.getAdler());
+                        }
+                        inflater.setDictionary(preset);
+                    } else if (inflater.needsInput()) {
+                        throw new IOException("Truncated compressed payload");
+                    }
+                }
+                length += count;
+            }
+            return Arrays.copyOf(buffer, length);
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.reset();
+            if (this.closed || !this.zlibInflaters.offer(inflater)) {
+                inflater.end();
+            }
+        }
+    }
+
+    private static boolean isZlibWithDictionary(byte[] bytes) {
+        if (bytes == null || bytes.length < 6) {
+            return false;
+        }
+        final int cmf = bytes[0] & 0xff;
+        final int flg = bytes[1] & 0xff;
+        return (cmf & 0x0f) == Deflater.DEFLATED && cmf >> 4 <= 7 && (cmf << 8 | flg) % 31 == 0
+                && (flg & 0x20) != 0;
+    }
+
+    private Deflater acquire(BlockingQueue<Deflater> pool, boolean nowrap) {
+        final Deflater deflater = pool.poll();
+        return deflater != null ? deflater : new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap);
+    }
+
+    private Inflater acquireInflater() {
+        final Inflater inflater = this.zlibInflaters.poll();
+        return inflater != null ? inflater : new Inflater();
+    }
+
+    private void release(BlockingQueue<Deflater> pool, Deflater deflater) {
+        deflater.reset();
+        if (this.closed || !pool.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    private static void endAll(BlockingQueue<Deflater> pool) {
+        for (Deflater deflater = pool.poll(); deflater != null; deflater = pool.poll()) {
+            deflater.end();
+        }
+    }
+
+    private static void writeIntLE(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >> 8);
+        buffer[offset + 2] = (byte) (value >> 16);
+        buffer[offset + 3] = (byte) (value >> 24);
+    }
+
+    /**
+     * Trains the preset dictionary of a topic from the most recent payloads. The payloads are appended to a window
+     * holding the last dictionary size bytes, with the most recent ones at the end where they are cheaper to
+     * reference. A new preset is taken from the window each time it has been completely refilled, so that both
+     * endpoints switch dictionary at the same payload. The previous preset is kept to decode the payloads compressed
+     * before the switch.
+     */
+    private static final class TopicDictionary {
+
+        private final byte[] window;
+        private int filled;
+        private int pending;
+
+        private byte[] preset;
+        private int presetId;
+        private byte[] previousPreset;
+        private int previousPresetId;
+
+        TopicDictionary(int size) {
+            this.window = new byte[size];
+        }
+
+        synchronized byte[] getPreset() {
+            return this.preset;
+        }
+
+        synchronized byte[] getPreset(int id) {
+            if (this.preset != null && this.presetId == id) {
+                return this.preset;
+            } else if (this.previousPreset != null && this.previousPresetId == id) {
+                return this.previousPreset;
+            }
+            return null;
+        }
+
+        synchronized void train(byte[] payload) {
+            final int size = this.window.length;
+            final int count = Math.min(payload.length, size);
+
+            // drop the oldest bytes to make room for the new ones at the end
+            final int dropped = Math.max(0, this.filled + count - size);
+            if (dropped > 0) {
+                System.arraycopy(this.window, dropped, this.window, 0, this.filled - dropped);
+                this.filled -= dropped;
+            }
+            System.arraycopy(payload, payload.length - count, this.window, this.filled, count);
+            this.filled += count;
+            this.pending += payload.length;
+
+            if (this.pending >= size) {
+                this.pending = 0;
+                this.previousPreset = this.preset;
+                this.previousPresetId = this.presetId;
+                this.preset = Arrays.copyOf(this.window, this.filled);
+                final Adler32 adler = new Adler32();
+                adler.update(this.preset);
+                this.presetId = (int) adler.getValue();
+            }
+        }
+    }
+}
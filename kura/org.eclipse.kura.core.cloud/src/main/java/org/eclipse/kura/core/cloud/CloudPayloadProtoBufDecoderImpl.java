@@ -17,19 +17,74 @@ import java.util.Date;
 import org.eclipse.kura.KuraInvalidMessageException;
 import org.eclipse.kura.KuraInvalidMetricTypeException;
 import org.eclipse.kura.core.message.protobuf.KuraPayloadProto;
+import org.eclipse.kura.core.message.protobuf.KuraPayloadProto.KuraPayload.KuraMetric;
+import org.eclipse.kura.core.message.protobuf.KuraPayloadProto.KuraPayload.KuraMetric.ValueType;
 import org.eclipse.kura.core.util.GZipUtil;
 import org.eclipse.kura.message.KuraPayload;
 import org.eclipse.kura.message.KuraPosition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
 
+/**
+ * Decodes a KuraPayload from the Google ProtoBuf binary format.
+ * <p>
+ * The KuraPayloadProto wire format is read directly into the resulting KuraPayload, without building the
+ * intermediate protobuf message tree. Unknown fields are skipped and missing required fields are reported as invalid
+ * messages, as the generated protobuf parser does.
+ */
 public class CloudPayloadProtoBufDecoderImpl {
 
     private static final Logger s_logger = LoggerFactory.getLogger(CloudPayloadProtoBufDecoderImpl.class);
 
+    private static final int TIMESTAMP_TAG = makeTag(KuraPayloadProto.KuraPayload.TIMESTAMP_FIELD_NUMBER,
+            WireFormat.WIRETYPE_VARINT);
+    private static final int POSITION_TAG = makeTag(KuraPayloadProto.KuraPayload.POSITION_FIELD_NUMBER,
+            WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    private static final int METRIC_TAG = makeTag(KuraPayloadProto.KuraPayload.METRIC_FIELD_NUMBER,
+            WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    private static final int BODY_TAG = makeTag(KuraPayloadProto.KuraPayload.BODY_FIELD_NUMBER,
+            WireFormat.WIRETYPE_LENGTH_DELIMITED);
+
+    private static final int METRIC_NAME_TAG = makeTag(KuraMetric.NAME_FIELD_NUMBER,
+            WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    private static final int METRIC_TYPE_TAG = makeTag(KuraMetric.TYPE_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+    private static final int METRIC_DOUBLE_TAG = makeTag(KuraMetric.DOUBLE_VALUE_FIELD_NUMBER,
+            WireFormat.WIRETYPE_FIXED64);
+    private static final int METRIC_FLOAT_TAG = makeTag(KuraMetric.FLOAT_VALUE_FIELD_NUMBER,
+            WireFormat.WIRETYPE_FIXED32);
+    private static final int METRIC_LONG_TAG = makeTag(KuraMetric.LONG_VALUE_FIELD_NUMBER,
+            WireFormat.WIRETYPE_VARINT);
+    private static final int METRIC_INT_TAG = makeTag(KuraMetric.INT_VALUE_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+    private static final int METRIC_BOOL_TAG = makeTag(KuraMetric.BOOL_VALUE_FIELD_NUMBER,
+            WireFormat.WIRETYPE_VARINT);
+    private static final int METRIC_STRING_TAG = makeTag(KuraMetric.STRING_VALUE_FIELD_NUMBER,
+            WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    private static final int METRIC_BYTES_TAG = makeTag(KuraMetric.BYTES_VALUE_FIELD_NUMBER,
+            WireFormat.WIRETYPE_LENGTH_DELIMITED);
+
+    private static final int POSITION_LATITUDE_TAG = makeTag(
+            KuraPayloadProto.KuraPayload.KuraPosition.LATITUDE_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED64);
+    private static final int POSITION_LONGITUDE_TAG = makeTag(
+            KuraPayloadProto.KuraPayload.KuraPosition.LONGITUDE_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED64);
+    private static final int POSITION_ALTITUDE_TAG = makeTag(
+            KuraPayloadProto.KuraPayload.KuraPosition.ALTITUDE_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED64);
+    private static final int POSITION_PRECISION_TAG = makeTag(
+            KuraPayloadProto.KuraPayload.KuraPosition.PRECISION_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED64);
+    private static final int POSITION_HEADING_TAG = makeTag(
+            KuraPayloadProto.KuraPayload.KuraPosition.HEADING_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED64);
+    private static final int POSITION_SPEED_TAG = makeTag(
+            KuraPayloadProto.KuraPayload.KuraPosition.SPEED_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED64);
+    private static final int POSITION_TIMESTAMP_TAG = makeTag(
+            KuraPayloadProto.KuraPayload.KuraPosition.TIMESTAMP_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+    private static final int POSITION_SATELLITES_TAG = makeTag(
+            KuraPayloadProto.KuraPayload.KuraPosition.SATELLITES_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+    private static final int POSITION_STATUS_TAG = makeTag(
+            KuraPayloadProto.KuraPayload.KuraPosition.STATUS_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+
     private byte[] m_bytes;
 
     public CloudPayloadProtoBufDecoderImpl(byte[] bytes) {
@@ -55,108 +110,166 @@ public class CloudPayloadProtoBufDecoderImpl {
             }
         }
 
-        // build the KuraPayloadProto.KuraPayload
-        KuraPayloadProto.KuraPayload protoMsg = null;
+        // build the KuraPayload
+        KuraPayload kuraMsg = new KuraPayload();
         try {
-            protoMsg = KuraPayloadProto.KuraPayload.parseFrom(this.m_bytes);
+            readPayload(CodedInputStream.newInstance(this.m_bytes), kuraMsg);
         } catch (InvalidProtocolBufferException ipbe) {
             throw new KuraInvalidMessageException(ipbe);
         }
+        return kuraMsg;
+    }
 
-        // build the KuraPayload
-        KuraPayload kuraMsg = new KuraPayload();
-
-        // set the timestamp
-        if (protoMsg.hasTimestamp()) {
-            kuraMsg.setTimestamp(new Date(protoMsg.getTimestamp()));
-        }
-
-        // set the position
-        if (protoMsg.hasPosition()) {
-            kuraMsg.setPosition(buildFromProtoBuf(protoMsg.getPosition()));
+    private void readPayload(CodedInputStream input, KuraPayload kuraMsg) throws IOException {
+        while (true) {
+            final int tag = input.readTag();
+            if (tag == 0) {
+                return;
+            } else if (tag == TIMESTAMP_TAG) {
+                kuraMsg.setTimestamp(new Date(input.readInt64()));
+            } else if (tag == POSITION_TAG) {
+                // repeated occurrences of an embedded message are merged
+                KuraPosition position = kuraMsg.getPosition();
+                if (position == null) {
+                    position = new KuraPosition();
+                    kuraMsg.setPosition(position);
+                }
+                final int limit = input.pushLimit(input.readRawVarint32());
+                readPosition(input, position);
+                input.popLimit(limit);
+            } else if (tag == METRIC_TAG) {
+                final int limit = input.pushLimit(input.readRawVarint32());
+                readMetric(input, kuraMsg);
+                input.popLimit(limit);
+            } else if (tag == BODY_TAG) {
+                kuraMsg.setBody(input.readByteArray());
+            } else if (!input.skipField(tag)) {
+                return;
+            }
         }
+    }
 
-        // set the metrics
-        for (int i = 0; i < protoMsg.getMetricCount(); i++) {
-            String name = protoMsg.getMetric(i).getName();
-            try {
-                Object value = getProtoKuraMetricValue(protoMsg.getMetric(i), protoMsg.getMetric(i).getType());
-                kuraMsg.addMetric(name, value);
-            } catch (KuraInvalidMetricTypeException ihte) {
-                s_logger.warn("During deserialization, ignoring metric named: {}. Unrecognized value type: {}", name,
-                        protoMsg.getMetric(i).getType(), ihte);
+    private void readPosition(CodedInputStream input, KuraPosition position) throws IOException {
+        while (true) {
+            final int tag = input.readTag();
+            if (tag == 0) {
+                break;
+            } else if (tag == POSITION_LATITUDE_TAG) {
+                position.setLatitude(input.readDouble());
+            } else if (tag == POSITION_LONGITUDE_TAG) {
+                position.setLongitude(input.readDouble());
+            } else if (tag == POSITION_ALTITUDE_TAG) {
+                position.setAltitude(input.readDouble());
+            } else if (tag == POSITION_PRECISION_TAG) {
+                position.setPrecision(input.readDouble());
+            } else if (tag == POSITION_HEADING_TAG) {
+                position.setHeading(input.readDouble());
+            } else if (tag == POSITION_SPEED_TAG) {
+                position.setSpeed(input.readDouble());
+            } else if (tag == POSITION_TIMESTAMP_TAG) {
+                position.setTimestamp(new Date(input.readInt64()));
+            } else if (tag == POSITION_SATELLITES_TAG) {
+                position.setSatellites(input.readInt32());
+            } else if (tag == POSITION_STATUS_TAG) {
+                position.setStatus(input.readInt32());
+            } else if (!input.skipField(tag)) {
+                break;
             }
         }
 
-        // set the body
-        if (protoMsg.hasBody()) {
-            kuraMsg.setBody(protoMsg.getBody().toByteArray());
+        if (position.getLatitude() == null || position.getLongitude() == null) {
+            throw new InvalidProtocolBufferException("Message missing required fields: position.latitude, "
+                    + "position.longitude");
         }
-
-        return kuraMsg;
     }
 
-    private KuraPosition buildFromProtoBuf(KuraPayloadProto.KuraPayload.KuraPosition protoPosition) {
-        KuraPosition position = new KuraPosition();
+    private void readMetric(CodedInputStream input, KuraPayload kuraMsg) throws IOException {
+        String name = null;
+        ValueType type = null;
+        double doubleValue = 0;
+        float floatValue = 0;
+        long longValue = 0;
+        int intValue = 0;
+        boolean boolValue = false;
+        String stringValue = "";
+        byte[] bytesValue = null;
 
-        if (protoPosition.hasLatitude()) {
-            position.setLatitude(protoPosition.getLatitude());
-        }
-        if (protoPosition.hasLongitude()) {
-            position.setLongitude(protoPosition.getLongitude());
-        }
-        if (protoPosition.hasAltitude()) {
-            position.setAltitude(protoPosition.getAltitude());
-        }
-        if (protoPosition.hasPrecision()) {
-            position.setPrecision(protoPosition.getPrecision());
-        }
-        if (protoPosition.hasHeading()) {
-            position.setHeading(protoPosition.getHeading());
-        }
-        if (protoPosition.hasSpeed()) {
-            position.setSpeed(protoPosition.getSpeed());
-        }
-        if (protoPosition.hasSatellites()) {
-            position.setSatellites(protoPosition.getSatellites());
+        while (true) {
+            final int tag = input.readTag();
+            if (tag == 0) {
+                break;
+            } else if (tag == METRIC_NAME_TAG) {
+                name = input.readString();
+            } else if (tag == METRIC_TYPE_TAG) {
+                // unknown enum values are treated as unknown fields
+                final ValueType value = ValueType.valueOf(input.readEnum());
+                if (value != null) {
+                    type = value;
+                }
+            } else if (tag == METRIC_DOUBLE_TAG) {
+                doubleValue = input.readDouble();
+            } else if (tag == METRIC_FLOAT_TAG) {
+                floatValue = input.readFloat();
+            } else if (tag == METRIC_LONG_TAG) {
+                longValue = input.readInt64();
+            } else if (tag == METRIC_INT_TAG) {
+                intValue = input.readInt32();
+            } else if (tag == METRIC_BOOL_TAG) {
+                boolValue = input.readBool();
+            } else if (tag == METRIC_STRING_TAG) {
+                stringValue = input.readString();
+            } else if (tag == METRIC_BYTES_TAG) {
+                bytesValue = input.readByteArray();
+            } else if (!input.skipField(tag)) {
+                break;
+            }
         }
-        if (protoPosition.hasStatus()) {
-            position.setStatus(protoPosition.getStatus());
+
+        if (name == null || type == null) {
+            throw new InvalidProtocolBufferException("Message missing required fields: metric.name, metric.type");
         }
-        if (protoPosition.hasTimestamp()) {
-            position.setTimestamp(new Date(protoPosition.getTimestamp()));
+
+        try {
+            kuraMsg.addMetric(name, getProtoKuraMetricValue(type, doubleValue, floatValue, longValue, intValue,
+                    boolValue, stringValue, bytesValue));
+        } catch (KuraInvalidMetricTypeException ihte) {
+            s_logger.warn("During deserialization, ignoring metric named: {}. Unrecognized value type: {}", name, type,
+                    ihte);
         }
-        return position;
     }
 
-    private Object getProtoKuraMetricValue(KuraPayloadProto.KuraPayload.KuraMetric metric,
-            KuraPayloadProto.KuraPayload.KuraMetric.ValueType type) throws KuraInvalidMetricTypeException {
+    private Object getProtoKuraMetricValue(ValueType type, double doubleValue, float floatValue, long longValue,
+            int intValue, boolean boolValue, String stringValue, byte[] bytesValue)
+            throws KuraInvalidMetricTypeException {
         switch (type) {
 
         case DOUBLE:
-            return metric.getDoubleValue();
+            return doubleValue;
 
         case FLOAT:
-            return metric.getFloatValue();
+            return floatValue;
 
         case INT64:
-            return metric.getLongValue();
+            return longValue;
 
         case INT32:
-            return metric.getIntValue();
+            return intValue;
 
         case BOOL:
-            return metric.getBoolValue();
+            return boolValue;
 
         case STRING:
-            return metric.getStringValue();
+            return stringValue;
 
         case BYTES:
-            ByteString bs = metric.getBytesValue();
-            return bs.toByteArray();
+            return bytesValue != null ? bytesValue : new byte[0];
 
         default:
             throw new KuraInvalidMetricTypeException(type);
         }
     }
+
+    private static int makeTag(int fieldNumber, int wireType) {
+        return fieldNumber << 3 | wireType;
+    }
 }
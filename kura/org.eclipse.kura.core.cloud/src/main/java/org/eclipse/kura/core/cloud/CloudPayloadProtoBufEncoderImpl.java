@@ -12,26 +12,43 @@
  *******************************************************************************/
 package org.eclipse.kura.core.cloud;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.kura.KuraInvalidMetricTypeException;
 import org.eclipse.kura.core.message.protobuf.KuraPayloadProto;
 import org.eclipse.kura.core.message.protobuf.KuraPayloadProto.KuraPayload.KuraMetric;
+import org.eclipse.kura.core.message.protobuf.KuraPayloadProto.KuraPayload.KuraMetric.ValueType;
 import org.eclipse.kura.message.KuraPayload;
 import org.eclipse.kura.message.KuraPosition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.UninitializedMessageException;
+import com.google.protobuf.WireFormat;
 
 /**
  * Encodes an KuraPayload class using the Google ProtoBuf binary format.
+ * <p>
+ * The payload is written directly in the KuraPayloadProto wire format, without building the intermediate protobuf
+ * message tree. The sizes of the nested messages are computed first, so that the encoded payload can be written in a
+ * single pass into an array of the exact size. The output is the same produced by serializing the equivalent
+ * KuraPayloadProto message.
  */
 public class CloudPayloadProtoBufEncoderImpl implements CloudPayloadEncoder {
 
     private static final Logger logger = LoggerFactory.getLogger(CloudPayloadProtoBufEncoderImpl.class);
 
+    private static final int METRIC_TAG_SIZE = CodedOutputStream
+            .computeTagSize(KuraPayloadProto.KuraPayload.METRIC_FIELD_NUMBER);
+    private static final int POSITION_TAG_SIZE = CodedOutputStream
+            .computeTagSize(KuraPayloadProto.KuraPayload.POSITION_FIELD_NUMBER);
+
     private final KuraPayload kuraPayload;
 
     public CloudPayloadProtoBufEncoderImpl(KuraPayload kuraPayload) {
@@ -45,117 +62,250 @@ public class CloudPayloadProtoBufEncoderImpl implements CloudPayloadEncoder {
      */
     @Override
     public byte[] getBytes() throws IOException {
-        // Build the message
-        KuraPayloadProto.KuraPayload.Builder protoMsg = KuraPayloadProto.KuraPayload.newBuilder();
+        final Map<String, Object> metrics = this.kuraPayload.metrics();
+        final int metricCount = metrics.size();
+
+        // the names and the string values are encoded only once and reused while writing
+        final byte[][] names = new byte[metricCount][];
+        final ValueType[] types = new ValueType[metricCount];
+        final Object[] values = new Object[metricCount];
+        final int[] sizes = new int[metricCount];
 
-        // set the timestamp
+        int count = 0;
+        int size = 0;
+
+        // compute the size of the timestamp
         if (this.kuraPayload.getTimestamp() != null) {
-            protoMsg.setTimestamp(this.kuraPayload.getTimestamp().getTime());
+            size += CodedOutputStream.computeInt64Size(KuraPayloadProto.KuraPayload.TIMESTAMP_FIELD_NUMBER,
+                    this.kuraPayload.getTimestamp().getTime());
         }
 
-        // set the position
-        if (this.kuraPayload.getPosition() != null) {
-            protoMsg.setPosition(buildPositionProtoBuf());
+        // compute the size of the position
+        final KuraPosition position = this.kuraPayload.getPosition();
+        int positionSize = 0;
+        if (position != null) {
+            positionSize = computePositionSize(position);
+            size += POSITION_TAG_SIZE + CodedOutputStream.computeRawVarint32Size(positionSize) + positionSize;
         }
 
-        // set the metrics
-        for (final Map.Entry<String, Object> entry : this.kuraPayload.metrics().entrySet()) {
+        // encode the metrics and compute their size
+        for (final Map.Entry<String, Object> entry : metrics.entrySet()) {
             final String name = entry.getKey();
             final Object value = entry.getValue();
 
-            // build a metric
             try {
-                KuraMetric.Builder metricB = KuraMetric.newBuilder();
-                metricB.setName(name);
-
-                boolean result = setProtoKuraMetricValue(metricB, value);
-                if (result) {
-                    // add it to the message
-                    protoMsg.addMetric(metricB);
+                final ValueType type = getProtoKuraMetricType(value);
+                if (type == null) {
+                    continue;
                 }
+
+                final byte[] encodedName = name.getBytes(UTF_8);
+                final Object encodedValue = type == ValueType.STRING ? ((String) value).getBytes(UTF_8) : value;
+                final int metricSize = CodedOutputStream.computeByteArraySize(KuraMetric.NAME_FIELD_NUMBER,
+                        encodedName)
+                        + CodedOutputStream.computeEnumSize(KuraMetric.TYPE_FIELD_NUMBER, type.getNumber())
+                        + computeMetricValueSize(type, encodedValue);
+
+                names[count] = encodedName;
+                types[count] = type;
+                values[count] = encodedValue;
+                sizes[count] = metricSize;
+                count++;
+
+                size += METRIC_TAG_SIZE + CodedOutputStream.computeRawVarint32Size(metricSize) + metricSize;
             } catch (KuraInvalidMetricTypeException e) {
                 logger.error("During serialization, ignoring metric named: {}. Unrecognized value type: {}.", name,
-                        value != null ? value.getClass().getName() : "<null>");
+                        value.getClass().getName());
                 throw new RuntimeException(e);
             }
         }
 
-        // set the body
-        if (this.kuraPayload.getBody() != null) {
-            protoMsg.setBody(ByteString.copyFrom(this.kuraPayload.getBody()));
+        // compute the size of the body
+        final byte[] body = this.kuraPayload.getBody();
+        if (body != null) {
+            size += CodedOutputStream.computeByteArraySize(KuraPayloadProto.KuraPayload.BODY_FIELD_NUMBER, body);
+        }
+
+        // write the fields ordered by field number, as the protobuf message serialization does
+        final byte[] result = new byte[size];
+        final CodedOutputStream output = CodedOutputStream.newInstance(result);
+
+        if (this.kuraPayload.getTimestamp() != null) {
+            output.writeInt64(KuraPayloadProto.KuraPayload.TIMESTAMP_FIELD_NUMBER,
+                    this.kuraPayload.getTimestamp().getTime());
         }
 
-        return protoMsg.build().toByteArray();
+        if (position != null) {
+            output.writeTag(KuraPayloadProto.KuraPayload.POSITION_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeRawVarint32(positionSize);
+            writePosition(output, position);
+        }
+
+        for (int i = 0; i < count; i++) {
+            output.writeTag(KuraPayloadProto.KuraPayload.METRIC_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeRawVarint32(sizes[i]);
+            output.writeByteArray(KuraMetric.NAME_FIELD_NUMBER, names[i]);
+            output.writeEnum(KuraMetric.TYPE_FIELD_NUMBER, types[i].getNumber());
+            writeMetricValue(output, types[i], values[i]);
+        }
+
+        if (body != null) {
+            output.writeByteArray(KuraPayloadProto.KuraPayload.BODY_FIELD_NUMBER, body);
+        }
+
+        output.checkNoSpaceLeft();
+        return result;
     }
 
     //
-    // Helper methods to convert the KuraMetrics
+    // Helper methods to convert the KuraPosition
     //
-    private KuraPayloadProto.KuraPayload.KuraPosition buildPositionProtoBuf() {
-        KuraPayloadProto.KuraPayload.KuraPosition.Builder protoPos = KuraPayloadProto.KuraPayload.KuraPosition
-                .newBuilder();
-
-        KuraPosition position = this.kuraPayload.getPosition();
-        if (position.getLatitude() != null) {
-            protoPos.setLatitude(position.getLatitude());
+    private static int computePositionSize(KuraPosition position) {
+        final List<String> missingFields = new ArrayList<>();
+        if (position.getLatitude() == null) {
+            missingFields.add("latitude");
+        }
+        if (position.getLongitude() == null) {
+            missingFields.add("longitude");
         }
-        if (position.getLongitude() != null) {
-            protoPos.setLongitude(position.getLongitude());
+        if (!missingFields.isEmpty()) {
+            throw new UninitializedMessageException(missingFields);
         }
+
+        int size = CodedOutputStream.computeDoubleSize(KuraPayloadProto.KuraPayload.KuraPosition.LATITUDE_FIELD_NUMBER,
+                position.getLatitude());
+        size += CodedOutputStream.computeDoubleSize(KuraPayloadProto.KuraPayload.KuraPosition.LONGITUDE_FIELD_NUMBER,
+                position.getLongitude());
         if (position.getAltitude() != null) {
-            protoPos.setAltitude(position.getAltitude());
+            size += CodedOutputStream.computeDoubleSize(
+                    KuraPayloadProto.KuraPayload.KuraPosition.ALTITUDE_FIELD_NUMBER, position.getAltitude());
         }
         if (position.getPrecision() != null) {
-            protoPos.setPrecision(position.getPrecision());
+            size += CodedOutputStream.computeDoubleSize(
+                    KuraPayloadProto.KuraPayload.KuraPosition.PRECISION_FIELD_NUMBER, position.getPrecision());
         }
         if (position.getHeading() != null) {
-            protoPos.setHeading(position.getHeading());
+            size += CodedOutputStream.computeDoubleSize(KuraPayloadProto.KuraPayload.KuraPosition.HEADING_FIELD_NUMBER,
+                    position.getHeading());
         }
         if (position.getSpeed() != null) {
-            protoPos.setSpeed(position.getSpeed());
+            size += CodedOutputStream.computeDoubleSize(KuraPayloadProto.KuraPayload.KuraPosition.SPEED_FIELD_NUMBER,
+                    position.getSpeed());
         }
         if (position.getTimestamp() != null) {
-            protoPos.setTimestamp(position.getTimestamp().getTime());
+            size += CodedOutputStream.computeInt64Size(
+                    KuraPayloadProto.KuraPayload.KuraPosition.TIMESTAMP_FIELD_NUMBER,
+                    position.getTimestamp().getTime());
         }
         if (position.getSatellites() != null) {
-            protoPos.setSatellites(position.getSatellites());
+            size += CodedOutputStream.computeInt32Size(
+                    KuraPayloadProto.KuraPayload.KuraPosition.SATELLITES_FIELD_NUMBER, position.getSatellites());
         }
         if (position.getStatus() != null) {
-            protoPos.setStatus(position.getStatus());
+            size += CodedOutputStream.computeInt32Size(KuraPayloadProto.KuraPayload.KuraPosition.STATUS_FIELD_NUMBER,
+                    position.getStatus());
         }
-        return protoPos.build();
+        return size;
     }
 
-    private static boolean setProtoKuraMetricValue(KuraPayloadProto.KuraPayload.KuraMetric.Builder metric, Object o)
-            throws KuraInvalidMetricTypeException {
+    private static void writePosition(CodedOutputStream output, KuraPosition position) throws IOException {
+        output.writeDouble(KuraPayloadProto.KuraPayload.KuraPosition.LATITUDE_FIELD_NUMBER, position.getLatitude());
+        output.writeDouble(KuraPayloadProto.KuraPayload.KuraPosition.LONGITUDE_FIELD_NUMBER, position.getLongitude());
+        if (position.getAltitude() != null) {
+            output.writeDouble(KuraPayloadProto.KuraPayload.KuraPosition.ALTITUDE_FIELD_NUMBER,
+                    position.getAltitude());
+        }
+        if (position.getPrecision() != null) {
+            output.writeDouble(KuraPayloadProto.KuraPayload.KuraPosition.PRECISION_FIELD_NUMBER,
+                    position.getPrecision());
+        }
+        if (position.getHeading() != null) {
+            output.writeDouble(KuraPayloadProto.KuraPayload.KuraPosition.HEADING_FIELD_NUMBER, position.getHeading());
+        }
+        if (position.getSpeed() != null) {
+            output.writeDouble(KuraPayloadProto.KuraPayload.KuraPosition.SPEED_FIELD_NUMBER, position.getSpeed());
+        }
+        if (position.getTimestamp() != null) {
+            output.writeInt64(KuraPayloadProto.KuraPayload.KuraPosition.TIMESTAMP_FIELD_NUMBER,
+                    position.getTimestamp().getTime());
+        }
+        if (position.getSatellites() != null) {
+            output.writeInt32(KuraPayloadProto.KuraPayload.KuraPosition.SATELLITES_FIELD_NUMBER,
+                    position.getSatellites());
+        }
+        if (position.getStatus() != null) {
+            output.writeInt32(KuraPayloadProto.KuraPayload.KuraPosition.STATUS_FIELD_NUMBER, position.getStatus());
+        }
+    }
 
+    //
+    // Helper methods to convert the KuraMetrics
+    //
+    private static ValueType getProtoKuraMetricType(Object o) throws KuraInvalidMetricTypeException {
         if (o instanceof String) {
-            metric.setType(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.STRING);
-            metric.setStringValue((String) o);
+            return ValueType.STRING;
         } else if (o instanceof Double) {
-            metric.setType(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.DOUBLE);
-            metric.setDoubleValue((Double) o);
+            return ValueType.DOUBLE;
         } else if (o instanceof Integer) {
-            metric.setType(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.INT32);
-            metric.setIntValue((Integer) o);
+            return ValueType.INT32;
         } else if (o instanceof Float) {
-            metric.setType(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.FLOAT);
-            metric.setFloatValue((Float) o);
+            return ValueType.FLOAT;
         } else if (o instanceof Long) {
-            metric.setType(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.INT64);
-            metric.setLongValue((Long) o);
+            return ValueType.INT64;
         } else if (o instanceof Boolean) {
-            metric.setType(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.BOOL);
-            metric.setBoolValue((Boolean) o);
+            return ValueType.BOOL;
         } else if (o instanceof byte[]) {
-            metric.setType(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.BYTES);
-            metric.setBytesValue(ByteString.copyFrom((byte[]) o));
+            return ValueType.BYTES;
         } else if (o == null) {
             logger.warn("Received a metric with a null value!");
-            return false;
+            return null;
         } else {
             throw new KuraInvalidMetricTypeException(o.getClass().getName());
         }
-        return true;
+    }
+
+    private static int computeMetricValueSize(ValueType type, Object value) {
+        switch (type) {
+        case DOUBLE:
+            return CodedOutputStream.computeDoubleSize(KuraMetric.DOUBLE_VALUE_FIELD_NUMBER, (Double) value);
+        case FLOAT:
+            return CodedOutputStream.computeFloatSize(KuraMetric.FLOAT_VALUE_FIELD_NUMBER, (Float) value);
+        case INT64:
+            return CodedOutputStream.computeInt64Size(KuraMetric.LONG_VALUE_FIELD_NUMBER, (Long) value);
+        case INT32:
+            return CodedOutputStream.computeInt32Size(KuraMetric.INT_VALUE_FIELD_NUMBER, (Integer) value);
+        case BOOL:
+            return CodedOutputStream.computeBoolSize(KuraMetric.BOOL_VALUE_FIELD_NUMBER, (Boolean) value);
+        case STRING:
+            return CodedOutputStream.computeByteArraySize(KuraMetric.STRING_VALUE_FIELD_NUMBER, (byte[]) value);
+        default:
+            return CodedOutputStream.computeByteArraySize(KuraMetric.BYTES_VALUE_FIELD_NUMBER, (byte[]) value);
+        }
+    }
+
+    private static void writeMetricValue(CodedOutputStream output, ValueType type, Object value) throws IOException {
+        switch (type) {
+        case DOUBLE:
+            output.writeDouble(KuraMetric.DOUBLE_VALUE_FIELD_NUMBER, (Double) value);
+            break;
+        case FLOAT:
+            output.writeFloat(KuraMetric.FLOAT_VALUE_FIELD_NUMBER, (Float) value);
+            break;
+        case INT64:
+            output.writeInt64(KuraMetric.LONG_VALUE_FIELD_NUMBER, (Long) value);
+            break;
+        case INT32:
+            output.writeInt32(KuraMetric.INT_VALUE_FIELD_NUMBER, (Integer) value);
+            break;
+        case BOOL:
+            output.writeBool(KuraMetric.BOOL_VALUE_FIELD_NUMBER, (Boolean) value);
+            break;
+        case STRING:
+            output.writeByteArray(KuraMetric.STRING_VALUE_FIELD_NUMBER, (byte[]) value);
+            break;
+        default:
+            output.writeByteArray(KuraMetric.BYTES_VALUE_FIELD_NUMBER, (byte[]) value);
+            break;
+        }
     }
 }
@@ -67,6 +67,7 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
     private ComponentContext ctx;
 
     private CloudServiceOptions options;
+    private CloudPayloadCompressor compressor;
 
     private DataService dataService;
     private SystemService systemService;
@@ -182,6 +183,7 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
         // save the bundle context and the properties
         this.ctx = componentContext;
         this.options = new CloudServiceOptions(properties, this.systemService);
+        updateCompressor();
 
         //
         // install event listener for GPS locked event
@@ -214,6 +216,7 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
 
         // Update properties and re-publish Birth certificate
         this.options = new CloudServiceOptions(properties, this.systemService);
+        updateCompressor();
         if (isConnected()) {
             try {
                 setupCloudConnection(false);
@@ -241,6 +244,11 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
         // we only need to empty our CloudClient list
         this.cloudClients.clear();
 
+        if (this.compressor != null) {
+            this.compressor.close();
+            this.compressor = null;
+        }
+
         this.dataService = null;
         this.systemService = null;
         this.systemAdminService = null;
@@ -351,11 +359,15 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
     }
 
     byte[] encodePayload(KuraPayload payload) throws KuraException {
+        return encodePayload(null, payload);
+    }
+
+    byte[] encodePayload(String topic, KuraPayload payload) throws KuraException {
         byte[] bytes = new byte[0];
         CloudPayloadEncoding preferencesEncoding = this.options.getPayloadEncoding();
 
         if (preferencesEncoding == KURA_PROTOBUF) {
-            bytes = encodeProtobufPayload(payload);
+            bytes = encodeProtobufPayload(topic, payload);
         } else if (preferencesEncoding == SIMPLE_JSON) {
             bytes = encodeJsonPayload(payload);
         } else {
@@ -535,7 +547,7 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
     public byte[] getBytes(KuraPayload kuraPayload, boolean gzipped) throws KuraException {
         CloudPayloadEncoder encoder = new CloudPayloadProtoBufEncoderImpl(kuraPayload);
         if (gzipped) {
-            encoder = new CloudPayloadGZipEncoder(encoder);
+            encoder = new CloudPayloadCompressionEncoder(encoder, getCompressor(), null);
         }
 
         byte[] bytes;
@@ -672,7 +684,7 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
         // has been published (i.e. written to the socket).
         synchronized (this.messageId) {
             this.messageId.set(-1);
-            byte[] encodedPayload = encodePayload(payload);
+            byte[] encodedPayload = encodePayload(topic, payload);
             int messageId = this.dataService.publish(topic, encodedPayload, this.options.getLifeCycleMessageQos(),
                     this.options.getLifeCycleMessageRetain(), this.options.getLifeCycleMessagePriority());
             this.messageId.set(messageId);
@@ -684,7 +696,7 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
         }
     }
 
-    private byte[] encodeProtobufPayload(KuraPayload payload) throws KuraException {
+    private byte[] encodeProtobufPayload(String topic, KuraPayload payload) throws KuraException {
         byte[] bytes = new byte[0];
         if (payload == null) {
             return bytes;
@@ -692,7 +704,7 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
 
         CloudPayloadEncoder encoder = new CloudPayloadProtoBufEncoderImpl(payload);
         if (this.options.getEncodeGzip()) {
-            encoder = new CloudPayloadGZipEncoder(encoder);
+            encoder = new CloudPayloadCompressionEncoder(encoder, getCompressor(), topic);
         }
 
         try {
@@ -712,10 +724,18 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
     }
 
     private KuraPayload createKuraPayloadFromProtoBuf(String topic, byte[] payload) {
+        byte[] bytes = payload;
+        try {
+            bytes = getCompressor().decompress(topic, payload);
+        } catch (IOException e) {
+            // do not rethrow the exception here as the payload may not be compressed at all
+            logger.debug("Cannot decompress message received on topic {}", topic, e);
+        }
+
         KuraPayload kuraPayload;
         try {
             // try to decode the message into an KuraPayload
-            kuraPayload = new CloudPayloadProtoBufDecoderImpl(payload).buildFromByteArray();
+            kuraPayload = new CloudPayloadProtoBufDecoderImpl(bytes).buildFromByteArray();
         } catch (Exception e) {
             // Wrap the received bytes payload into an KuraPayload
             logger.debug("Received message on topic {} that could not be decoded. Wrapping it into an KuraPayload.",
@@ -725,4 +745,22 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
         }
         return kuraPayload;
     }
+
+    private void updateCompressor() {
+        CloudPayloadCompressor oldCompressor = this.compressor;
+        this.compressor = new CloudPayloadCompressor(this.options.getCompressionThreshold(),
+                this.options.getCompressionDictionarySize());
+        if (oldCompressor != null) {
+            oldCompressor.close();
+        }
+    }
+
+    private CloudPayloadCompressor getCompressor() {
+        CloudPayloadCompressor result = this.compressor;
+        if (result == null) {
+            result = new CloudPayloadCompressor(0, 0);
+            this.compressor = result;
+        }
+        return result;
+    }
 }
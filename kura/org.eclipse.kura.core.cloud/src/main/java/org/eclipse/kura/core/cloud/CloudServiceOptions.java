@@ -48,6 +48,11 @@ public class CloudServiceOptions {
     private static final String ENABLE_DFLT_SUBSCRIPTIONS = "enable.default.subscriptions";
     private static final String BIRTH_CERT_POLICY = "birth.cert.policy";
     private static final String PAYLOAD_ENCODING = "payload.encoding";
+    private static final String COMPRESSION_THRESHOLD = "payload.compression.threshold";
+    private static final String COMPRESSION_DICTIONARY_SIZE = "payload.compression.dictionary.size";
+
+    private static final int COMPRESSION_THRESHOLD_DEFAULT = 128;
+    private static final int COMPRESSION_DICTIONARY_SIZE_DEFAULT = 0;
 
     private static final int LIFECYCLE_QOS = 0;
     private static final int LIFECYCLE_PRIORITY = 0;
@@ -249,6 +254,35 @@ public class CloudServiceOptions {
         return result;
     }
 
+    /**
+     * Returns the size in bytes below which the message payloads are sent uncompressed.
+     *
+     * @return an int value.
+     */
+    public int getCompressionThreshold() {
+        int threshold = COMPRESSION_THRESHOLD_DEFAULT;
+        if (this.properties != null && this.properties.get(COMPRESSION_THRESHOLD) != null
+                && this.properties.get(COMPRESSION_THRESHOLD) instanceof Integer) {
+            threshold = (Integer) this.properties.get(COMPRESSION_THRESHOLD);
+        }
+        return threshold;
+    }
+
+    /**
+     * Returns the size in bytes of the preset dictionaries used to compress the message payloads of each topic.
+     * A size of 0 disables the preset dictionaries.
+     *
+     * @return an int value.
+     */
+    public int getCompressionDictionarySize() {
+        int size = COMPRESSION_DICTIONARY_SIZE_DEFAULT;
+        if (this.properties != null && this.properties.get(COMPRESSION_DICTIONARY_SIZE) != null
+                && this.properties.get(COMPRESSION_DICTIONARY_SIZE) instanceof Integer) {
+            size = (Integer) this.properties.get(COMPRESSION_DICTIONARY_SIZE);
+        }
+        return size;
+    }
+
     public String getTopicSeparator() {
         return TOPIC_SEPARATOR;
     }
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.configuration.ComponentConfiguration;
+import org.eclipse.kura.core.configuration.metatype.Tocd;
+
+/**
+ * Read-only copy of the configurations of a decrypted and parsed snapshot, kept to avoid reading, decrypting and
+ * parsing the same snapshot file again.
+ * <p>
+ * The configurations returned are new instances that can be freely modified by the caller.
+ */
+final class CachedSnapshot {
+
+    private final long id;
+    private final List<ComponentConfiguration> configs;
+
+    CachedSnapshot(long id, List<ComponentConfiguration> configs) {
+        this.id = id;
+
+        final List<ComponentConfiguration> copies = new ArrayList<>(configs.size());
+        for (ComponentConfiguration config : configs) {
+            if (config != null) {
+                final Map<String, Object> properties = config.getConfigurationProperties();
+                copies.add(new ComponentConfigurationImpl(config.getPid(), getDefinition(config),
+                        properties != null ? Collections.unmodifiableMap(new HashMap<>(properties)) : null));
+            }
+        }
+        this.configs = Collections.unmodifiableList(copies);
+    }
+
+    long getId() {
+        return this.id;
+    }
+
+    int size() {
+        return this.configs.size();
+    }
+
+    /**
+     * @return a copy of the configurations of the snapshot, in the snapshot order
+     */
+    List<ComponentConfiguration> getConfigurations() {
+        final List<ComponentConfiguration> result = new ArrayList<>(this.configs.size());
+        for (ComponentConfiguration config : this.configs) {
+            final Map<String, Object> properties = config.getConfigurationProperties();
+            result.add(new ComponentConfigurationImpl(config.getPid(), getDefinition(config),
+                    properties != null ? new HashMap<>(properties) : null));
+        }
+        return result;
+    }
+
+    private static Tocd getDefinition(ComponentConfiguration config) {
+        return config.getDefinition() instanceof Tocd ? (Tocd) config.getDefinition() : null;
+    }
+}
@@ -12,16 +12,28 @@
  *******************************************************************************/
 package org.eclipse.kura.core.configuration;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Dictionary;
@@ -32,7 +44,16 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -89,6 +110,19 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
     private static final boolean TRACK_ONLY_RELEVANT_SERVICES = !Boolean
             .getBoolean("org.eclipse.kura.core.configuration.legacyServiceTracking");
 
+    // the number of snapshots saved as deltas before the latest one is compacted into a full snapshot, 0 disables deltas
+    private static final int MAX_SNAPSHOT_DELTAS = Integer
+            .getInteger("org.eclipse.kura.core.configuration.snapshot.maxDeltas", 10);
+
+    // the number of threads pushing the configurations of the latest snapshot to ConfigurationAdmin at startup
+    private static final int STARTUP_THREADS = Integer
+            .getInteger("org.eclipse.kura.core.configuration.startup.threads", 1);
+
+    private static final Pattern SNAPSHOT_FILE_PATTERN = Pattern.compile("snapshot_([0-9]+)\\.xml");
+    private static final Pattern SNAPSHOT_DELTA_FILE_PATTERN = Pattern.compile("delta_([0-9]+)_([0-9]+)\\.xml");
+    // full snapshots removed from the snapshot list but still needed to rebuild the deltas based on them
+    private static final Pattern SNAPSHOT_BASE_FILE_PATTERN = Pattern.compile("base_([0-9]+)\\.xml");
+
     private interface ServiceHandler {
 
         void add(String servicePid, String kuraPid, String factoryPid);
@@ -159,6 +193,15 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
     // maps the kura.service.pid to the associated service.pid
     private final Map<String, String> servicePidByPid;
 
+    // the configurations of the full snapshot the snapshot deltas are computed against
+    private long snapshotBaseId = -1;
+    private Map<String, ComponentConfiguration> snapshotBase;
+
+    private ExecutorService snapshotCompactor;
+
+    // the configurations of the latest snapshot loaded from disk
+    private volatile CachedSnapshot latestSnapshot;
+
     // ----------------------------------------------------------------
     //
     // Dependencies
@@ -227,6 +270,7 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
         // save the bundle context
         this.ctx = componentContext;
         this.bundleContext = componentContext.getBundleContext();
+        this.snapshotCompactor = Executors.newSingleThreadExecutor();
 
         // Load the latest snapshot and push it to ConfigurationAdmin
         try {
@@ -326,6 +370,11 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
             this.bundleTracker.close();
             this.bundleTracker = null;
         }
+
+        if (this.snapshotCompactor != null) {
+            this.snapshotCompactor.shutdown();
+            this.snapshotCompactor = null;
+        }
     }
 
     // ----------------------------------------------------------------
@@ -412,34 +461,11 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
     @Override
     public synchronized void createFactoryConfiguration(String factoryPid, String pid, Map<String, Object> properties,
             boolean takeSnapshot) throws KuraException {
-        if (pid == null) {
-            throw new KuraException(KuraErrorCode.INVALID_PARAMETER, "pid cannot be null");
-        } else if (this.servicePidByPid.containsKey(pid)) {
-            throw new KuraException(KuraErrorCode.INVALID_PARAMETER, "pid " + pid + " already exists");
-        }
+        checkFactoryConfigurationPid(pid);
 
         try {
-            // Second argument in createFactoryConfiguration is a bundle location. If left null the new bundle location
-            // will be bound to the location of the first bundle that registers a Managed Service Factory with a
-            // corresponding PID
-            logger.info("Creating new configuration for factory pid {} and pid {}", factoryPid, pid);
-            String servicePid = this.configurationAdmin.createFactoryConfiguration(factoryPid, null).getPid();
-
-            logger.info("Updating newly created configuration for pid {}", pid);
-
-            Map<String, Object> mergedProperties = new HashMap<>();
-            if (properties != null) {
-                mergedProperties.putAll(properties);
-            }
-
-            OCD ocd = this.ocds.get(factoryPid);
-            mergeWithDefaults(ocd, mergedProperties);
-
-            mergedProperties.put(ConfigurationService.KURA_SERVICE_PID, pid);
-
-            Dictionary<String, Object> dict = CollectionsUtil.mapToDictionary(mergedProperties);
-            Configuration config = this.configurationAdmin.getConfiguration(servicePid, "?");
-            config.update(dict);
+            String servicePid = createFactoryConfigurationInConfigAdmin(factoryPid, pid, properties,
+                    this.ocds.get(factoryPid));
 
             registerComponentConfiguration(pid, servicePid, factoryPid);
 
@@ -454,6 +480,40 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
         }
     }
 
+    private void checkFactoryConfigurationPid(String pid) throws KuraException {
+        if (pid == null) {
+            throw new KuraException(KuraErrorCode.INVALID_PARAMETER, "pid cannot be null");
+        } else if (this.servicePidByPid.containsKey(pid)) {
+            throw new KuraException(KuraErrorCode.INVALID_PARAMETER, "pid " + pid + " already exists");
+        }
+    }
+
+    private String createFactoryConfigurationInConfigAdmin(String factoryPid, String pid,
+            Map<String, Object> properties, OCD ocd) throws KuraException, IOException {
+        // Second argument in createFactoryConfiguration is a bundle location. If left null the new bundle location
+        // will be bound to the location of the first bundle that registers a Managed Service Factory with a
+        // corresponding PID
+        logger.info("Creating new configuration for factory pid {} and pid {}", factoryPid, pid);
+        String servicePid = this.configurationAdmin.createFactoryConfiguration(factoryPid, null).getPid();
+
+        logger.info("Updating newly created configuration for pid {}", pid);
+
+        Map<String, Object> mergedProperties = new HashMap<>();
+        if (properties != null) {
+            mergedProperties.putAll(properties);
+        }
+
+        mergeWithDefaults(ocd, mergedProperties);
+
+        mergedProperties.put(ConfigurationService.KURA_SERVICE_PID, pid);
+
+        Dictionary<String, Object> dict = CollectionsUtil.mapToDictionary(mergedProperties);
+        Configuration config = this.configurationAdmin.getConfiguration(servicePid, "?");
+        config.update(dict);
+
+        return servicePid;
+    }
+
     @Override
     public synchronized void deleteFactoryConfiguration(String pid, boolean takeSnapshot) throws KuraException {
         if (pid == null) {
@@ -865,16 +925,24 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
         if (config != null) {
             // get the properties from ConfigurationAdmin if any are present
             Map<String, Object> props = new HashMap<>();
-            if (config.getProperties() != null) {
+            boolean changed = config.getProperties() == null;
+            if (!changed) {
                 props.putAll(CollectionsUtil.dictionaryToMap(config.getProperties(), ocd));
             }
 
             if (!props.containsKey(ConfigurationService.KURA_SERVICE_PID)) {
                 props.put(ConfigurationService.KURA_SERVICE_PID, pid);
+                changed = true;
             }
 
             // merge the current properties, if any, with the defaults from metatype
-            mergeWithDefaults(ocd, props);
+            changed |= mergeWithDefaults(ocd, props);
+
+            // an update with the same properties would only reconfigure the component again
+            if (!changed) {
+                logger.debug("Configuration for pid: {} is up to date", pid);
+                return;
+            }
 
             config.update(CollectionsUtil.mapToDictionary(props));
             logger.info("Seeding updated configuration for pid: {}", pid);
@@ -1000,12 +1068,7 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
             try {
                 fr = new FileReader(fSnapshot);
                 br = new BufferedReader(fr);
-                String line = "";
-                StringBuilder entireFile = new StringBuilder();
-                while ((line = br.readLine()) != null) {
-                    entireFile.append(line);
-                }                    // end while
-                xmlConfigs = unmarshal(entireFile.toString(), XmlComponentConfigurations.class);
+                xmlConfigs = unmarshal(br, XmlComponentConfigurations.class);
             } finally {
                 if (br != null) {
                     br.close();
@@ -1042,8 +1105,11 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
             }
         }
 
-        // Write snapshot
-        writeSnapshot(sid, conf);
+        // Write snapshot, as a delta if possible
+        if (!writeSnapshotDelta(sid, configs)) {
+            writeSnapshot(sid, conf);
+            setSnapshotBase(sid, configs);
+        }
 
         this.pendingDeletePids.clear();
 
@@ -1058,53 +1124,149 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
             throw new KuraException(KuraErrorCode.CONFIGURATION_SNAPSHOT_NOT_FOUND);
         }
 
-        // Marshall the configuration into an XML
-        String xmlResult;
+        writeSnapshotFile(fSnapshot, conf);
+    }
+
+    private void writeSnapshotFile(File fSnapshot, XmlComponentConfigurations conf) throws KuraException {
+        // Marshall the configuration into an XML streamed through the encryption into a temporary file, that
+        // replaces the snapshot only once completely written
+        File tmpFile = new File(fSnapshot.getParentFile(), fSnapshot.getName() + ".tmp");
+        logger.info("Writing snapshot - Saving {}...", fSnapshot.getAbsolutePath());
         try {
-            xmlResult = marshal(conf);
-            if (xmlResult.trim().isEmpty()) {
-                throw new KuraException(KuraErrorCode.INVALID_PARAMETER, conf);
-            }
-        } catch (Exception e1) {
-            throw new KuraException(KuraErrorCode.INTERNAL_ERROR, e1);
-        }
+            final FileOutputStream fos = new FileOutputStream(tmpFile);
+            OutputStream syncOnClose = new FilterOutputStream(fos) {
 
-        // Encrypt the XML
-        char[] encryptedXML = this.cryptoService.encryptAes(xmlResult.toCharArray());
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    this.out.write(b, off, len);
+                }
 
-        // Write the snapshot
-        FileOutputStream fos = null;
-        OutputStreamWriter osw = null;
-        try {
-            logger.info("Writing snapshot - Saving {}...", fSnapshot.getAbsolutePath());
-            fos = new FileOutputStream(fSnapshot);
-            osw = new OutputStreamWriter(fos, "UTF-8");
-            osw.append(new String(encryptedXML));
-            osw.flush();
-            fos.flush();
-            fos.getFD().sync();
+                @Override
+                public void close() throws IOException {
+                    try {
+                        fos.flush();
+                        fos.getFD().sync();
+                    } finally {
+                        fos.close();
+                    }
+                }
+            };
+
+            OutputStream encrypted = null;
+            try {
+                encrypted = this.cryptoService.aesEncryptingStream(syncOnClose);
+            } finally {
+                if (encrypted == null) {
+                    fos.close();
+                }
+            }
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(encrypted, StandardCharsets.UTF_8))) {
+                marshal(conf, writer);
+            }
+
+            Files.move(tmpFile.toPath(), fSnapshot.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
             logger.info("Writing snapshot - Saving {}... Done.", fSnapshot.getAbsolutePath());
-        } catch (FileNotFoundException e) {
-            throw new KuraException(KuraErrorCode.INTERNAL_ERROR, e);
-        } catch (UnsupportedEncodingException e) {
-            throw new KuraException(KuraErrorCode.INTERNAL_ERROR, e);
-        } catch (IOException e) {
+        } catch (Exception e) {
+            if (tmpFile.exists() && !tmpFile.delete()) {
+                logger.warn("Unable to delete {}", tmpFile.getAbsolutePath());
+            }
             throw new KuraException(KuraErrorCode.INTERNAL_ERROR, e);
-        } finally {
-            if (osw != null) {
-                try {
-                    osw.close();
-                } catch (IOException e) {
+        }
+    }
 
-                }
+    /**
+     * Writes the snapshot as a delta against the most recent full snapshot, unless no full snapshot is available,
+     * too many deltas depend on it already or more than half of the configurations have changed.
+     *
+     * @return true if the delta has been written
+     */
+    private boolean writeSnapshotDelta(long sid, List<ComponentConfiguration> configs) throws KuraException {
+        String configDir = getSnapshotsDirectory();
+        if (MAX_SNAPSHOT_DELTAS <= 0 || configDir == null || configs == null || configs.isEmpty()) {
+            return false;
+        }
+
+        TreeSet<Long> fullIds = new TreeSet<>();
+        TreeMap<Long, Long> deltas = new TreeMap<>();
+        listSnapshotFiles(configDir, fullIds, deltas);
+        if (fullIds.isEmpty()) {
+            return false;
+        }
+
+        long baseId = fullIds.last();
+        int deltaCount = Collections.frequency(deltas.values(), baseId);
+        if (deltaCount >= MAX_SNAPSHOT_DELTAS) {
+            return false;
+        }
+
+        Map<String, ComponentConfiguration> base = getSnapshotBase(configDir, baseId);
+        if (base == null) {
+            return false;
+        }
+        XmlComponentConfigurations delta = SnapshotDelta.diff(base, configs, configs.size() / 2);
+        if (delta == null) {
+            return false;
+        }
+
+        writeSnapshotFile(getSnapshotDeltaFile(configDir, sid, baseId), delta);
+
+        if (deltaCount + 1 >= MAX_SNAPSHOT_DELTAS && this.snapshotCompactor != null) {
+            this.snapshotCompactor.submit(this::compactSnapshots);
+        }
+        return true;
+    }
+
+    private Map<String, ComponentConfiguration> getSnapshotBase(String configDir, long baseId) {
+        if (this.snapshotBase == null || this.snapshotBaseId != baseId) {
+            XmlComponentConfigurations xmlConfigs = loadSnapshotFile(getSnapshotFileInDirectory(configDir, baseId));
+            if (xmlConfigs == null || xmlConfigs.getConfigurations() == null) {
+                return null;
             }
-            if (fos != null) {
-                try {
-                    fos.close();
-                } catch (IOException e) {
+            setSnapshotBase(baseId, xmlConfigs.getConfigurations());
+        }
+        return this.snapshotBase;
+    }
 
-                }
+    private void setSnapshotBase(long sid, List<ComponentConfiguration> configs) {
+        this.snapshotBaseId = sid;
+        this.snapshotBase = SnapshotDelta.copyIndex(configs);
+    }
+
+    /**
+     * Rewrites the most recent snapshot as a full snapshot if it is a delta, so that the following snapshots are
+     * saved as deltas against it.
+     */
+    synchronized void compactSnapshots() {
+        String configDir = getSnapshotsDirectory();
+        if (configDir == null) {
+            return;
+        }
+
+        TreeSet<Long> fullIds = new TreeSet<>();
+        TreeMap<Long, Long> deltas = new TreeMap<>();
+        listSnapshotFiles(configDir, fullIds, deltas);
+        if (deltas.isEmpty() || !fullIds.isEmpty() && fullIds.last() > deltas.lastKey()) {
+            return;
+        }
+
+        long sid = deltas.lastKey();
+        long baseId = deltas.get(sid);
+        try {
+            XmlComponentConfigurations xmlConfigs = loadSnapshotDelta(configDir, sid, baseId);
+            if (!fullIds.contains(sid)) {
+                logger.info("Compacting snapshot {}...", sid);
+                writeSnapshotFile(getSnapshotFileInDirectory(configDir, sid), xmlConfigs);
+            }
+            setSnapshotBase(sid, xmlConfigs.getConfigurations());
+
+            // the full snapshot is read in place of the delta, which can now be removed
+            File fDelta = getSnapshotDeltaFile(configDir, sid, baseId);
+            if (!fDelta.delete()) {
+                logger.warn("Failed to delete snapshot delta {}", fDelta.getAbsolutePath());
             }
+        } catch (Exception e) {
+            logger.warn("Failed to compact snapshot {}", sid, e);
         }
     }
 
@@ -1231,29 +1393,44 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
         TreeSet<Long> ids = new TreeSet<>();
         String configDir = getSnapshotsDirectory();
         if (configDir != null) {
-            File fConfigDir = new File(configDir);
-            File[] files = fConfigDir.listFiles();
-            if (files != null) {
-
-                Pattern p = Pattern.compile("snapshot_([0-9]+)\\.xml");
-                for (File file : files) {
-                    Matcher m = p.matcher(file.getName());
-                    if (m.matches()) {
-                        ids.add(Long.parseLong(m.group(1)));
-                    }
-                }
-            }
+            Map<Long, Long> deltas = new HashMap<>();
+            listSnapshotFiles(configDir, ids, deltas);
+            ids.addAll(deltas.keySet());
         }
         return ids;
     }
 
+    /**
+     * Lists the snapshots in the directory, both the full ones and the deltas, the latter mapped to the ID of the
+     * full snapshot they are based on.
+     */
+    private static void listSnapshotFiles(String configDir, Set<Long> fullIds, Map<Long, Long> deltas) {
+        File[] files = new File(configDir).listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            Matcher m = SNAPSHOT_FILE_PATTERN.matcher(file.getName());
+            if (m.matches()) {
+                fullIds.add(Long.parseLong(m.group(1)));
+                continue;
+            }
+            m = SNAPSHOT_DELTA_FILE_PATTERN.matcher(file.getName());
+            if (m.matches()) {
+                deltas.put(Long.parseLong(m.group(1)), Long.parseLong(m.group(2)));
+            }
+        }
+    }
+
     String getSnapshotsDirectory() {
         return this.systemService.getKuraSnapshotsDirectory();
     }
 
     private File getSnapshotFile(long id) {
-        String configDir = getSnapshotsDirectory();
+        return getSnapshotFileInDirectory(getSnapshotsDirectory(), id);
+    }
 
+    private static File getSnapshotFileInDirectory(String configDir, long id) {
         if (configDir == null) {
             return null;
         }
@@ -1265,10 +1442,23 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
         return new File(snapshot);
     }
 
+    private static File getSnapshotDeltaFile(String configDir, long id, long baseId) {
+        return new File(configDir, "delta_" + id + "_" + baseId + ".xml");
+    }
+
+    private static File getSnapshotBaseFile(String configDir, long id) {
+        return new File(configDir, "base_" + id + ".xml");
+    }
+
     private void garbageCollectionOldSnapshots() {
         // get the current snapshots and compared with the maximum number we
         // need to keep
         TreeSet<Long> sids = getSnapshotsInternal();
+        String configDir = getSnapshotsDirectory();
+        Map<Long, Long> deltas = new HashMap<>();
+        if (configDir != null) {
+            listSnapshotFiles(configDir, new HashSet<Long>(), deltas);
+        }
 
         int currCount = sids.size();
         int maxCount = this.systemService.getKuraSnapshotsCount();
@@ -1278,59 +1468,185 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
             // one.
             long sid = sids.pollFirst();
             if (sid != 0) {
+                Long baseId = deltas.remove(sid);
+                if (baseId != null) {
+                    File fDelta = getSnapshotDeltaFile(configDir, sid, baseId);
+                    logger.info("Snapshots Garbage Collector. Deleting {}", fDelta.getAbsolutePath());
+                    fDelta.delete();
+                }
+
                 File fSnapshot = getSnapshotFile(sid);
                 if (fSnapshot != null && fSnapshot.exists()) {
-                    logger.info("Snapshots Garbage Collector. Deleting {}", fSnapshot.getAbsolutePath());
-                    fSnapshot.delete();
+                    if (deltas.containsValue(sid)) {
+                        // still needed to rebuild the snapshots saved as deltas against it: removed from the
+                        // snapshot list, but kept until the last of these deltas is deleted
+                        File fBase = getSnapshotBaseFile(configDir, sid);
+                        logger.info("Snapshots Garbage Collector. Moving {} to {}", fSnapshot.getAbsolutePath(),
+                                fBase.getAbsolutePath());
+                        if (!fSnapshot.renameTo(fBase)) {
+                            logger.warn("Failed to move snapshot {}", fSnapshot.getAbsolutePath());
+                        }
+                    } else {
+                        logger.info("Snapshots Garbage Collector. Deleting {}", fSnapshot.getAbsolutePath());
+                        fSnapshot.delete();
+                    }
+                    currCount--;
+                } else if (baseId != null) {
                     currCount--;
                 }
             }
         }
+
+        if (configDir != null) {
+            deleteUnusedSnapshotBases(configDir, deltas.values());
+        }
+    }
+
+    private static void deleteUnusedSnapshotBases(String configDir, Collection<Long> baseIds) {
+        File[] files = new File(configDir).listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            Matcher m = SNAPSHOT_BASE_FILE_PATTERN.matcher(file.getName());
+            if (m.matches() && !baseIds.contains(Long.parseLong(m.group(1)))) {
+                logger.info("Snapshots Garbage Collector. Deleting {}", file.getAbsolutePath());
+                file.delete();
+            }
+        }
     }
 
     private void loadLatestSnapshotInConfigAdmin() throws KuraException {
+        final long start = System.nanoTime();
+
         //
         // save away initial configuration
         List<ComponentConfiguration> configs = loadLatestSnapshotConfigurations();
         if (configs == null) {
             return;
         }
-        for (ComponentConfiguration config : configs) {
-            if (config != null) {
-                Map<String, Object> props = config.getConfigurationProperties();
-                if (props != null) {
-                    String factoryPid = (String) props.get(ConfigurationAdmin.SERVICE_FACTORYPID);
+        logger.info("Startup - Loaded {} configurations from the latest snapshot in {} ms", configs.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
 
-                    if (factoryPid != null) {
-                        String pid = config.getPid();
-                        logger.info("Creating configuration with pid: {} and factory pid: {}", pid, factoryPid);
-                        try {
-                            createFactoryConfiguration(factoryPid, pid, props, false);
-                        } catch (KuraException e) {
-                            logger.warn("Error creating configuration with pid: {} and factory pid: {}", pid,
-                                    factoryPid, e);
-                        }
-                    } else {
-                        try {
-                            logger.debug("Pushing config to config admin: {}", config.getPid());
-
-                            // push it to the ConfigAdmin
-                            Configuration cfg = this.configurationAdmin.getConfiguration(config.getPid(), "?");
+        applySnapshotConfigurations(configs, STARTUP_THREADS);
 
-                            // set kura.service.pid if missing
-                            Map<String, Object> newProperties = new HashMap<>(props);
-                            if (!newProperties.containsKey(ConfigurationService.KURA_SERVICE_PID)) {
-                                newProperties.put(ConfigurationService.KURA_SERVICE_PID, config.getPid());
-                            }
+        logger.info("Startup - Latest snapshot loaded in ConfigurationAdmin in {} ms",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
 
-                            cfg.update(CollectionsUtil.mapToDictionary(newProperties));
+    /**
+     * Pushes the configurations of a snapshot to ConfigurationAdmin, creating the factory configurations. With more
+     * than one thread the configurations are applied concurrently, ConfigurationAdmin is not accessed while holding
+     * the service monitor.
+     */
+    private void applySnapshotConfigurations(List<ComponentConfiguration> configs, int threads)
+            throws KuraException {
+        final long start = System.nanoTime();
+        final AtomicInteger factoryCount = new AtomicInteger();
+        final AtomicLong factoryNanos = new AtomicLong();
+        final AtomicInteger configCount = new AtomicInteger();
+        final AtomicLong configNanos = new AtomicLong();
+
+        final List<Callable<Void>> tasks = new ArrayList<>();
+        final Set<String> factoryConfigPids = new HashSet<>();
+        for (final ComponentConfiguration config : configs) {
+            if (config == null || config.getConfigurationProperties() == null) {
+                continue;
+            }
+            final boolean isFactory = config.getConfigurationProperties()
+                    .get(ConfigurationAdmin.SERVICE_FACTORYPID) != null;
+            if (isFactory && !factoryConfigPids.add(config.getPid())) {
+                logger.warn("Error creating configuration with pid: {}, pid already exists", config.getPid());
+                continue;
+            }
+            tasks.add(() -> {
+                final long taskStart = System.nanoTime();
+                applySnapshotConfiguration(config);
+                if (isFactory) {
+                    factoryCount.incrementAndGet();
+                    factoryNanos.addAndGet(System.nanoTime() - taskStart);
+                } else {
+                    configCount.incrementAndGet();
+                    configNanos.addAndGet(System.nanoTime() - taskStart);
+                }
+                return null;
+            });
+        }
 
-                        } catch (IOException e) {
-                            logger.warn("Error seeding initial properties to ConfigAdmin for pid: {}", config.getPid(),
-                                    e);
-                        }
+        final int poolSize = Math.min(threads, tasks.size());
+        if (poolSize <= 1) {
+            for (Callable<Void> task : tasks) {
+                try {
+                    task.call();
+                } catch (Exception e) {
+                    throw new KuraException(KuraErrorCode.INTERNAL_ERROR, e);
+                }
+            }
+        } else {
+            final ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+            try {
+                for (Future<Void> future : executor.invokeAll(tasks)) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        logger.warn("Error loading configuration in ConfigAdmin", e.getCause());
                     }
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new KuraException(KuraErrorCode.INTERNAL_ERROR, e);
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        logger.info(
+                "Startup - Applied {} factory configurations ({} ms) and {} configurations ({} ms) in {} ms with {} thread(s)",
+                factoryCount.get(), TimeUnit.NANOSECONDS.toMillis(factoryNanos.get()), configCount.get(),
+                TimeUnit.NANOSECONDS.toMillis(configNanos.get()),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), Math.max(1, poolSize));
+    }
+
+    private void applySnapshotConfiguration(ComponentConfiguration config) {
+        Map<String, Object> props = config.getConfigurationProperties();
+        String factoryPid = (String) props.get(ConfigurationAdmin.SERVICE_FACTORYPID);
+
+        if (factoryPid != null) {
+            String pid = config.getPid();
+            logger.info("Creating configuration with pid: {} and factory pid: {}", pid, factoryPid);
+            try {
+                OCD ocd;
+                synchronized (this) {
+                    checkFactoryConfigurationPid(pid);
+                    ocd = this.ocds.get(factoryPid);
+                }
+
+                String servicePid = createFactoryConfigurationInConfigAdmin(factoryPid, pid, props, ocd);
+
+                synchronized (this) {
+                    registerComponentConfiguration(pid, servicePid, factoryPid);
+                    this.pendingDeletePids.remove(pid);
+                }
+            } catch (KuraException | IOException e) {
+                logger.warn("Error creating configuration with pid: {} and factory pid: {}", pid, factoryPid, e);
+            }
+        } else {
+            try {
+                logger.debug("Pushing config to config admin: {}", config.getPid());
+
+                // push it to the ConfigAdmin
+                Configuration cfg = this.configurationAdmin.getConfiguration(config.getPid(), "?");
+
+                // set kura.service.pid if missing
+                Map<String, Object> newProperties = new HashMap<>(props);
+                if (!newProperties.containsKey(ConfigurationService.KURA_SERVICE_PID)) {
+                    newProperties.put(ConfigurationService.KURA_SERVICE_PID, config.getPid());
+                }
+
+                cfg.update(CollectionsUtil.mapToDictionary(newProperties));
+
+            } catch (IOException e) {
+                logger.warn("Error seeding initial properties to ConfigAdmin for pid: {}", config.getPid(), e);
             }
         }
     }
@@ -1346,6 +1662,12 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
         Long[] snapshots = snapshotIDs.toArray(new Long[] {});
         Long lastestID = snapshots[snapshotIDs.size() - 1];
 
+        // the snapshot files are not modified once written, a cached snapshot with the same ID can be reused
+        CachedSnapshot cached = this.latestSnapshot;
+        if (cached != null && lastestID != null && cached.getId() == lastestID) {
+            return cached.getConfigurations();
+        }
+
         //
         // Unmarshall
         logger.info("Loading init configurations from: {}...", lastestID);
@@ -1356,6 +1678,9 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
             if (xmlConfigs != null) {
                 configs = xmlConfigs.getConfigurations();
             }
+            if (configs != null && lastestID != null) {
+                this.latestSnapshot = new CachedSnapshot(lastestID, configs);
+            }
         } catch (Exception e) {
             logger.info("Unable to decrypt snapshot! Fallback to unencrypted snapshots mode.");
             try {
@@ -1372,55 +1697,99 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
     }
 
     XmlComponentConfigurations loadEncryptedSnapshotFileContent(long snapshotID) throws KuraException {
-        File fSnapshot = getSnapshotFile(snapshotID);
+        String configDir = getSnapshotsDirectory();
+        File fSnapshot = getSnapshotFileInDirectory(configDir, snapshotID);
+        if (fSnapshot != null && !fSnapshot.exists()) {
+            Map<Long, Long> deltas = new HashMap<>();
+            listSnapshotFiles(configDir, new HashSet<Long>(), deltas);
+            Long baseId = deltas.get(snapshotID);
+            if (baseId != null) {
+                return ConfigurationUpgrade.upgrade(loadSnapshotDelta(configDir, snapshotID, baseId),
+                        this.bundleContext);
+            }
+        }
         if (fSnapshot == null || !fSnapshot.exists()) {
             throw new KuraException(KuraErrorCode.CONFIGURATION_SNAPSHOT_NOT_FOUND, fSnapshot.getAbsolutePath());
         }
 
-        FileReader fr = null;
-        BufferedReader br = null;
-        StringBuilder entireFile = new StringBuilder();
-        try {
-            fr = new FileReader(fSnapshot);
-            br = new BufferedReader(fr);
-            String line = "";
-            while ((line = br.readLine()) != null) {
-                entireFile.append(line);
-            }
-        } catch (IOException e) {
-            logger.error("Error loading file from disk", e);
+        Reader reader = openSnapshotFile(fSnapshot);
+        if (reader == null) {
             return null;
+        }
+
+        XmlComponentConfigurations xmlConfigs = null;
+
+        try {
+            xmlConfigs = unmarshal(reader, XmlComponentConfigurations.class);
+        } catch (KuraException e) {
+            logger.warn("Error parsing xml", e);
         } finally {
             try {
-                if (br != null) {
-                    br.close();
-                }
-            } catch (IOException e) {
-            }
-            try {
-                if (fr != null) {
-                    fr.close();
-                }
+                reader.close();
             } catch (IOException e) {
             }
         }
 
-        // File loaded, try to decrypt and unmarshall
-        char[] decryptAes = this.cryptoService.decryptAes(entireFile.toString().toCharArray());
-        if (decryptAes == null) {
-            throw new KuraException(KuraErrorCode.DECODER_ERROR);
+        return ConfigurationUpgrade.upgrade(xmlConfigs, this.bundleContext);
+    }
+
+    /**
+     * Rebuilds a snapshot saved as a delta from the full snapshot it is based on.
+     */
+    private XmlComponentConfigurations loadSnapshotDelta(String configDir, long snapshotID, long baseId)
+            throws KuraException {
+        File fBase = getSnapshotFileInDirectory(configDir, baseId);
+        if (fBase != null && !fBase.exists()) {
+            fBase = getSnapshotBaseFile(configDir, baseId);
         }
-        String decryptedContent = new String(decryptAes);
+        XmlComponentConfigurations base = loadSnapshotFile(fBase);
+        XmlComponentConfigurations delta = loadSnapshotFile(getSnapshotDeltaFile(configDir, snapshotID, baseId));
+        if (base == null || delta == null) {
+            throw new KuraException(KuraErrorCode.CONFIGURATION_SNAPSHOT_NOT_FOUND, snapshotID);
+        }
+        return SnapshotDelta.apply(base, delta);
+    }
 
-        XmlComponentConfigurations xmlConfigs = null;
+    private XmlComponentConfigurations loadSnapshotFile(File fSnapshot) {
+        try (Reader reader = openSnapshotFile(fSnapshot)) {
+            return reader != null ? unmarshal(reader, XmlComponentConfigurations.class) : null;
+        } catch (KuraException | IOException e) {
+            logger.warn("Error loading snapshot {}", fSnapshot.getAbsolutePath(), e);
+            return null;
+        }
+    }
 
+    /**
+     * Opens a snapshot file, decrypting its content while it is read.
+     *
+     * @return the reader of the decrypted snapshot, or null if the file cannot be opened
+     * @throws KuraException
+     *             if the snapshot is not encrypted
+     */
+    private Reader openSnapshotFile(File fSnapshot) throws KuraException {
+        FileInputStream fis;
         try {
-            xmlConfigs = unmarshal(decryptedContent, XmlComponentConfigurations.class);
-        } catch (KuraException e) {
-            logger.warn("Error parsing xml", e);
+            fis = new FileInputStream(fSnapshot);
+        } catch (FileNotFoundException e) {
+            logger.error("Error loading file from disk", e);
+            return null;
         }
 
-        return ConfigurationUpgrade.upgrade(xmlConfigs, this.bundleContext);
+        InputStream decrypted = null;
+        try {
+            decrypted = this.cryptoService.aesDecryptingStream(new BufferedInputStream(fis));
+        } finally {
+            if (decrypted == null) {
+                try {
+                    fis.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+        if (decrypted == null) {
+            throw new KuraException(KuraErrorCode.DECODER_ERROR);
+        }
+        return new BufferedReader(new InputStreamReader(decrypted, StandardCharsets.UTF_8));
     }
 
     private void updateConfigurationInternal(String pid, Map<String, Object> properties, boolean snapshotOnConfirmation)
@@ -1794,6 +2163,40 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
         return result;
     }
 
+    protected <T> T unmarshal(Reader reader, Class<T> clazz) throws KuraException {
+        T result = null;
+        ServiceReference<Unmarshaller>[] unmarshallerSRs = getXmlUnmarshallers();
+        try {
+            // the reader can be consumed only once, only the first unmarshaller is used
+            if (unmarshallerSRs.length > 0) {
+                Unmarshaller unmarshaller = this.bundleContext.getService(unmarshallerSRs[0]);
+                result = unmarshaller.unmarshal(reader, clazz);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to extract persisted configuration.");
+        } finally {
+            ungetServiceReferences(unmarshallerSRs);
+        }
+        if (result == null) {
+            throw new KuraException(KuraErrorCode.DECODER_ERROR);
+        }
+        return result;
+    }
+
+    protected void marshal(Object object, Writer writer) throws KuraException {
+        ServiceReference<Marshaller>[] marshallerSRs = getXmlMarshallers();
+        try {
+            // the writer can be written only once, only the first marshaller is used
+            if (marshallerSRs.length == 0) {
+                throw new KuraException(KuraErrorCode.ENCODE_ERROR);
+            }
+            Marshaller marshaller = this.bundleContext.getService(marshallerSRs[0]);
+            marshaller.marshal(object, writer);
+        } finally {
+            ungetServiceReferences(marshallerSRs);
+        }
+    }
+
     protected String marshal(Object object) {
         String result = null;
         ServiceReference<Marshaller>[] marshallerSRs = getXmlMarshallers();
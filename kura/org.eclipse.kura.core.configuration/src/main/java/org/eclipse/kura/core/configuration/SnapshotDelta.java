@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.configuration;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+
+import org.eclipse.kura.KuraErrorCode;
+import org.eclipse.kura.KuraException;
+import org.eclipse.kura.configuration.ComponentConfiguration;
+import org.eclipse.kura.configuration.Password;
+
+/**
+ * Computes and applies the differences between a snapshot and the base snapshot it has been derived from.
+ * <p>
+ * A delta is serialized as a regular snapshot: the first configuration is an index listing the PIDs of the snapshot
+ * in order, and is followed by the configurations that differ from the base snapshot. The configurations not present
+ * in the delta are taken unchanged from the base snapshot, the ones not listed in the index have been removed.
+ */
+final class SnapshotDelta {
+
+    static final String INDEX_PID = "org.eclipse.kura.core.configuration.snapshot.delta";
+    static final String INDEX_PIDS_PROP_NAME = "pids";
+
+    private SnapshotDelta() {
+    }
+
+    /**
+     * Computes the delta between a base snapshot and the provided configurations.
+     *
+     * @param base
+     *            the configurations of the base snapshot, by PID
+     * @param configs
+     *            the configurations of the new snapshot
+     * @param maxChanged
+     *            the maximum number of changed configurations
+     * @return the delta, or null if more than {@code maxChanged} configurations differ or the configurations cannot
+     *         be indexed by PID
+     */
+    static XmlComponentConfigurations diff(Map<String, ComponentConfiguration> base,
+            List<ComponentConfiguration> configs, int maxChanged) {
+        final List<String> pids = new ArrayList<>(configs.size());
+        final List<ComponentConfiguration> changed = new ArrayList<>();
+
+        for (ComponentConfiguration config : configs) {
+            if (config == null || config.getPid() == null || pids.contains(config.getPid())) {
+                return null;
+            }
+            pids.add(config.getPid());
+
+            final ComponentConfiguration baseConfig = base.get(config.getPid());
+            if (baseConfig == null || !propertiesEqual(baseConfig.getConfigurationProperties(),
+                    config.getConfigurationProperties())) {
+                if (changed.size() == maxChanged) {
+                    return null;
+                }
+                changed.add(config);
+            }
+        }
+
+        final Map<String, Object> indexProperties = new HashMap<>();
+        indexProperties.put(INDEX_PIDS_PROP_NAME, pids.toArray(new String[pids.size()]));
+
+        final List<ComponentConfiguration> deltaConfigs = new ArrayList<>(changed.size() + 1);
+        deltaConfigs.add(new ComponentConfigurationImpl(INDEX_PID, null, indexProperties));
+        deltaConfigs.addAll(changed);
+
+        final XmlComponentConfigurations delta = new XmlComponentConfigurations();
+        delta.setConfigurations(deltaConfigs);
+        return delta;
+    }
+
+    /**
+     * Rebuilds a snapshot from its base snapshot and delta.
+     *
+     * @throws KuraException
+     *             if the delta has no index
+     */
+    static XmlComponentConfigurations apply(XmlComponentConfigurations base, XmlComponentConfigurations delta)
+            throws KuraException {
+        final List<ComponentConfiguration> deltaConfigs = delta.getConfigurations();
+        if (deltaConfigs == null || deltaConfigs.isEmpty() || deltaConfigs.get(0) == null
+                || !INDEX_PID.equals(deltaConfigs.get(0).getPid())) {
+            throw new KuraException(KuraErrorCode.CONFIGURATION_ERROR, "Snapshot delta index not found");
+        }
+
+        final Map<String, ComponentConfiguration> configsByPid = index(base.getConfigurations());
+        for (ComponentConfiguration config : deltaConfigs.subList(1, deltaConfigs.size())) {
+            configsByPid.put(config.getPid(), config);
+        }
+
+        final Object pids = deltaConfigs.get(0).getConfigurationProperties().get(INDEX_PIDS_PROP_NAME);
+        final List<ComponentConfiguration> configs = new ArrayList<>();
+        if (pids instanceof String[]) {
+            for (String pid : (String[]) pids) {
+                final ComponentConfiguration config = configsByPid.get(pid);
+                if (config != null) {
+                    configs.add(config);
+                }
+            }
+        } else if (pids instanceof String) {
+            // a single PID is not necessarily unmarshalled as an array
+            final ComponentConfiguration config = configsByPid.get(pids);
+            if (config != null) {
+                configs.add(config);
+            }
+        }
+
+        final XmlComponentConfigurations result = new XmlComponentConfigurations();
+        result.setConfigurations(configs);
+        return result;
+    }
+
+    static Map<String, ComponentConfiguration> index(List<ComponentConfiguration> configs) {
+        if (configs == null) {
+            return new LinkedHashMap<>();
+        }
+        final Map<String, ComponentConfiguration> result = new LinkedHashMap<>();
+        for (ComponentConfiguration config : configs) {
+            if (config != null && config.getPid() != null) {
+                result.put(config.getPid(), config);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Indexes a copy of the configurations by PID, so that later changes to the provided properties are not
+     * reflected in the index.
+     */
+    static Map<String, ComponentConfiguration> copyIndex(List<ComponentConfiguration> configs) {
+        final Map<String, ComponentConfiguration> result = index(configs);
+        for (Entry<String, ComponentConfiguration> entry : result.entrySet()) {
+            final Map<String, Object> properties = entry.getValue().getConfigurationProperties();
+            entry.setValue(new ComponentConfigurationImpl(entry.getKey(), null,
+                    properties != null ? new HashMap<>(properties) : null));
+        }
+        return result;
+    }
+
+    static boolean propertiesEqual(Map<String, Object> properties1, Map<String, Object> properties2) {
+        final Map<String, Object> p1 = properties1 != null ? properties1 : Collections.<String, Object> emptyMap();
+        final Map<String, Object> p2 = properties2 != null ? properties2 : Collections.<String, Object> emptyMap();
+        if (p1.size() != p2.size()) {
+            return false;
+        }
+        for (Entry<String, Object> entry : p1.entrySet()) {
+            if (!valueEquals(entry.getValue(), p2.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean valueEquals(Object value1, Object value2) {
+        if (value1 == null || value2 == null) {
+            return value1 == value2;
+        }
+        if (value1.getClass().isArray() && value2.getClass().isArray()) {
+            final int length = Array.getLength(value1);
+            if (length != Array.getLength(value2)) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (!valueEquals(Array.get(value1, i), Array.get(value2, i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        // Password does not implement equals
+        if (value1 instanceof Password && value2 instanceof Password) {
+            return value1.toString().equals(value2.toString());
+        }
+        return Objects.equals(value1, value2);
+    }
+}
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.crypto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * Streams encrypting and decrypting data with AES-GCM in segments.
+ * <p>
+ * The data is split in segments of {@link #SEGMENT_SIZE} bytes, each encrypted and authenticated on its own, so that
+ * no more than a segment is kept in memory and no decrypted data is returned before it has been verified. The
+ * initialization vector of a segment is made of a random prefix, chosen for each stream, the index of the segment
+ * and a flag marking the last segment, so that reordered, removed or truncated segments are detected.
+ */
+final class AesGcmStreams {
+
+    static final int NONCE_PREFIX_LENGTH = 7;
+    static final int SEGMENT_SIZE = 64 * 1024;
+
+    private static final int TAG_LENGTH = 16;
+
+    private AesGcmStreams() {
+    }
+
+    private static GCMParameterSpec segmentParameters(byte[] noncePrefix, int segment, boolean last)
+            throws IOException {
+        if (segment < 0) {
+            throw new IOException("Too many segments");
+        }
+        final byte[] iv = new byte[NONCE_PREFIX_LENGTH + 5];
+        System.arraycopy(noncePrefix, 0, iv, 0, NONCE_PREFIX_LENGTH);
+        iv[NONCE_PREFIX_LENGTH] = (byte) (segment >> 24);
+        iv[NONCE_PREFIX_LENGTH + 1] = (byte) (segment >> 16);
+        iv[NONCE_PREFIX_LENGTH + 2] = (byte) (segment >> 8);
+        iv[NONCE_PREFIX_LENGTH + 3] = (byte) segment;
+        iv[NONCE_PREFIX_LENGTH + 4] = (byte) (last ? 1 : 0);
+        return new GCMParameterSpec(TAG_LENGTH * 8, iv);
+    }
+
+    static final class EncryptingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final Key key;
+        private final byte[] noncePrefix;
+        private final CipherCache ciphers;
+        private final Cipher cipher;
+
+        private final byte[] buffer = new byte[SEGMENT_SIZE];
+        private final byte[] encrypted = new byte[SEGMENT_SIZE + TAG_LENGTH];
+        private int length;
+        private int segment;
+        private boolean closed;
+
+        EncryptingOutputStream(OutputStream out, Key key, byte[] noncePrefix, CipherCache ciphers)
+                throws GeneralSecurityException {
+            this.out = out;
+            this.key = key;
+            this.noncePrefix = noncePrefix;
+            this.ciphers = ciphers;
+            this.cipher = ciphers.acquire();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (this.closed) {
+                throw new IOException("Stream closed");
+            }
+            int offset = off;
+            int remaining = len;
+            while (remaining > 0) {
+                // a full segment is written only when more data follows, the last segment is written on close
+                if (this.length == SEGMENT_SIZE) {
+                    writeSegment(false);
+                }
+                final int count = Math.min(remaining, SEGMENT_SIZE - this.length);
+                System.arraycopy(b, offset, this.buffer, this.length, count);
+                this.length += count;
+                offset += count;
+                remaining -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            try {
+                writeSegment(true);
+                this.out.close();
+            } finally {
+                this.ciphers.release(this.cipher);
+            }
+        }
+
+        private void writeSegment(boolean last) throws IOException {
+            try {
+                this.cipher.init(Cipher.ENCRYPT_MODE, this.key,
+                        segmentParameters(this.noncePrefix, this.segment, last));
+                final int count = this.cipher.doFinal(this.buffer, 0, this.length, this.encrypted, 0);
+                this.out.write(this.encrypted, 0, count);
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e);
+            }
+            this.segment++;
+            this.length = 0;
+        }
+    }
+
+    static final class DecryptingInputStream extends InputStream {
+
+        private final InputStream in;
+        private final Key key;
+        private final byte[] noncePrefix;
+        private final CipherCache ciphers;
+        private final Cipher cipher;
+
+        // one more byte is read after a full segment, to find out whether it is the last one
+        private final byte[] encrypted = new byte[SEGMENT_SIZE + TAG_LENGTH + 1];
+        private int encryptedLength;
+        private final byte[] buffer = new byte[SEGMENT_SIZE];
+        private int position;
+        private int length;
+        private int segment;
+        private boolean last;
+        private boolean closed;
+
+        DecryptingInputStream(InputStream in, Key key, byte[] noncePrefix, CipherCache ciphers)
+                throws GeneralSecurityException {
+            this.in = in;
+            this.key = key;
+            this.noncePrefix = noncePrefix;
+            this.ciphers = ciphers;
+            this.cipher = ciphers.acquire();
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (this.closed) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (this.position == this.length) {
+                if (this.last) {
+                    return -1;
+                }
+                readSegment();
+            }
+            final int count = Math.min(len, this.length - this.position);
+            System.arraycopy(this.buffer, this.position, b, off, count);
+            this.position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return this.length - this.position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            try {
+                this.in.close();
+            } finally {
+                this.ciphers.release(this.cipher);
+            }
+        }
+
+        private void readSegment() throws IOException {
+            while (this.encryptedLength < this.encrypted.length) {
+                final int count = this.in.read(this.encrypted, this.encryptedLength,
+                        this.encrypted.length - this.encryptedLength);
+                if (count == -1) {
+                    break;
+                }
+                this.encryptedLength += count;
+            }
+
+            final boolean isLast = this.encryptedLength < this.encrypted.length;
+            final int segmentLength = isLast ? this.encryptedLength : this.encrypted.length - 1;
+            if (segmentLength < TAG_LENGTH) {
+                throw new IOException("Truncated encrypted data");
+            }
+
+            try {
+                this.cipher.init(Cipher.DECRYPT_MODE, this.key,
+                        segmentParameters(this.noncePrefix, this.segment, isLast));
+                this.length = this.cipher.doFinal(this.encrypted, 0, segmentLength, this.buffer, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Unable to decrypt segment " + this.segment, e);
+            }
+            this.position = 0;
+            this.segment++;
+            this.last = isLast;
+
+            if (!isLast) {
+                this.encrypted[0] = this.encrypted[segmentLength];
+                this.encryptedLength = 1;
+            }
+        }
+    }
+}
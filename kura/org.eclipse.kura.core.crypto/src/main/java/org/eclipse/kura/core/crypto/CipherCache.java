@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.crypto;
+
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+
+/**
+ * Keeps a {@link Cipher} instance per thread, to avoid looking up the provider and, for the ciphers initialized with
+ * a key, expanding the key each time.
+ * <p>
+ * A cipher is removed from the cache while in use, so a thread that needs more than one cipher at a time gets new
+ * instances for the others.
+ */
+final class CipherCache {
+
+    private final String transformation;
+    private final int opmode;
+    private final Key key;
+
+    private final ThreadLocal<Cipher> cipher = new ThreadLocal<>();
+
+    /**
+     * Creates a cache of ciphers initialized by the caller before each use.
+     *
+     * @param transformation
+     *            the transformation of the ciphers
+     */
+    CipherCache(String transformation) {
+        this(transformation, 0, null);
+    }
+
+    /**
+     * @param transformation
+     *            the transformation of the ciphers
+     * @param opmode
+     *            the mode the ciphers are initialized in
+     * @param key
+     *            the key the ciphers are initialized with, or null if they are initialized by the caller
+     */
+    CipherCache(String transformation, int opmode, Key key) {
+        this.transformation = transformation;
+        this.opmode = opmode;
+        this.key = key;
+    }
+
+    /**
+     * Takes the cipher of the calling thread, or creates a new one if not available.
+     */
+    Cipher acquire() throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException {
+        Cipher result = this.cipher.get();
+        if (result != null) {
+            this.cipher.remove();
+            return result;
+        }
+
+        result = Cipher.getInstance(this.transformation);
+        if (this.key != null) {
+            result.init(this.opmode, this.key);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a cipher to the cache of the calling thread. A cipher initialized with the key of the cache must have
+     * completed its last operation, so that it is back in its initial state.
+     */
+    void release(Cipher cipher) {
+        this.cipher.set(cipher);
+    }
+}
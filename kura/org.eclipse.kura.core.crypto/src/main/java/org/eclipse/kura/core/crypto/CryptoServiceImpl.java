@@ -12,16 +12,24 @@
  *******************************************************************************/
 package org.eclipse.kura.core.crypto;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Properties;
 
@@ -46,6 +54,15 @@ public class CryptoServiceImpl implements CryptoService {
     private static final byte[] SECRET_KEY = System
             .getProperty("org.eclipse.kura.core.crypto.secretKey", "rv;ipse329183!@#").getBytes();
 
+    private static final String STREAM_TRANSFORMATION = "AES/GCM/NoPadding";
+    // precedes the data encrypted by the streams, a Base64 encoded value cannot start with a zero byte
+    private static final byte[] STREAM_HEADER = { 0, 'K', 'G', 1 };
+
+    private final CipherCache encryptCiphers = new CipherCache(ALGORITHM, Cipher.ENCRYPT_MODE, generateKey());
+    private final CipherCache decryptCiphers = new CipherCache(ALGORITHM, Cipher.DECRYPT_MODE, generateKey());
+    private final CipherCache streamCiphers = new CipherCache(STREAM_TRANSFORMATION);
+    private final SecureRandom random = new SecureRandom();
+
     private String keystorePasswordPath;
 
     private SystemService systemService;
@@ -71,10 +88,9 @@ public class CryptoServiceImpl implements CryptoService {
         String encryptedValue = null;
 
         try {
-            Key key = generateKey();
-            Cipher c = Cipher.getInstance(ALGORITHM);
-            c.init(Cipher.ENCRYPT_MODE, key);
+            Cipher c = this.encryptCiphers.acquire();
             byte[] encryptedBytes = c.doFinal(new String(value).getBytes());
+            this.encryptCiphers.release(c);
             encryptedValue = base64Encode(encryptedBytes);
         } catch (NoSuchAlgorithmException e) {
             throw new KuraException(KuraErrorCode.OPERATION_NOT_SUPPORTED);
@@ -101,17 +117,15 @@ public class CryptoServiceImpl implements CryptoService {
 
     @Override
     public char[] decryptAes(char[] encryptedValue) throws KuraException {
-        Key key = generateKey();
-        Cipher c;
         try {
-            c = Cipher.getInstance(ALGORITHM);
-            c.init(Cipher.DECRYPT_MODE, key);
             String internalStringValue = new String(encryptedValue);
             byte[] decodedValue = base64Decode(internalStringValue);
             if (encryptedValue.length > 0 && decodedValue.length == 0) {
                 throw new KuraException(KuraErrorCode.DECODER_ERROR);
             }
+            Cipher c = this.decryptCiphers.acquire();
             byte[] decryptedBytes = c.doFinal(decodedValue);
+            this.decryptCiphers.release(c);
             String decryptedValue = new String(decryptedBytes);
             return decryptedValue.toCharArray();
         } catch (NoSuchAlgorithmException e) {
@@ -127,6 +141,88 @@ public class CryptoServiceImpl implements CryptoService {
         }
     }
 
+    @Override
+    public OutputStream aesEncryptingStream(OutputStream destination) throws KuraException {
+        final byte[] noncePrefix = new byte[AesGcmStreams.NONCE_PREFIX_LENGTH];
+        this.random.nextBytes(noncePrefix);
+
+        final OutputStream result;
+        try {
+            result = new AesGcmStreams.EncryptingOutputStream(destination, generateKey(), noncePrefix,
+                    this.streamCiphers);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new KuraException(KuraErrorCode.OPERATION_NOT_SUPPORTED, e);
+        } catch (GeneralSecurityException e) {
+            throw new KuraException(KuraErrorCode.ENCODE_ERROR, e);
+        }
+
+        try {
+            destination.write(STREAM_HEADER);
+            destination.write(noncePrefix);
+        } catch (IOException e) {
+            throw new KuraException(KuraErrorCode.ENCODE_ERROR, e);
+        }
+        return result;
+    }
+
+    @Override
+    public InputStream aesDecryptingStream(final InputStream source) throws KuraException {
+        try {
+            final byte[] header = new byte[STREAM_HEADER.length];
+            final int headerLength = readFully(source, header);
+            if (headerLength == header.length && Arrays.equals(header, STREAM_HEADER)) {
+                final byte[] noncePrefix = new byte[AesGcmStreams.NONCE_PREFIX_LENGTH];
+                if (readFully(source, noncePrefix) < noncePrefix.length) {
+                    throw new KuraException(KuraErrorCode.DECODER_ERROR);
+                }
+                return new AesGcmStreams.DecryptingInputStream(source, generateKey(), noncePrefix,
+                        this.streamCiphers);
+            }
+
+            // values encrypted by encryptAes(char[]) are Base64 text, the line terminators are not part of it
+            final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            encoded.write(header, 0, headerLength);
+            final byte[] buffer = new byte[8192];
+            int count;
+            while ((count = source.read(buffer)) != -1) {
+                for (int i = 0; i < count; i++) {
+                    if (buffer[i] != '\n' && buffer[i] != '\r') {
+                        encoded.write(buffer[i]);
+                    }
+                }
+            }
+
+            final char[] decrypted = decryptAes(new String(encoded.toByteArray(), StandardCharsets.ISO_8859_1)
+                    .toCharArray());
+            return new ByteArrayInputStream(new String(decrypted).getBytes(StandardCharsets.UTF_8)) {
+
+                @Override
+                public void close() throws IOException {
+                    source.close();
+                }
+            };
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new KuraException(KuraErrorCode.OPERATION_NOT_SUPPORTED, e);
+        } catch (GeneralSecurityException | IOException e) {
+            throw new KuraException(KuraErrorCode.DECODER_ERROR, e);
+        } catch (IllegalArgumentException e) {
+            // not Base64 encoded
+            throw new KuraException(KuraErrorCode.DECODER_ERROR, e);
+        }
+    }
+
+    private static int readFully(InputStream source, byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            final int count = source.read(buffer, length, buffer.length - length);
+            if (count == -1) {
+                break;
+            }
+            length += count;
+        }
+        return length;
+    }
+
     @Override
     @Deprecated
     public String encryptAes(String value) throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException,
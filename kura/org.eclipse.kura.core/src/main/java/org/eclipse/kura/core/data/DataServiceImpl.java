@@ -11,7 +11,9 @@
  *******************************************************************************/
 package org.eclipse.kura.core.data;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -36,11 +38,17 @@ import org.eclipse.kura.KuraTimeoutException;
 import org.eclipse.kura.KuraTooManyInflightMessagesException;
 import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.configuration.ConfigurationService;
+import org.eclipse.kura.core.data.DataServiceOptions.StoreType;
 import org.eclipse.kura.core.data.store.DbDataStore;
+import org.eclipse.kura.core.data.store.GroupCommitStage;
+import org.eclipse.kura.core.data.store.MemoryMessageQueue;
+import org.eclipse.kura.core.data.store.SegmentedLogDataStore;
 import org.eclipse.kura.core.internal.data.TokenBucket;
 import org.eclipse.kura.data.DataService;
 import org.eclipse.kura.data.DataTransportService;
 import org.eclipse.kura.data.DataTransportToken;
+import org.eclipse.kura.data.InFlightStatistics;
+import org.eclipse.kura.data.StoreBatchStatistics;
 import org.eclipse.kura.data.listener.DataServiceListener;
 import org.eclipse.kura.data.transport.listener.DataTransportListener;
 import org.eclipse.kura.db.H2DbService;
@@ -81,8 +89,16 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
     private ExecutorService publisherExecutor;
 
     private DataStore store;
+    private GroupCommitStage storeStage;
+
+    // QoS 0 messages published while connected, bypassing the store
+    private final MemoryMessageQueue memoryQueue = new MemoryMessageQueue(0, 0);
+
+    // The IDs returned by publish for the memory queue messages moved to the store, by store ID
+    private final Map<Integer, Integer> spilledMsgIds = new ConcurrentHashMap<>();
 
     private Map<DataTransportToken, Integer> inFlightMsgIds;
+    private final InFlightWindow inFlightWindow = new InFlightWindow();
 
     private ScheduledExecutorService congestionExecutor;
     private ScheduledFuture<?> congestionFuture;
@@ -126,14 +142,12 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         createThrottle();
         submitPublishingWork();
 
-        String[] parts = pid.split("-");
-        String table = "ds_messages";
-        if (parts.length > 1) {
-            table += "_" + parts[1];
-        }
-        this.store = new DbDataStore(table);
+        this.store = createStore(pid);
+        createStoreStage();
+        configureMemoryQueue();
+        configureInFlightWindow();
 
-        restartDbServiceTracker(this.dataServiceOptions.getDbServiceInstancePid());
+        attachStore();
 
         this.dataServiceListeners = new DataServiceListenerS(componentContext);
 
@@ -145,6 +159,107 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         startConnectionMonitorTask();
     }
 
+    private DataStore createStore(String pid) {
+        String[] parts = pid.split("-");
+        String table = "ds_messages";
+        if (parts.length > 1) {
+            table += "_" + parts[1];
+        }
+
+        if (this.dataServiceOptions.getStoreType() == StoreType.SEGMENTED_LOG) {
+            File directory = new File(this.dataServiceOptions.getStoreLogDirectory(), table);
+            logger.info("Using segmented log store in {}", directory);
+            return new SegmentedLogDataStore(directory, this.dataServiceOptions.getStoreLogSegmentSize());
+        }
+        return new DbDataStore(table);
+    }
+
+    private void createStoreStage() {
+        this.storeStage = new GroupCommitStage(this.store, this.dataServiceOptions.getStoreGroupCommitWindow(),
+                this.dataServiceOptions.getStoreGroupCommitMaxBatchSize());
+    }
+
+    private void configureMemoryQueue() {
+        if (this.dataServiceOptions.isMemoryQueueEnabled()) {
+            this.memoryQueue.setLimits(this.dataServiceOptions.getMemoryQueueMaxMessages(),
+                    this.dataServiceOptions.getMemoryQueueMaxSize());
+        } else {
+            this.memoryQueue.setLimits(0, 0);
+            spillMemoryQueue();
+        }
+    }
+
+    private void configureInFlightWindow() {
+        this.inFlightWindow.configure(this.dataServiceOptions.getMaxInFlightMessages(),
+                this.dataServiceOptions.isInFlightMessagesAdaptiveWindow());
+    }
+
+    private int getInFlightLimit() {
+        if (this.dataServiceOptions.isInFlightMessagesAdaptiveWindow()) {
+            return this.inFlightWindow.getWindowSize();
+        }
+        return this.dataServiceOptions.getMaxInFlightMessages();
+    }
+
+    private boolean isMemoryQueueEligible(int qos, int priority) {
+        return this.dataServiceOptions.isMemoryQueueEnabled() && qos == 0
+                && priority >= this.dataServiceOptions.getMemoryQueueMinPriority();
+    }
+
+    /**
+     * Moves the messages in the memory queue to the store, so that they survive a disconnection. The stored messages
+     * keep being reported with the ID returned by {@link #publish(String, byte[], int, boolean, int)}.
+     */
+    private void spillMemoryQueue() {
+        List<DataMessage> messages = this.memoryQueue.drain();
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<DataMessage> stored = this.store.store(messages);
+            int rejected = 0;
+            for (int i = 0; i < stored.size(); i++) {
+                DataMessage message = stored.get(i);
+                if (message == null) {
+                    rejected++;
+                } else {
+                    this.spilledMsgIds.put(message.getId(), messages.get(i).getId());
+                }
+            }
+            logger.info("Moved {} messages from the memory queue to the store", messages.size() - rejected);
+            if (rejected > 0) {
+                logger.warn("Store capacity reached, dropped {} messages of the memory queue", rejected);
+            }
+        } catch (KuraStoreException e) {
+            logger.error("Cannot move the messages of the memory queue to the store, dropped {} messages",
+                    messages.size(), e);
+        }
+    }
+
+    private void attachStore() {
+        if (this.dataServiceOptions.getStoreType() == StoreType.H2) {
+            restartDbServiceTracker(this.dataServiceOptions.getDbServiceInstancePid());
+        } else {
+            // the segmented log store does not depend on a H2DbService instance
+            startDbStore();
+            signalPublisher();
+        }
+    }
+
+    private boolean isStoreAttached() {
+        return this.dbService != null || this.dataServiceOptions.getStoreType() != StoreType.H2;
+    }
+
+    private static boolean isStoreChanged(DataServiceOptions oldOptions, DataServiceOptions newOptions) {
+        if (oldOptions.getStoreType() != newOptions.getStoreType()) {
+            return true;
+        }
+        return newOptions.getStoreType() == StoreType.SEGMENTED_LOG
+                && (!oldOptions.getStoreLogDirectory().equals(newOptions.getStoreLogDirectory())
+                        || oldOptions.getStoreLogSegmentSize() != newOptions.getStoreLogSegmentSize());
+    }
+
     private void restartDbServiceTracker(String kuraServicePid) {
         stopDbServiceTracker();
         try {
@@ -225,15 +340,37 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
         stopConnectionMonitorTask();
 
-        final String oldDbServicePid = this.dataServiceOptions.getDbServiceInstancePid();
+        final DataServiceOptions oldOptions = this.dataServiceOptions;
+        final String oldDbServicePid = oldOptions.getDbServiceInstancePid();
 
         this.dataServiceOptions = new DataServiceOptions(properties);
 
         createThrottle();
+        createStoreStage();
+        configureMemoryQueue();
+        configureInFlightWindow();
 
         final String currentDbServicePid = this.dataServiceOptions.getDbServiceInstancePid();
 
-        if (oldDbServicePid.equals(currentDbServicePid)) {
+        if (isStoreChanged(oldOptions, this.dataServiceOptions)) {
+            logger.info("Data store configuration changed, switching store...");
+            spillMemoryQueue();
+            if (oldOptions.getStoreType() == StoreType.H2) {
+                // unsets the H2DbService, disconnecting and stopping the store
+                stopDbServiceTracker();
+            } else {
+                disconnect();
+                this.store.stop();
+            }
+            this.store = createStore(this.dataServiceOptions.getKuraServicePid());
+            // the messages moved from the memory queue are left in the previous store
+            this.spilledMsgIds.clear();
+            createStoreStage();
+            attachStore();
+        } else if (this.dataServiceOptions.getStoreType() != StoreType.H2) {
+            this.store.update(this.dataServiceOptions.getStoreHousekeeperInterval(),
+                    this.dataServiceOptions.getStorePurgeAge(), this.dataServiceOptions.getStoreCapacity());
+        } else if (oldDbServicePid.equals(currentDbServicePid)) {
             if (this.dbService != null) {
                 this.store.update(this.dataServiceOptions.getStoreHousekeeperInterval(),
                         this.dataServiceOptions.getStorePurgeAge(), this.dataServiceOptions.getStoreCapacity());
@@ -272,6 +409,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
         this.dataTransportService.removeDataTransportListener(this);
 
+        spillMemoryQueue();
         this.store.stop();
 
         stopDbServiceTracker();
@@ -300,6 +438,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
     public synchronized void unsetH2DbService(H2DbService dbService) {
         this.dbService = null;
         disconnect();
+        spillMemoryQueue();
         this.store.stop();
     }
 
@@ -364,6 +503,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
                 try {
                     this.store.unpublishAllInFlighMessages();
                     this.inFlightMsgIds.clear();
+                    this.inFlightWindow.clear();
                 } catch (KuraStoreException e) {
                     logger.error("Failed to unpublish in-flight messages", e);
                 }
@@ -372,6 +512,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
                 try {
                     this.store.dropAllInFlightMessages();
                     this.inFlightMsgIds.clear();
+                    this.inFlightWindow.clear();
                 } catch (KuraStoreException e) {
                     logger.error("Failed to drop in-flight messages", e);
                 }
@@ -397,6 +538,8 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         logger.info("Notified disconnected");
         this.cloudConnectionStatusService.updateStatus(this, CloudConnectionStatusEnum.OFF);
 
+        spillMemoryQueue();
+
         // Notify the listeners
         this.dataServiceListeners.onDisconnected();
     }
@@ -428,6 +571,8 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         stopConnectionMonitorTask(); // Just in case...
         startConnectionMonitorTask();
 
+        spillMemoryQueue();
+
         // Notify the listeners
         this.dataServiceListeners.onConnectionLost(cause);
     }
@@ -451,6 +596,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
                 token.getSessionId());
 
         Integer messageId = this.inFlightMsgIds.remove(token);
+        this.inFlightWindow.onConfirmed(token);
         if (messageId == null) {
             logger.info(
                     "Confirmed message published with MQTT message ID: {} not tracked in the map of in-flight messages",
@@ -475,7 +621,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
             }
         }
 
-        if (this.inFlightMsgIds.size() < this.dataServiceOptions.getMaxInFlightMessages()) {
+        if (this.inFlightMsgIds.size() < getInFlightLimit()) {
             handleInFlightDecongestion();
         }
 
@@ -485,7 +631,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
     @Override
     public void connect() throws KuraConnectException {
         stopConnectionMonitorTask();
-        if (this.dbService == null) {
+        if (!isStoreAttached()) {
             throw new KuraConnectException("H2DbService instance not attached, not connecting");
         }
 
@@ -528,9 +674,19 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
     @Override
     public int publish(String topic, byte[] payload, int qos, boolean retain, int priority) throws KuraStoreException {
 
+        if (isMemoryQueueEligible(qos, priority) && this.dataTransportService.isConnected()) {
+            DataMessage queuedMsg = this.memoryQueue.offer(topic, payload, qos, retain, priority);
+            if (queuedMsg != null) {
+                logger.debug("Queued message in memory on topic :{}, priority: {}", topic, priority);
+                signalPublisher();
+                return queuedMsg.getId();
+            }
+            logger.debug("Memory queue full, storing message on topic :{}", topic);
+        }
+
         logger.info("Storing message on topic :{}, priority: {}", topic, priority);
 
-        DataMessage dataMsg = this.store.store(topic, payload, qos, retain, priority);
+        DataMessage dataMsg = this.storeStage.store(topic, payload, qos, retain, priority);
         logger.info("Stored message on topic :{}, priority: {}", topic, priority);
 
         signalPublisher();
@@ -540,7 +696,12 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
     @Override
     public List<Integer> getUnpublishedMessageIds(String topicRegex) throws KuraStoreException {
-        List<DataMessage> messages = this.store.allUnpublishedMessagesNoPayload();
+        List<DataMessage> messages = new ArrayList<>();
+        List<DataMessage> storedMessages = this.store.allUnpublishedMessagesNoPayload();
+        if (storedMessages != null) {
+            messages.addAll(storedMessages);
+        }
+        messages.addAll(this.memoryQueue.getMessages());
         return buildMessageIds(messages, topicRegex);
     }
 
@@ -556,6 +717,18 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         return buildMessageIds(messages, topicRegex);
     }
 
+    @Override
+    public InFlightStatistics getInFlightStatistics() {
+        final Map<DataTransportToken, Integer> msgIds = this.inFlightMsgIds;
+        return this.inFlightWindow.getStatistics(msgIds != null ? msgIds.size() : 0);
+    }
+
+    @Override
+    public StoreBatchStatistics getStoreBatchStatistics() {
+        final GroupCommitStage stage = this.storeStage;
+        return stage != null ? stage.getStatistics() : new StoreBatchStatistics(0, 0, 0, 0);
+    }
+
     private void signalPublisher() {
         this.lock.lock();
         this.notifyPending = true;
@@ -597,7 +770,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
                     Thread.currentThread().setName("DataServiceImpl:ReconnectTask");
                     boolean connected = false;
                     try {
-                        if (DataServiceImpl.this.dbService == null) {
+                        if (!isStoreAttached()) {
                             logger.warn("H2DbService instance not attached, not connecting");
                             return;
                         }
@@ -698,7 +871,8 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
     }
 
     // It's very important that the publishInternal and messageConfirmed methods are synchronized
-    private synchronized void publishInternal(DataMessage message) throws KuraException {
+    // The publication is acknowledged to the store by the caller, see PublishManager
+    private synchronized DataTransportToken publishInternal(DataMessage message) throws KuraException {
 
         String topic = message.getTopic();
         byte[] payload = message.getPayload();
@@ -712,7 +886,6 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         DataTransportToken token = this.dataTransportService.publish(topic, payload, qos, retain);
 
         if (token == null) {
-            this.store.published(msgId);
             logger.debug("Published message with ID: {}", msgId);
         } else {
 
@@ -723,9 +896,10 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
             }
 
             this.inFlightMsgIds.put(token, msgId);
-            this.store.published(msgId, token.getMessageId(), token.getSessionId());
+            this.inFlightWindow.onPublished(token);
             logger.debug("Published message with ID: {} and MQTT message ID: {}", msgId, token.getMessageId());
         }
+        return token;
     }
 
     private List<Integer> buildMessageIds(List<DataMessage> messages, String topicRegex) {
@@ -736,7 +910,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
             for (DataMessage message : messages) {
                 String topic = message.getTopic();
                 if (topicPattern.matcher(topic).matches()) {
-                    ids.add(message.getId());
+                    ids.add(getReportedId(message));
                 }
             }
         }
@@ -744,7 +918,14 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         return ids;
     }
 
+    private int getReportedId(DataMessage message) {
+        final Integer queuedId = this.spilledMsgIds.get(message.getId());
+        return queuedId != null ? queuedId : message.getId();
+    }
+
     private void handleInFlightCongestion() {
+        this.inFlightWindow.onCongestion();
+
         int timeout = this.dataServiceOptions.getInFlightMessagesCongestionTimeout();
 
         // Do not schedule more that one task at a time
@@ -784,6 +965,16 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         this.notificationStatus = status;
     }
 
+    /**
+     * Publishes the stored messages. Instead of fetching and acknowledging one message at a time, the publisher
+     * fetches a window of the next unpublished messages in priority order, publishes them back to back as long as
+     * the in-flight limit and the rate limit allow and then acknowledges all the published messages to the store in a
+     * single transaction. The window is fetched again from the store on every iteration, so that messages stored in
+     * the meantime with a higher priority are not delayed by more than one window.
+     * <p>
+     * The messages in the memory queue are merged with the stored ones in priority order, they are removed from the
+     * queue once published and never acknowledged to the store.
+     */
     private final class PublishManager implements Runnable {
 
         @Override
@@ -794,20 +985,42 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
                 boolean messagePublished = false;
 
                 if (DataServiceImpl.this.dataTransportService.isConnected()) {
+                    Map<Integer, DataTransportToken> publishedMessages = new LinkedHashMap<>();
+                    int publishedCount = 0;
                     try {
-                        DataMessage message = DataServiceImpl.this.store.getNextMessage();
+                        int prefetchSize = DataServiceImpl.this.dataServiceOptions.getPublisherPrefetchSize();
+                        List<DataMessage> storedMessages = DataServiceImpl.this.store.getNextMessages(prefetchSize);
+                        int storedIndex = 0;
+
+                        while (publishedCount < prefetchSize && DataServiceImpl.this.publisherEnabled.get()) {
+                            // merge the stored messages with the memory queue in priority order
+                            DataMessage stored = storedIndex < storedMessages.size() ? storedMessages.get(storedIndex)
+                                    : null;
+                            DataMessage queued = DataServiceImpl.this.memoryQueue.peek();
+                            boolean fromMemory = queued != null
+                                    && (stored == null || MemoryMessageQueue.PUBLISH_ORDER.compare(queued, stored) < 0);
+                            DataMessage message = fromMemory ? queued : stored;
+                            if (message == null) {
+                                break;
+                            }
 
-                        if (message != null) {
                             checkInFlightMessages(message);
 
                             if (DataServiceImpl.this.dataServiceOptions.isRateLimitEnabled()
-                                    && message.getPriority() >= 5) {
-                                messagePublished = publishMessageTokenBucket(message);
+                                    && message.getPriority() >= 5 && !DataServiceImpl.this.throttle.getToken()) {
+                                // keep the priority order, do not skip to the following messages
                                 sleepingTime = DataServiceImpl.this.throttle.getTokenWaitTime();
+                                break;
+                            }
+
+                            DataTransportToken token = publishMessageUnbound(message);
+                            if (fromMemory) {
+                                DataServiceImpl.this.memoryQueue.remove(message);
                             } else {
-                                publishMessageUnbound(message);
-                                messagePublished = true;
+                                publishedMessages.put(message.getId(), token);
+                                storedIndex++;
                             }
+                            publishedCount++;
                         }
                     } catch (KuraNotConnectedException e) {
                         logger.info("DataPublisherService is not connected");
@@ -816,6 +1029,9 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
                         handleInFlightCongestion();
                     } catch (Exception e) {
                         logger.error("Probably an unrecoverable exception", e);
+                    } finally {
+                        messagePublished = publishedCount > 0;
+                        acknowledgePublished(publishedMessages);
                     }
                 } else {
                     logger.info("DataPublisherService not connected");
@@ -829,9 +1045,8 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         }
 
         private void checkInFlightMessages(DataMessage message) throws KuraTooManyInflightMessagesException {
-            if (message.getQos() > 0 && DataServiceImpl.this.inFlightMsgIds
-                    .size() >= DataServiceImpl.this.dataServiceOptions.getMaxInFlightMessages()) {
-                logger.warn("The configured maximum number of in-flight messages has been reached");
+            if (message.getQos() > 0 && DataServiceImpl.this.inFlightMsgIds.size() >= getInFlightLimit()) {
+                logger.warn("The maximum number of in-flight messages has been reached");
                 throw new KuraTooManyInflightMessagesException("Too many in-flight messages");
             }
         }
@@ -859,20 +1074,24 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
             }
         }
 
-        private void publishMessageUnbound(DataMessage message) throws KuraException {
-            publishInternal(message);
+        private DataTransportToken publishMessageUnbound(DataMessage message) throws KuraException {
+            DataTransportToken token = publishInternal(message);
             // Notify the listeners
-            DataServiceImpl.this.dataServiceListeners.onMessagePublished(message.getId(), message.getTopic());
+            DataServiceImpl.this.dataServiceListeners.onMessagePublished(getReportedId(message), message.getTopic());
+            DataServiceImpl.this.spilledMsgIds.remove(message.getId());
+            return token;
         }
 
-        private boolean publishMessageTokenBucket(DataMessage message) throws KuraException, InterruptedException {
-            boolean tokenAvailable = DataServiceImpl.this.throttle.getToken();
-
-            if (tokenAvailable) {
-                publishMessageUnbound(message);
-                return true;
+        private void acknowledgePublished(Map<Integer, DataTransportToken> publishedMessages) {
+            if (publishedMessages.isEmpty()) {
+                return;
+            }
+            try {
+                DataServiceImpl.this.store.published(publishedMessages);
+                logger.debug("Acknowledged {} published messages to store", publishedMessages.size());
+            } catch (KuraStoreException e) {
+                logger.error("Cannot acknowledge published messages to store", e);
             }
-            return false;
         }
     }
 
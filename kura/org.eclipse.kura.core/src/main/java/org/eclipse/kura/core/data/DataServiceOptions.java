@@ -29,9 +29,20 @@ public class DataServiceOptions {
     private static final String STORE_HOUSEKEEPER_INTERVAL_PROP_NAME = "store.housekeeper-interval";
     private static final String STORE_PURGE_AGE_PROP_NAME = "store.purge-age";
     private static final String STORE_CAPACITY_PROP_NAME = "store.capacity";
+    private static final String STORE_TYPE_PROP_NAME = "store.type";
+    private static final String STORE_LOG_DIRECTORY_PROP_NAME = "store.log.directory";
+    private static final String STORE_LOG_SEGMENT_SIZE_PROP_NAME = "store.log.segment-size";
+    private static final String STORE_GROUP_COMMIT_WINDOW_PROP_NAME = "store.group-commit.window";
+    private static final String STORE_GROUP_COMMIT_MAX_BATCH_SIZE_PROP_NAME = "store.group-commit.max-batch-size";
     private static final String REPUBLISH_IN_FLIGHT_MSGS_PROP_NAME = "in-flight-messages.republish-on-new-session";
     private static final String MAX_IN_FLIGHT_MSGS_PROP_NAME = "in-flight-messages.max-number";
     private static final String IN_FLIGHT_MSGS_CONGESTION_TIMEOUT_PROP_NAME = "in-flight-messages.congestion-timeout";
+    private static final String IN_FLIGHT_MSGS_ADAPTIVE_WINDOW_PROP_NAME = "in-flight-messages.adaptive-window";
+    private static final String PUBLISHER_PREFETCH_SIZE_PROP_NAME = "publisher.prefetch-size";
+    private static final String MEMORY_QUEUE_ENABLE_PROP_NAME = "memory-queue.enabled";
+    private static final String MEMORY_QUEUE_MAX_MESSAGES_PROP_NAME = "memory-queue.max-messages";
+    private static final String MEMORY_QUEUE_MAX_SIZE_PROP_NAME = "memory-queue.max-size";
+    private static final String MEMORY_QUEUE_MIN_PRIORITY_PROP_NAME = "memory-queue.min-priority";
     private static final String RATE_LIMIT_ENABLE_PROP_NAME = "enable.rate.limit";
     private static final String RATE_LIMIT_AVERAGE_RATE_PROP_NAME = "rate.limit.average";
     private static final String RATE_LIMIT_TIME_UNIT_PROP_NAME = "rate.limit.time.unit";
@@ -46,9 +57,20 @@ public class DataServiceOptions {
     private static final int STORE_HOUSEKEEPER_INTERVAL_DEFAULT = 900;
     private static final int STORE_PURGE_AGE_DEFAULT = 60;
     private static final int STORE_CAPACITY_DEFAULT = 10000;
+    private static final String STORE_TYPE_DEFAULT = StoreType.H2.name();
+    private static final String STORE_LOG_DIRECTORY_DEFAULT = "/opt/eclipse/kura/data/message-store";
+    private static final int STORE_LOG_SEGMENT_SIZE_DEFAULT = 1024;
+    private static final int STORE_GROUP_COMMIT_WINDOW_DEFAULT = 0;
+    private static final int STORE_GROUP_COMMIT_MAX_BATCH_SIZE_DEFAULT = 50;
     private static final boolean REPUBLISH_IN_FLIGHT_MSGS_DEFAULT = true;
     private static final int MAX_IN_FLIGHT_MSGS_DEFAULT = 9;
     private static final int IN_FLIGHT_MSGS_CONGESTION_TIMEOUT_DEFAULT = 0;
+    private static final boolean IN_FLIGHT_MSGS_ADAPTIVE_WINDOW_DEFAULT = false;
+    private static final int PUBLISHER_PREFETCH_SIZE_DEFAULT = 10;
+    private static final boolean MEMORY_QUEUE_ENABLE_DEFAULT = false;
+    private static final int MEMORY_QUEUE_MAX_MESSAGES_DEFAULT = 1000;
+    private static final int MEMORY_QUEUE_MAX_SIZE_DEFAULT = 1024;
+    private static final int MEMORY_QUEUE_MIN_PRIORITY_DEFAULT = 5;
     private static final boolean RATE_LIMIT_ENABLE_DEFAULT = true;
     private static final int RATE_LIMIT_AVERAGE_RATE_DEFAULT = 1;
     private static final String RATE_LIMIT_TIME_UNIT_DEFAULT = "SECONDS";
@@ -58,6 +80,11 @@ public class DataServiceOptions {
 
     private static final int CONNECT_CRITICAL_COMPONENT_TIMEOUT_MULTIPLIER = 5000;
 
+    enum StoreType {
+        H2,
+        SEGMENTED_LOG
+    }
+
     private final Map<String, Object> properties;
 
     DataServiceOptions(Map<String, Object> properties) {
@@ -78,6 +105,33 @@ public class DataServiceOptions {
         return (int) this.properties.getOrDefault(STORE_CAPACITY_PROP_NAME, STORE_CAPACITY_DEFAULT);
     }
 
+    StoreType getStoreType() {
+        String storeType = (String) this.properties.getOrDefault(STORE_TYPE_PROP_NAME, STORE_TYPE_DEFAULT);
+        return StoreType.valueOf(storeType);
+    }
+
+    String getStoreLogDirectory() {
+        return (String) this.properties.getOrDefault(STORE_LOG_DIRECTORY_PROP_NAME, STORE_LOG_DIRECTORY_DEFAULT);
+    }
+
+    /**
+     * Returns the size of a segment of the {@link StoreType#SEGMENTED_LOG} store, in bytes
+     */
+    int getStoreLogSegmentSize() {
+        return (int) this.properties.getOrDefault(STORE_LOG_SEGMENT_SIZE_PROP_NAME, STORE_LOG_SEGMENT_SIZE_DEFAULT)
+                * 1024;
+    }
+
+    int getStoreGroupCommitWindow() {
+        return (int) this.properties.getOrDefault(STORE_GROUP_COMMIT_WINDOW_PROP_NAME,
+                STORE_GROUP_COMMIT_WINDOW_DEFAULT);
+    }
+
+    int getStoreGroupCommitMaxBatchSize() {
+        return (int) this.properties.getOrDefault(STORE_GROUP_COMMIT_MAX_BATCH_SIZE_PROP_NAME,
+                STORE_GROUP_COMMIT_MAX_BATCH_SIZE_DEFAULT);
+    }
+
     boolean isPublishInFlightMessages() {
         return (boolean) this.properties.getOrDefault(REPUBLISH_IN_FLIGHT_MSGS_PROP_NAME,
                 REPUBLISH_IN_FLIGHT_MSGS_DEFAULT);
@@ -92,6 +146,38 @@ public class DataServiceOptions {
                 IN_FLIGHT_MSGS_CONGESTION_TIMEOUT_DEFAULT);
     }
 
+    boolean isInFlightMessagesAdaptiveWindow() {
+        return (boolean) this.properties.getOrDefault(IN_FLIGHT_MSGS_ADAPTIVE_WINDOW_PROP_NAME,
+                IN_FLIGHT_MSGS_ADAPTIVE_WINDOW_DEFAULT);
+    }
+
+    int getPublisherPrefetchSize() {
+        return Math.max(1,
+                (int) this.properties.getOrDefault(PUBLISHER_PREFETCH_SIZE_PROP_NAME, PUBLISHER_PREFETCH_SIZE_DEFAULT));
+    }
+
+    boolean isMemoryQueueEnabled() {
+        return (boolean) this.properties.getOrDefault(MEMORY_QUEUE_ENABLE_PROP_NAME, MEMORY_QUEUE_ENABLE_DEFAULT);
+    }
+
+    int getMemoryQueueMaxMessages() {
+        return (int) this.properties.getOrDefault(MEMORY_QUEUE_MAX_MESSAGES_PROP_NAME,
+                MEMORY_QUEUE_MAX_MESSAGES_DEFAULT);
+    }
+
+    /**
+     * Returns the maximum total size of the payloads in the memory queue, in bytes.
+     */
+    long getMemoryQueueMaxSize() {
+        return 1024L
+                * (int) this.properties.getOrDefault(MEMORY_QUEUE_MAX_SIZE_PROP_NAME, MEMORY_QUEUE_MAX_SIZE_DEFAULT);
+    }
+
+    int getMemoryQueueMinPriority() {
+        return (int) this.properties.getOrDefault(MEMORY_QUEUE_MIN_PRIORITY_PROP_NAME,
+                MEMORY_QUEUE_MIN_PRIORITY_DEFAULT);
+    }
+
     boolean isAutoConnect() {
         return (boolean) this.properties.getOrDefault(AUTOCONNECT_PROP_NAME, AUTOCONNECT_PROP_DEFAULT);
     }
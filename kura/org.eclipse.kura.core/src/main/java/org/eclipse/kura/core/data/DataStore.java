@@ -12,8 +12,10 @@
 package org.eclipse.kura.core.data;
 
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.kura.KuraStoreException;
+import org.eclipse.kura.data.DataTransportToken;
 import org.eclipse.kura.db.H2DbService;
 
 /**
@@ -49,6 +51,21 @@ public interface DataStore {
     public DataMessage store(String topic, byte[] payload, int qos, boolean retain, int priority)
             throws KuraStoreException;
 
+    /**
+     * Stores a batch of MQTT messages for deferred publication in a single
+     * transaction. The topic, payload, QoS, retain flag and priority of each
+     * message are taken from the provided messages, all the other fields are
+     * ignored. The store capacity is checked for each message as in
+     * {@link #store(String, byte[], int, boolean, int)}.
+     *
+     * @param messages
+     * @return the stored messages, in the same order of the provided ones, with
+     *         a null element for each message that has not been stored because the
+     *         store capacity has been reached
+     * @throws KuraStoreException
+     */
+    public List<DataMessage> store(List<DataMessage> messages) throws KuraStoreException;
+
     /**
      * Acknowledges the publication of the DataMessage with the given ID
      * associating it to the protocol (e.g. MQTT) message ID (QoS > 0).
@@ -71,6 +88,17 @@ public interface DataStore {
      */
     public void published(int msgId) throws KuraStoreException;
 
+    /**
+     * Acknowledges the publication of a batch of DataMessages in a single
+     * transaction. The provided map associates the ID of each published
+     * DataMessage to the token returned by the transport for messages
+     * published with QoS > 0, or to null for messages published with QoS = 0.
+     *
+     * @param publishedMessages
+     * @throws KuraStoreException
+     */
+    public void published(Map<Integer, DataTransportToken> publishedMessages) throws KuraStoreException;
+
     /**
      * Acknowledges the delivery of the DataMessage published with the given
      * protocol (e.g. MQTT) message ID. This method is only called for messages
@@ -91,6 +119,16 @@ public interface DataStore {
      */
     public DataMessage getNextMessage() throws KuraStoreException;
 
+    /**
+     * Gets up to the given number of unpublished messages, in the same order
+     * in which they would be returned by {@link #getNextMessage()}.
+     *
+     * @param maxCount
+     * @return the unpublished messages, an empty list if there are none
+     * @throws KuraStoreException
+     */
+    public List<DataMessage> getNextMessages(int maxCount) throws KuraStoreException;
+
     /**
      * Returns a message from the DataStore by its message id.
      * 
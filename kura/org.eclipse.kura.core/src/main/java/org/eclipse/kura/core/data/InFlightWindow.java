@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.data.DataTransportToken;
+import org.eclipse.kura.data.InFlightStatistics;
+
+/**
+ * Tracks the confirmation latency of the in-flight messages and computes the maximum number of messages that can be
+ * in-flight at the same time.
+ * <p>
+ * When the adaptive mode is disabled the window is always the configured maximum. Otherwise the window grows by one
+ * message per window of confirmations while the smoothed confirmation latency stays close to the lowest latency
+ * observed, and is reduced by a quarter, at most once per window of confirmations, when the smoothed latency grows
+ * beyond twice the lowest one, meaning that the messages are queuing up somewhere between the client and the
+ * broker. The window is always between 1 and the configured maximum.
+ * <p>
+ * Messages restored from the store at startup have no publish time and are not accounted in the latency histogram.
+ */
+public class InFlightWindow {
+
+    static final long[] LATENCY_BUCKET_BOUNDS = { 10, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+    private static final double DECREASE_FACTOR = 0.75;
+    private static final double LATENCY_TOLERANCE = 5;
+
+    private final Map<DataTransportToken, Long> publishTimes = new HashMap<>();
+    private final long[] latencyBucketCounts = new long[LATENCY_BUCKET_BOUNDS.length + 1];
+
+    private int maxWindowSize = 1;
+    private boolean adaptive;
+    private double windowSize = 1;
+
+    private double smoothedLatency = -1;
+    private double baseLatency = Double.MAX_VALUE;
+    private int confirmedSinceDecrease;
+
+    private boolean congested;
+    private long confirmedCount;
+    private long congestionCount;
+
+    public synchronized void configure(int maxWindowSize, boolean adaptive) {
+        this.maxWindowSize = Math.max(1, maxWindowSize);
+        this.windowSize = adaptive && this.adaptive ? Math.min(this.windowSize, this.maxWindowSize)
+                : this.maxWindowSize;
+        this.adaptive = adaptive;
+    }
+
+    public synchronized int getWindowSize() {
+        return (int) this.windowSize;
+    }
+
+    public void onPublished(DataTransportToken token) {
+        onPublished(token, System.nanoTime());
+    }
+
+    synchronized void onPublished(DataTransportToken token, long nanos) {
+        this.publishTimes.put(token, nanos);
+    }
+
+    public void onConfirmed(DataTransportToken token) {
+        onConfirmed(token, System.nanoTime());
+    }
+
+    synchronized void onConfirmed(DataTransportToken token, long nanos) {
+        this.congested = false;
+
+        final Long publishTime = this.publishTimes.remove(token);
+        if (publishTime == null) {
+            return;
+        }
+
+        final double latency = (double) (nanos - publishTime) / TimeUnit.MILLISECONDS.toNanos(1);
+        this.confirmedCount++;
+        this.latencyBucketCounts[getBucket(latency)]++;
+
+        this.baseLatency = Math.min(this.baseLatency, latency);
+        this.smoothedLatency = this.smoothedLatency < 0 ? latency : this.smoothedLatency * 7 / 8 + latency / 8;
+        this.confirmedSinceDecrease++;
+
+        if (!this.adaptive) {
+            return;
+        }
+        if (this.smoothedLatency <= 2 * this.baseLatency + LATENCY_TOLERANCE) {
+            this.windowSize = Math.min(this.maxWindowSize, this.windowSize + 1 / this.windowSize);
+        } else if (this.confirmedSinceDecrease >= this.windowSize) {
+            this.windowSize = Math.max(1, this.windowSize * DECREASE_FACTOR);
+            this.confirmedSinceDecrease = 0;
+        }
+    }
+
+    /**
+     * Records that a message could not be published because the window is full. Consecutive calls without
+     * confirmations in between count as a single congestion event.
+     */
+    public synchronized void onCongestion() {
+        if (!this.congested) {
+            this.congested = true;
+            this.congestionCount++;
+        }
+    }
+
+    /**
+     * Forgets the in-flight messages, e.g. when a new session is established. The window and the latency estimates
+     * are reset, the counters are kept.
+     */
+    public synchronized void clear() {
+        this.publishTimes.clear();
+        this.windowSize = this.maxWindowSize;
+        this.smoothedLatency = -1;
+        this.baseLatency = Double.MAX_VALUE;
+        this.confirmedSinceDecrease = 0;
+        this.congested = false;
+    }
+
+    public synchronized InFlightStatistics getStatistics(int inFlightCount) {
+        return new InFlightStatistics(inFlightCount, (int) this.windowSize, this.maxWindowSize, this.confirmedCount,
+                this.congestionCount, LATENCY_BUCKET_BOUNDS, this.latencyBucketCounts);
+    }
+
+    private static int getBucket(double latency) {
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKET_BOUNDS.length && latency > LATENCY_BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+}
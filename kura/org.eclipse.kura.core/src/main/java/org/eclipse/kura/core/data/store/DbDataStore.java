@@ -21,7 +21,9 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -32,6 +34,7 @@ import org.eclipse.kura.KuraStoreCapacityReachedException;
 import org.eclipse.kura.KuraStoreException;
 import org.eclipse.kura.core.data.DataMessage;
 import org.eclipse.kura.core.data.DataStore;
+import org.eclipse.kura.data.DataTransportToken;
 import org.eclipse.kura.db.H2DbService;
 import org.eclipse.kura.system.SystemService;
 import org.osgi.framework.BundleContext;
@@ -63,7 +66,9 @@ public class DbDataStore implements DataStore {
     private final String sqlResetId;
     private final String sqlStore;
     private final String sqlGetMessage;
+    private final String sqlGetMessages;
     private final String sqlGetNextMessage;
+    private final String sqlGetNextMessages;
     private final String sqlSetPublished;
     private final String sqlSetPublished2;
     private final String sqlSetConfirmed;
@@ -97,9 +102,14 @@ public class DbDataStore implements DataStore {
                 + " (topic, qos, retain, createdOn, publishedOn, publishedMessageId, confirmedOn, payload, priority, sessionId, droppedOn) VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);";
         this.sqlGetMessage = "SELECT id, topic, qos, retain, createdOn, publishedOn, publishedMessageId, confirmedOn, payload, priority, sessionId, droppedOn FROM "
                 + this.table + " WHERE id = ?";
+        this.sqlGetMessages = "SELECT id, topic, qos, retain, createdOn, publishedOn, publishedMessageId, confirmedOn, payload, priority, sessionId, droppedOn FROM "
+                + this.table + " WHERE id IN (";
         this.sqlGetNextMessage = "SELECT a.id, a.topic, a.qos, a.retain, a.createdOn, a.publishedOn, a.publishedMessageId, a.confirmedOn, a.payload, a.priority, a.sessionId, a.droppedOn FROM "
                 + this.table + " AS a JOIN (SELECT id, publishedOn FROM " + this.table
                 + " ORDER BY publishedOn ASC NULLS FIRST, priority ASC, createdOn ASC LIMIT 1) AS b WHERE a.id = b.id AND b.publishedOn IS NULL;";
+        this.sqlGetNextMessages = "SELECT a.id, a.topic, a.qos, a.retain, a.createdOn, a.publishedOn, a.publishedMessageId, a.confirmedOn, a.payload, a.priority, a.sessionId, a.droppedOn FROM "
+                + this.table + " AS a JOIN (SELECT id, publishedOn FROM " + this.table
+                + " ORDER BY publishedOn ASC NULLS FIRST, priority ASC, createdOn ASC, id ASC LIMIT ?) AS b WHERE a.id = b.id AND b.publishedOn IS NULL ORDER BY a.priority ASC, a.createdOn ASC, a.id ASC;";
         this.sqlSetPublished = "UPDATE " + this.table
                 + " SET publishedOn = ?, publishedMessageId = ?, sessionId = ? WHERE id = ?;";
         this.sqlSetPublished2 = "UPDATE " + this.table + " SET publishedOn = ? WHERE id = ?;";
@@ -283,6 +293,149 @@ public class DbDataStore implements DataStore {
         return message;
     }
 
+    @Override
+    public synchronized List<DataMessage> store(List<DataMessage> messages) throws KuraStoreException {
+        if (dbService == null) {
+            throw new KuraStoreException("DbService instance not attached");
+        }
+
+        // Apply the capacity check to each message, counting the messages only once per batch
+        final List<DataMessage> accepted = new ArrayList<DataMessage>(messages.size());
+        int count = -1;
+        for (DataMessage message : messages) {
+            if (message.getTopic() == null || message.getTopic().trim().length() == 0) {
+                throw new IllegalArgumentException("topic");
+            }
+            final int priority = message.getPriority();
+            if (priority != 0 && priority != 1) {
+                if (count == -1) {
+                    // the messages already accepted are not in the store yet
+                    count = getMessageCount() + accepted.size();
+                    logger.debug("Store message count: {}", count);
+                }
+                if (count >= this.capacity) {
+                    logger.error("Store capacity exceeded");
+                    continue;
+                }
+            }
+            accepted.add(message);
+            if (count != -1) {
+                count++;
+            }
+        }
+
+        List<DataMessage> stored;
+        if (accepted.isEmpty()) {
+            stored = accepted;
+        } else {
+            try {
+                stored = storeBatchInternal(accepted);
+            } catch (KuraStoreException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && ((SQLException) cause).getErrorCode() == 22003) {
+                    logger.warn("Identity generator limit exceeded. Resetting it...");
+                    resetIdentityGenerator();
+                    stored = storeBatchInternal(accepted);
+                } else {
+                    throw e;
+                }
+            }
+        }
+
+        // Rejected messages are reported as null elements
+        final List<DataMessage> result = new ArrayList<DataMessage>(messages.size());
+        int storedIndex = 0;
+        for (DataMessage message : messages) {
+            if (storedIndex < accepted.size() && accepted.get(storedIndex) == message) {
+                result.add(stored.get(storedIndex++));
+            } else {
+                result.add(null);
+            }
+        }
+        return result;
+    }
+
+    private synchronized List<DataMessage> storeBatchInternal(List<DataMessage> messages)
+            throws KuraStoreException {
+        Timestamp now = new Timestamp(new Date().getTime());
+
+        final List<Integer> messageIds = new ArrayList<Integer>(messages.size());
+        final Map<Integer, DataMessage> storedById = new HashMap<Integer, DataMessage>();
+        ResultSet rs = null;
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        PreparedStatement gstmt = null;
+        try {
+
+            conn = getConnection();
+
+            // store messages
+            pstmt = conn.prepareStatement(this.sqlStore, Statement.RETURN_GENERATED_KEYS);
+            for (DataMessage message : messages) {
+                pstmt.setString(1, message.getTopic());           // topic
+                pstmt.setInt(2, message.getQos());                // qos
+                pstmt.setBoolean(3, message.isRetain());          // retain
+                pstmt.setTimestamp(4, now, this.utcCalendar);     // createdOn
+                pstmt.setTimestamp(5, null);                      // publishedOn
+                pstmt.setInt(6, -1);                              // publishedMessageId
+                pstmt.setTimestamp(7, null);                      // confirmedOn
+                pstmt.setBytes(8, message.getPayload());          // payload
+                pstmt.setInt(9, message.getPriority());           // priority
+                pstmt.setString(10, null);                        // sessionId
+                pstmt.setTimestamp(11, null);                     // droppedOn
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+
+            // retrieve message ids, one generated key per row of the batch
+            rs = pstmt.getGeneratedKeys();
+            while (rs.next()) {
+                messageIds.add(rs.getInt(1));
+            }
+            close(rs);
+            rs = null;
+            if (messageIds.size() != messages.size()) {
+                throw new SQLException("Expected " + messages.size() + " generated keys, got " + messageIds.size());
+            }
+
+            // read the messages back in a single query, as storeInternal does for a single message
+            final StringBuilder sb = new StringBuilder(this.sqlGetMessages);
+            for (int i = 0; i < messageIds.size(); i++) {
+                sb.append(i == 0 ? "?" : ", ?");
+            }
+            sb.append(");");
+            gstmt = conn.prepareStatement(sb.toString());
+            for (int i = 0; i < messageIds.size(); i++) {
+                gstmt.setInt(i + 1, messageIds.get(i));
+            }
+            rs = gstmt.executeQuery();
+            while (rs.next()) {
+                final DataMessage message = buildDataMessage(rs);
+                storedById.put(message.getId(), message);
+            }
+            if (storedById.size() != messageIds.size()) {
+                throw new SQLException("Cannot read back the stored messages");
+            }
+
+            conn.commit();
+        } catch (SQLException e) {
+            rollback(conn);
+            logger.error("SQL error code: {}", e.getErrorCode());
+            throw new KuraStoreException(e, "Cannot store messages");
+        } finally {
+            close(rs);
+            close(gstmt);
+            close(pstmt);
+            close(conn);
+        }
+
+        final List<DataMessage> stored = new ArrayList<DataMessage>(messages.size());
+        for (Integer messageId : messageIds) {
+            stored.add(storedById.get(messageId));
+        }
+        return stored;
+    }
+
     private synchronized DataMessage storeInternal(String topic, byte[] payload, int qos, boolean retain, int priority)
             throws KuraStoreException {
         if (topic == null || topic.trim().length() == 0) {
@@ -385,6 +538,31 @@ public class DbDataStore implements DataStore {
         return msg;
     }
 
+    @Override
+    public synchronized List<DataMessage> getNextMessages(int maxCount) throws KuraStoreException {
+        List<DataMessage> msgs = new ArrayList<>();
+        ResultSet rs = null;
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        try {
+
+            conn = getConnection();
+            stmt = conn.prepareStatement(this.sqlGetNextMessages);
+            stmt.setInt(1, maxCount);
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                msgs.add(buildDataMessage(rs));
+            }
+        } catch (Exception e) {
+            throw new KuraStoreException(e, "Cannot get next messages");
+        } finally {
+            close(rs);
+            close(stmt);
+            close(conn);
+        }
+        return msgs;
+    }
+
     @Override
     public synchronized void published(int msgId, int publishedMsgId, String sessionId) throws KuraStoreException {
         Timestamp now = new Timestamp(new Date().getTime());
@@ -416,6 +594,57 @@ public class DbDataStore implements DataStore {
         updateTimestamp(this.sqlSetPublished2, msgId);
     }
 
+    @Override
+    public synchronized void published(Map<Integer, DataTransportToken> publishedMessages) throws KuraStoreException {
+        if (publishedMessages.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = new Timestamp(new Date().getTime());
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        PreparedStatement stmt2 = null;
+        try {
+
+            conn = getConnection();
+            stmt = conn.prepareStatement(this.sqlSetPublished);
+            stmt2 = conn.prepareStatement(this.sqlSetPublished2);
+            boolean qos0 = false;
+            boolean qos12 = false;
+            for (Map.Entry<Integer, DataTransportToken> entry : publishedMessages.entrySet()) {
+                DataTransportToken token = entry.getValue();
+                if (token == null) {
+                    stmt2.setTimestamp(1, now, this.utcCalendar);
+                    stmt2.setInt(2, entry.getKey());
+                    stmt2.addBatch();
+                    qos0 = true;
+                } else {
+                    stmt.setTimestamp(1, now, this.utcCalendar);
+                    stmt.setInt(2, token.getMessageId());
+                    stmt.setString(3, token.getSessionId());
+                    stmt.setInt(4, entry.getKey());
+                    stmt.addBatch();
+                    qos12 = true;
+                }
+            }
+            if (qos12) {
+                stmt.executeBatch();
+            }
+            if (qos0) {
+                stmt2.executeBatch();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            rollback(conn);
+            throw new KuraStoreException(e, "Cannot update timestamps");
+        } finally {
+            close(stmt2);
+            close(stmt);
+            close(conn);
+        }
+    }
+
     @Override
     public synchronized void confirmed(int msgId) throws KuraStoreException {
         updateTimestamp(this.sqlSetConfirmed, msgId);
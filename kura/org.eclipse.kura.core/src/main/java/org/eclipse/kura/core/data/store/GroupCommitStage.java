@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.data.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.kura.KuraStoreCapacityReachedException;
+import org.eclipse.kura.KuraStoreException;
+import org.eclipse.kura.core.data.DataMessage;
+import org.eclipse.kura.core.data.DataStore;
+import org.eclipse.kura.data.StoreBatchStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A group commit stage in front of a {@link DataStore}.
+ * <p>
+ * Concurrent {@link #store(String, byte[], int, boolean, int)} callers are collected into a single batch that is
+ * written with {@link DataStore#store(List)}. The first caller that finds no commit in progress becomes the leader:
+ * it waits up to the configured window for the batch to fill, commits it on behalf of all the callers in the batch
+ * and then hands the leadership over to the first caller still waiting, if any. Callers arriving while a commit is in
+ * progress are therefore grouped together even with a zero window.
+ */
+public class GroupCommitStage {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitStage.class);
+
+    private final DataStore store;
+    private final long windowNanos;
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+    private final List<Request> pending = new ArrayList<>();
+    private boolean leaderActive;
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong messageCount = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile int maxAchievedBatchSize;
+
+    /**
+     * @param store
+     *            the store messages are written to
+     * @param window
+     *            the maximum time in milliseconds the leader waits for a batch to fill, 0 to commit the messages
+     *            collected so far without waiting
+     * @param maxBatchSize
+     *            the maximum number of messages in a batch, 1 disables grouping
+     */
+    public GroupCommitStage(DataStore store, long window, int maxBatchSize) {
+        this.store = store;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(window);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    /**
+     * Stores a message through the group commit stage.
+     *
+     * @see DataStore#store(String, byte[], int, boolean, int)
+     */
+    public DataMessage store(String topic, byte[] payload, int qos, boolean retain, int priority)
+            throws KuraStoreException {
+        if (this.maxBatchSize == 1) {
+            final DataMessage message = this.store.store(topic, payload, qos, retain, priority);
+            recordBatch(1);
+            return message;
+        }
+
+        if (topic == null || topic.trim().length() == 0) {
+            throw new IllegalArgumentException("topic");
+        }
+
+        final Request request = new Request(new DataMessage.Builder(-1).withTopic(topic).withPayload(payload)
+                .withQos(qos).withRetain(retain).withPriority(priority).build());
+
+        boolean interrupted = false;
+        synchronized (this.lock) {
+            this.pending.add(request);
+            if (!this.leaderActive) {
+                this.leaderActive = true;
+                request.leader = true;
+            } else if (this.pending.size() >= this.maxBatchSize) {
+                this.lock.notifyAll();
+            }
+
+            // the request cannot be abandoned once queued, it may be committed at any time
+            while (!request.done && !request.leader) {
+                try {
+                    this.lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (!request.done) {
+            lead();
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        return request.get();
+    }
+
+    /**
+     * Returns a snapshot of the sizes of the batches committed so far.
+     */
+    public StoreBatchStatistics getStatistics() {
+        return new StoreBatchStatistics(this.batchCount.get(), this.messageCount.get(), this.lastBatchSize,
+                this.maxAchievedBatchSize);
+    }
+
+    private void lead() {
+        final List<Request> batch;
+        synchronized (this.lock) {
+            final long deadline = System.nanoTime() + this.windowNanos;
+            long remaining = this.windowNanos;
+            while (this.pending.size() < this.maxBatchSize && remaining > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this.lock, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                remaining = deadline - System.nanoTime();
+            }
+
+            final int size = Math.min(this.pending.size(), this.maxBatchSize);
+            final List<Request> head = this.pending.subList(0, size);
+            batch = new ArrayList<>(head);
+            head.clear();
+        }
+
+        try {
+            commit(batch);
+        } finally {
+            synchronized (this.lock) {
+                for (Request request : batch) {
+                    request.done = true;
+                }
+                if (this.pending.isEmpty()) {
+                    this.leaderActive = false;
+                } else {
+                    this.pending.get(0).leader = true;
+                }
+                this.lock.notifyAll();
+            }
+        }
+    }
+
+    private void commit(List<Request> batch) {
+        final List<DataMessage> messages = new ArrayList<>(batch.size());
+        for (Request request : batch) {
+            messages.add(request.message);
+        }
+
+        try {
+            final List<DataMessage> stored = this.store.store(messages);
+            for (int i = 0; i < batch.size(); i++) {
+                final DataMessage message = stored.get(i);
+                if (message != null) {
+                    batch.get(i).result = message;
+                } else {
+                    batch.get(i).failure = new KuraStoreCapacityReachedException("Store capacity exceeded");
+                }
+            }
+            recordBatch(batch.size());
+        } catch (KuraStoreException | RuntimeException e) {
+            for (Request request : batch) {
+                request.failure = e;
+            }
+        }
+    }
+
+    private void recordBatch(int size) {
+        this.batchCount.incrementAndGet();
+        this.messageCount.addAndGet(size);
+        this.lastBatchSize = size;
+        if (size > this.maxAchievedBatchSize) {
+            this.maxAchievedBatchSize = size;
+        }
+        logger.debug("Committed batch of {} messages, average batch size: {}", size,
+                getStatistics().getAverageBatchSize());
+    }
+
+    private static final class Request {
+
+        private final DataMessage message;
+
+        private boolean leader;
+        private boolean done;
+        private DataMessage result;
+        private Exception failure;
+
+        Request(DataMessage message) {
+            this.message = message;
+        }
+
+        DataMessage get() throws KuraStoreException {
+            if (this.failure instanceof KuraStoreException) {
+                throw (KuraStoreException) this.failure;
+            } else if (this.failure instanceof RuntimeException) {
+                throw (RuntimeException) this.failure;
+            }
+            return this.result;
+        }
+    }
+}
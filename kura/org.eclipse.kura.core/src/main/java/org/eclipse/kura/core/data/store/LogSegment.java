@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.data.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.zip.CRC32;
+
+/**
+ * A fixed size, memory mapped segment file of the {@link SegmentedLogDataStore}.
+ * <p>
+ * A segment starts with a small header followed by a sequence of records. Each record is laid out as
+ * {@code [int length][byte type][body][int crc]} where {@code length} covers the type and the body and the CRC
+ * is computed over the segment sequence number, the type and the body. Seeding the CRC with the sequence number
+ * makes the records left over by a previous use of a recycled segment invalid, so that the segment does not need
+ * to be cleared before being reused. A zero length marks the end of the segment.
+ * <p>
+ * This class is not thread safe, the owning store is responsible for synchronization.
+ */
+final class LogSegment {
+
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_OVERHEAD = 9;
+
+    private static final int MAGIC = 0x4B445331; // KDS1
+    private static final int VERSION = 1;
+    private static final String FILE_PREFIX = "segment-";
+    private static final String FILE_SUFFIX = ".log";
+    private static final String FREE_FILE_PREFIX = "free-";
+
+    private final File directory;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final CRC32 crc = new CRC32();
+
+    private File path;
+    private long sequence;
+    private int writePosition;
+    private int liveCount;
+    private int storedCount;
+
+    private LogSegment(File directory, long sequence, int size, boolean create) throws IOException {
+        this.directory = directory;
+        this.sequence = sequence;
+        this.path = fileFor(directory, sequence);
+        this.file = new RandomAccessFile(this.path, "rw");
+        try {
+            if (create) {
+                this.file.setLength(size);
+            }
+            this.channel = this.file.getChannel();
+            this.buffer = this.channel.map(MapMode.READ_WRITE, 0, this.file.length());
+        } catch (IOException e) {
+            this.file.close();
+            throw e;
+        }
+        if (create) {
+            writeHeader();
+        }
+    }
+
+    static LogSegment create(File directory, long sequence, int size) throws IOException {
+        return new LogSegment(directory, sequence, size, true);
+    }
+
+    static LogSegment open(File directory, long sequence) throws IOException {
+        return new LogSegment(directory, sequence, 0, false);
+    }
+
+    static File fileFor(File directory, long sequence) {
+        return new File(directory, String.format("%s%016d%s", FILE_PREFIX, sequence, FILE_SUFFIX));
+    }
+
+    /**
+     * Tells whether the given file name belongs to a released segment left over by a previous run.
+     */
+    static boolean isFreeSegment(String fileName) {
+        return fileName.startsWith(FREE_FILE_PREFIX) && fileName.endsWith(FILE_SUFFIX);
+    }
+
+    /**
+     * Returns the sequence number encoded in the given segment file name or -1 if the name does not belong to a
+     * segment.
+     */
+    static long parseSequence(String fileName) {
+        if (!fileName.startsWith(FILE_PREFIX) || !fileName.endsWith(FILE_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(fileName.substring(FILE_PREFIX.length(), fileName.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    long getSequence() {
+        return this.sequence;
+    }
+
+    int getSize() {
+        return this.buffer.capacity();
+    }
+
+    int getWritePosition() {
+        return this.writePosition;
+    }
+
+    int remaining() {
+        return this.buffer.capacity() - this.writePosition;
+    }
+
+    int getLiveCount() {
+        return this.liveCount;
+    }
+
+    int getStoredCount() {
+        return this.storedCount;
+    }
+
+    void addLive() {
+        this.liveCount++;
+        this.storedCount++;
+    }
+
+    void removeLive() {
+        this.liveCount--;
+    }
+
+    boolean hasValidHeader() {
+        return this.buffer.capacity() >= HEADER_SIZE && this.buffer.getInt(0) == MAGIC
+                && this.buffer.getInt(4) == VERSION;
+    }
+
+    /**
+     * Starts appending a record of the given type and body length. The caller must then write exactly
+     * {@code bodyLength} bytes into the returned buffer and call {@link #commit(int)}.
+     *
+     * @return the buffer positioned at the beginning of the record body or null if the record does not fit
+     */
+    ByteBuffer beginRecord(byte type, int bodyLength) {
+        if (remaining() < RECORD_OVERHEAD + bodyLength) {
+            return null;
+        }
+        ByteBuffer record = this.buffer.duplicate();
+        record.position(this.writePosition);
+        record.putInt(1 + bodyLength);
+        record.put(type);
+        return record;
+    }
+
+    /**
+     * Completes the record started by the last {@link #beginRecord(byte, int)} call.
+     *
+     * @return the offset of the record body in this segment
+     */
+    int commit(int bodyLength) {
+        final int recordStart = this.writePosition;
+        final int crcValue = computeCrc(recordStart + 4, 1 + bodyLength);
+        final int end = recordStart + 5 + bodyLength;
+        this.buffer.putInt(end, crcValue);
+        this.writePosition = end + 4;
+        terminate();
+        return recordStart + 5;
+    }
+
+    /**
+     * Reads the record starting at the given position.
+     *
+     * @return a buffer positioned at the record type and limited to the record body or null if there is no valid
+     *         record at the given position
+     */
+    ByteBuffer readRecord(int position) {
+        if (position < HEADER_SIZE || position + RECORD_OVERHEAD > this.buffer.capacity()) {
+            return null;
+        }
+        final int length = this.buffer.getInt(position);
+        if (length <= 0 || length > this.buffer.capacity() - position - 8) {
+            return null;
+        }
+        final int expectedCrc = this.buffer.getInt(position + 4 + length);
+        if (expectedCrc != computeCrc(position + 4, length)) {
+            return null;
+        }
+        ByteBuffer record = this.buffer.duplicate();
+        record.limit(position + 4 + length);
+        record.position(position + 4);
+        return record;
+    }
+
+    /**
+     * Returns the position of the record following the one starting at the given position.
+     */
+    int nextRecordPosition(int position) {
+        return position + 8 + this.buffer.getInt(position);
+    }
+
+    /**
+     * Sets the write position after a replay of the segment.
+     */
+    void setWritePosition(int writePosition) {
+        this.writePosition = writePosition;
+        terminate();
+    }
+
+    ByteBuffer slice(int offset, int length) {
+        ByteBuffer result = this.buffer.duplicate();
+        result.limit(offset + length);
+        result.position(offset);
+        return result;
+    }
+
+    /**
+     * Moves the segment file out of the log so that it is ignored by a replay, keeping the mapping so that the
+     * segment can be reused later by {@link #reuse(long)}.
+     */
+    void release() throws IOException {
+        File free = new File(this.directory, FREE_FILE_PREFIX + this.sequence + FILE_SUFFIX);
+        rename(free);
+        this.liveCount = 0;
+        this.storedCount = 0;
+    }
+
+    /**
+     * Puts a released segment back into the log with a new sequence number. The records of the previous use are
+     * invalidated by the new sequence number, see the class documentation.
+     */
+    void reuse(long newSequence) throws IOException {
+        rename(fileFor(this.directory, newSequence));
+        this.sequence = newSequence;
+        writeHeader();
+    }
+
+    void flush() {
+        this.buffer.force();
+    }
+
+    void close() throws IOException {
+        this.buffer.force();
+        this.channel.close();
+        this.file.close();
+    }
+
+    void delete() throws IOException {
+        close();
+        if (!this.path.delete()) {
+            throw new IOException("Cannot delete " + this.path);
+        }
+    }
+
+    private void rename(File target) throws IOException {
+        if (!this.path.renameTo(target)) {
+            throw new IOException("Cannot rename " + this.path + " to " + target);
+        }
+        this.path = target;
+    }
+
+    private void writeHeader() {
+        this.buffer.putInt(0, MAGIC);
+        this.buffer.putInt(4, VERSION);
+        this.writePosition = HEADER_SIZE;
+        terminate();
+    }
+
+    private void terminate() {
+        if (remaining() >= 4) {
+            this.buffer.putInt(this.writePosition, 0);
+        }
+    }
+
+    private int computeCrc(int offset, int length) {
+        this.crc.reset();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            this.crc.update((int) (this.sequence >>> shift));
+        }
+        this.crc.update(slice(offset, length));
+        return (int) this.crc.getValue();
+    }
+
+    @Override
+    public String toString() {
+        return "LogSegment [sequence=" + this.sequence + ", size=" + getSize() + ", writePosition="
+                + this.writePosition + ", liveCount=" + this.liveCount + "]";
+    }
+}
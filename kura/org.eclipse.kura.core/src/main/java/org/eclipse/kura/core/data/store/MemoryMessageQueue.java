@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.data.store;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.kura.core.data.DataMessage;
+
+/**
+ * A bounded in-memory queue of messages that do not need to be persisted before being published, e.g. QoS 0
+ * telemetry published while connected.
+ * <p>
+ * Messages are ordered as in a {@link org.eclipse.kura.core.data.DataStore}: by priority, 0 being the highest, and
+ * FIFO within each priority level. The queue is bounded both in the number of messages and in the total size of
+ * the payloads, {@link #offer(String, byte[], int, boolean, int)} returns null when a message does not fit so that
+ * the caller can fall back to the persistent store.
+ * <p>
+ * Queued messages are assigned negative IDs so that they never collide with the IDs generated by the stores.
+ */
+public class MemoryMessageQueue {
+
+    /**
+     * The publication order shared with the stores: priority first, then creation time.
+     */
+    public static final Comparator<DataMessage> PUBLISH_ORDER = (m1, m2) -> {
+        int result = Integer.compare(m1.getPriority(), m2.getPriority());
+        if (result == 0) {
+            result = m1.getCreatedOn().compareTo(m2.getCreatedOn());
+        }
+        return result;
+    };
+
+    private final TreeMap<Integer, ArrayDeque<DataMessage>> queues = new TreeMap<>();
+
+    private int maxMessages;
+    private long maxBytes;
+    private int size;
+    private long bytes;
+    private int nextId = -1;
+
+    /**
+     * @param maxMessages
+     *            the maximum number of queued messages
+     * @param maxBytes
+     *            the maximum total size of the queued payloads in bytes
+     */
+    public MemoryMessageQueue(int maxMessages, long maxBytes) {
+        setLimits(maxMessages, maxBytes);
+    }
+
+    /**
+     * Changes the queue bounds. Messages already queued are kept even if they exceed the new bounds.
+     */
+    public synchronized void setLimits(int maxMessages, long maxBytes) {
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Queues a message.
+     *
+     * @return the queued message or null if the queue is full
+     */
+    public synchronized DataMessage offer(String topic, byte[] payload, int qos, boolean retain, int priority) {
+        if (topic == null || topic.trim().length() == 0) {
+            throw new IllegalArgumentException("topic");
+        }
+
+        final int payloadSize = payload != null ? payload.length : 0;
+        if (this.size >= this.maxMessages || this.bytes + payloadSize > this.maxBytes) {
+            return null;
+        }
+
+        final DataMessage message = new DataMessage.Builder(allocateId()).withTopic(topic).withPayload(payload)
+                .withQos(qos).withRetain(retain).withPriority(priority).withCreatedOn(new Date()).build();
+
+        this.queues.computeIfAbsent(priority, p -> new ArrayDeque<>()).addLast(message);
+        this.size++;
+        this.bytes += payloadSize;
+        return message;
+    }
+
+    /**
+     * Returns the next message to be published without removing it or null if the queue is empty.
+     */
+    public synchronized DataMessage peek() {
+        final Map.Entry<Integer, ArrayDeque<DataMessage>> first = this.queues.firstEntry();
+        return first != null ? first.getValue().peekFirst() : null;
+    }
+
+    /**
+     * Removes a message previously returned by {@link #peek()}.
+     *
+     * @return true if the message was still queued
+     */
+    public synchronized boolean remove(DataMessage message) {
+        final ArrayDeque<DataMessage> queue = this.queues.get(message.getPriority());
+        if (queue == null) {
+            return false;
+        }
+
+        // the message is the head of its priority level unless the queue has been drained in the meantime
+        final boolean removed = queue.peekFirst() == message ? queue.pollFirst() != null
+                : queue.removeFirstOccurrence(message);
+        if (removed) {
+            removed(queue, message);
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all the queued messages.
+     *
+     * @return the removed messages in publication order
+     */
+    public synchronized List<DataMessage> drain() {
+        final List<DataMessage> messages = new ArrayList<>(this.size);
+        for (ArrayDeque<DataMessage> queue : this.queues.values()) {
+            messages.addAll(queue);
+        }
+        this.queues.clear();
+        this.size = 0;
+        this.bytes = 0;
+        return messages;
+    }
+
+    /**
+     * Returns the queued messages in publication order.
+     */
+    public synchronized List<DataMessage> getMessages() {
+        final List<DataMessage> messages = new ArrayList<>(this.size);
+        for (ArrayDeque<DataMessage> queue : this.queues.values()) {
+            messages.addAll(queue);
+        }
+        return messages;
+    }
+
+    public synchronized int size() {
+        return this.size;
+    }
+
+    public synchronized long getSizeInBytes() {
+        return this.bytes;
+    }
+
+    public synchronized boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    private void removed(ArrayDeque<DataMessage> queue, DataMessage message) {
+        if (queue.isEmpty()) {
+            this.queues.remove(message.getPriority());
+        }
+        this.size--;
+        this.bytes -= message.getPayload() != null ? message.getPayload().length : 0;
+    }
+
+    private int allocateId() {
+        final int id = this.nextId;
+        this.nextId = id == Integer.MIN_VALUE ? -1 : id - 1;
+        return id;
+    }
+}
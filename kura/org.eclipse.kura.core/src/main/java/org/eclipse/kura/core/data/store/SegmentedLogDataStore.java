@@ -0,0 +1,877 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.data.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.KuraStoreCapacityReachedException;
+import org.eclipse.kura.KuraStoreException;
+import org.eclipse.kura.core.data.DataMessage;
+import org.eclipse.kura.core.data.DataStore;
+import org.eclipse.kura.data.DataTransportToken;
+import org.eclipse.kura.db.H2DbService;
+import org.eclipse.kura.system.SystemService;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.ServiceReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of the DataStore which appends messages and their state changes to a set of memory mapped
+ * segment files.
+ * <p>
+ * The state of every message that has not been purged yet is kept in a compact in-memory index, only the payload
+ * is read back from the segments. Segments are only reclaimed from the head of the log: a segment whose messages
+ * have all been purged is released and reused as a new segment at the tail, while the few messages still pinning
+ * a mostly purged head segment are relocated to the tail first. On start the index is rebuilt by replaying the
+ * segments in order, stopping at the first truncated or corrupted record of each segment.
+ * <p>
+ * The {@link H2DbService} passed to {@link #start(H2DbService, int, int, int)} is not used.
+ */
+public class SegmentedLogDataStore implements DataStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentedLogDataStore.class);
+
+    private static final String DATA_SERVICE_REPAIR_ENABLED_PROPNAME = "db.store.repair.enabled";
+
+    private static final byte RECORD_STORED = 1;
+    private static final byte RECORD_PUBLISHED = 2;
+    private static final byte RECORD_CONFIRMED = 3;
+    private static final byte RECORD_DROPPED = 4;
+    private static final byte RECORD_UNPUBLISHED = 5;
+    private static final byte RECORD_RELOCATED = 6;
+    private static final byte RECORD_DELETED = 7;
+
+    private static final long NOT_SET = -1L;
+    private static final int MAX_FREE_SEGMENTS = 2;
+    private static final int RELOCATION_LIVE_RATIO = 4;
+
+    private static final Comparator<Entry> PUBLISH_ORDER = (e1, e2) -> {
+        int result = Integer.compare(e1.priority, e2.priority);
+        if (result == 0) {
+            result = Long.compare(e1.createdOn, e2.createdOn);
+        }
+        if (result == 0) {
+            result = Integer.compare(e1.id, e2.id);
+        }
+        return result;
+    };
+
+    private final File directory;
+    private final int segmentSize;
+
+    private final Map<Integer, Entry> index = new HashMap<>();
+    private final TreeSet<Entry> unpublished = new TreeSet<>(PUBLISH_ORDER);
+    private final LinkedList<LogSegment> segments = new LinkedList<>();
+    private final ArrayDeque<LogSegment> freeSegments = new ArrayDeque<>();
+
+    private ScheduledExecutorService houseKeeperExecutor;
+    private ScheduledFuture<?> houseKeeperTask;
+    private int capacity;
+    private long nextSequence;
+    private int nextId = 1;
+    private boolean started;
+
+    public SegmentedLogDataStore(File directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    // ----------------------------------------------------------
+    //
+    // Start/Stop
+    //
+    // ----------------------------------------------------------
+
+    @Override
+    public synchronized void start(H2DbService dbService, int houseKeeperInterval, int purgeAge, int capacity)
+            throws KuraStoreException {
+        if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            throw new KuraStoreException("Cannot create store directory " + this.directory);
+        }
+
+        try {
+            replay();
+        } catch (IOException e) {
+            closeSegments();
+            throw new KuraStoreException(e, "Cannot open store segments in " + this.directory);
+        }
+        this.started = true;
+
+        logger.info("Store {} opened: {} segments, {} messages", this.directory, this.segments.size(),
+                this.index.size());
+
+        this.houseKeeperExecutor = Executors.newSingleThreadScheduledExecutor();
+
+        update(houseKeeperInterval, purgeAge, capacity);
+    }
+
+    @Override
+    public synchronized void update(int houseKeeperInterval, int purgeAge, int capacity) {
+        this.capacity = capacity;
+
+        if (this.houseKeeperTask != null) {
+            this.houseKeeperTask.cancel(true);
+        }
+
+        // Start the Housekeeper task
+        this.houseKeeperTask = this.houseKeeperExecutor.scheduleWithFixedDelay(
+                new HouseKeeperTask(this, purgeAge, isRepairEnabled()), 1,    // start in one second
+                houseKeeperInterval,   // repeat every retryInterval until we stopped.
+                TimeUnit.SECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        logger.info("Canceling the Housekeeper Task...");
+        if (this.houseKeeperTask != null) {
+            this.houseKeeperTask.cancel(true);
+        }
+        if (this.houseKeeperExecutor != null) {
+            this.houseKeeperExecutor.shutdownNow();
+        }
+        this.started = false;
+        closeSegments();
+    }
+
+    private boolean isRepairEnabled() {
+        final Bundle bundle = FrameworkUtil.getBundle(SegmentedLogDataStore.class);
+        if (bundle == null || bundle.getBundleContext() == null) {
+            return false;
+        }
+        final BundleContext context = bundle.getBundleContext();
+        ServiceReference<SystemService> reference = context.getServiceReference(SystemService.class);
+        if (reference == null) {
+            return false;
+        }
+        SystemService systemService = context.getService(reference);
+        if (systemService == null) {
+            return false;
+        }
+        try {
+            final String isRepairEnabled = systemService.getProperties()
+                    .getProperty(DATA_SERVICE_REPAIR_ENABLED_PROPNAME);
+            return "true".equalsIgnoreCase(isRepairEnabled);
+        } finally {
+            context.ungetService(reference);
+        }
+    }
+
+    // ----------------------------------------------------------
+    //
+    // Message APIs
+    //
+    // ----------------------------------------------------------
+
+    @Override
+    public synchronized DataMessage store(String topic, byte[] payload, int qos, boolean retain, int priority)
+            throws KuraStoreException {
+        checkStarted();
+        if (topic == null || topic.trim().length() == 0) {
+            throw new IllegalArgumentException("topic");
+        }
+
+        // Priority 0 are used for life-cycle messages like birth and death certificates.
+        // Priority 1 are used for remove management by Cloudlet applications.
+        // For those messages, bypass the max message count check of the store;
+        // we want to publish those message even if the store is full, so allow their storage.
+        if (priority != 0 && priority != 1) {
+            int count = this.index.size();
+            logger.debug("Store message count: {}", count);
+            if (count >= this.capacity) {
+                logger.error("Store capacity exceeded");
+                throw new KuraStoreCapacityReachedException("Store capacity exceeded");
+            }
+        }
+
+        final Entry entry = new Entry(allocateId(), topic, qos, retain, priority, System.currentTimeMillis());
+        final byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        final byte[] payloadBytes = payload != null ? payload : new byte[0];
+
+        final int bodyLength = 4 + 8 + 4 + 1 + 1 + 4 + topicBytes.length + 4 + payloadBytes.length;
+        final ByteBuffer record = beginRecord(RECORD_STORED, bodyLength);
+        record.putInt(entry.id);
+        record.putLong(entry.createdOn);
+        record.putInt(priority);
+        record.put((byte) qos);
+        record.put(retain ? (byte) 1 : (byte) 0);
+        record.putInt(topicBytes.length);
+        record.put(topicBytes);
+        record.putInt(payloadBytes.length);
+        final int payloadPosition = record.position();
+        record.put(payloadBytes);
+
+        final LogSegment segment = this.segments.getLast();
+        final int bodyOffset = segment.commit(bodyLength);
+        entry.locate(segment, bodyOffset - 5, payloadPosition, payloadBytes.length);
+        addEntry(entry);
+
+        return toDataMessage(entry, payloadBytes);
+    }
+
+    @Override
+    public synchronized List<DataMessage> store(List<DataMessage> messages) throws KuraStoreException {
+        final List<DataMessage> result = new ArrayList<>(messages.size());
+        for (DataMessage message : messages) {
+            try {
+                result.add(store(message.getTopic(), message.getPayload(), message.getQos(), message.isRetain(),
+                        message.getPriority()));
+            } catch (KuraStoreCapacityReachedException e) {
+                result.add(null);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized DataMessage get(int msgId) throws KuraStoreException {
+        checkStarted();
+        final Entry entry = this.index.get(msgId);
+        if (entry == null) {
+            return null;
+        }
+        return toDataMessage(entry, readPayload(entry));
+    }
+
+    @Override
+    public synchronized DataMessage getNextMessage() throws KuraStoreException {
+        checkStarted();
+        if (this.unpublished.isEmpty()) {
+            return null;
+        }
+        final Entry entry = this.unpublished.first();
+        return toDataMessage(entry, readPayload(entry));
+    }
+
+    @Override
+    public synchronized List<DataMessage> getNextMessages(int maxCount) throws KuraStoreException {
+        checkStarted();
+        final List<DataMessage> messages = new ArrayList<>(Math.min(maxCount, this.unpublished.size()));
+        for (Entry entry : this.unpublished) {
+            if (messages.size() >= maxCount) {
+                break;
+            }
+            messages.add(toDataMessage(entry, readPayload(entry)));
+        }
+        return messages;
+    }
+
+    @Override
+    public synchronized void published(int msgId, int publishedMsgId, String sessionId) throws KuraStoreException {
+        checkStarted();
+        final Entry entry = this.index.get(msgId);
+        if (entry != null) {
+            appendPublished(entry, System.currentTimeMillis(), publishedMsgId, sessionId);
+        }
+    }
+
+    @Override
+    public synchronized void published(int msgId) throws KuraStoreException {
+        checkStarted();
+        final Entry entry = this.index.get(msgId);
+        if (entry != null) {
+            appendPublished(entry, System.currentTimeMillis(), entry.publishedMessageId, entry.sessionId);
+        }
+    }
+
+    @Override
+    public synchronized void published(Map<Integer, DataTransportToken> publishedMessages) throws KuraStoreException {
+        checkStarted();
+        final long now = System.currentTimeMillis();
+        for (Map.Entry<Integer, DataTransportToken> published : publishedMessages.entrySet()) {
+            final Entry entry = this.index.get(published.getKey());
+            if (entry == null) {
+                continue;
+            }
+            final DataTransportToken token = published.getValue();
+            if (token != null) {
+                appendPublished(entry, now, token.getMessageId(), token.getSessionId());
+            } else {
+                appendPublished(entry, now, entry.publishedMessageId, entry.sessionId);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void confirmed(int msgId) throws KuraStoreException {
+        checkStarted();
+        final Entry entry = this.index.get(msgId);
+        if (entry != null) {
+            final long now = System.currentTimeMillis();
+            appendTimestamp(RECORD_CONFIRMED, entry.id, now);
+            entry.confirmedOn = now;
+        }
+    }
+
+    @Override
+    public synchronized List<DataMessage> allUnpublishedMessagesNoPayload() throws KuraStoreException {
+        checkStarted();
+        final List<DataMessage> messages = new ArrayList<>(this.unpublished.size());
+        for (Entry entry : this.unpublished) {
+            messages.add(toDataMessage(entry, null));
+        }
+        return messages;
+    }
+
+    @Override
+    public synchronized List<DataMessage> allInFlightMessagesNoPayload() throws KuraStoreException {
+        checkStarted();
+        final List<DataMessage> messages = new ArrayList<>();
+        for (Entry entry : sortedEntries()) {
+            if (entry.isInFlight() && entry.droppedOn == NOT_SET) {
+                messages.add(toDataMessage(entry, null));
+            }
+        }
+        return messages;
+    }
+
+    @Override
+    public synchronized List<DataMessage> allDroppedInFlightMessagesNoPayload() throws KuraStoreException {
+        checkStarted();
+        final List<DataMessage> messages = new ArrayList<>();
+        for (Entry entry : sortedEntries()) {
+            if (entry.droppedOn != NOT_SET) {
+                messages.add(toDataMessage(entry, null));
+            }
+        }
+        return messages;
+    }
+
+    @Override
+    public synchronized void unpublishAllInFlighMessages() throws KuraStoreException {
+        checkStarted();
+        for (Entry entry : sortedEntries()) {
+            if (entry.isInFlight()) {
+                final ByteBuffer record = beginRecord(RECORD_UNPUBLISHED, 4);
+                record.putInt(entry.id);
+                this.segments.getLast().commit(4);
+                entry.publishedOn = NOT_SET;
+                this.unpublished.add(entry);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void dropAllInFlightMessages() throws KuraStoreException {
+        checkStarted();
+        final long now = System.currentTimeMillis();
+        for (Entry entry : sortedEntries()) {
+            if (entry.isInFlight()) {
+                appendTimestamp(RECORD_DROPPED, entry.id, now);
+                entry.droppedOn = now;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void deleteStaleMessages(int purgeAge) throws KuraStoreException {
+        checkStarted();
+        final long limit = System.currentTimeMillis() - purgeAge * 1000L;
+
+        int purged = 0;
+        final Iterator<Entry> iterator = this.index.values().iterator();
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (entry.isStale(limit)) {
+                appendDeleted(entry.id);
+                iterator.remove();
+                this.unpublished.remove(entry);
+                entry.segment.removeLive();
+                purged++;
+            }
+        }
+        logger.debug("Purged {} stale messages", purged);
+
+        reclaimSegments();
+        flush();
+    }
+
+    @Override
+    public synchronized void repair() throws KuraStoreException {
+        checkStarted();
+        final List<Entry> corrupted = new ArrayList<>();
+        for (Entry entry : this.index.values()) {
+            if (entry.segment.readRecord(entry.recordPosition) == null) {
+                corrupted.add(entry);
+            }
+        }
+
+        if (corrupted.isEmpty()) {
+            return;
+        }
+
+        logger.error("Found messages with corrupted records. Count of corrupted messages: {}. Attempting to repair...",
+                corrupted.size());
+
+        for (Entry entry : corrupted) {
+            appendDeleted(entry.id);
+            removeEntry(entry);
+        }
+        logger.info("Corrupted messages deleted");
+
+        flush();
+    }
+
+    // ------------------------------------------------------------------
+    //
+    // Private Methods: Log Management
+    //
+    // ------------------------------------------------------------------
+
+    private void checkStarted() throws KuraStoreException {
+        if (!this.started) {
+            throw new KuraStoreException("Store not started");
+        }
+    }
+
+    private int allocateId() throws KuraStoreException {
+        for (int attempts = 0; attempts <= this.index.size(); attempts++) {
+            final int id = this.nextId;
+            this.nextId = id == Integer.MAX_VALUE ? 1 : id + 1;
+            if (!this.index.containsKey(id)) {
+                return id;
+            }
+        }
+        throw new KuraStoreException("Cannot allocate a message ID");
+    }
+
+    private void addEntry(Entry entry) {
+        final Entry previous = this.index.put(entry.id, entry);
+        if (previous != null) {
+            // IDs are never reused while a message is in the index, this is an older, purged incarnation
+            this.unpublished.remove(previous);
+            previous.segment.removeLive();
+        }
+        entry.segment.addLive();
+        if (entry.publishedOn == NOT_SET) {
+            this.unpublished.add(entry);
+        }
+    }
+
+    private void removeEntry(Entry entry) {
+        this.index.remove(entry.id);
+        this.unpublished.remove(entry);
+        entry.segment.removeLive();
+    }
+
+    private List<Entry> sortedEntries() {
+        final List<Entry> entries = new ArrayList<>(this.index.values());
+        Collections.sort(entries, PUBLISH_ORDER);
+        return entries;
+    }
+
+    private void appendPublished(Entry entry, long publishedOn, int publishedMsgId, String sessionId)
+            throws KuraStoreException {
+        final byte[] sessionIdBytes = sessionId != null ? sessionId.getBytes(StandardCharsets.UTF_8) : null;
+        final int bodyLength = 4 + 8 + 4 + 4 + (sessionIdBytes != null ? sessionIdBytes.length : 0);
+        final ByteBuffer record = beginRecord(RECORD_PUBLISHED, bodyLength);
+        record.putInt(entry.id);
+        record.putLong(publishedOn);
+        record.putInt(publishedMsgId);
+        putBytes(record, sessionIdBytes);
+        this.segments.getLast().commit(bodyLength);
+
+        this.unpublished.remove(entry);
+        entry.publishedOn = publishedOn;
+        entry.publishedMessageId = publishedMsgId;
+        entry.sessionId = sessionId;
+    }
+
+    private void appendTimestamp(byte type, int msgId, long timestamp) throws KuraStoreException {
+        final ByteBuffer record = beginRecord(type, 12);
+        record.putInt(msgId);
+        record.putLong(timestamp);
+        this.segments.getLast().commit(12);
+    }
+
+    /**
+     * Records the deletion of a message, so that a replay does not bring back a purged or repaired message whose
+     * segment has not been reclaimed yet.
+     */
+    private void appendDeleted(int msgId) throws KuraStoreException {
+        final ByteBuffer record = beginRecord(RECORD_DELETED, 4);
+        record.putInt(msgId);
+        this.segments.getLast().commit(4);
+    }
+
+    /**
+     * Relocates a message to the tail of the log, together with its current state, so that the segment it was
+     * stored in can be reclaimed.
+     */
+    private void relocate(Entry entry) throws KuraStoreException {
+        final byte[] topicBytes = entry.topic.getBytes(StandardCharsets.UTF_8);
+        final byte[] sessionIdBytes = entry.sessionId != null ? entry.sessionId.getBytes(StandardCharsets.UTF_8)
+                : null;
+        final int bodyLength = 4 + 8 + 4 + 1 + 1 + 8 + 4 + 8 + 8 + 4
+                + (sessionIdBytes != null ? sessionIdBytes.length : 0) + 4 + topicBytes.length + 4
+                + entry.payloadLength;
+
+        final ByteBuffer record = beginRecord(RECORD_RELOCATED, bodyLength);
+        record.putInt(entry.id);
+        record.putLong(entry.createdOn);
+        record.putInt(entry.priority);
+        record.put((byte) entry.qos);
+        record.put(entry.retain ? (byte) 1 : (byte) 0);
+        record.putLong(entry.publishedOn);
+        record.putInt(entry.publishedMessageId);
+        record.putLong(entry.confirmedOn);
+        record.putLong(entry.droppedOn);
+        putBytes(record, sessionIdBytes);
+        record.putInt(topicBytes.length);
+        record.put(topicBytes);
+        record.putInt(entry.payloadLength);
+        final int payloadPosition = record.position();
+        record.put(entry.segment.slice(entry.payloadPosition, entry.payloadLength));
+
+        final LogSegment segment = this.segments.getLast();
+        final int bodyOffset = segment.commit(bodyLength);
+
+        entry.segment.removeLive();
+        entry.locate(segment, bodyOffset - 5, payloadPosition, entry.payloadLength);
+        segment.addLive();
+    }
+
+    /**
+     * Releases the segments at the head of the log that do not contain live messages anymore. Since state change
+     * records always follow the record of the message they refer to, the head segment can be released as soon as
+     * none of the messages stored in it is live.
+     */
+    private void reclaimSegments() throws KuraStoreException {
+        while (this.segments.size() > 1) {
+            final LogSegment head = this.segments.getFirst();
+            if (head.getLiveCount() > 0) {
+                if (head.getLiveCount() * RELOCATION_LIVE_RATIO > head.getStoredCount()) {
+                    return;
+                }
+                final List<Entry> live = new ArrayList<>(head.getLiveCount());
+                for (Entry entry : this.index.values()) {
+                    if (entry.segment == head) {
+                        live.add(entry);
+                    }
+                }
+                logger.debug("Relocating {} messages from {}", live.size(), head);
+                for (Entry entry : live) {
+                    relocate(entry);
+                }
+            }
+
+            this.segments.removeFirst();
+            try {
+                if (head.getSize() == this.segmentSize && this.freeSegments.size() < MAX_FREE_SEGMENTS) {
+                    head.release();
+                    this.freeSegments.add(head);
+                } else {
+                    head.delete();
+                }
+            } catch (IOException e) {
+                throw new KuraStoreException(e, "Cannot reclaim segment");
+            }
+        }
+    }
+
+    private ByteBuffer beginRecord(byte type, int bodyLength) throws KuraStoreException {
+        if (!this.segments.isEmpty()) {
+            final ByteBuffer record = this.segments.getLast().beginRecord(type, bodyLength);
+            if (record != null) {
+                return record;
+            }
+            this.segments.getLast().flush();
+        }
+        return rollSegment(bodyLength).beginRecord(type, bodyLength);
+    }
+
+    private LogSegment rollSegment(int bodyLength) throws KuraStoreException {
+        final long requiredSize = (long) LogSegment.HEADER_SIZE + LogSegment.RECORD_OVERHEAD + bodyLength + 4;
+        if (requiredSize > Integer.MAX_VALUE) {
+            throw new KuraStoreException("Message too large: " + bodyLength + " bytes");
+        }
+        try {
+            final LogSegment segment;
+            final LogSegment free = this.freeSegments.peek();
+            if (requiredSize > this.segmentSize) {
+                // oversized messages get a dedicated segment which is deleted once reclaimed
+                segment = LogSegment.create(this.directory, this.nextSequence++, (int) requiredSize);
+            } else if (free != null) {
+                this.freeSegments.poll().reuse(this.nextSequence++);
+                segment = free;
+            } else {
+                segment = LogSegment.create(this.directory, this.nextSequence++, this.segmentSize);
+            }
+            this.segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new KuraStoreException(e, "Cannot create store segment in " + this.directory);
+        }
+    }
+
+    private void flush() {
+        for (LogSegment segment : this.segments) {
+            segment.flush();
+        }
+    }
+
+    private void closeSegments() {
+        final List<LogSegment> all = new ArrayList<>(this.segments);
+        all.addAll(this.freeSegments);
+        for (LogSegment segment : all) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                logger.warn("Cannot close {}", segment, e);
+            }
+        }
+        this.segments.clear();
+        this.freeSegments.clear();
+        this.index.clear();
+        this.unpublished.clear();
+    }
+
+    // ------------------------------------------------------------------
+    //
+    // Private Methods: Recovery
+    //
+    // ------------------------------------------------------------------
+
+    private void replay() throws IOException {
+        final TreeMap<Long, File> segmentFiles = new TreeMap<>();
+        final File[] files = this.directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                final String name = file.getName();
+                final long sequence = LogSegment.parseSequence(name);
+                if (sequence >= 0) {
+                    segmentFiles.put(sequence, file);
+                } else if (LogSegment.isFreeSegment(name) && !file.delete()) {
+                    logger.warn("Cannot delete released segment {}", file);
+                }
+            }
+        }
+
+        int lastStoredId = 0;
+        for (Long sequence : segmentFiles.keySet()) {
+            final LogSegment segment = LogSegment.open(this.directory, sequence);
+            this.nextSequence = sequence + 1;
+            if (!segment.hasValidHeader()) {
+                logger.warn("Discarding segment with invalid header: {}", segmentFiles.get(sequence));
+                segment.delete();
+                continue;
+            }
+
+            this.segments.add(segment);
+
+            int position = LogSegment.HEADER_SIZE;
+            ByteBuffer record;
+            while ((record = segment.readRecord(position)) != null) {
+                final int storedId = apply(segment, position, record);
+                if (storedId > 0) {
+                    lastStoredId = storedId;
+                }
+                position = segment.nextRecordPosition(position);
+            }
+
+            // a tail shorter than a record length cannot hold a record, it is discarded like a truncated one
+            if (segment.getSize() - position >= 4 && segment.slice(position, 4).getInt() != 0) {
+                logger.warn("Truncated or corrupted record at position {} of {}, discarding the rest of the segment",
+                        position, segment);
+            }
+            segment.setWritePosition(position);
+        }
+
+        this.nextId = lastStoredId == Integer.MAX_VALUE ? 1 : lastStoredId + 1;
+    }
+
+    /**
+     * Applies a replayed record to the index.
+     *
+     * @return the ID of the stored message if the record is a {@link #RECORD_STORED} record, -1 otherwise
+     */
+    private int apply(LogSegment segment, int position, ByteBuffer record) {
+        final byte type = record.get();
+        final int id = record.getInt();
+        final Entry entry = this.index.get(id);
+
+        switch (type) {
+        case RECORD_STORED:
+        case RECORD_RELOCATED:
+            final long createdOn = record.getLong();
+            final int priority = record.getInt();
+            final int qos = record.get();
+            final boolean retain = record.get() != 0;
+            final Entry replayed;
+            if (type == RECORD_RELOCATED) {
+                final long publishedOn = record.getLong();
+                final int publishedMessageId = record.getInt();
+                final long confirmedOn = record.getLong();
+                final long droppedOn = record.getLong();
+                final String sessionId = getString(record);
+                replayed = new Entry(id, getString(record), qos, retain, priority, createdOn);
+                replayed.publishedOn = publishedOn;
+                replayed.publishedMessageId = publishedMessageId;
+                replayed.confirmedOn = confirmedOn;
+                replayed.droppedOn = droppedOn;
+                replayed.sessionId = sessionId;
+            } else {
+                replayed = new Entry(id, getString(record), qos, retain, priority, createdOn);
+            }
+            final int payloadLength = record.getInt();
+            replayed.locate(segment, position, record.position(), payloadLength);
+            addEntry(replayed);
+            return type == RECORD_STORED ? id : -1;
+        case RECORD_PUBLISHED:
+            if (entry != null) {
+                this.unpublished.remove(entry);
+                entry.publishedOn = record.getLong();
+                entry.publishedMessageId = record.getInt();
+                entry.sessionId = getString(record);
+            }
+            break;
+        case RECORD_CONFIRMED:
+            if (entry != null) {
+                entry.confirmedOn = record.getLong();
+            }
+            break;
+        case RECORD_DROPPED:
+            if (entry != null) {
+                entry.droppedOn = record.getLong();
+            }
+            break;
+        case RECORD_UNPUBLISHED:
+            if (entry != null) {
+                entry.publishedOn = NOT_SET;
+                this.unpublished.add(entry);
+            }
+            break;
+        case RECORD_DELETED:
+            if (entry != null) {
+                removeEntry(entry);
+            }
+            break;
+        default:
+            logger.warn("Unknown record type {} in {}", type, segment);
+        }
+        return -1;
+    }
+
+    // ------------------------------------------------------------------
+    //
+    // Private Methods: Encoding
+    //
+    // ------------------------------------------------------------------
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readPayload(Entry entry) {
+        final byte[] payload = new byte[entry.payloadLength];
+        entry.segment.slice(entry.payloadPosition, entry.payloadLength).get(payload);
+        return payload;
+    }
+
+    private static Date toDate(long timestamp) {
+        return timestamp != NOT_SET ? new Date(timestamp) : null;
+    }
+
+    private static DataMessage toDataMessage(Entry entry, byte[] payload) {
+        return new DataMessage.Builder(entry.id).withTopic(entry.topic).withQos(entry.qos).withRetain(entry.retain)
+                .withCreatedOn(toDate(entry.createdOn)).withPublishedOn(toDate(entry.publishedOn))
+                .withPublishedMessageId(entry.publishedMessageId).withConfirmedOn(toDate(entry.confirmedOn))
+                .withPayload(payload).withPriority(entry.priority).withSessionId(entry.sessionId)
+                .withDroppedOn(toDate(entry.droppedOn)).build();
+    }
+
+    /**
+     * The in-memory index entry of a message. Only the payload is left in the segment.
+     */
+    private static final class Entry {
+
+        private final int id;
+        private final String topic;
+        private final int qos;
+        private final boolean retain;
+        private final int priority;
+        private final long createdOn;
+
+        private long publishedOn = NOT_SET;
+        private int publishedMessageId = -1;
+        private String sessionId;
+        private long confirmedOn = NOT_SET;
+        private long droppedOn = NOT_SET;
+
+        private LogSegment segment;
+        private int recordPosition;
+        private int payloadPosition;
+        private int payloadLength;
+
+        Entry(int id, String topic, int qos, boolean retain, int priority, long createdOn) {
+            this.id = id;
+            this.topic = topic;
+            this.qos = qos;
+            this.retain = retain;
+            this.priority = priority;
+            this.createdOn = createdOn;
+        }
+
+        void locate(LogSegment segment, int recordPosition, int payloadPosition, int payloadLength) {
+            this.segment = segment;
+            this.recordPosition = recordPosition;
+            this.payloadPosition = payloadPosition;
+            this.payloadLength = payloadLength;
+        }
+
+        boolean isInFlight() {
+            return this.publishedOn != NOT_SET && this.qos > 0 && this.confirmedOn == NOT_SET;
+        }
+
+        boolean isStale(long limit) {
+            return this.droppedOn != NOT_SET && this.droppedOn <= limit
+                    || this.confirmedOn != NOT_SET && this.confirmedOn <= limit
+                    || this.qos == 0 && this.publishedOn != NOT_SET && this.publishedOn <= limit;
+        }
+    }
+}
@@ -21,7 +21,9 @@ public class MqttClientConfiguration {
     private final MqttConnectOptions connectOptions;
 
     public enum PersistenceType {
-        FILE, MEMORY
+        FILE,
+        MEMORY,
+        JOURNAL
     };
 
     public MqttClientConfiguration(String brokerUrl, String clientId, PersistenceType persistenceType,
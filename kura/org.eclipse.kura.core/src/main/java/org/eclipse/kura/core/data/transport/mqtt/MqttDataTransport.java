@@ -839,6 +839,8 @@ public class MqttDataTransport implements DataTransportService, MqttCallback, Co
             persistenceType = PersistenceType.FILE;
         } else if ("memory".equals(sType)) {
             persistenceType = PersistenceType.MEMORY;
+        } else if ("journal".equals(sType)) {
+            persistenceType = PersistenceType.JOURNAL;
         } else {
             throw new IllegalStateException("Invalid MQTT client configuration: persistenceType: " + persistenceType);
         }
@@ -894,7 +896,7 @@ public class MqttDataTransport implements DataTransportService, MqttCallback, Co
 
         // We need to construct a new client instance only if either the broker URL
         // or the client ID changes.
-        // We also need to construct a new instance if the persistence type (file or memory) changes.
+        // We also need to construct a new instance if the persistence type (file, journal or memory) changes.
         // We MUST avoid to construct a new client instance every time because
         // in that case the MQTT message ID is reset to 1.
         if (this.mqttClient != null) {
@@ -965,11 +967,12 @@ public class MqttDataTransport implements DataTransportService, MqttCallback, Co
             } else {
                 StringBuffer sb = new StringBuffer();
                 sb.append(this.systemService.getKuraDataDirectory()).append(this.systemService.getFileSeparator())
-                        .append("paho-persistence");
+                        .append(persistenceType == PersistenceType.JOURNAL ? "paho-journal" : "paho-persistence");
 
                 String dir = sb.toString();
 
-                logger.info("Using file persistence for in-flight messages: {}", dir);
+                logger.info("Using {} persistence for in-flight messages: {}",
+                        persistenceType == PersistenceType.JOURNAL ? "journal" : "file", dir);
 
                 // Look for "Close on CONNACK timeout" FIXME in this file.
                 // Make sure persistence is closed.
@@ -983,7 +986,11 @@ public class MqttDataTransport implements DataTransportService, MqttCallback, Co
                         logger.debug("Failed to close persistence. Ignoring exception.", e);
                     }
                 }
-                this.persistence = new MqttDefaultFilePersistence(dir);
+                if (persistenceType == PersistenceType.JOURNAL) {
+                    this.persistence = new MqttJournalPersistence(dir);
+                } else {
+                    this.persistence = new MqttDefaultFilePersistence(dir);
+                }
             }
 
             //
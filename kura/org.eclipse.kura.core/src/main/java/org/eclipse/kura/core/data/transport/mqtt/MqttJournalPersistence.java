@@ -0,0 +1,439 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.kura.core.data.transport.mqtt;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.MqttPersistable;
+import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link MqttClientPersistence} that stores the in-flight messages of a MQTT client in a single memory mapped
+ * journal file, instead of one file per message as {@code MqttDefaultFilePersistence} does.
+ * <p>
+ * Every put and remove is appended to the journal as a checksummed record, the current state is kept in memory
+ * and rebuilt from the journal when the persistence is opened. Records after the first corrupted or truncated one
+ * are discarded. When the journal is full, the live records are copied into a new journal, doubling its size if
+ * needed, that atomically replaces the old one.
+ * <p>
+ * As for the file persistence the journal is not synced to the disk on every operation. Its content survives a
+ * crash of the process, as it is written to the operating system page cache.
+ */
+public class MqttJournalPersistence implements MqttClientPersistence {
+
+    private static final Logger logger = LoggerFactory.getLogger(MqttJournalPersistence.class);
+
+    private static final int MAGIC = 0x4b4a524e;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+
+    private static final int DEFAULT_INITIAL_SIZE = 256 * 1024;
+
+    private final File directory;
+    private final int initialSize;
+
+    private final Map<String, JournalEntry> entries = new LinkedHashMap<>();
+
+    private Path journalPath;
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private MappedByteBuffer journal;
+    private long liveBytes;
+
+    public MqttJournalPersistence(String directory) {
+        this(directory, DEFAULT_INITIAL_SIZE);
+    }
+
+    public MqttJournalPersistence(String directory, int initialSize) {
+        this.directory = new File(directory);
+        this.initialSize = Math.max(FILE_HEADER_SIZE + RECORD_HEADER_SIZE, initialSize);
+    }
+
+    @Override
+    public synchronized void open(String clientId, String serverURI) throws MqttPersistenceException {
+        if (!this.directory.exists() && !this.directory.mkdirs() || !this.directory.canWrite()) {
+            throw new MqttPersistenceException();
+        }
+
+        final String name = toSafeName(clientId + "-" + serverURI);
+        this.journalPath = new File(this.directory, name + ".journal").toPath();
+
+        try {
+            this.lockChannel = FileChannel.open(new File(this.directory, name + ".lck").toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                this.lock = this.lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                this.lock = null;
+            }
+            if (this.lock == null) {
+                this.lockChannel.close();
+                this.lockChannel = null;
+                throw new MqttPersistenceException(MqttPersistenceException.REASON_CODE_PERSISTENCE_IN_USE);
+            }
+
+            this.entries.clear();
+            this.liveBytes = 0;
+            if (Files.exists(this.journalPath)) {
+                recover();
+            } else {
+                rewrite(this.initialSize);
+            }
+        } catch (IOException e) {
+            releaseLock();
+            throw new MqttPersistenceException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws MqttPersistenceException {
+        if (this.journal != null) {
+            this.journal.force();
+            this.journal = null;
+        }
+        this.entries.clear();
+        releaseLock();
+    }
+
+    @Override
+    public synchronized void put(String key, MqttPersistable persistable) throws MqttPersistenceException {
+        checkIsOpen();
+
+        final byte[] header = copy(persistable.getHeaderBytes(), persistable.getHeaderOffset(),
+                persistable.getHeaderLength());
+        final byte[] payload = copy(persistable.getPayloadBytes(), persistable.getPayloadOffset(),
+                persistable.getPayloadLength());
+        final byte[] encodedKey = key.getBytes(UTF_8);
+        final int size = RECORD_HEADER_SIZE + 1 + 2 + encodedKey.length + 4 + header.length + payload.length;
+
+        ensureCapacity(size);
+        append(OP_PUT, encodedKey, header, payload);
+
+        final JournalEntry previous = this.entries.put(key, new JournalEntry(header, payload, size));
+        if (previous != null) {
+            this.liveBytes -= previous.size;
+        }
+        this.liveBytes += size;
+    }
+
+    @Override
+    public synchronized MqttPersistable get(String key) throws MqttPersistenceException {
+        checkIsOpen();
+        return this.entries.get(key);
+    }
+
+    @Override
+    public synchronized void remove(String key) throws MqttPersistenceException {
+        checkIsOpen();
+
+        final JournalEntry previous = this.entries.remove(key);
+        if (previous == null) {
+            return;
+        }
+        this.liveBytes -= previous.size;
+
+        final byte[] encodedKey = key.getBytes(UTF_8);
+        ensureCapacity(RECORD_HEADER_SIZE + 1 + 2 + encodedKey.length);
+        append(OP_REMOVE, encodedKey, null, null);
+    }
+
+    @Override
+    public synchronized Enumeration<String> keys() throws MqttPersistenceException {
+        checkIsOpen();
+        return Collections.enumeration(new ArrayList<>(this.entries.keySet()));
+    }
+
+    @Override
+    public synchronized void clear() throws MqttPersistenceException {
+        checkIsOpen();
+        this.entries.clear();
+        this.liveBytes = 0;
+        try {
+            rewrite(this.initialSize);
+        } catch (IOException e) {
+            throw new MqttPersistenceException(e);
+        }
+    }
+
+    @Override
+    public synchronized boolean containsKey(String key) throws MqttPersistenceException {
+        checkIsOpen();
+        return this.entries.containsKey(key);
+    }
+
+    synchronized int getJournalSize() {
+        return this.journal != null ? this.journal.capacity() : 0;
+    }
+
+    private void checkIsOpen() throws MqttPersistenceException {
+        if (this.journal == null) {
+            throw new MqttPersistenceException();
+        }
+    }
+
+    private void ensureCapacity(int size) throws MqttPersistenceException {
+        if (this.journal.remaining() >= size + 4) {
+            return;
+        }
+
+        // compact the journal, doubling its size if the live records would fill more than half of it
+        int capacity = this.journal.capacity();
+        while ((long) FILE_HEADER_SIZE + this.liveBytes + size + 4 > capacity / 2) {
+            if (capacity > Integer.MAX_VALUE / 2) {
+                throw new MqttPersistenceException();
+            }
+            capacity *= 2;
+        }
+        try {
+            rewrite(capacity);
+        } catch (IOException e) {
+            throw new MqttPersistenceException(e);
+        }
+    }
+
+    private void append(byte op, byte[] key, byte[] header, byte[] payload) {
+        final int start = this.journal.position();
+        final int length = 1 + 2 + key.length + (op == OP_PUT ? 4 + header.length + payload.length : 0);
+
+        this.journal.position(start + RECORD_HEADER_SIZE);
+        this.journal.put(op);
+        this.journal.putShort((short) key.length);
+        this.journal.put(key);
+        if (op == OP_PUT) {
+            this.journal.putInt(header.length);
+            this.journal.put(header);
+            this.journal.put(payload);
+        }
+        final int end = this.journal.position();
+
+        this.journal.putInt(start, length);
+        this.journal.putInt(start + 4, checksum(this.journal, start + RECORD_HEADER_SIZE, length));
+        this.journal.position(end);
+    }
+
+    private void recover() throws IOException {
+        try (FileChannel channel = FileChannel.open(this.journalPath, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            final long size = channel.size();
+            if (size < FILE_HEADER_SIZE || size > Integer.MAX_VALUE) {
+                logger.warn("Discarding invalid MQTT persistence journal {}", this.journalPath);
+                rewrite(this.initialSize);
+                return;
+            }
+            this.journal = channel.map(MapMode.READ_WRITE, 0, size);
+        }
+
+        if (this.journal.getInt(0) != MAGIC || this.journal.getInt(4) != VERSION) {
+            logger.warn("Discarding MQTT persistence journal {} with unknown format", this.journalPath);
+            rewrite(this.initialSize);
+            return;
+        }
+
+        int position = FILE_HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= this.journal.capacity()) {
+            final int length = this.journal.getInt(position);
+            if (length <= 0 || length > this.journal.capacity() - position - RECORD_HEADER_SIZE) {
+                break;
+            }
+            final int body = position + RECORD_HEADER_SIZE;
+            if (this.journal.getInt(position + 4) != checksum(this.journal, body, length)) {
+                logger.warn("Discarding corrupted records in MQTT persistence journal {}", this.journalPath);
+                break;
+            }
+            if (!replay(body, length)) {
+                break;
+            }
+            position = body + length;
+        }
+
+        // zero the tail, so that it is never mistaken for valid records
+        for (int i = position; i < this.journal.capacity(); i++) {
+            this.journal.put(i, (byte) 0);
+        }
+        this.journal.position(position);
+        logger.info("Restored {} entries from MQTT persistence journal {}", this.entries.size(), this.journalPath);
+    }
+
+    private boolean replay(int body, int length) {
+        final byte op = this.journal.get(body);
+        final int keyLength = this.journal.getShort(body + 1) & 0xffff;
+        if (3 + keyLength > length) {
+            return false;
+        }
+        final byte[] key = new byte[keyLength];
+        read(body + 3, key);
+        final String name = new String(key, UTF_8);
+
+        final JournalEntry previous;
+        if (op == OP_PUT) {
+            final int headerPosition = body + 3 + keyLength;
+            final int headerLength = headerPosition + 4 <= body + length ? this.journal.getInt(headerPosition) : -1;
+            final int payloadLength = length - 3 - keyLength - 4 - headerLength;
+            if (headerLength < 0 || payloadLength < 0) {
+                return false;
+            }
+            final byte[] header = new byte[headerLength];
+            final byte[] payload = new byte[payloadLength];
+            read(headerPosition + 4, header);
+            read(headerPosition + 4 + headerLength, payload);
+
+            final JournalEntry entry = new JournalEntry(header, payload, RECORD_HEADER_SIZE + length);
+            previous = this.entries.put(name, entry);
+            this.liveBytes += entry.size;
+        } else if (op == OP_REMOVE) {
+            previous = this.entries.remove(name);
+        } else {
+            return false;
+        }
+        if (previous != null) {
+            this.liveBytes -= previous.size;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the live entries into a new journal of the given size, that atomically replaces the current one.
+     */
+    private void rewrite(int capacity) throws IOException {
+        final Path tmpPath = this.journalPath.resolveSibling(this.journalPath.getFileName() + ".tmp");
+        Files.deleteIfExists(tmpPath);
+
+        try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            this.journal = channel.map(MapMode.READ_WRITE, 0, capacity);
+        }
+        this.journal.putInt(MAGIC);
+        this.journal.putInt(VERSION);
+        for (Map.Entry<String, JournalEntry> entry : this.entries.entrySet()) {
+            append(OP_PUT, entry.getKey().getBytes(UTF_8), entry.getValue().header, entry.getValue().payload);
+        }
+        this.journal.force();
+
+        Files.move(tmpPath, this.journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void read(int position, byte[] destination) {
+        for (int i = 0; i < destination.length; i++) {
+            destination[i] = this.journal.get(position + i);
+        }
+    }
+
+    private void releaseLock() {
+        try {
+            if (this.lock != null) {
+                this.lock.release();
+            }
+            if (this.lockChannel != null) {
+                this.lockChannel.close();
+            }
+        } catch (IOException e) {
+            logger.debug("Failed to release the MQTT persistence journal lock", e);
+        } finally {
+            this.lock = null;
+            this.lockChannel = null;
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int position, int length) {
+        final CRC32 crc = new CRC32();
+        final ByteBuffer view = buffer.duplicate();
+        view.limit(position + length);
+        view.position(position);
+        crc.update(view);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] copy(byte[] source, int offset, int length) {
+        final byte[] result = new byte[source != null ? length : 0];
+        if (source != null) {
+            System.arraycopy(source, offset, result, 0, length);
+        }
+        return result;
+    }
+
+    private static String toSafeName(String value) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (Character.isJavaIdentifierPart(c) || c == '-') {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final class JournalEntry implements MqttPersistable {
+
+        private final byte[] header;
+        private final byte[] payload;
+        private final int size;
+
+        JournalEntry(byte[] header, byte[] payload, int size) {
+            this.header = header;
+            this.payload = payload;
+            this.size = size;
+        }
+
+        @Override
+        public byte[] getHeaderBytes() {
+            return this.header;
+        }
+
+        @Override
+        public int getHeaderLength() {
+            return this.header.length;
+        }
+
+        @Override
+        public int getHeaderOffset() {
+            return 0;
+        }
+
+        @Override
+        public byte[] getPayloadBytes() {
+            return this.payload;
+        }
+
+        @Override
+        public int getPayloadLength() {
+            return this.payload.length;
+        }
+
+        @Override
+        public int getPayloadOffset() {
+            return 0;
+        }
+    }
+}
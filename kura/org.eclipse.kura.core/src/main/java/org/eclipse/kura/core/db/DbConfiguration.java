@@ -23,12 +23,20 @@ class DbConfiguration {
     private static final String DB_PASSWORD_PROP_NAME = "db.password";
     private static final String DB_CHECKPOINT_INTERVAL_SECONDS_PROP_NAME = "db.checkpoint.interval.seconds";
     private static final String DB_CONNECTION_POOL_MAX_SIZE_PROP_NAME = "db.connection.pool.max.size";
+    private static final String DB_CONNECTION_POOL_MIN_SIZE_PROP_NAME = "db.connection.pool.min.size";
+    private static final String DB_CONNECTION_POOL_TIMEOUT_SECONDS_PROP_NAME = "db.connection.pool.timeout.seconds";
+    private static final String DB_CONNECTION_POOL_BUNDLE_QUOTA_PROP_NAME = "db.connection.pool.bundle.quota";
+    private static final String DB_CONNECTION_POOL_LEAK_THRESHOLD_SECONDS_PROP_NAME = "db.connection.pool.leak.threshold.seconds";
 
     private static final String DB_CONNECTOR_URL_DEFAULT = "jdbc:h2:mem:kuradb";
     private static final String DB_USER_DEFAULT = "SA";
     private static final String DB_PASSWORD_DEFAULT = "";
     private static final int DB_CHECKPOINT_INTERVAL_SECONDS_DEFAULT = 900;
     private static final int DB_CONNECTION_POOL_MAX_SIZE_DEFAULT = 10;
+    private static final int DB_CONNECTION_POOL_MIN_SIZE_DEFAULT = 0;
+    private static final int DB_CONNECTION_POOL_TIMEOUT_SECONDS_DEFAULT = 30;
+    private static final int DB_CONNECTION_POOL_BUNDLE_QUOTA_DEFAULT = 0;
+    private static final int DB_CONNECTION_POOL_LEAK_THRESHOLD_SECONDS_DEFAULT = 120;
 
     private static final Pattern FILE_LOG_LEVEL_PATTERN = generatePatternForProperty("trace_level_file");
     private static final Pattern USER_PATTERN = generatePatternForProperty("user");
@@ -41,6 +49,10 @@ class DbConfiguration {
     private final char[] password;
     private final long checkpointIntervalSeconds;
     private final int maxConnectionPoolSize;
+    private final int minConnectionPoolSize;
+    private final int connectionPoolTimeoutSeconds;
+    private final int connectionPoolBundleQuota;
+    private final int connectionPoolLeakThresholdSeconds;
 
     private boolean isInMemory;
     private boolean isFileBased;
@@ -59,6 +71,14 @@ class DbConfiguration {
                 DB_CHECKPOINT_INTERVAL_SECONDS_DEFAULT);
         this.maxConnectionPoolSize = (Integer) properties.getOrDefault(DB_CONNECTION_POOL_MAX_SIZE_PROP_NAME,
                 DB_CONNECTION_POOL_MAX_SIZE_DEFAULT);
+        this.minConnectionPoolSize = (Integer) properties.getOrDefault(DB_CONNECTION_POOL_MIN_SIZE_PROP_NAME,
+                DB_CONNECTION_POOL_MIN_SIZE_DEFAULT);
+        this.connectionPoolTimeoutSeconds = (Integer) properties
+                .getOrDefault(DB_CONNECTION_POOL_TIMEOUT_SECONDS_PROP_NAME, DB_CONNECTION_POOL_TIMEOUT_SECONDS_DEFAULT);
+        this.connectionPoolBundleQuota = (Integer) properties.getOrDefault(DB_CONNECTION_POOL_BUNDLE_QUOTA_PROP_NAME,
+                DB_CONNECTION_POOL_BUNDLE_QUOTA_DEFAULT);
+        this.connectionPoolLeakThresholdSeconds = (Integer) properties.getOrDefault(
+                DB_CONNECTION_POOL_LEAK_THRESHOLD_SECONDS_PROP_NAME, DB_CONNECTION_POOL_LEAK_THRESHOLD_SECONDS_DEFAULT);
 
         String dbUrl = (String) properties.getOrDefault(DB_CONNECTOR_URL_PROP_NAME, DB_CONNECTOR_URL_DEFAULT);
 
@@ -180,6 +200,22 @@ class DbConfiguration {
         return this.maxConnectionPoolSize;
     }
 
+    public int getConnectionPoolMinSize() {
+        return this.minConnectionPoolSize;
+    }
+
+    public int getConnectionPoolTimeoutSeconds() {
+        return this.connectionPoolTimeoutSeconds;
+    }
+
+    public int getConnectionPoolBundleQuota() {
+        return this.connectionPoolBundleQuota;
+    }
+
+    public int getConnectionPoolLeakThresholdSeconds() {
+        return this.connectionPoolLeakThresholdSeconds;
+    }
+
     public boolean isFileBasedLogLevelSpecified() {
         return this.isFileBasedLogLevelSpecified;
     }
@@ -0,0 +1,489 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import javax.sql.ConnectionPoolDataSource;
+import javax.sql.PooledConnection;
+
+import org.eclipse.kura.db.CallerConnectionStatistics;
+import org.eclipse.kura.db.ConnectionPoolStatistics;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A connection pool that hands out connections without holding any lock while waiting.
+ * <p>
+ * Callers are served in order of arrival and wait at most the configured timeout. Each caller, identified by the
+ * symbolic name of the bundle requesting the connection, can be limited to a number of connections, so that a caller
+ * running long queries cannot take all the connections of the pool. The wait and hold times of the connections are
+ * recorded for each caller, and connections held longer than the leak threshold are reported.
+ */
+class H2ConnectionPool implements ConnectionEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(H2ConnectionPool.class);
+
+    // large enough to never be reached, small enough to never overflow when permits are added
+    private static final int UNLIMITED = Integer.MAX_VALUE / 2;
+
+    private static final CallerResolver callerResolver = new CallerResolver();
+
+    private final ConnectionPoolDataSource dataSource;
+
+    private final Permits permits = new Permits(0);
+    private final Deque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    private final Map<PooledConnection, Lease> leases = new ConcurrentHashMap<>();
+    private final Map<String, CallerState> callers = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+
+    private final ScheduledExecutorService leakDetectionExecutor;
+    private ScheduledFuture<?> leakDetectionTask;
+
+    private volatile int minSize;
+    private volatile int maxSize;
+    private volatile int callerQuota;
+    private volatile long timeoutNanos;
+    private volatile long leakThresholdNanos;
+    private volatile boolean disposed;
+
+    H2ConnectionPool(ConnectionPoolDataSource dataSource) {
+        this.dataSource = dataSource;
+        this.leakDetectionExecutor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    // ----------------------------------------------------------------
+    //
+    // Configuration
+    //
+    // ----------------------------------------------------------------
+
+    /**
+     * Sets the maximum number of connections. Connections in use above a reduced maximum are closed when returned.
+     */
+    synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Maximum pool size must be at least 1");
+        }
+        final int delta = maxSize - this.maxSize;
+        this.maxSize = maxSize;
+        this.permits.resize(delta);
+
+        while (this.size.get() > maxSize) {
+            final PooledConnection connection = this.idleConnections.pollLast();
+            if (connection == null) {
+                break;
+            }
+            discard(connection);
+        }
+    }
+
+    /**
+     * Sets the number of connections opened in advance and kept open while idle, capped by the maximum size.
+     */
+    synchronized void setMinSize(int minSize) {
+        this.minSize = Math.max(0, minSize);
+        fill();
+    }
+
+    /**
+     * Sets the maximum number of connections held by the same caller, 0 for no limit.
+     */
+    void setCallerQuota(int callerQuota) {
+        this.callerQuota = Math.max(0, callerQuota);
+        for (CallerState caller : this.callers.values()) {
+            caller.updateQuota(this.callerQuota);
+        }
+    }
+
+    /**
+     * Sets how long a caller waits for a connection before failing.
+     */
+    void setTimeout(long timeout, TimeUnit unit) {
+        this.timeoutNanos = unit.toNanos(Math.max(0, timeout));
+    }
+
+    /**
+     * Sets how long a connection can be held before being reported as possibly leaked, 0 to disable the detection.
+     */
+    synchronized void setLeakThreshold(long threshold, TimeUnit unit) {
+        final long thresholdNanos = unit.toNanos(Math.max(0, threshold));
+        if (thresholdNanos == this.leakThresholdNanos) {
+            return;
+        }
+        this.leakThresholdNanos = thresholdNanos;
+
+        if (this.leakDetectionTask != null) {
+            this.leakDetectionTask.cancel(false);
+            this.leakDetectionTask = null;
+        }
+        if (thresholdNanos > 0 && !this.disposed) {
+            // check often enough to report a leak at most half a threshold late, but not too often
+            final long periodMillis = Math.min(Math.max(TimeUnit.NANOSECONDS.toMillis(thresholdNanos / 2), 1000),
+                    60000);
+            this.leakDetectionTask = this.leakDetectionExecutor.scheduleWithFixedDelay(this::detectLeaks,
+                    periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // ----------------------------------------------------------------
+    //
+    // Connections
+    //
+    // ----------------------------------------------------------------
+
+    /**
+     * Gets a connection on behalf of the bundle of the calling class.
+     */
+    Connection getConnection() throws SQLException {
+        return getConnection(callerResolver.getCaller());
+    }
+
+    /**
+     * Gets a connection on behalf of the provided caller, waiting up to the configured timeout for the caller quota
+     * and then for a connection of the pool.
+     */
+    Connection getConnection(String callerName) throws SQLException {
+        checkNotDisposed();
+
+        final CallerState caller = this.callers.computeIfAbsent(callerName, CallerState::new);
+        caller.updateQuota(this.callerQuota);
+
+        final long start = System.nanoTime();
+        final long deadline = start + this.timeoutNanos;
+        boolean quotaAcquired = false;
+        boolean permitAcquired = false;
+        this.waitingCount.incrementAndGet();
+        try {
+            quotaAcquired = caller.quota.tryAcquire(this.timeoutNanos, TimeUnit.NANOSECONDS);
+            if (!quotaAcquired) {
+                caller.timeoutCount.incrementAndGet();
+                throw new SQLTimeoutException("Timeout waiting for a connection, the caller " + callerName
+                        + " already holds " + caller.activeCount.get() + " connections");
+            }
+            permitAcquired = this.permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (!permitAcquired) {
+                caller.timeoutCount.incrementAndGet();
+                throw new SQLTimeoutException(
+                        "Timeout waiting for a connection, all the " + this.maxSize + " connections are in use");
+            }
+            checkNotDisposed();
+
+            final PooledConnection pooledConnection = takeConnection();
+            final Connection connection;
+            try {
+                connection = pooledConnection.getConnection();
+            } catch (SQLException e) {
+                discard(pooledConnection);
+                throw e;
+            }
+
+            final long now = System.nanoTime();
+            this.leases.put(pooledConnection, new Lease(caller, now,
+                    logger.isDebugEnabled() ? new Exception("Connection acquired by " + callerName) : null));
+            caller.acquired(now - start);
+            return connection;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        } catch (SQLException | RuntimeException e) {
+            if (permitAcquired) {
+                this.permits.release();
+            }
+            if (quotaAcquired) {
+                caller.quota.release();
+            }
+            throw e;
+        } finally {
+            this.waitingCount.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void connectionClosed(ConnectionEvent event) {
+        final PooledConnection pooledConnection = (PooledConnection) event.getSource();
+        if (!release(pooledConnection)) {
+            return;
+        }
+        if (this.disposed || this.size.get() > this.maxSize) {
+            discard(pooledConnection);
+        } else {
+            this.idleConnections.push(pooledConnection);
+        }
+    }
+
+    @Override
+    public void connectionErrorOccurred(ConnectionEvent event) {
+        final PooledConnection pooledConnection = (PooledConnection) event.getSource();
+        logger.warn("Discarding pooled connection after error", event.getSQLException());
+        if (release(pooledConnection)) {
+            discard(pooledConnection);
+        }
+    }
+
+    /**
+     * Closes the idle connections and the connections in use once returned. Callers waiting for a connection fail.
+     */
+    synchronized void dispose() {
+        if (this.disposed) {
+            return;
+        }
+        this.disposed = true;
+        this.leakDetectionExecutor.shutdownNow();
+
+        PooledConnection connection;
+        while ((connection = this.idleConnections.poll()) != null) {
+            discard(connection);
+        }
+
+        // wake up the waiting callers, that will find the pool disposed
+        this.permits.release(UNLIMITED);
+        for (CallerState caller : this.callers.values()) {
+            caller.quota.release(UNLIMITED);
+        }
+    }
+
+    ConnectionPoolStatistics getStatistics() {
+        final Map<String, CallerConnectionStatistics> callerStatistics = new TreeMap<>();
+        for (CallerState caller : this.callers.values()) {
+            callerStatistics.put(caller.name, caller.getStatistics());
+        }
+        return new ConnectionPoolStatistics(this.size.get(), this.idleConnections.size(), this.leases.size(),
+                this.minSize, this.maxSize, this.waitingCount.get(), callerStatistics);
+    }
+
+    // ----------------------------------------------------------------
+    //
+    // Private methods
+    //
+    // ----------------------------------------------------------------
+
+    private void checkNotDisposed() throws SQLException {
+        if (this.disposed) {
+            throw new SQLException("Connection pool disposed");
+        }
+    }
+
+    private PooledConnection takeConnection() throws SQLException {
+        final PooledConnection idleConnection = this.idleConnections.poll();
+        if (idleConnection != null) {
+            return idleConnection;
+        }
+        return openConnection();
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        final PooledConnection connection = this.dataSource.getPooledConnection();
+        connection.addConnectionEventListener(this);
+        this.size.incrementAndGet();
+        return connection;
+    }
+
+    private synchronized void fill() {
+        while (!this.disposed && this.size.get() < Math.min(this.minSize, this.maxSize)) {
+            try {
+                this.idleConnections.push(openConnection());
+            } catch (SQLException e) {
+                logger.warn("Failed to open pooled connection", e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Ends the lease of a connection and returns its permits.
+     *
+     * @return false if the connection was not leased
+     */
+    private boolean release(PooledConnection pooledConnection) {
+        final Lease lease = this.leases.remove(pooledConnection);
+        if (lease == null) {
+            return false;
+        }
+
+        final long holdNanos = System.nanoTime() - lease.acquiredNanos;
+        lease.caller.released(holdNanos);
+        if (lease.leaked) {
+            logger.info("Connection reported as possibly leaked returned by {} after {} ms", lease.caller.name,
+                    TimeUnit.NANOSECONDS.toMillis(holdNanos));
+        }
+
+        this.permits.release();
+        lease.caller.quota.release();
+        return true;
+    }
+
+    private void discard(PooledConnection connection) {
+        this.size.decrementAndGet();
+        connection.removeConnectionEventListener(this);
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.warn("Failed to close pooled connection", e);
+        }
+    }
+
+    private void detectLeaks() {
+        final long thresholdNanos = this.leakThresholdNanos;
+        final long now = System.nanoTime();
+        for (Lease lease : this.leases.values()) {
+            final long holdNanos = now - lease.acquiredNanos;
+            if (lease.leaked || holdNanos < thresholdNanos) {
+                continue;
+            }
+            lease.leaked = true;
+            lease.caller.leakCount.incrementAndGet();
+            if (lease.acquiredAt != null) {
+                logger.warn("Connection held by {} for {} ms, possibly leaked", lease.caller.name,
+                        TimeUnit.NANOSECONDS.toMillis(holdNanos), lease.acquiredAt);
+            } else {
+                logger.warn("Connection held by {} for {} ms, possibly leaked", lease.caller.name,
+                        TimeUnit.NANOSECONDS.toMillis(holdNanos));
+            }
+        }
+        fill();
+    }
+
+    private static final class Lease {
+
+        private final CallerState caller;
+        private final long acquiredNanos;
+        private final Exception acquiredAt;
+        private volatile boolean leaked;
+
+        Lease(CallerState caller, long acquiredNanos, Exception acquiredAt) {
+            this.caller = caller;
+            this.acquiredNanos = acquiredNanos;
+            this.acquiredAt = acquiredAt;
+        }
+    }
+
+    private static final class CallerState {
+
+        private final String name;
+        private final Permits quota = new Permits(UNLIMITED);
+        private volatile int quotaLimit = UNLIMITED;
+
+        private final AtomicInteger activeCount = new AtomicInteger();
+        private final AtomicLong acquiredCount = new AtomicLong();
+        private final AtomicLong timeoutCount = new AtomicLong();
+        private final AtomicLong leakCount = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong totalHoldNanos = new AtomicLong();
+        private final AtomicLong maxHoldNanos = new AtomicLong();
+
+        CallerState(String name) {
+            this.name = name;
+        }
+
+        void updateQuota(int quota) {
+            final int limit = quota > 0 ? quota : UNLIMITED;
+            if (limit == this.quotaLimit) {
+                return;
+            }
+            synchronized (this) {
+                if (limit != this.quotaLimit) {
+                    this.quota.resize(limit - this.quotaLimit);
+                    this.quotaLimit = limit;
+                }
+            }
+        }
+
+        void acquired(long waitNanos) {
+            this.activeCount.incrementAndGet();
+            this.acquiredCount.incrementAndGet();
+            this.totalWaitNanos.addAndGet(waitNanos);
+            this.maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        }
+
+        void released(long holdNanos) {
+            this.activeCount.decrementAndGet();
+            this.totalHoldNanos.addAndGet(holdNanos);
+            this.maxHoldNanos.accumulateAndGet(holdNanos, Math::max);
+        }
+
+        CallerConnectionStatistics getStatistics() {
+            return new CallerConnectionStatistics(this.name, this.activeCount.get(), this.acquiredCount.get(),
+                    this.timeoutCount.get(), this.leakCount.get(), toMillis(this.totalWaitNanos),
+                    toMillis(this.maxWaitNanos), toMillis(this.totalHoldNanos), toMillis(this.maxHoldNanos));
+        }
+
+        private static long toMillis(AtomicLong nanos) {
+            return TimeUnit.NANOSECONDS.toMillis(nanos.get());
+        }
+    }
+
+    /**
+     * A fair semaphore whose number of permits can be reduced below the permits in use.
+     */
+    private static final class Permits extends Semaphore {
+
+        private static final long serialVersionUID = 1L;
+
+        Permits(int permits) {
+            super(permits, true);
+        }
+
+        void resize(int delta) {
+            if (delta > 0) {
+                release(delta);
+            } else if (delta < 0) {
+                reducePermits(-delta);
+            }
+        }
+    }
+
+    /**
+     * Finds the bundle of the first class in the call stack outside of the database service.
+     */
+    private static final class CallerResolver extends SecurityManager {
+
+        String getCaller() {
+            for (Class<?> clazz : getClassContext()) {
+                if (isDbServiceClass(clazz)) {
+                    continue;
+                }
+                final Bundle bundle = FrameworkUtil.getBundle(clazz);
+                return bundle != null ? bundle.getSymbolicName() : clazz.getName();
+            }
+            return "unknown";
+        }
+
+        private static boolean isDbServiceClass(Class<?> clazz) {
+            Class<?> outerClass = clazz;
+            while (outerClass.getEnclosingClass() != null) {
+                outerClass = outerClass.getEnclosingClass();
+            }
+            return outerClass == H2ConnectionPool.class || outerClass == H2DbServiceImpl.class;
+        }
+    }
+}
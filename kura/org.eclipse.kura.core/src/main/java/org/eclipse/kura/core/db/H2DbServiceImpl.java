@@ -20,12 +20,13 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.kura.KuraException;
 import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.crypto.CryptoService;
+import org.eclipse.kura.db.ConnectionPoolStatistics;
 import org.eclipse.kura.db.H2DbService;
-import org.h2.jdbcx.JdbcConnectionPool;
 import org.h2.jdbcx.JdbcDataSource;
 import org.h2.tools.DeleteDbFiles;
 import org.osgi.service.component.ComponentContext;
@@ -54,7 +55,7 @@ public class H2DbServiceImpl implements H2DbService, ConfigurableComponent {
     private DbConfiguration configuration;
 
     private JdbcDataSource dataSource;
-    private JdbcConnectionPool connectionPool;
+    private volatile H2ConnectionPool connectionPool;
 
     private CheckpointTask checkpointTask;
     private static Map<String, H2DbServiceImpl> activeInstances = Collections.synchronizedMap(new HashMap<>());
@@ -167,14 +168,16 @@ public class H2DbServiceImpl implements H2DbService, ConfigurableComponent {
     // ----------------------------------------------------------------
 
     @Override
-    public synchronized Connection getConnection() throws SQLException {
-        if (this.connectionPool == null) {
+    public Connection getConnection() throws SQLException {
+        // not synchronized, callers wait for a connection in the pool and not for each other
+        final H2ConnectionPool pool = this.connectionPool;
+        if (pool == null) {
             throw new SQLException("Database instance not initialized");
         }
 
         Connection conn = null;
         try {
-            conn = this.connectionPool.getConnection();
+            conn = pool.getConnection();
         } catch (SQLException e) {
             logger.error("Error getting connection", e);
             rollback(conn);
@@ -183,6 +186,12 @@ public class H2DbServiceImpl implements H2DbService, ConfigurableComponent {
         return conn;
     }
 
+    @Override
+    public ConnectionPoolStatistics getConnectionPoolStatistics() {
+        final H2ConnectionPool pool = this.connectionPool;
+        return pool != null ? pool.getStatistics() : null;
+    }
+
     @Override
     public void rollback(Connection conn) {
         try {
@@ -246,7 +255,15 @@ public class H2DbServiceImpl implements H2DbService, ConfigurableComponent {
             execute("SET TRACE_LEVEL_FILE 0");
         }
 
-        this.connectionPool.setMaxConnections(configuration.getConnectionPoolMaxSize());
+        configureConnectionPool(configuration);
+    }
+
+    private void configureConnectionPool(DbConfiguration configuration) {
+        this.connectionPool.setMaxSize(configuration.getConnectionPoolMaxSize());
+        this.connectionPool.setMinSize(configuration.getConnectionPoolMinSize());
+        this.connectionPool.setTimeout(configuration.getConnectionPoolTimeoutSeconds(), TimeUnit.SECONDS);
+        this.connectionPool.setCallerQuota(configuration.getConnectionPoolBundleQuota());
+        this.connectionPool.setLeakThreshold(configuration.getConnectionPoolLeakThresholdSeconds(), TimeUnit.SECONDS);
     }
 
     private void execute(String sql) throws SQLException {
@@ -310,7 +327,8 @@ public class H2DbServiceImpl implements H2DbService, ConfigurableComponent {
         dataSource.setUser(configuration.getUser());
         dataSource.setPassword(password);
 
-        connectionPool = JdbcConnectionPool.create(dataSource);
+        connectionPool = new H2ConnectionPool(dataSource);
+        configureConnectionPool(configuration);
 
         openDatabase(configuration, true);
     }
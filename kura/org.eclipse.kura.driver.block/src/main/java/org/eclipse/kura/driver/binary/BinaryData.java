@@ -78,5 +78,39 @@ public abstract class BinaryData<T> {
      */
     public abstract T read(Buffer buf, int offset);
 
+    /**
+     * Reads a numeric value as a {@code long}, the result is the same as {@code read(buf, offset).longValue()}. The
+     * numeric types provided by {@link BinaryDataTypes} implement this method without boxing the value.
+     *
+     * @param buf
+     *            a {@link Buffer} from which the data needs to be read
+     * @param offset
+     *            the offset from which the data will be read
+     * @return the obtained value
+     * @throws ClassCastException
+     *             if the values of this type are not numbers
+     * @since 1.1
+     */
+    public long readLong(Buffer buf, int offset) {
+        return ((Number) read(buf, offset)).longValue();
+    }
+
+    /**
+     * Reads a numeric value as a {@code double}, the result is the same as {@code read(buf, offset).doubleValue()}. The
+     * numeric types provided by {@link BinaryDataTypes} implement this method without boxing the value.
+     *
+     * @param buf
+     *            a {@link Buffer} from which the data needs to be read
+     * @param offset
+     *            the offset from which the data will be read
+     * @return the obtained value
+     * @throws ClassCastException
+     *             if the values of this type are not numbers
+     * @since 1.1
+     */
+    public double readDouble(Buffer buf, int offset) {
+        return ((Number) read(buf, offset)).doubleValue();
+    }
+
     public abstract Class<T> getValueType();
 }
@@ -45,4 +45,135 @@ public interface Buffer {
     }
 
     public int getLength();
+
+    /**
+     * Reads a 16 bit value.
+     *
+     * @param offset
+     *            the offset of the first byte
+     * @param endianness
+     *            the byte order
+     * @return the value
+     * @since 1.1
+     */
+    public default short getShort(int offset, Endianness endianness) {
+        if (endianness == Endianness.BIG_ENDIAN) {
+            return (short) ((get(offset) & 0xff) << 8 | get(offset + 1) & 0xff);
+        } else {
+            return (short) ((get(offset + 1) & 0xff) << 8 | get(offset) & 0xff);
+        }
+    }
+
+    /**
+     * Reads a 32 bit value.
+     *
+     * @param offset
+     *            the offset of the first byte
+     * @param endianness
+     *            the byte order
+     * @return the value
+     * @since 1.1
+     */
+    public default int getInt(int offset, Endianness endianness) {
+        int result = 0;
+        if (endianness == Endianness.BIG_ENDIAN) {
+            for (int i = 0; i < 4; i++) {
+                result = result << 8 | get(offset + i) & 0xff;
+            }
+        } else {
+            for (int i = 3; i >= 0; i--) {
+                result = result << 8 | get(offset + i) & 0xff;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads a 64 bit value.
+     *
+     * @param offset
+     *            the offset of the first byte
+     * @param endianness
+     *            the byte order
+     * @return the value
+     * @since 1.1
+     */
+    public default long getLong(int offset, Endianness endianness) {
+        long result = 0;
+        if (endianness == Endianness.BIG_ENDIAN) {
+            for (int i = 0; i < 8; i++) {
+                result = result << 8 | get(offset + i) & 0xffL;
+            }
+        } else {
+            for (int i = 7; i >= 0; i--) {
+                result = result << 8 | get(offset + i) & 0xffL;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes a 16 bit value.
+     *
+     * @param offset
+     *            the offset of the first byte
+     * @param value
+     *            the value
+     * @param endianness
+     *            the byte order
+     * @since 1.1
+     */
+    public default void putShort(int offset, short value, Endianness endianness) {
+        if (endianness == Endianness.BIG_ENDIAN) {
+            put(offset, (byte) (value >> 8));
+            put(offset + 1, (byte) value);
+        } else {
+            put(offset, (byte) value);
+            put(offset + 1, (byte) (value >> 8));
+        }
+    }
+
+    /**
+     * Writes a 32 bit value.
+     *
+     * @param offset
+     *            the offset of the first byte
+     * @param value
+     *            the value
+     * @param endianness
+     *            the byte order
+     * @since 1.1
+     */
+    public default void putInt(int offset, int value, Endianness endianness) {
+        for (int i = 0; i < 4; i++) {
+            final byte b = (byte) (value >> 8 * i);
+            if (endianness == Endianness.BIG_ENDIAN) {
+                put(offset + 3 - i, b);
+            } else {
+                put(offset + i, b);
+            }
+        }
+    }
+
+    /**
+     * Writes a 64 bit value.
+     *
+     * @param offset
+     *            the offset of the first byte
+     * @param value
+     *            the value
+     * @param endianness
+     *            the byte order
+     * @since 1.1
+     */
+    public default void putLong(int offset, long value, Endianness endianness) {
+        for (int i = 0; i < 8; i++) {
+            final byte b = (byte) (value >> 8 * i);
+            if (endianness == Endianness.BIG_ENDIAN) {
+                put(offset + 7 - i, b);
+            } else {
+                put(offset + i, b);
+            }
+        }
+    }
 }
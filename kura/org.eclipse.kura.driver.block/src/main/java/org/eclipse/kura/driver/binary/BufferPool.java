@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.driver.binary;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * A pool of direct {@link ByteBuffer} instances that can be used for creating {@link PooledBuffer} instances.
+ * </p>
+ * <p>
+ * The capacity of the buffers is rounded to the next power of two, buffers are reused for any request whose length
+ * fits the same capacity. At most {@code maxBuffersPerCapacity} released buffers are retained for each capacity, the
+ * other ones are left to the garbage collector.
+ * </p>
+ * <p>
+ * This class is thread safe. The counters returned by the {@code get...Count()} methods can be used for monitoring the
+ * effectiveness of the pool.
+ * </p>
+ *
+ * @since 1.1
+ */
+public class BufferPool {
+
+    private static final int DEFAULT_MAX_BUFFERS_PER_CAPACITY = 64;
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private final int maxBuffersPerCapacity;
+    private final Map<Integer, ArrayDeque<ByteBuffer>> freeBuffers = new HashMap<>();
+
+    private final AtomicLong allocationCount = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong releaseCount = new AtomicLong();
+
+    /**
+     * Creates a new {@link BufferPool} that retains at most 64 buffers for each capacity.
+     */
+    public BufferPool() {
+        this(DEFAULT_MAX_BUFFERS_PER_CAPACITY);
+    }
+
+    /**
+     * Creates a new {@link BufferPool}.
+     *
+     * @param maxBuffersPerCapacity
+     *            the maximum number of released buffers retained for each capacity
+     * @throws IllegalArgumentException
+     *             if {@code maxBuffersPerCapacity} is negative
+     */
+    public BufferPool(int maxBuffersPerCapacity) {
+        if (maxBuffersPerCapacity < 0) {
+            throw new IllegalArgumentException("The maximum number of buffers cannot be negative");
+        }
+        this.maxBuffersPerCapacity = maxBuffersPerCapacity;
+    }
+
+    /**
+     * Returns a {@link PooledBuffer} of the specified length, all bytes of the returned buffer are set to 0. The
+     * buffer should be returned to the pool using {@link PooledBuffer#release()} when it is no longer needed.
+     *
+     * @param length
+     *            the length of the buffer
+     * @return the buffer
+     * @throws IllegalArgumentException
+     *             if {@code length} is negative
+     */
+    public PooledBuffer acquire(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length cannot be negative");
+        }
+        final int capacity = getCapacity(length);
+        this.acquireCount.incrementAndGet();
+
+        ByteBuffer buffer;
+        synchronized (this) {
+            final ArrayDeque<ByteBuffer> free = this.freeBuffers.get(capacity);
+            buffer = free != null ? free.poll() : null;
+        }
+
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(capacity);
+            this.allocationCount.incrementAndGet();
+            this.allocatedBytes.addAndGet(capacity);
+        } else {
+            buffer.clear();
+            for (int i = 0; i < length; i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+        buffer.limit(length);
+        return new PooledBuffer(this, buffer);
+    }
+
+    void release(ByteBuffer buffer) {
+        this.releaseCount.incrementAndGet();
+        synchronized (this) {
+            final ArrayDeque<ByteBuffer> free = this.freeBuffers.computeIfAbsent(buffer.capacity(),
+                    capacity -> new ArrayDeque<>());
+            if (free.size() < this.maxBuffersPerCapacity) {
+                free.push(buffer);
+            }
+        }
+    }
+
+    /**
+     * Discards all the buffers retained by this pool.
+     */
+    public synchronized void clear() {
+        this.freeBuffers.clear();
+    }
+
+    /**
+     * @return the number of direct buffers allocated by this pool
+     */
+    public long getAllocationCount() {
+        return this.allocationCount.get();
+    }
+
+    /**
+     * @return the total capacity in bytes of the direct buffers allocated by this pool
+     */
+    public long getAllocatedBytes() {
+        return this.allocatedBytes.get();
+    }
+
+    /**
+     * @return the number of {@link #acquire(int)} calls, the difference with {@link #getAllocationCount()} is the
+     *         number of requests satisfied by reusing a buffer
+     */
+    public long getAcquireCount() {
+        return this.acquireCount.get();
+    }
+
+    /**
+     * @return the number of buffers returned to this pool
+     */
+    public long getReleaseCount() {
+        return this.releaseCount.get();
+    }
+
+    /**
+     * @return the number of released buffers currently retained by this pool
+     */
+    public synchronized int getFreeCount() {
+        int result = 0;
+        for (ArrayDeque<ByteBuffer> free : this.freeBuffers.values()) {
+            result += free.size();
+        }
+        return result;
+    }
+
+    private static int getCapacity(int length) {
+        if (length <= MINIMUM_CAPACITY) {
+            return MINIMUM_CAPACITY;
+        }
+        return Integer.highestOneBit(length - 1) << 1;
+    }
+}
@@ -19,36 +19,23 @@ class Float extends BinaryData<java.lang.Float> {
     }
 
     @Override
-    public void write(Buffer buf, int offset, java.lang.Float f) {
-        int tmp = java.lang.Float.floatToRawIntBits(f);
-        if (this.endianness == Endianness.BIG_ENDIAN) {
-            buf.put(offset, (byte) (tmp >> 24 & 0xff));
-            buf.put(offset + 1, (byte) (tmp >> 16 & 0xff));
-            buf.put(offset + 2, (byte) (tmp >> 8 & 0xff));
-            buf.put(offset + 3, (byte) (tmp & 0xff));
-        } else {
-            buf.put(offset, (byte) (tmp & 0xff));
-            buf.put(offset + 1, (byte) (tmp >> 8 & 0xff));
-            buf.put(offset + 2, (byte) (tmp >> 16 & 0xff));
-            buf.put(offset + 3, (byte) (tmp >> 24 & 0xff));
-        }
+    public void write(Buffer buf, int offset, java.lang.Float value) {
+        buf.putInt(offset, java.lang.Float.floatToRawIntBits(value), this.endianness);
     }
 
     @Override
     public java.lang.Float read(Buffer buf, int offset) {
-        int tmp;
-        if (this.endianness == Endianness.BIG_ENDIAN) {
-            tmp = buf.get(offset + 3) & 0xff;
-            tmp |= (buf.get(offset + 2) & 0xff) << 8;
-            tmp |= (buf.get(offset + 1) & 0xff) << 16;
-            tmp |= (buf.get(offset) & 0xff) << 24;
-        } else {
-            tmp = buf.get(offset) & 0xff;
-            tmp |= (buf.get(offset + 1) & 0xff) << 8;
-            tmp |= (buf.get(offset + 2) & 0xff) << 16;
-            tmp |= (buf.get(offset + 3) & 0xff) << 24;
-        }
-        return java.lang.Float.intBitsToFloat(tmp);
+        return java.lang.Float.intBitsToFloat(buf.getInt(offset, this.endianness));
+    }
+
+    @Override
+    public long readLong(Buffer buf, int offset) {
+        return (long) java.lang.Float.intBitsToFloat(buf.getInt(offset, this.endianness));
+    }
+
+    @Override
+    public double readDouble(Buffer buf, int offset) {
+        return java.lang.Float.intBitsToFloat(buf.getInt(offset, this.endianness));
     }
 
     @Override
@@ -20,27 +20,22 @@ class Int16 extends BinaryData<Integer> {
 
     @Override
     public void write(Buffer buf, int offset, Integer value) {
-        final short val = (short) (int) value;
-        if (this.endianness == Endianness.BIG_ENDIAN) {
-            buf.put(offset, (byte) (val >> 8 & 0xff));
-            buf.put(offset + 1, (byte) (val & 0xff));
-        } else {
-            buf.put(offset, (byte) (val & 0xff));
-            buf.put(offset + 1, (byte) (val >> 8 & 0xff));
-        }
+        buf.putShort(offset, (short) (int) value, this.endianness);
     }
 
     @Override
     public Integer read(Buffer buf, int offset) {
-        short result;
-        if (this.endianness == Endianness.BIG_ENDIAN) {
-            result = (short) (buf.get(offset + 1) & 0xff);
-            result |= (buf.get(offset) & 0xff) << 8;
-        } else {
-            result = (short) (buf.get(offset) & 0xff);
-            result |= (buf.get(offset + 1) & 0xff) << 8;
-        }
-        return (int) result;
+        return (int) readLong(buf, offset);
+    }
+
+    @Override
+    public long readLong(Buffer buf, int offset) {
+        return buf.getShort(offset, this.endianness);
+    }
+
+    @Override
+    public double readDouble(Buffer buf, int offset) {
+        return readLong(buf, offset);
     }
 
     @Override
@@ -20,34 +20,22 @@ class Int32 extends BinaryData<Integer> {
 
     @Override
     public void write(Buffer buf, int offset, Integer value) {
-        if (this.endianness == Endianness.BIG_ENDIAN) {
-            buf.put(offset, (byte) (value >> 24 & 0xff));
-            buf.put(offset + 1, (byte) (value >> 16 & 0xff));
-            buf.put(offset + 2, (byte) (value >> 8 & 0xff));
-            buf.put(offset + 3, (byte) (value & 0xff));
-        } else {
-            buf.put(offset, (byte) (value & 0xff));
-            buf.put(offset + 1, (byte) (value >> 8 & 0xff));
-            buf.put(offset + 2, (byte) (value >> 16 & 0xff));
-            buf.put(offset + 3, (byte) (value >> 24 & 0xff));
-        }
+        buf.putInt(offset, value, this.endianness);
     }
 
     @Override
     public Integer read(Buffer buf, int offset) {
-        int result;
-        if (this.endianness == Endianness.BIG_ENDIAN) {
-            result = buf.get(offset + 3) & 0xff;
-            result |= (buf.get(offset + 2) & 0xff) << 8;
-            result |= (buf.get(offset + 1) & 0xff) << 16;
-            result |= (buf.get(offset) & 0xff) << 24;
-        } else {
-            result = buf.get(offset) & 0xff;
-            result |= (buf.get(offset + 1) & 0xff) << 8;
-            result |= (buf.get(offset + 2) & 0xff) << 16;
-            result |= (buf.get(offset + 3) & 0xff) << 24;
-        }
-        return result;
+        return (int) readLong(buf, offset);
+    }
+
+    @Override
+    public long readLong(Buffer buf, int offset) {
+        return buf.getInt(offset, this.endianness);
+    }
+
+    @Override
+    public double readDouble(Buffer buf, int offset) {
+        return readLong(buf, offset);
     }
 
     @Override
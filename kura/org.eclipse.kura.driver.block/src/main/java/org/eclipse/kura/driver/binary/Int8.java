@@ -28,6 +28,16 @@ class Int8 extends BinaryData<Integer> {
         return (int) buf.get(offset);
     }
 
+    @Override
+    public long readLong(Buffer buf, int offset) {
+        return buf.get(offset);
+    }
+
+    @Override
+    public double readDouble(Buffer buf, int offset) {
+        return buf.get(offset);
+    }
+
     @Override
     public Class<Integer> getValueType() {
         return Integer.class;
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.driver.binary;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * A {@link Buffer} backed by a direct {@link ByteBuffer} obtained from a {@link BufferPool}. Primitive values are
+ * accessed directly on the underlying buffer, without intermediate arrays.
+ * </p>
+ * <p>
+ * Instances of this class can be obtained using {@link BufferPool#acquire(int)} and must be returned to the pool
+ * using {@link #release()} when no longer needed. A {@link PooledBuffer} must not be used after it has been released.
+ * </p>
+ *
+ * @since 1.1
+ */
+public class PooledBuffer implements Buffer, AutoCloseable {
+
+    private final BufferPool pool;
+    private final int length;
+    private ByteBuffer buffer;
+
+    PooledBuffer(BufferPool pool, ByteBuffer buffer) {
+        this.pool = pool;
+        this.buffer = buffer;
+        this.length = buffer.limit();
+    }
+
+    @Override
+    public void put(int offset, byte value) {
+        this.buffer.put(offset, value);
+    }
+
+    @Override
+    public byte get(int offset) {
+        return this.buffer.get(offset);
+    }
+
+    @Override
+    public int getLength() {
+        return this.length;
+    }
+
+    @Override
+    public void write(int offset, int length, byte[] data) {
+        this.buffer.position(offset);
+        this.buffer.put(data, 0, length);
+    }
+
+    @Override
+    public void read(int offset, int length, byte[] data) {
+        this.buffer.position(offset);
+        this.buffer.get(data, 0, length);
+    }
+
+    @Override
+    public short getShort(int offset, Endianness endianness) {
+        final short value = this.buffer.getShort(offset);
+        return endianness == Endianness.BIG_ENDIAN ? value : Short.reverseBytes(value);
+    }
+
+    @Override
+    public int getInt(int offset, Endianness endianness) {
+        final int value = this.buffer.getInt(offset);
+        return endianness == Endianness.BIG_ENDIAN ? value : Integer.reverseBytes(value);
+    }
+
+    @Override
+    public long getLong(int offset, Endianness endianness) {
+        final long value = this.buffer.getLong(offset);
+        return endianness == Endianness.BIG_ENDIAN ? value : Long.reverseBytes(value);
+    }
+
+    @Override
+    public void putShort(int offset, short value, Endianness endianness) {
+        this.buffer.putShort(offset, endianness == Endianness.BIG_ENDIAN ? value : Short.reverseBytes(value));
+    }
+
+    @Override
+    public void putInt(int offset, int value, Endianness endianness) {
+        this.buffer.putInt(offset, endianness == Endianness.BIG_ENDIAN ? value : Integer.reverseBytes(value));
+    }
+
+    @Override
+    public void putLong(int offset, long value, Endianness endianness) {
+        this.buffer.putLong(offset, endianness == Endianness.BIG_ENDIAN ? value : Long.reverseBytes(value));
+    }
+
+    /**
+     * Returns a view of the underlying {@link ByteBuffer} whose position is 0 and whose limit is the length of this
+     * buffer. The view can be used to transfer data without copying it, for example using NIO channels. The view must
+     * not be used after this buffer has been released.
+     *
+     * @return the view
+     */
+    public ByteBuffer asByteBuffer() {
+        final ByteBuffer result = this.buffer.duplicate();
+        result.position(0);
+        return result;
+    }
+
+    /**
+     * Returns the underlying {@link ByteBuffer} to the pool, calling this method more than once has no effect.
+     */
+    public void release() {
+        if (this.buffer != null) {
+            final ByteBuffer released = this.buffer;
+            this.buffer = null;
+            this.pool.release(released);
+        }
+    }
+
+    /**
+     * Same as {@link #release()}.
+     */
+    @Override
+    public void close() {
+        release();
+    }
+}
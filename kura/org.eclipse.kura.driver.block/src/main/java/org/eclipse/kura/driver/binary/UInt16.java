@@ -20,26 +20,22 @@ class UInt16 extends BinaryData<Integer> {
 
     @Override
     public void write(Buffer buf, int offset, Integer value) {
-        if (this.endianness == Endianness.BIG_ENDIAN) {
-            buf.put(offset, (byte) (value >> 8 & 0xff));
-            buf.put(offset + 1, (byte) (value & 0xff));
-        } else {
-            buf.put(offset, (byte) (value & 0xff));
-            buf.put(offset + 1, (byte) (value >> 8 & 0xff));
-        }
+        buf.putShort(offset, (short) (int) value, this.endianness);
     }
 
     @Override
     public Integer read(Buffer buf, int offset) {
-        int result;
-        if (this.endianness == Endianness.BIG_ENDIAN) {
-            result = buf.get(offset + 1) & 0xff;
-            result |= (buf.get(offset) & 0xff) << 8;
-        } else {
-            result = buf.get(offset) & 0xff;
-            result |= (buf.get(offset + 1) & 0xff) << 8;
-        }
-        return result;
+        return (int) readLong(buf, offset);
+    }
+
+    @Override
+    public long readLong(Buffer buf, int offset) {
+        return buf.getShort(offset, this.endianness) & 0xffff;
+    }
+
+    @Override
+    public double readDouble(Buffer buf, int offset) {
+        return readLong(buf, offset);
     }
 
     @Override
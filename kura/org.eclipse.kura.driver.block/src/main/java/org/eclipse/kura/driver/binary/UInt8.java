@@ -28,6 +28,16 @@ class UInt8 extends BinaryData<Integer> {
         return (int) (buf.get(offset) & 0xff);
     }
 
+    @Override
+    public long readLong(Buffer buf, int offset) {
+        return buf.get(offset) & 0xff;
+    }
+
+    @Override
+    public double readDouble(Buffer buf, int offset) {
+        return buf.get(offset) & 0xff;
+    }
+
     @Override
     public Class<Integer> getValueType() {
         return Integer.class;
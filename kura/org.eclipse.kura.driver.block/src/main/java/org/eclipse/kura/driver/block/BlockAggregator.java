@@ -64,6 +64,14 @@ import java.util.stream.StreamSupport;
  * transfered.
  * </p>
  *
+ * <p>
+ * The {@code maximumSize} parameter can be used to limit the size of the resulting blocks, for example to the maximum
+ * amount of data that the protocol allows to transfer with a single request. If {@code maximumSize > 0}, input blocks
+ * are not aggregated if the resulting block would be larger than {@code maximumSize}. Input blocks that are larger
+ * than {@code maximumSize} are returned as is. If the input block set contains overlapping blocks, the resulting
+ * blocks may overlap if this parameter is specified.
+ * </p>
+ *
  * @param <T>
  *            The type of the blocks obtained as result of the aggregation process.
  */
@@ -72,6 +80,7 @@ public class BlockAggregator<T extends Block> {
     protected List<Block> blocks;
     private final BlockFactory<T> factory;
     private int minimumGapSize;
+    private int maximumSize;
 
     /**
      * Creates a new {@link BlockAggregator} instance that operates on the given list of blocks.
@@ -132,6 +141,22 @@ public class BlockAggregator<T extends Block> {
         this.minimumGapSize = minimumGapSize;
     }
 
+    /**
+     * Specifies the {@code maximumSize} parameter. The default for this parameter is 0, that means that the size of
+     * the resulting blocks is not limited.
+     *
+     * @param maximumSize
+     * @throws IllegalArgumentException
+     *             If the provided argument is negative
+     * @since 1.1
+     */
+    public void setMaximumSize(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("Maximum size paramenter must be non negative");
+        }
+        this.maximumSize = maximumSize;
+    }
+
     /**
      * Inserts a new {@link Block} into the input blocks list.
      *
@@ -156,6 +181,11 @@ public class BlockAggregator<T extends Block> {
             block.setEnd(Math.max(block.getEnd(), end));
         }
 
+        private boolean canExtend(Block block, int end) {
+            return BlockAggregator.this.maximumSize == 0 || block instanceof ProhibitedBlock
+                    || Math.max(block.getEnd(), end) - block.getStart() <= BlockAggregator.this.maximumSize;
+        }
+
         private void getNext() {
             if (!this.source.hasNext()) {
                 return;
@@ -171,7 +201,7 @@ public class BlockAggregator<T extends Block> {
                 if (this.last.getEnd() < next.getStart()) {
                     if (BlockAggregator.this.minimumGapSize > 0
                             && next.getStart() - this.last.getEnd() < BlockAggregator.this.minimumGapSize
-                            && !isTypeDifferent) {
+                            && !isTypeDifferent && canExtend(this.last, next.getEnd())) {
                         extend(this.last, next.getEnd());
                         continue;
                     } else {
@@ -184,7 +214,7 @@ public class BlockAggregator<T extends Block> {
                     throw new IllegalArgumentException("Conflicting blocks: " + this.last + " " + next);
                 }
 
-                if (isTypeDifferent) {
+                if (isTypeDifferent || !canExtend(this.last, next.getEnd())) {
                     this.source.previous();
                     break;
                 }
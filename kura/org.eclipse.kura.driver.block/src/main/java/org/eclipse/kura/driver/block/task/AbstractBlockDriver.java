@@ -15,9 +15,11 @@ package org.eclipse.kura.driver.block.task;
 import static java.util.Objects.requireNonNull;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -33,6 +35,7 @@ import org.eclipse.kura.channel.ChannelStatus;
 import org.eclipse.kura.channel.listener.ChannelListener;
 import org.eclipse.kura.driver.Driver;
 import org.eclipse.kura.driver.PreparedRead;
+import org.eclipse.kura.driver.binary.BufferPool;
 import org.eclipse.kura.driver.block.Block;
 import org.eclipse.kura.driver.block.BlockFactory;
 import org.slf4j.Logger;
@@ -64,6 +67,11 @@ import org.slf4j.LoggerFactory;
  * This class provides a default implementation for the {@link #read(List)}, {@link #write(List)} and
  * {@link #prepareRead(List)} methods of the {@link Driver} interface.
  * </p>
+ * <p>
+ * The tasks resulting from the aggregation are run by the {@link ExecutionPolicy} returned by
+ * {@link #getExecutionPolicy()}. By default all tasks are run serially in the calling thread, implementors can provide
+ * a different policy in order to run the tasks of different domains concurrently.
+ * </p>
  *
  * @param <T>
  *            the type of the domain, can be any type suitable for being used as an {@link HashMap} key
@@ -72,6 +80,8 @@ public abstract class AbstractBlockDriver<T> implements Driver {
 
     private static final Logger logger = LoggerFactory.getLogger(AbstractBlockDriver.class);
 
+    private final BufferPool bufferPool = new BufferPool();
+
     /**
      * This method must provide a {@link BlockFactory} that can be used for creating {@link ToplevelBlockTask} instances
      * responsible of implementing the I/O operations for the specified domain.
@@ -160,8 +170,28 @@ public abstract class AbstractBlockDriver<T> implements Driver {
      *             if any exception is thrown during the process
      */
     protected List<BlockTask> optimize(List<ChannelRecord> records, Mode mode) throws KuraException {
+        final List<BlockTask> resultTasks = new ArrayList<>();
+        optimizeByDomain(records, mode).values().forEach(resultTasks::addAll);
+        return resultTasks;
+    }
+
+    /**
+     * Performs the same operations as {@link #optimize(List, Mode)}, but returns the resulting {@link ToplevelBlockTask}
+     * instances grouped by domain. The tasks of each domain are returned in the order in which they must be run.
+     *
+     * @param records
+     *            the {@link ChannelRecord} instances to be converted to {@link BlockTask} instances.
+     * @param mode
+     *            the mode
+     * @return the {@link BlockTask} instances resulting from the aggregation, grouped by domain.
+     * @throws KuraException
+     *             if any exception is thrown during the process
+     * @since 1.1
+     */
+    protected Map<T, List<BlockTask>> optimizeByDomain(List<ChannelRecord> records, Mode mode)
+            throws KuraException {
         try {
-            final ArrayList<BlockTask> resultTasks = new ArrayList<>();
+            final Map<T, List<BlockTask>> resultTasks = new LinkedHashMap<>();
             final HashSet<T> domainsWithUpdateTasks = new HashSet<>();
 
             final Function<Pair<T, BlockTask>, T> classifier;
@@ -193,7 +223,7 @@ public abstract class AbstractBlockDriver<T> implements Driver {
                     }
                 }
                 beforeAggregation(domain, mode, aggregator);
-                aggregator.stream().forEach(resultTasks::add);
+                resultTasks.put(domain, aggregator.stream().collect(Collectors.toList()));
             });
 
             return resultTasks;
@@ -202,6 +232,43 @@ public abstract class AbstractBlockDriver<T> implements Driver {
         }
     }
 
+    /**
+     * Returns the {@link ExecutionPolicy} that will be used for running the tasks produced by the aggregation. The
+     * default is {@link ExecutionPolicy#SERIAL}.
+     *
+     * @return the {@link ExecutionPolicy}
+     * @since 1.1
+     */
+    protected ExecutionPolicy getExecutionPolicy() {
+        return ExecutionPolicy.SERIAL;
+    }
+
+    /**
+     * Returns a {@link BufferPool} that can be used by the {@link ToplevelBlockTask} instances created by this driver
+     * for allocating their {@link org.eclipse.kura.driver.binary.Buffer}. Buffers obtained from this pool should be
+     * returned to it by the {@link ToplevelBlockTask#releaseBuffer()} method.
+     *
+     * @return the {@link BufferPool}
+     * @since 1.1
+     */
+    public BufferPool getBufferPool() {
+        return this.bufferPool;
+    }
+
+    private void runTasks(Collection<List<BlockTask>> taskGroups) {
+        getExecutionPolicy().execute(taskGroups, this::runTask);
+    }
+
+    private static void releaseBuffers(Collection<List<BlockTask>> taskGroups) {
+        for (List<BlockTask> tasks : taskGroups) {
+            for (BlockTask task : tasks) {
+                if (task instanceof ToplevelBlockTask) {
+                    ((ToplevelBlockTask) task).releaseBuffer();
+                }
+            }
+        }
+    }
+
     /**
      * Executes the provided {@link BlockTask}. Implementors can override this method, for example for catching any
      * exception thrown by the task and implement error handling.
@@ -231,69 +298,116 @@ public abstract class AbstractBlockDriver<T> implements Driver {
     @Override
     public synchronized void read(final List<ChannelRecord> records) throws ConnectionException {
         connect();
+        Collection<List<BlockTask>> taskGroups = Collections.emptyList();
         try {
-            optimize(records, Mode.READ).forEach(this::runTask);
+            taskGroups = optimizeByDomain(records, Mode.READ).values();
+            runTasks(taskGroups);
         } catch (Exception e) {
             logger.warn("Unexpected exception during read", e);
             for (ChannelRecord record : records) {
                 record.setChannelStatus(new ChannelStatus(ChannelFlag.FAILURE, e.getMessage(), e));
                 record.setTimestamp(System.currentTimeMillis());
             }
+        } finally {
+            releaseBuffers(taskGroups);
         }
     }
 
     @Override
     public synchronized void write(final List<ChannelRecord> records) throws ConnectionException {
         connect();
+        Collection<List<BlockTask>> taskGroups = Collections.emptyList();
         try {
-            optimize(records, Mode.WRITE).forEach(this::runTask);
+            taskGroups = optimizeByDomain(records, Mode.WRITE).values();
+            runTasks(taskGroups);
         } catch (Exception e) {
             logger.warn("Unexpected exception during write", e);
             for (ChannelRecord record : records) {
                 record.setChannelStatus(new ChannelStatus(ChannelFlag.FAILURE, e.getMessage(), e));
                 record.setTimestamp(System.currentTimeMillis());
             }
+        } finally {
+            releaseBuffers(taskGroups);
         }
     }
 
+    /**
+     * Creates the {@link PreparedRead} returned by {@link #prepareRead(List)}.
+     *
+     * @param records
+     *            the records of the {@link PreparedRead}
+     * @param tasks
+     *            the tasks resulting from the aggregation
+     * @return the {@link PreparedRead}
+     * @deprecated this method is no longer called by {@link #prepareRead(List)}, override
+     *             {@link #createPreparedRead(List, Map)} instead
+     */
+    @Deprecated
     protected PreparedRead createPreparedRead(List<ChannelRecord> records, List<BlockTask> tasks) {
         return new BlockPreparedRead(records, tasks);
     }
 
+    /**
+     * Creates the {@link PreparedRead} returned by {@link #prepareRead(List)}. The default implementation returns a
+     * {@link BlockPreparedRead} that runs the provided tasks using the {@link ExecutionPolicy} of this driver.
+     *
+     * @param records
+     *            the records of the {@link PreparedRead}
+     * @param tasksByDomain
+     *            the tasks resulting from the aggregation, grouped by domain
+     * @return the {@link PreparedRead}
+     * @since 1.1
+     */
+    protected PreparedRead createPreparedRead(List<ChannelRecord> records, Map<T, List<BlockTask>> tasksByDomain) {
+        return new BlockPreparedRead(records, tasksByDomain.values());
+    }
+
     @Override
     public synchronized PreparedRead prepareRead(List<ChannelRecord> records) {
         try {
-            return createPreparedRead(records, optimize(records, Mode.READ));
+            return createPreparedRead(records, optimizeByDomain(records, Mode.READ));
         } catch (KuraException e) {
             for (ChannelRecord record : records) {
                 record.setChannelStatus(new ChannelStatus(ChannelFlag.FAILURE, e.getMessage(), e));
                 record.setTimestamp(System.currentTimeMillis());
             }
-            return createPreparedRead(records, Collections.emptyList());
+            return createPreparedRead(records, Collections.<T, List<BlockTask>> emptyMap());
         }
     }
 
     public class BlockPreparedRead implements PreparedRead {
 
         private final List<ChannelRecord> records;
-        private final List<BlockTask> tasks;
+        private final Collection<List<BlockTask>> taskGroups;
 
         public BlockPreparedRead(List<ChannelRecord> records, List<BlockTask> tasks) {
+            this(records, Collections.singletonList(tasks));
+        }
+
+        /**
+         * @since 1.1
+         */
+        public BlockPreparedRead(List<ChannelRecord> records, Collection<List<BlockTask>> taskGroups) {
             this.records = records;
-            this.tasks = tasks;
+            this.taskGroups = taskGroups;
         }
 
+        /**
+         * Releases the buffers of the tasks of this {@link BlockPreparedRead}. The buffers are retained between
+         * subsequent {@link #execute()} calls in order to avoid reallocating them.
+         */
         @Override
         public void close() throws Exception {
+            synchronized (AbstractBlockDriver.this) {
+                releaseBuffers(this.taskGroups);
+            }
         }
 
         @Override
         public List<ChannelRecord> execute() throws ConnectionException, KuraException {
             synchronized (AbstractBlockDriver.this) {
                 connect();
-                for (BlockTask task : this.tasks) {
-                    runTask(task);
-                }
+                runTasks(this.taskGroups);
                 return this.records;
             }
         }
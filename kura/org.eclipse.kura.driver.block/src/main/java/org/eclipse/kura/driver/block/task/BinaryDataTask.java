@@ -39,6 +39,7 @@ public class BinaryDataTask<T> extends ChannelBlockTask {
 
     private Function<T, TypedValue<?>> toTypedValue;
     private Function<TypedValue<?>, T> fromTypedValue;
+    private TypedValueReader reader;
 
     @SuppressWarnings("unchecked")
     public BinaryDataTask(ChannelRecord record, int offset, BinaryData<T> dataType, Mode mode) {
@@ -50,6 +51,7 @@ public class BinaryDataTask<T> extends ChannelBlockTask {
             Mode mode) {
         this(record, offset, binaryDataType, createToTypedValueAdapter(binaryDataType.getValueType(), dataType),
                 createFromTypedValueAdapter(binaryDataType.getValueType(), dataType), mode);
+        this.reader = createTypedValueReader(binaryDataType, dataType);
     }
 
     public BinaryDataTask(ChannelRecord record, int offset, BinaryData<T> dataType,
@@ -68,9 +70,15 @@ public class BinaryDataTask<T> extends ChannelBlockTask {
         if (getMode() == Mode.READ) {
             logger.debug("Read {}: offset: {}", this.dataType.getClass().getSimpleName(), getStart());
 
-            final T result = this.dataType.read(buffer, getStart() - parent.getStart());
+            final int offset = getStart() - parent.getStart();
 
-            this.record.setValue(this.toTypedValue.apply(result));
+            if (this.reader != null) {
+                this.record.setValue(this.reader.read(buffer, offset));
+            } else {
+                final T result = this.dataType.read(buffer, offset);
+
+                this.record.setValue(this.toTypedValue.apply(result));
+            }
             onSuccess();
         } else {
             logger.debug("Write {}: offset: {}", this.dataType.getClass().getSimpleName(), getStart());
@@ -81,6 +89,28 @@ public class BinaryDataTask<T> extends ChannelBlockTask {
         }
     }
 
+    private static TypedValueReader createTypedValueReader(BinaryData<?> binaryDataType, DataType targetType) {
+        final Class<?> sourceType = binaryDataType.getValueType();
+        if (!Number.class.isAssignableFrom(sourceType)) {
+            return null;
+        }
+        final boolean isFloatingPoint = sourceType == Float.class || sourceType == Double.class;
+        if (targetType == DataType.INTEGER) {
+            return isFloatingPoint ? (buf, offset) -> new IntegerValue((int) binaryDataType.readDouble(buf, offset))
+                    : (buf, offset) -> new IntegerValue((int) binaryDataType.readLong(buf, offset));
+        } else if (targetType == DataType.LONG) {
+            return isFloatingPoint ? (buf, offset) -> new LongValue((long) binaryDataType.readDouble(buf, offset))
+                    : (buf, offset) -> new LongValue(binaryDataType.readLong(buf, offset));
+        } else if (targetType == DataType.FLOAT) {
+            return isFloatingPoint ? (buf, offset) -> new FloatValue((float) binaryDataType.readDouble(buf, offset))
+                    : (buf, offset) -> new FloatValue(binaryDataType.readLong(buf, offset));
+        } else if (targetType == DataType.DOUBLE) {
+            return isFloatingPoint ? (buf, offset) -> new DoubleValue(binaryDataType.readDouble(buf, offset))
+                    : (buf, offset) -> new DoubleValue(binaryDataType.readLong(buf, offset));
+        }
+        return null;
+    }
+
     private static <T> Function<T, TypedValue<?>> createToTypedValueAdapter(Class<T> sourceType, DataType targetType) {
         if (targetType == DataType.STRING) {
             if (sourceType == byte[].class) {
@@ -163,4 +193,10 @@ public class BinaryDataTask<T> extends ChannelBlockTask {
         throw new IllegalArgumentException("Cannot convert from Kura data type " + sourceType.name()
                 + " to native type " + targetType.getSimpleName());
     }
+
+    @FunctionalInterface
+    private interface TypedValueReader {
+
+        TypedValue<?> read(Buffer buffer, int offset);
+    }
 }
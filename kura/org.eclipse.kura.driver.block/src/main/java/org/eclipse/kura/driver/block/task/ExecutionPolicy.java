@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+
+package org.eclipse.kura.driver.block.task;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Defines how the {@link BlockTask} instances produced by an {@link AbstractBlockDriver} are executed.
+ * </p>
+ * <p>
+ * The tasks are provided grouped by domain. The tasks of a group must be run one after the other, in the order of the
+ * group, since they might depend on each other (for example the tasks that read the data to be updated by a write
+ * operation). Tasks belonging to different groups are independent and can be executed concurrently.
+ * </p>
+ *
+ * @see AbstractBlockDriver#getExecutionPolicy()
+ * @since 1.1
+ */
+@FunctionalInterface
+public interface ExecutionPolicy {
+
+    /**
+     * An {@link ExecutionPolicy} that runs all tasks in the calling thread, one group after the other.
+     */
+    public static final ExecutionPolicy SERIAL = (taskGroups, runner) -> {
+        for (List<BlockTask> group : taskGroups) {
+            group.forEach(runner);
+        }
+    };
+
+    /**
+     * Runs the provided tasks using the provided runner and returns when all of them have completed.
+     *
+     * @param taskGroups
+     *            the tasks to be run, grouped by domain
+     * @param runner
+     *            the function that must be used for running a single task
+     */
+    public void execute(Collection<List<BlockTask>> taskGroups, Consumer<BlockTask> runner);
+}
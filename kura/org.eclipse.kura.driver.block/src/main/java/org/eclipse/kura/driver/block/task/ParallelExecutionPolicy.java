@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+
+package org.eclipse.kura.driver.block.task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * An {@link ExecutionPolicy} that runs the task groups of different domains concurrently using a bounded pool of
+ * threads. The tasks of each group are still run one after the other by a single thread. The calling thread runs one
+ * of the groups and waits for the other ones to complete.
+ * </p>
+ * <p>
+ * The runner is invoked from the pool threads while the thread that called the {@link AbstractBlockDriver} methods
+ * still holds the driver monitor, for this reason the tasks must not synchronize on the driver instance, otherwise a
+ * deadlock will occur. This policy is suitable for drivers that use an independent connection for each domain, or a
+ * connection that can be shared safely between threads.
+ * </p>
+ * <p>
+ * The {@link #shutdown()} method must be called when the policy is no longer needed.
+ * </p>
+ *
+ * @since 1.1
+ */
+public class ParallelExecutionPolicy implements ExecutionPolicy {
+
+    private static final AtomicInteger poolCount = new AtomicInteger();
+
+    private final ExecutorService executor;
+
+    /**
+     * Creates a new {@link ParallelExecutionPolicy}.
+     *
+     * @param maxThreads
+     *            the maximum number of threads of the pool
+     * @throws IllegalArgumentException
+     *             if {@code maxThreads} is less than 1
+     */
+    public ParallelExecutionPolicy(int maxThreads) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("The maximum number of threads must be greater than 0");
+        }
+        final int poolId = poolCount.incrementAndGet();
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxThreads, runnable -> {
+            final Thread thread = new Thread(runnable,
+                    "BlockDriverExecutor-" + poolId + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException
+     *             if the calling thread is interrupted while waiting for the tasks to complete
+     */
+    @Override
+    public void execute(Collection<List<BlockTask>> taskGroups, Consumer<BlockTask> runner) {
+        if (taskGroups.size() <= 1) {
+            SERIAL.execute(taskGroups, runner);
+            return;
+        }
+
+        final Iterator<List<BlockTask>> iterator = taskGroups.iterator();
+        final List<BlockTask> localGroup = iterator.next();
+        final List<Future<?>> futures = new ArrayList<>(taskGroups.size() - 1);
+
+        try {
+            while (iterator.hasNext()) {
+                final List<BlockTask> group = iterator.next();
+                futures.add(this.executor.submit(() -> group.forEach(runner)));
+            }
+            localGroup.forEach(runner);
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for block tasks", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Stops the threads of the pool, this policy cannot be used anymore after this method returns.
+     */
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+}
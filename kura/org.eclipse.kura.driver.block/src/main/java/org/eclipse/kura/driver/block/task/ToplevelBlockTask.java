@@ -93,6 +93,17 @@ public abstract class ToplevelBlockTask extends BlockTask {
      */
     public abstract void processBuffer() throws IOException;
 
+    /**
+     * Releases the resources associated with the {@link Buffer} managed by this {@link ToplevelBlockTask}, for example
+     * returning it to a {@link org.eclipse.kura.driver.binary.BufferPool}. This method is called by
+     * {@link AbstractBlockDriver} when the task is no longer going to be run. The default implementation does
+     * nothing.
+     *
+     * @since 1.1
+     */
+    public void releaseBuffer() {
+    }
+
     /**
      * Clears the list of children of this {@link ToplevelBlockTask}
      */
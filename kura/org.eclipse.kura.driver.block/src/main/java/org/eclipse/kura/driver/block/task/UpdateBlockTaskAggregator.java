@@ -105,6 +105,16 @@ public class UpdateBlockTaskAggregator extends BlockTaskAggregator {
         this.readTaskAggregator.setMinimumGapSize(minimumGapSize);
     }
 
+    /**
+     * Sets the {@code maximumSize} that will be used for aggregating the {@link ToplevelBlockTask} tasks in both
+     * {@link Mode#READ} and {@link Mode#WRITE} modes.
+     */
+    @Override
+    public void setMaximumSize(int maximumSize) {
+        super.setMaximumSize(maximumSize);
+        this.readTaskAggregator.setMaximumSize(maximumSize);
+    }
+
     /**
      * {@inheritDoc}
      *
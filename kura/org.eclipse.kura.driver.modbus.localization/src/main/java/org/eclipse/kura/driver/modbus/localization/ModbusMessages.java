@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+package org.eclipse.kura.driver.modbus.localization;
+
+import com.github.rodionmoiseev.c10n.annotations.En;
+
+/**
+ * ModbusMessages is considered to be a localization resource for
+ * {@code Modbus Driver} bundle. It contains all the necessary translations for
+ * every string literals mentioned in {@code Modbus Driver} bundle.
+ */
+public interface ModbusMessages {
+
+    @En("Activating Modbus Driver.....")
+    public String activating();
+
+    @En("Activating Modbus Driver.....Done")
+    public String activatingDone();
+
+    @En("Connecting to Modbus device...")
+    public String connecting();
+
+    @En("Connecting to Modbus device...Done")
+    public String connectingDone();
+
+    @En("Connection problems detected, disconnecting, will attemp to reconnect at next read/write")
+    public String connectionProblemsDetected();
+
+    @En("Reconnecting after configuration update...")
+    public String reconnectingAfterConfigurationUpdate();
+
+    @En("Failed to reset connection after update")
+    public String errorReconnectFailed();
+
+    @En("Deactivating Modbus Driver.....")
+    public String deactivating();
+
+    @En("Deactivating Modbus Driver.....Done")
+    public String deactivatingDone();
+
+    @En("Disconnecting from Modbus device...")
+    public String disconnecting();
+
+    @En("Disconnecting from Modbus device...Done")
+    public String disconnectingDone();
+
+    @En("Unable to Disconnect...")
+    public String disconnectionProblem();
+
+    @En("Error while disconnecting....")
+    public String errorDisconnecting();
+
+    @En("Failed to connect to the Modbus device")
+    public String errorConnectionFailed();
+
+    @En("Unexpected exception")
+    public String errorUnexpectedException();
+
+    @En("Operation failed due to IO error")
+    public String errorIOFailed();
+
+    @En("Error while retrieving Unit Id")
+    public String errorRetrievingUnitId();
+
+    @En("Error while retrieving Primary Table")
+    public String errorRetrievingPrimaryTable();
+
+    @En("Error while retrieving Memory Address")
+    public String errorRetrievingMemoryAddress();
+
+    @En("Channel Value Type must be ")
+    public String errorConvertingType();
+
+    @En("Write operation not supported on primary table ")
+    public String errorReadOnlyTable();
+
+    @En("Unable to determine operation")
+    public String errorUnknownOperation();
+
+    @En("Properties cannot be null")
+    public String propertiesNonNull();
+
+    @En("Updating Modbus Driver.....")
+    public String updating();
+
+    @En("Updating Modbus Driver.....Done")
+    public String updatingDone();
+
+    @En("Modbus unit identifier")
+    public String unitIdDesc();
+
+    @En("Modbus primary table")
+    public String primaryTableDesc();
+
+    @En("Address of the first coil or register, starting from 0")
+    public String memoryAddressDesc();
+
+    @En("Modbus Data Type, ignored for the COILS and DISCRETE_INPUTS tables")
+    public String modbusDataTypeDesc();
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+package org.eclipse.kura.internal.driver.modbus;
+
+import java.util.List;
+
+import org.eclipse.kura.core.configuration.metatype.Tad;
+import org.eclipse.kura.core.configuration.metatype.Toption;
+import org.eclipse.kura.core.configuration.metatype.Tscalar;
+import org.eclipse.kura.driver.ChannelDescriptor;
+import org.eclipse.kura.driver.modbus.localization.ModbusMessages;
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.util.collection.CollectionUtil;
+
+/**
+ * Modbus specific channel descriptor. The descriptor contains the following
+ * attribute definition identifiers.
+ *
+ * <ul>
+ * <li>unit.id</li> denotes the Modbus unit identifier
+ * <li>primary.table</li> the Modbus primary table
+ * <li>memory.address</li> the address of the first coil or register
+ * <li>modbus.data.type</li> the data type stored in the registers
+ * </ul>
+ */
+public final class ModbusChannelDescriptor implements ChannelDescriptor {
+
+    public static final String UNIT_ID = "unit.id";
+    public static final String PRIMARY_TABLE_ID = "primary.table";
+    public static final String MEMORY_ADDRESS_ID = "memory.address";
+    public static final String MODBUS_DATA_TYPE_ID = "modbus.data.type";
+
+    /** Localization Resource. */
+    private static final ModbusMessages s_message = LocalizationAdapter.adapt(ModbusMessages.class);
+
+    private Toption generateOption(Enum<?> value) {
+        Toption option = new Toption();
+        option.setLabel(value.name());
+        option.setValue(value.name());
+        return option;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object getDescriptor() {
+        final List<Tad> elements = CollectionUtil.newArrayList();
+
+        final Tad unitId = new Tad();
+        unitId.setName(UNIT_ID);
+        unitId.setId(UNIT_ID);
+        unitId.setDescription(s_message.unitIdDesc());
+        unitId.setType(Tscalar.INTEGER);
+        unitId.setRequired(true);
+        unitId.setMin("1");
+        unitId.setMax("247");
+        unitId.setDefault("1");
+
+        elements.add(unitId);
+
+        final Tad primaryTable = new Tad();
+        primaryTable.setName(PRIMARY_TABLE_ID);
+        primaryTable.setId(PRIMARY_TABLE_ID);
+        primaryTable.setDescription(s_message.primaryTableDesc());
+        primaryTable.setType(Tscalar.STRING);
+        primaryTable.setRequired(true);
+        primaryTable.setDefault(ModbusPrimaryTable.HOLDING_REGISTERS.name());
+
+        for (ModbusPrimaryTable t : ModbusPrimaryTable.values()) {
+            primaryTable.setOption(generateOption(t));
+        }
+
+        elements.add(primaryTable);
+
+        final Tad memoryAddress = new Tad();
+        memoryAddress.setName(MEMORY_ADDRESS_ID);
+        memoryAddress.setId(MEMORY_ADDRESS_ID);
+        memoryAddress.setDescription(s_message.memoryAddressDesc());
+        memoryAddress.setType(Tscalar.INTEGER);
+        memoryAddress.setRequired(true);
+        memoryAddress.setMin("0");
+        memoryAddress.setMax("65535");
+        memoryAddress.setDefault("0");
+
+        elements.add(memoryAddress);
+
+        final Tad modbusDataType = new Tad();
+        modbusDataType.setName(MODBUS_DATA_TYPE_ID);
+        modbusDataType.setId(MODBUS_DATA_TYPE_ID);
+        modbusDataType.setDescription(s_message.modbusDataTypeDesc());
+        modbusDataType.setType(Tscalar.STRING);
+        modbusDataType.setRequired(true);
+        modbusDataType.setDefault(ModbusDataType.INT16.name());
+
+        for (ModbusDataType t : ModbusDataType.values()) {
+            modbusDataType.setOption(generateOption(t));
+        }
+
+        elements.add(modbusDataType);
+
+        return elements;
+    }
+
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+
+package org.eclipse.kura.internal.driver.modbus;
+
+public class ModbusDomain {
+
+    private final int unitId;
+    private final ModbusPrimaryTable table;
+
+    public ModbusDomain(int unitId, ModbusPrimaryTable table) {
+        this.unitId = unitId;
+        this.table = table;
+    }
+
+    public int getUnitId() {
+        return unitId;
+    }
+
+    public ModbusPrimaryTable getTable() {
+        return table;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * unitId + table.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        ModbusDomain other = (ModbusDomain) obj;
+        if (unitId != other.unitId)
+            return false;
+        if (table != other.table)
+            return false;
+        return true;
+    }
+}
@@ -0,0 +1,407 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+
+package org.eclipse.kura.internal.driver.modbus;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.eclipse.kura.KuraConnectionStatus;
+import org.eclipse.kura.KuraException;
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.ChannelStatus;
+import org.eclipse.kura.configuration.ConfigurableComponent;
+import org.eclipse.kura.driver.ChannelDescriptor;
+import org.eclipse.kura.driver.PreparedRead;
+import org.eclipse.kura.driver.binary.Buffer;
+import org.eclipse.kura.driver.binary.Endianness;
+import org.eclipse.kura.driver.block.BlockFactory;
+import org.eclipse.kura.driver.block.task.AbstractBlockDriver;
+import org.eclipse.kura.driver.block.task.BlockTask;
+import org.eclipse.kura.driver.block.task.BlockTaskAggregator;
+import org.eclipse.kura.driver.block.task.Mode;
+import org.eclipse.kura.driver.block.task.ToplevelBlockTask;
+import org.eclipse.kura.driver.modbus.localization.ModbusMessages;
+import org.eclipse.kura.internal.driver.modbus.task.ModbusTaskBuilder;
+import org.eclipse.kura.internal.driver.modbus.task.ModbusToplevelBlockTask;
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.protocol.modbus.ModbusProtocolDevice;
+import org.eclipse.kura.protocol.modbus.ModbusProtocolErrorCode;
+import org.eclipse.kura.protocol.modbus.ModbusProtocolException;
+import org.eclipse.kura.protocol.modbus.ModbusReadRequest;
+import org.eclipse.kura.protocol.modbus.ModbusReadResult;
+import org.eclipse.kura.usb.UsbService;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.io.ConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Kura ModbusDriver is a Modbus Driver implementation for Kura Asset-Driver
+ * Topology.<br/>
+ * <br/>
+ *
+ * The driver aggregates the channels that refer to adjacent coils or registers of the same unit and primary table
+ * into the smallest number of requests allowed by the Modbus PDU size. The requests of a read operation are
+ * submitted together, on Modbus TCP connections they can be pipelined if the {@code pipeline.depth} property is
+ * greater than 1.<br/>
+ * <br/>
+ *
+ * The required properties are enlisted in {@link ModbusChannelDescriptor} and
+ * the driver connection specific properties are enlisted in
+ * {@link ModbusOptions}
+ *
+ * @see ModbusChannelDescriptor
+ * @see ModbusOptions
+ */
+public final class ModbusDriver extends AbstractBlockDriver<ModbusDomain> implements ConfigurableComponent {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModbusDriver.class);
+
+    private static final ModbusMessages messages = LocalizationAdapter.adapt(ModbusMessages.class);
+
+    private ModbusProtocolDevice device;
+
+    private ModbusOptions options;
+
+    private ConnectionFactory connectionFactory;
+
+    private UsbService usbService;
+
+    private CachedRead cachedRead;
+
+    public void setConnectionFactory(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    public void unsetConnectionFactory(ConnectionFactory connectionFactory) {
+        this.connectionFactory = null;
+    }
+
+    public void setUsbService(UsbService usbService) {
+        this.usbService = usbService;
+    }
+
+    public void unsetUsbService(UsbService usbService) {
+        this.usbService = null;
+    }
+
+    protected synchronized void activate(final ComponentContext componentContext,
+            final Map<String, Object> properties) {
+        logger.debug(messages.activating());
+        requireNonNull(properties, messages.propertiesNonNull());
+        logger.debug(messages.activatingDone());
+    }
+
+    protected synchronized void deactivate(final ComponentContext componentContext) {
+        logger.debug(messages.deactivating());
+        try {
+            this.disconnect();
+        } catch (final ConnectionException e) {
+            logger.error(messages.errorDisconnecting(), e);
+        }
+        clearCachedRead();
+        getBufferPool().clear();
+        logger.debug(messages.deactivatingDone());
+    }
+
+    public synchronized void updated(final Map<String, Object> properties) {
+        logger.debug(messages.updating());
+        requireNonNull(properties, messages.propertiesNonNull());
+        this.options = new ModbusOptions(properties);
+        clearCachedRead();
+        if (this.device != null) {
+            try {
+                logger.info(messages.reconnectingAfterConfigurationUpdate());
+                disconnect();
+                connect();
+            } catch (ConnectionException e) {
+                logger.warn(messages.errorReconnectFailed(), e);
+            }
+        }
+        logger.debug(messages.updatingDone());
+    }
+
+    @Override
+    public synchronized void connect() throws ConnectionException {
+        if (this.device != null) {
+            return;
+        }
+        logger.debug(messages.connecting());
+        final ModbusProtocolDevice newDevice = new ModbusProtocolDevice();
+        newDevice.setConnectionFactory(this.connectionFactory);
+        newDevice.setUsbService(this.usbService);
+        try {
+            newDevice.configureConnection(this.options.toConnectionProperties());
+            newDevice.connect();
+            if (newDevice.getConnectStatus() != KuraConnectionStatus.CONNECTED) {
+                newDevice.disconnect();
+                throw new ConnectionException(messages.errorConnectionFailed());
+            }
+        } catch (ModbusProtocolException e) {
+            throw new ConnectionException(messages.errorConnectionFailed(), e);
+        }
+        this.device = newDevice;
+        logger.debug(messages.connectingDone());
+    }
+
+    @Override
+    public synchronized void disconnect() throws ConnectionException {
+        if (this.device != null) {
+            logger.debug(messages.disconnecting());
+            try {
+                this.device.disconnect();
+            } catch (ModbusProtocolException e) {
+                throw new ConnectionException(e);
+            } finally {
+                this.device = null;
+            }
+            logger.debug(messages.disconnectingDone());
+        }
+    }
+
+    @Override
+    protected int getReadMinimumGapSizeForDomain(ModbusDomain domain) {
+        return this.options.getMinimumGapSize() * domain.getTable().getUnitSize();
+    }
+
+    @Override
+    protected void beforeAggregation(ModbusDomain domain, Mode mode, BlockTaskAggregator aggregator) {
+        aggregator.setMaximumSize(domain.getTable().getMaximumBlockSize(mode));
+    }
+
+    @Override
+    protected BlockFactory<ToplevelBlockTask> getTaskFactoryForDomain(final ModbusDomain domain, final Mode mode) {
+        return (start, end) -> new ModbusToplevelBlockTask(ModbusDriver.this, domain, mode, start, end);
+    }
+
+    @Override
+    protected Stream<Pair<ModbusDomain, BlockTask>> toTasks(List<ChannelRecord> records, Mode mode) {
+        return ModbusTaskBuilder.build(records, mode);
+    }
+
+    @Override
+    public ChannelDescriptor getChannelDescriptor() {
+        return new ModbusChannelDescriptor();
+    }
+
+    @Override
+    protected void runTask(BlockTask task) {
+        try {
+            task.run();
+        } catch (IOException e) {
+            handleIOException(e);
+        } catch (Exception e) {
+            logger.warn(messages.errorUnexpectedException(), e);
+        }
+    }
+
+    private void handleIOException(IOException e) {
+        logger.warn(messages.errorIOFailed(), e);
+        if (!(e.getCause() instanceof ModbusProtocolException)) {
+            return;
+        }
+        final ModbusProtocolErrorCode code = ((ModbusProtocolException) e.getCause()).getCode();
+        if (code == ModbusProtocolErrorCode.NOT_CONNECTED || code == ModbusProtocolErrorCode.CONNECTION_FAILURE
+                || code == ModbusProtocolErrorCode.TRANSACTION_FAILURE) {
+            logger.warn(messages.connectionProblemsDetected());
+            try {
+                disconnect();
+            } catch (ConnectionException e1) {
+                logger.warn(messages.disconnectionProblem(), e1);
+            }
+        }
+    }
+
+    private void runReadTasks(List<BlockTask> tasks) {
+        final List<ModbusReadRequest> requests = new ArrayList<>(tasks.size());
+        for (BlockTask task : tasks) {
+            requests.add(((ModbusToplevelBlockTask) task).getReadRequest());
+        }
+        try {
+            final List<ModbusReadResult> results = this.device.read(requests);
+            for (int i = 0; i < tasks.size(); i++) {
+                ((ModbusToplevelBlockTask) tasks.get(i)).setReadResult(results.get(i));
+            }
+        } catch (ModbusProtocolException e) {
+            // the tasks will perform their requests one by one and report the failure
+            logger.debug(messages.errorIOFailed(), e);
+        }
+        for (BlockTask task : tasks) {
+            runTask(task);
+        }
+    }
+
+    /**
+     * Reads the provided channels reusing the request plan computed by the previous call, as long as the same channels
+     * are requested.
+     */
+    @Override
+    public synchronized void read(final List<ChannelRecord> records) throws ConnectionException {
+        final List<List<Object>> key = getCacheKey(records);
+        if (this.cachedRead == null || !this.cachedRead.key.equals(key)) {
+            clearCachedRead();
+            this.cachedRead = new CachedRead(key, prepareRead(copyOf(records)));
+        }
+        try {
+            this.cachedRead.preparedRead.execute();
+        } catch (KuraException e) {
+            logger.warn(messages.errorUnexpectedException(), e);
+            for (ChannelRecord record : records) {
+                record.setChannelStatus(new ChannelStatus(ChannelFlag.FAILURE, e.getMessage(), e));
+                record.setTimestamp(System.currentTimeMillis());
+            }
+            return;
+        }
+        final List<ChannelRecord> results = this.cachedRead.preparedRead.getChannelRecords();
+        for (int i = 0; i < records.size(); i++) {
+            final ChannelRecord result = results.get(i);
+            final ChannelRecord record = records.get(i);
+            if (result.getValue() != null) {
+                record.setValue(result.getValue());
+            }
+            if (result.getChannelStatus() != null) {
+                record.setChannelStatus(result.getChannelStatus());
+            }
+            record.setTimestamp(result.getTimestamp());
+        }
+    }
+
+    private void clearCachedRead() {
+        if (this.cachedRead == null) {
+            return;
+        }
+        try {
+            this.cachedRead.preparedRead.close();
+        } catch (Exception e) {
+            logger.debug(messages.errorUnexpectedException(), e);
+        }
+        this.cachedRead = null;
+    }
+
+    private static List<List<Object>> getCacheKey(List<ChannelRecord> records) {
+        final List<List<Object>> key = new ArrayList<>(records.size());
+        for (ChannelRecord record : records) {
+            key.add(Arrays.asList(record.getChannelName(), record.getValueType(), record.getChannelConfig()));
+        }
+        return key;
+    }
+
+    private static List<ChannelRecord> copyOf(List<ChannelRecord> records) {
+        final List<ChannelRecord> result = new ArrayList<>(records.size());
+        for (ChannelRecord record : records) {
+            final ChannelRecord copy = ChannelRecord.createReadRecord(record.getChannelName(), record.getValueType());
+            copy.setChannelConfig(record.getChannelConfig());
+            result.add(copy);
+        }
+        return result;
+    }
+
+    @Override
+    protected PreparedRead createPreparedRead(List<ChannelRecord> records,
+            Map<ModbusDomain, List<BlockTask>> tasksByDomain) {
+        final List<BlockTask> tasks = new ArrayList<>();
+        tasksByDomain.values().forEach(tasks::addAll);
+        return new ModbusPreparedRead(records, tasks);
+    }
+
+    public synchronized ModbusReadResult read(ModbusReadRequest request) throws IOException {
+        try {
+            return getDevice().read(Collections.singletonList(request)).get(0);
+        } catch (ModbusProtocolException e) {
+            throw new IOException(e);
+        }
+    }
+
+    public synchronized void write(ModbusDomain domain, int address, Buffer data) throws IOException {
+        final ModbusPrimaryTable table = domain.getTable();
+        try {
+            if (table.isBitTable()) {
+                final boolean[] coils = new boolean[data.getLength()];
+                for (int i = 0; i < coils.length; i++) {
+                    coils[i] = data.get(i) != 0;
+                }
+                getDevice().writeMultipleCoils(domain.getUnitId(), address, coils);
+            } else {
+                final int[] registers = new int[data.getLength() / 2];
+                for (int i = 0; i < registers.length; i++) {
+                    registers[i] = data.getShort(2 * i, Endianness.BIG_ENDIAN) & 0xffff;
+                }
+                getDevice().writeMultipleRegister(domain.getUnitId(), address, registers);
+            }
+        } catch (ModbusProtocolException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private ModbusProtocolDevice getDevice() throws ModbusProtocolException {
+        if (this.device == null) {
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
+        }
+        return this.device;
+    }
+
+    private class ModbusPreparedRead implements PreparedRead {
+
+        private final List<ChannelRecord> records;
+        private final List<BlockTask> tasks;
+
+        public ModbusPreparedRead(List<ChannelRecord> records, List<BlockTask> tasks) {
+            this.records = records;
+            this.tasks = tasks;
+        }
+
+        @Override
+        public void close() throws Exception {
+            synchronized (ModbusDriver.this) {
+                for (BlockTask task : this.tasks) {
+                    if (task instanceof ToplevelBlockTask) {
+                        ((ToplevelBlockTask) task).releaseBuffer();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public List<ChannelRecord> execute() throws ConnectionException, KuraException {
+            synchronized (ModbusDriver.this) {
+                connect();
+                runReadTasks(this.tasks);
+                return this.records;
+            }
+        }
+
+        @Override
+        public List<ChannelRecord> getChannelRecords() {
+            return this.records;
+        }
+    }
+
+    private static final class CachedRead {
+
+        private final List<List<Object>> key;
+        private final PreparedRead preparedRead;
+
+        CachedRead(List<List<Object>> key, PreparedRead preparedRead) {
+            this.key = key;
+            this.preparedRead = preparedRead;
+        }
+    }
+}
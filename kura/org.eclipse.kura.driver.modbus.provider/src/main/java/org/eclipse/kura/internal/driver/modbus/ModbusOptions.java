@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+
+package org.eclipse.kura.internal.driver.modbus;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.eclipse.kura.protocol.modbus.ModbusProtocolDevice;
+import org.eclipse.kura.protocol.modbus.ModbusTransmissionMode;
+
+final class ModbusOptions {
+
+    private static final String CONNECTION_TYPE_PROP_NAME = "connection.type";
+    private static final String IP_PROP_NAME = "host.ip";
+    private static final String PORT_PROP_NAME = "host.port";
+    private static final String SERIAL_PORT_PROP_NAME = "serial.port";
+    private static final String BAUD_RATE_PROP_NAME = "serial.baudrate";
+    private static final String DATA_BITS_PROP_NAME = "serial.data.bits";
+    private static final String STOP_BITS_PROP_NAME = "serial.stop.bits";
+    private static final String PARITY_PROP_NAME = "serial.parity";
+    private static final String TRANSMISSION_MODE_PROP_NAME = "transmission.mode";
+    private static final String RESPONSE_TIMEOUT_PROP_NAME = "response.timeout";
+    private static final String PIPELINE_DEPTH_PROP_NAME = "pipeline.depth";
+    private static final String MINIMUM_GAP_SIZE_PROP_NAME = "read.minimum.gap.size";
+
+    private static final String CONNECTION_TYPE_DEFAULT = ModbusProtocolDevice.PROTOCOL_CONNECTION_TYPE_ETHER_TCP;
+    private static final String IP_DEFAULT = "";
+    private static final int PORT_DEFAULT = 502;
+    private static final String SERIAL_PORT_DEFAULT = "";
+    private static final int BAUD_RATE_DEFAULT = 9600;
+    private static final int DATA_BITS_DEFAULT = 8;
+    private static final int STOP_BITS_DEFAULT = 1;
+    private static final int PARITY_DEFAULT = 0;
+    private static final String TRANSMISSION_MODE_DEFAULT = ModbusTransmissionMode.RTU;
+    private static final int RESPONSE_TIMEOUT_DEFAULT = 1000;
+    private static final int PIPELINE_DEPTH_DEFAULT = 1;
+    private static final int MINIMUM_GAP_SIZE_DEFAULT = 0;
+
+    private final Map<String, Object> properties;
+
+    ModbusOptions(final Map<String, Object> properties) {
+        this.properties = properties;
+    }
+
+    String getConnectionType() {
+        return (String) properties.getOrDefault(CONNECTION_TYPE_PROP_NAME, CONNECTION_TYPE_DEFAULT);
+    }
+
+    String getIp() {
+        return (String) properties.getOrDefault(IP_PROP_NAME, IP_DEFAULT);
+    }
+
+    int getPort() {
+        return (Integer) properties.getOrDefault(PORT_PROP_NAME, PORT_DEFAULT);
+    }
+
+    String getSerialPort() {
+        return (String) properties.getOrDefault(SERIAL_PORT_PROP_NAME, SERIAL_PORT_DEFAULT);
+    }
+
+    int getBaudRate() {
+        return (Integer) properties.getOrDefault(BAUD_RATE_PROP_NAME, BAUD_RATE_DEFAULT);
+    }
+
+    int getDataBits() {
+        return (Integer) properties.getOrDefault(DATA_BITS_PROP_NAME, DATA_BITS_DEFAULT);
+    }
+
+    int getStopBits() {
+        return (Integer) properties.getOrDefault(STOP_BITS_PROP_NAME, STOP_BITS_DEFAULT);
+    }
+
+    int getParity() {
+        return (Integer) properties.getOrDefault(PARITY_PROP_NAME, PARITY_DEFAULT);
+    }
+
+    String getTransmissionMode() {
+        return (String) properties.getOrDefault(TRANSMISSION_MODE_PROP_NAME, TRANSMISSION_MODE_DEFAULT);
+    }
+
+    int getResponseTimeout() {
+        return (Integer) properties.getOrDefault(RESPONSE_TIMEOUT_PROP_NAME, RESPONSE_TIMEOUT_DEFAULT);
+    }
+
+    int getPipelineDepth() {
+        return (Integer) properties.getOrDefault(PIPELINE_DEPTH_PROP_NAME, PIPELINE_DEPTH_DEFAULT);
+    }
+
+    int getMinimumGapSize() {
+        return (Integer) properties.getOrDefault(MINIMUM_GAP_SIZE_PROP_NAME, MINIMUM_GAP_SIZE_DEFAULT);
+    }
+
+    /**
+     * Converts these options in the format expected by {@link ModbusProtocolDevice#configureConnection(Properties)}.
+     *
+     * @return the connection properties
+     */
+    Properties toConnectionProperties() {
+        final Properties result = new Properties();
+        final String connectionType = getConnectionType();
+        result.setProperty("connectionType", connectionType);
+        result.setProperty("transmissionMode", getTransmissionMode());
+        result.setProperty("respTimeout", Integer.toString(getResponseTimeout()));
+        result.setProperty("pipelineDepth", Integer.toString(getPipelineDepth()));
+        if (ModbusProtocolDevice.PROTOCOL_CONNECTION_TYPE_SERIAL.equals(connectionType)) {
+            result.setProperty("port", getSerialPort());
+            result.setProperty("baudRate", Integer.toString(getBaudRate()));
+            result.setProperty("bitsPerWord", Integer.toString(getDataBits()));
+            result.setProperty("stopBits", Integer.toString(getStopBits()));
+            result.setProperty("parity", Integer.toString(getParity()));
+        } else {
+            result.setProperty("ipAddress", getIp());
+            result.setProperty("ethport", Integer.toString(getPort()));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+
+package org.eclipse.kura.internal.driver.modbus;
+
+import org.eclipse.kura.driver.block.task.Mode;
+import org.eclipse.kura.protocol.modbus.ModbusFunctionCodes;
+
+/**
+ * The Modbus primary tables. The blocks managed by the driver are expressed in bytes, a coil or discrete input is
+ * mapped to a single byte and a register to two bytes.
+ */
+public enum ModbusPrimaryTable {
+
+    COILS(ModbusFunctionCodes.READ_COIL_STATUS, ModbusFunctionCodes.FORCE_MULTIPLE_COILS, 1, 2000, 1968),
+    DISCRETE_INPUTS(ModbusFunctionCodes.READ_INPUT_STATUS, -1, 1, 2000, 0),
+    INPUT_REGISTERS(ModbusFunctionCodes.READ_INPUT_REGS, -1, 2, 125, 0),
+    HOLDING_REGISTERS(ModbusFunctionCodes.READ_HOLDING_REGS, ModbusFunctionCodes.PRESET_MULTIPLE_REGS, 2, 125, 123);
+
+    private final int readFunctionCode;
+    private final int writeFunctionCode;
+    private final int unitSize;
+    private final int maxReadCount;
+    private final int maxWriteCount;
+
+    private ModbusPrimaryTable(int readFunctionCode, int writeFunctionCode, int unitSize, int maxReadCount,
+            int maxWriteCount) {
+        this.readFunctionCode = readFunctionCode;
+        this.writeFunctionCode = writeFunctionCode;
+        this.unitSize = unitSize;
+        this.maxReadCount = maxReadCount;
+        this.maxWriteCount = maxWriteCount;
+    }
+
+    public int getReadFunctionCode() {
+        return this.readFunctionCode;
+    }
+
+    public int getWriteFunctionCode() {
+        return this.writeFunctionCode;
+    }
+
+    public boolean isWritable() {
+        return this.writeFunctionCode != -1;
+    }
+
+    public boolean isBitTable() {
+        return this.unitSize == 1;
+    }
+
+    /**
+     * @return the number of bytes used to represent a coil or register of this table
+     */
+    public int getUnitSize() {
+        return this.unitSize;
+    }
+
+    /**
+     * Returns the maximum size in bytes of a block that can be transferred with a single request.
+     *
+     * @param mode
+     *            the transfer mode
+     * @return the maximum block size
+     */
+    public int getMaximumBlockSize(Mode mode) {
+        return (mode == Mode.READ ? this.maxReadCount : this.maxWriteCount) * this.unitSize;
+    }
+}
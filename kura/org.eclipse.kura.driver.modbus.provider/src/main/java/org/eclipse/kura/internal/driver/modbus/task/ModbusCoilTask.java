@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+
+package org.eclipse.kura.internal.driver.modbus.task;
+
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.driver.binary.Buffer;
+import org.eclipse.kura.driver.block.task.ChannelBlockTask;
+import org.eclipse.kura.driver.block.task.Mode;
+import org.eclipse.kura.driver.block.task.ToplevelBlockTask;
+import org.eclipse.kura.type.BooleanValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads or writes a single coil or discrete input. The parent buffer contains a byte for each coil, the byte is 1 if
+ * the coil is set and 0 otherwise.
+ */
+public class ModbusCoilTask extends ChannelBlockTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModbusCoilTask.class);
+
+    public ModbusCoilTask(ChannelRecord record, int address, Mode mode) {
+        super(record, address, address + 1, mode);
+    }
+
+    @Override
+    public void run() {
+        final ToplevelBlockTask parent = getParent();
+        Buffer buffer = parent.getBuffer();
+
+        if (getMode() == Mode.READ) {
+            final boolean result = buffer.get(getStart() - parent.getStart()) != 0;
+
+            logger.debug("Read coil: address {} result {}", getStart(), result);
+
+            this.record.setValue(new BooleanValue(result));
+            onSuccess();
+        } else {
+            final boolean value = (Boolean) this.record.getValue().getValue();
+
+            logger.debug("Write coil: address {} value {}", getStart(), value);
+
+            buffer.put(getStart() - parent.getStart(), (byte) (value ? 1 : 0));
+        }
+    }
+}
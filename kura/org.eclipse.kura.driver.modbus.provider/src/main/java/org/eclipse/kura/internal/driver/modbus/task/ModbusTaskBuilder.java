@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+
+package org.eclipse.kura.internal.driver.modbus.task;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.eclipse.kura.KuraErrorCode;
+import org.eclipse.kura.KuraException;
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.ChannelStatus;
+import org.eclipse.kura.driver.binary.BinaryDataTypes;
+import org.eclipse.kura.driver.block.task.AbstractBlockDriver.Pair;
+import org.eclipse.kura.driver.block.task.BinaryDataTask;
+import org.eclipse.kura.driver.block.task.BlockTask;
+import org.eclipse.kura.driver.block.task.Mode;
+import org.eclipse.kura.driver.modbus.localization.ModbusMessages;
+import org.eclipse.kura.internal.driver.modbus.ModbusChannelDescriptor;
+import org.eclipse.kura.internal.driver.modbus.ModbusDataType;
+import org.eclipse.kura.internal.driver.modbus.ModbusDomain;
+import org.eclipse.kura.internal.driver.modbus.ModbusPrimaryTable;
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.type.DataType;
+
+public final class ModbusTaskBuilder {
+
+    private static final ModbusMessages messages = LocalizationAdapter.adapt(ModbusMessages.class);
+
+    private ModbusTaskBuilder() {
+    }
+
+    private static int getIntProperty(ChannelRecord record, String propertyName, String failureMessage)
+            throws KuraException {
+        try {
+            return Integer.parseInt(record.getChannelConfig().get(propertyName).toString());
+        } catch (Exception e) {
+            throw new KuraException(KuraErrorCode.CONFIGURATION_ERROR, failureMessage);
+        }
+    }
+
+    private static ModbusPrimaryTable getPrimaryTable(ChannelRecord record) throws KuraException {
+        try {
+            return ModbusPrimaryTable
+                    .valueOf(record.getChannelConfig().get(ModbusChannelDescriptor.PRIMARY_TABLE_ID).toString());
+        } catch (Exception e) {
+            throw new KuraException(KuraErrorCode.CONFIGURATION_ERROR, messages.errorRetrievingPrimaryTable());
+        }
+    }
+
+    private static void assertChannelType(ChannelRecord record, DataType channelType) throws KuraException {
+        if (channelType != record.getValueType()) {
+            throw new KuraException(KuraErrorCode.CONFIGURATION_ERROR, messages.errorConvertingType() + channelType);
+        }
+    }
+
+    private static BlockTask build(ChannelRecord record, ModbusPrimaryTable table, Mode mode) throws KuraException {
+
+        final Map<String, Object> channelConfig = record.getChannelConfig();
+
+        DataType type = record.getValueType();
+
+        int address = getIntProperty(record, ModbusChannelDescriptor.MEMORY_ADDRESS_ID,
+                messages.errorRetrievingMemoryAddress());
+
+        if (mode == Mode.WRITE && !table.isWritable()) {
+            throw new KuraException(KuraErrorCode.CONFIGURATION_ERROR, messages.errorReadOnlyTable() + table);
+        }
+
+        if (table.isBitTable()) {
+
+            assertChannelType(record, DataType.BOOLEAN);
+            return new ModbusCoilTask(record, address, mode);
+
+        }
+
+        final int offset = address * table.getUnitSize();
+        final Object modbusDataTypeId = channelConfig.get(ModbusChannelDescriptor.MODBUS_DATA_TYPE_ID);
+
+        if (modbusDataTypeId == null || ModbusDataType.INT16.name().equals(modbusDataTypeId)) {
+
+            return new BinaryDataTask<>(record, offset, BinaryDataTypes.INT16_BE, type, mode);
+
+        } else if (ModbusDataType.UINT16.name().equals(modbusDataTypeId)) {
+
+            return new BinaryDataTask<>(record, offset, BinaryDataTypes.UINT16_BE, type, mode);
+
+        } else if (ModbusDataType.INT32.name().equals(modbusDataTypeId)) {
+
+            return new BinaryDataTask<>(record, offset, BinaryDataTypes.INT32_BE, type, mode);
+
+        } else if (ModbusDataType.UINT32.name().equals(modbusDataTypeId)) {
+
+            return new BinaryDataTask<>(record, offset, BinaryDataTypes.UINT32_BE, type, mode);
+
+        } else if (ModbusDataType.INT64.name().equals(modbusDataTypeId)) {
+
+            return new BinaryDataTask<>(record, offset, BinaryDataTypes.INT64_BE, type, mode);
+
+        } else if (ModbusDataType.FLOAT.name().equals(modbusDataTypeId)) {
+
+            return new BinaryDataTask<>(record, offset, BinaryDataTypes.FLOAT_BE, type, mode);
+
+        } else if (ModbusDataType.DOUBLE.name().equals(modbusDataTypeId)) {
+
+            return new BinaryDataTask<>(record, offset, BinaryDataTypes.DOUBLE_BE, type, mode);
+
+        }
+
+        throw new KuraException(KuraErrorCode.CONFIGURATION_ERROR, messages.errorUnknownOperation());
+
+    }
+
+    public static Stream<Pair<ModbusDomain, BlockTask>> build(List<ChannelRecord> records, Mode mode) {
+        return records.stream().map((record) -> {
+            try {
+                final int unitId = getIntProperty(record, ModbusChannelDescriptor.UNIT_ID,
+                        messages.errorRetrievingUnitId());
+                final ModbusPrimaryTable table = getPrimaryTable(record);
+                return new Pair<>(new ModbusDomain(unitId, table), build(record, table, mode));
+            } catch (Exception e) {
+                record.setTimestamp(System.currentTimeMillis());
+                record.setChannelStatus(new ChannelStatus(ChannelFlag.FAILURE, e.getMessage(), e));
+                return null;
+            }
+        }).filter(Objects::nonNull);
+    }
+
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+
+package org.eclipse.kura.internal.driver.modbus.task;
+
+import java.io.IOException;
+
+import org.eclipse.kura.driver.binary.Buffer;
+import org.eclipse.kura.driver.binary.Endianness;
+import org.eclipse.kura.driver.binary.PooledBuffer;
+import org.eclipse.kura.driver.block.task.Mode;
+import org.eclipse.kura.driver.block.task.ToplevelBlockTask;
+import org.eclipse.kura.internal.driver.modbus.ModbusDomain;
+import org.eclipse.kura.internal.driver.modbus.ModbusDriver;
+import org.eclipse.kura.internal.driver.modbus.ModbusPrimaryTable;
+import org.eclipse.kura.protocol.modbus.ModbusReadRequest;
+import org.eclipse.kura.protocol.modbus.ModbusReadResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transfers a contiguous range of coils or registers of a {@link ModbusDomain} using a single Modbus request. The
+ * result of a read can be provided in advance with {@link #setReadResult(ModbusReadResult)}, this allows the driver to
+ * submit the requests of several tasks at once.
+ */
+public class ModbusToplevelBlockTask extends ToplevelBlockTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModbusToplevelBlockTask.class);
+
+    private final ModbusDriver driver;
+    private final ModbusDomain domain;
+    private PooledBuffer data;
+    private ModbusReadResult readResult;
+
+    public ModbusToplevelBlockTask(ModbusDriver driver, ModbusDomain domain, Mode mode, int start, int end) {
+        super(start, end, mode);
+        this.driver = driver;
+        this.domain = domain;
+    }
+
+    public ModbusDomain getDomain() {
+        return this.domain;
+    }
+
+    public int getAddress() {
+        return getStart() / this.domain.getTable().getUnitSize();
+    }
+
+    public int getCount() {
+        return (getEnd() - getStart()) / this.domain.getTable().getUnitSize();
+    }
+
+    public ModbusReadRequest getReadRequest() {
+        return new ModbusReadRequest(this.domain.getUnitId(), this.domain.getTable().getReadFunctionCode(),
+                getAddress(), getCount());
+    }
+
+    /**
+     * Provides the result of the read request of this task, it will be used by the next {@link #processBuffer()} call
+     * instead of performing the request.
+     *
+     * @param readResult
+     *            the result of the request returned by {@link #getReadRequest()}
+     */
+    public void setReadResult(ModbusReadResult readResult) {
+        this.readResult = readResult;
+    }
+
+    @Override
+    public void processBuffer() throws IOException {
+        final Buffer buffer = getBuffer();
+        final ModbusPrimaryTable table = this.domain.getTable();
+
+        if (getMode() == Mode.READ) {
+            logger.debug("Reading from unit {}, {} address: {} count: {}", this.domain.getUnitId(), table,
+                    getAddress(), getCount());
+            ModbusReadResult result = this.readResult;
+            this.readResult = null;
+            if (result == null) {
+                result = this.driver.read(getReadRequest());
+            }
+            if (!result.isSuccessful()) {
+                throw new IOException(result.getException());
+            }
+            if (table.isBitTable()) {
+                final boolean[] bits = result.getBits();
+                for (int i = 0; i < buffer.getLength(); i++) {
+                    buffer.put(i, (byte) (bits[i] ? 1 : 0));
+                }
+            } else {
+                final int[] registers = result.getRegisters();
+                for (int i = 0; i < registers.length; i++) {
+                    buffer.putShort(2 * i, (short) registers[i], Endianness.BIG_ENDIAN);
+                }
+            }
+        } else {
+            logger.debug("Writing to unit {}, {} address: {} count: {}", this.domain.getUnitId(), table,
+                    getAddress(), getCount());
+            this.driver.write(this.domain, getAddress(), buffer);
+        }
+    }
+
+    /**
+     * Returns a buffer obtained from the {@link org.eclipse.kura.driver.binary.BufferPool} of the driver, the buffer is
+     * retained until {@link #releaseBuffer()} is called.
+     */
+    @Override
+    public Buffer getBuffer() {
+        if (this.data == null) {
+            this.data = this.driver.getBufferPool().acquire(getEnd() - getStart());
+        }
+        return this.data;
+    }
+
+    @Override
+    public void releaseBuffer() {
+        if (this.data != null) {
+            this.data.release();
+            this.data = null;
+        }
+    }
+
+}
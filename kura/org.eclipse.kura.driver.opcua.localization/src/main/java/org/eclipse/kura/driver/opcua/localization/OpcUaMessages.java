@@ -108,4 +108,25 @@ public interface OpcUaMessages {
     @En("Operation Result Variant cannot be null")
     public String errorNullVariant();
 
+    @En("Channel Listener cannot be null")
+    public String listenerNonNull();
+
+    @En("Error while retrieving the listen parameters of the channel")
+    public String errorRetrievingListenParameters();
+
+    @En("Error while creating the OPC-UA monitored items")
+    public String errorCreatingMonitoredItems();
+
+    @En("Unable to create the OPC-UA monitored item of channel {0}, got Bad Status: {1}")
+    public String errorCreatingMonitoredItem(String channelName, long statusCode);
+
+    @En("Error while deleting the OPC-UA monitored item")
+    public String errorDeletingMonitoredItem();
+
+    @En("OPC-UA subscription transfer failed with status {0}, creating the monitored items again")
+    public String subscriptionTransferFailed(long statusCode);
+
+    @En("Error while notifying the Channel Listener")
+    public String errorNotifyingListener();
+
 }
\ No newline at end of file
@@ -34,6 +34,12 @@ import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
  * <li>node.id</li> denotes the OPC-UA Variable Node.
  * <li>node.namespace.index</li> denotes the OPC-UA Variable Node Namespace
  * index.
+ * <li>listen.sampling.interval</li> denotes the sampling interval in milliseconds
+ * of the monitored item created for a channel listener.
+ * <li>listen.queue.size</li> denotes the queue size of the monitored item
+ * created for a channel listener.
+ * <li>listen.deadband</li> denotes the absolute deadband of the monitored item
+ * created for a channel listener, 0 disables it.
  * </ul>
  */
 public final class OpcUaChannelDescriptor implements ChannelDescriptor {
@@ -42,6 +48,13 @@ public final class OpcUaChannelDescriptor implements ChannelDescriptor {
     private static final String NODE_NAMESPACE_INDEX = "node.namespace.index";
     private static final String OPCUA_TYPE = "opcua.type";
     private static final String NODE_ID_TYPE = "node.id.type";
+    private static final String LISTEN_SAMPLING_INTERVAL = "listen.sampling.interval";
+    private static final String LISTEN_QUEUE_SIZE = "listen.queue.size";
+    private static final String LISTEN_DEADBAND = "listen.deadband";
+
+    private static final double DEFAULT_SAMPLING_INTERVAL = 1000;
+    private static final int DEFAULT_QUEUE_SIZE = 10;
+    private static final double DEFAULT_DEADBAND = 0;
 
     private static void addOptions(Tad target, Enum<?>[] values) {
         final List<Option> options = target.getOption();
@@ -100,6 +113,36 @@ public final class OpcUaChannelDescriptor implements ChannelDescriptor {
         addOptions(nodeIdType, NodeIdType.values());
 
         elements.add(nodeIdType);
+
+        final Tad samplingInterval = new Tad();
+        samplingInterval.setName(LISTEN_SAMPLING_INTERVAL);
+        samplingInterval.setId(LISTEN_SAMPLING_INTERVAL);
+        samplingInterval.setDescription(LISTEN_SAMPLING_INTERVAL);
+        samplingInterval.setType(Tscalar.DOUBLE);
+        samplingInterval.setRequired(true);
+        samplingInterval.setDefault(Double.toString(DEFAULT_SAMPLING_INTERVAL));
+
+        elements.add(samplingInterval);
+
+        final Tad queueSize = new Tad();
+        queueSize.setName(LISTEN_QUEUE_SIZE);
+        queueSize.setId(LISTEN_QUEUE_SIZE);
+        queueSize.setDescription(LISTEN_QUEUE_SIZE);
+        queueSize.setType(Tscalar.INTEGER);
+        queueSize.setRequired(true);
+        queueSize.setDefault(Integer.toString(DEFAULT_QUEUE_SIZE));
+
+        elements.add(queueSize);
+
+        final Tad deadband = new Tad();
+        deadband.setName(LISTEN_DEADBAND);
+        deadband.setId(LISTEN_DEADBAND);
+        deadband.setDescription(LISTEN_DEADBAND);
+        deadband.setType(Tscalar.DOUBLE);
+        deadband.setRequired(true);
+        deadband.setDefault(Double.toString(DEFAULT_DEADBAND));
+
+        elements.add(deadband);
         return elements;
     }
 
@@ -117,6 +160,30 @@ public final class OpcUaChannelDescriptor implements ChannelDescriptor {
         return VariableType.valueOf(variableType);
     }
 
+    static double getSamplingInterval(Map<String, Object> properties) {
+        Object samplingInterval = properties.get(LISTEN_SAMPLING_INTERVAL);
+        if (samplingInterval == null) {
+            return DEFAULT_SAMPLING_INTERVAL;
+        }
+        return Double.parseDouble(samplingInterval.toString());
+    }
+
+    static int getQueueSize(Map<String, Object> properties) {
+        Object queueSize = properties.get(LISTEN_QUEUE_SIZE);
+        if (queueSize == null) {
+            return DEFAULT_QUEUE_SIZE;
+        }
+        return Integer.parseInt(queueSize.toString());
+    }
+
+    static double getDeadband(Map<String, Object> properties) {
+        Object deadband = properties.get(LISTEN_DEADBAND);
+        if (deadband == null) {
+            return DEFAULT_DEADBAND;
+        }
+        return Double.parseDouble(deadband.toString());
+    }
+
     static NodeId getNodeId(Map<String, Object> properties, int nodeNamespaceIndex, NodeIdType nodeIdType) {
         String nodeIdString = (String) properties.get(NODE_ID);
         switch (nodeIdType) {
@@ -15,7 +15,6 @@ package org.eclipse.kura.internal.driver.opcua;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
-import static org.eclipse.kura.KuraErrorCode.OPERATION_NOT_SUPPORTED;
 import static org.eclipse.kura.channel.ChannelFlag.FAILURE;
 import static org.eclipse.kura.channel.ChannelFlag.SUCCESS;
 
@@ -32,10 +31,10 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import org.eclipse.kura.KuraRuntimeException;
 import org.eclipse.kura.channel.ChannelFlag;
 import org.eclipse.kura.channel.ChannelRecord;
 import org.eclipse.kura.channel.ChannelStatus;
+import org.eclipse.kura.channel.listener.ChannelEvent;
 import org.eclipse.kura.channel.listener.ChannelListener;
 import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.crypto.CryptoService;
@@ -50,17 +49,23 @@ import org.eclipse.kura.type.TypedValues;
 import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
 import org.eclipse.milo.opcua.sdk.client.api.config.OpcUaClientConfig;
 import org.eclipse.milo.opcua.sdk.client.api.config.OpcUaClientConfigBuilder;
-import org.eclipse.milo.opcua.sdk.client.api.nodes.VariableNode;
 import org.eclipse.milo.opcua.stack.client.UaTcpStackClient;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
 import org.eclipse.milo.opcua.stack.core.types.builtin.ByteString;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
 import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
 import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
 import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
 import org.eclipse.milo.opcua.stack.core.types.structured.EndpointDescription;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.WriteValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -69,7 +74,13 @@ import io.netty.util.internal.StringUtil;
 /**
  * The Class {@link OpcUaDriver} is an OPC-UA Driver implementation for Kura Asset-Driver
  * Topology. Currently it only supports reading and writing from/to a specific
- * node. As of now, it doesn't support method execution or history read.
+ * node and monitoring a node through a {@link ChannelListener}. As of now, it
+ * doesn't support method execution or history read.
+ * <br/>
+ * <br/>
+ * The channels of a read or write operation are transferred with a single
+ * OPC-UA Read or Write service call, split in chunks whenever the server
+ * limits the number of nodes per request through its operation limits.
  * <br/>
  * <br/>
  * This OPC-UA Driver can be used in cooperation with Kura Asset Model and in
@@ -105,6 +116,16 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
 
     private final AtomicBoolean isBusy = new AtomicBoolean();
 
+    /** Maximum number of nodes per Read service call advertised by the server. */
+    private int maxNodesPerRead = Integer.MAX_VALUE;
+
+    /** Maximum number of nodes per Write service call advertised by the server. */
+    private int maxNodesPerWrite = Integer.MAX_VALUE;
+
+    /** Monitored items of the registered channel listeners. */
+    private final OpcUaSubscriptionHandler subscriptionHandler = new OpcUaSubscriptionHandler(
+            this::notifyListener);
+
     private <U> U runSafe(final Future<U> future) throws ExecutionException, InterruptedException, TimeoutException {
         try {
             return future.get(this.options.getRequestTimeout(), TimeUnit.MILLISECONDS);
@@ -199,6 +220,8 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
             logger.debug("Connecting...");
             newClient = new OpcUaClient(clientConfigBuilder.build());
             this.client = (OpcUaClient) runSafe(newClient.connect());
+            readOperationLimits();
+            this.subscriptionHandler.connected(this.client, this.options.getRequestTimeout());
 
             logger.info(message.connectingDone());
         } catch (final Exception e) {
@@ -234,8 +257,11 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
         }
         try {
             logger.info(message.disconnecting());
+            this.subscriptionHandler.disconnected();
             shutdownClient(this.client);
             this.client = null;
+            this.maxNodesPerRead = Integer.MAX_VALUE;
+            this.maxNodesPerWrite = Integer.MAX_VALUE;
             logger.info(message.disconnectingDone());
         } finally {
             this.isBusy.set(false);
@@ -336,26 +362,77 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
         }
     }
 
-    private void runReadRequest(OpcUaRequestInfo requestInfo) {
-        ChannelRecord record = requestInfo.channelRecord;
-        final VariableNode node = this.client.getAddressSpace().createVariableNode(requestInfo.nodeId);
-        Object readResult = null;
+    private void readOperationLimits() {
+        final List<ReadValueId> limits = Arrays.asList(
+                newReadValueId(Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerRead),
+                newReadValueId(Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerWrite));
         try {
-            logger.debug("reading:  namespace index: {} node id: {}", requestInfo.nodeNamespaceIndex,
-                    requestInfo.nodeId);
-            readResult = extractValue(runSafe(node.readValue()));
-            logger.debug("Read Successful");
+            final DataValue[] results = runSafe(this.client.read(0, TimestampsToReturn.Neither, limits))
+                    .getResults();
+            this.maxNodesPerRead = toOperationLimit(results[0]);
+            this.maxNodesPerWrite = toOperationLimit(results[1]);
+            logger.debug("Operation limits: max nodes per read: {}, max nodes per write: {}", this.maxNodesPerRead,
+                    this.maxNodesPerWrite);
         } catch (final Exception e) {
-            record.setChannelStatus(new ChannelStatus(ChannelFlag.FAILURE, message.readFailed(), e));
-            record.setTimestamp(System.currentTimeMillis());
+            logger.debug("Unable to read the operation limits of the server", e);
+        }
+    }
+
+    private static int toOperationLimit(final DataValue value) {
+        final Object limit = nonNull(value) && value.getStatusCode().isGood() ? value.getValue().getValue() : null;
+        if (limit instanceof UInteger && ((UInteger) limit).longValue() > 0) {
+            return (int) Math.min(Integer.MAX_VALUE, ((UInteger) limit).longValue());
+        }
+        // a missing or zero limit means that the server does not restrict the number of nodes
+        return Integer.MAX_VALUE;
+    }
+
+    private static ReadValueId newReadValueId(final NodeId nodeId) {
+        return new ReadValueId(nodeId, AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE);
+    }
+
+    private void runReadRequests(final List<OpcUaRequestInfo> requestInfos, final List<ReadValueId> readValueIds) {
+        final int chunkSize = this.maxNodesPerRead;
+        for (int start = 0; start < requestInfos.size(); start += chunkSize) {
+            final int end = Math.min(requestInfos.size(), start + chunkSize);
+            final List<OpcUaRequestInfo> chunk = requestInfos.subList(start, end);
+            final DataValue[] results;
+            try {
+                logger.debug("reading {} nodes", chunk.size());
+                results = runSafe(this.client.read(0, TimestampsToReturn.Neither, readValueIds.subList(start, end)))
+                        .getResults();
+                if (isNull(results) || results.length != chunk.size()) {
+                    throw new IOException(message.errorNullResult());
+                }
+                logger.debug("Read Successful");
+            } catch (final Exception e) {
+                logger.warn(message.readFailed(), e);
+                for (final OpcUaRequestInfo requestInfo : chunk) {
+                    failRecord(requestInfo.channelRecord, message.readFailed(), e);
+                }
+                continue;
+            }
+            for (int i = 0; i < results.length; i++) {
+                setReadResult(chunk.get(i), results[i]);
+            }
+        }
+    }
+
+    private void setReadResult(final OpcUaRequestInfo requestInfo, final DataValue result) {
+        final ChannelRecord record = requestInfo.channelRecord;
+        final Object readResult;
+        try {
+            checkStatus(result.getStatusCode());
+            readResult = extractValue(result);
+        } catch (final Exception e) {
+            failRecord(record, message.readFailed(), e);
             logger.warn(message.readFailed(), e);
             return;
         }
 
         final Optional<TypedValue<?>> typedValue = this.getTypedValue(requestInfo.dataType, readResult);
         if (!typedValue.isPresent()) {
-            record.setChannelStatus(new ChannelStatus(FAILURE, message.errorValueTypeConversion(), null));
-            record.setTimestamp(System.currentTimeMillis());
+            failRecord(record, message.errorValueTypeConversion(), null);
             return;
         }
         record.setValue(typedValue.get());
@@ -363,6 +440,19 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
         record.setTimestamp(System.currentTimeMillis());
     }
 
+    private static void failRecord(final ChannelRecord record, final String reason, final Exception e) {
+        record.setChannelStatus(new ChannelStatus(FAILURE, reason, e));
+        record.setTimestamp(System.currentTimeMillis());
+    }
+
+    private static List<ReadValueId> toReadValueIds(final List<OpcUaRequestInfo> requestInfos) {
+        final List<ReadValueId> readValueIds = new ArrayList<>(requestInfos.size());
+        for (final OpcUaRequestInfo requestInfo : requestInfos) {
+            readValueIds.add(newReadValueId(requestInfo.nodeId));
+        }
+        return readValueIds;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void read(final List<ChannelRecord> records) throws ConnectionException {
@@ -372,22 +462,78 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
         if (isNull(this.client)) {
             this.connect();
         }
+        final List<OpcUaRequestInfo> requestInfos = new ArrayList<>(records.size());
         for (final ChannelRecord record : records) {
-            OpcUaRequestInfo.extract(record).ifPresent(this::runReadRequest);
+            OpcUaRequestInfo.extract(record).ifPresent(requestInfos::add);
         }
+        runReadRequests(requestInfos, toReadValueIds(requestInfos));
+    }
+
+    private void notifyListener(final OpcUaSubscriptionHandler.Registration registration, final DataValue value) {
+        final ChannelRecord record = ChannelRecord.createReadRecord(registration.channelName,
+                registration.valueType);
+        record.setChannelConfig(registration.channelConfig);
+        record.setTimestamp(getTimestamp(value));
+
+        Optional<TypedValue<?>> typedValue = Optional.empty();
+        try {
+            checkStatus(value.getStatusCode());
+            typedValue = this.getTypedValue(registration.valueType, extractValue(value));
+            if (!typedValue.isPresent()) {
+                record.setChannelStatus(new ChannelStatus(FAILURE, message.errorValueTypeConversion(), null));
+            }
+        } catch (final Exception e) {
+            record.setChannelStatus(new ChannelStatus(FAILURE, message.readFailed(), e));
+        }
+
+        if (typedValue.isPresent()) {
+            record.setValue(typedValue.get());
+            record.setChannelStatus(new ChannelStatus(SUCCESS));
+        }
+        registration.listener.onChannelEvent(new ChannelEvent(record));
+    }
+
+    private static long getTimestamp(final DataValue value) {
+        DateTime time = value.getSourceTime();
+        if (isNull(time) || time.isNull()) {
+            time = value.getServerTime();
+        }
+        if (isNull(time) || time.isNull()) {
+            return System.currentTimeMillis();
+        }
+        return time.getJavaTime();
     }
 
     /** {@inheritDoc} */
     @Override
     public void registerChannelListener(final Map<String, Object> channelConfig, final ChannelListener listener)
             throws ConnectionException {
-        throw new KuraRuntimeException(OPERATION_NOT_SUPPORTED);
+        try {
+            this.subscriptionHandler.register(channelConfig, listener);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionException(message.errorCreatingMonitoredItems(), e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new ConnectionException(message.errorCreatingMonitoredItems(), e);
+        }
+        // the monitored items of the registered listeners are created as soon as the driver connects
+        if (isNull(this.client)) {
+            this.connect();
+        }
     }
 
     /** {@inheritDoc} */
     @Override
     public void unregisterChannelListener(final ChannelListener listener) throws ConnectionException {
-        throw new KuraRuntimeException(OPERATION_NOT_SUPPORTED);
+        requireNonNull(listener, message.listenerNonNull());
+        try {
+            this.subscriptionHandler.unregister(listener);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionException(message.errorDeletingMonitoredItem(), e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new ConnectionException(message.errorDeletingMonitoredItem(), e);
+        }
     }
 
     /**
@@ -406,26 +552,64 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
             }
         }
         this.extractProperties(properties);
+        if (this.subscriptionHandler.hasRegistrations()) {
+            try {
+                connect();
+            } catch (final ConnectionException e) {
+                logger.error(message.connectionProblem(), e);
+            }
+        }
         logger.debug("Updating OPC-UA Driver... Done");
     }
 
-    private void runWriteRequest(OpcUaRequestInfo requestInfo) {
-        ChannelRecord record = requestInfo.channelRecord;
-        try {
-            final TypedValue<?> value = record.getValue();
-            final VariableNode node = this.client.getAddressSpace().createVariableNode(requestInfo.nodeId);
-            final DataValue newValue = new DataValue(DataTypeMapper.map(value.getValue(), requestInfo.opcuaType),
-                    StatusCode.GOOD, null);
-            logger.debug("writing: {} namespace index: {} node id: {}..", newValue, requestInfo.nodeNamespaceIndex,
-                    requestInfo.nodeId);
-            checkStatus(runSafe(node.writeValue(newValue)));
-            record.setChannelStatus(new ChannelStatus(SUCCESS));
-            logger.debug("Write Successful");
-        } catch (final Exception e) {
-            record.setChannelStatus(new ChannelStatus(FAILURE, message.writeFailed(), e));
-            logger.warn(message.writeFailed(), e);
+    private void runWriteRequests(final List<OpcUaRequestInfo> requestInfos) {
+        final List<OpcUaRequestInfo> valid = new ArrayList<>(requestInfos.size());
+        final List<WriteValue> writeValues = new ArrayList<>(requestInfos.size());
+        for (final OpcUaRequestInfo requestInfo : requestInfos) {
+            try {
+                final TypedValue<?> value = requestInfo.channelRecord.getValue();
+                final DataValue newValue = new DataValue(DataTypeMapper.map(value.getValue(), requestInfo.opcuaType),
+                        StatusCode.GOOD, null);
+                logger.debug("writing: {} namespace index: {} node id: {}..", newValue,
+                        requestInfo.nodeNamespaceIndex, requestInfo.nodeId);
+                writeValues.add(new WriteValue(requestInfo.nodeId, AttributeId.Value.uid(), null, newValue));
+                valid.add(requestInfo);
+            } catch (final Exception e) {
+                failRecord(requestInfo.channelRecord, message.writeFailed(), e);
+                logger.warn(message.writeFailed(), e);
+            }
+        }
+
+        final int chunkSize = this.maxNodesPerWrite;
+        for (int start = 0; start < valid.size(); start += chunkSize) {
+            final int end = Math.min(valid.size(), start + chunkSize);
+            final List<OpcUaRequestInfo> chunk = valid.subList(start, end);
+            final StatusCode[] results;
+            try {
+                results = runSafe(this.client.write(writeValues.subList(start, end))).getResults();
+                if (isNull(results) || results.length != chunk.size()) {
+                    throw new IOException(message.errorNullResult());
+                }
+            } catch (final Exception e) {
+                logger.warn(message.writeFailed(), e);
+                for (final OpcUaRequestInfo requestInfo : chunk) {
+                    failRecord(requestInfo.channelRecord, message.writeFailed(), e);
+                }
+                continue;
+            }
+            for (int i = 0; i < results.length; i++) {
+                final ChannelRecord record = chunk.get(i).channelRecord;
+                try {
+                    checkStatus(results[i]);
+                    record.setChannelStatus(new ChannelStatus(SUCCESS));
+                    record.setTimestamp(System.currentTimeMillis());
+                    logger.debug("Write Successful");
+                } catch (final Exception e) {
+                    failRecord(record, message.writeFailed(), e);
+                    logger.warn(message.writeFailed(), e);
+                }
+            }
         }
-        record.setTimestamp(System.currentTimeMillis());
     }
 
     /** {@inheritDoc} */
@@ -437,9 +621,11 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
         if (this.client == null) {
             this.connect();
         }
+        final List<OpcUaRequestInfo> requestInfos = new ArrayList<>(records.size());
         for (final ChannelRecord record : records) {
-            OpcUaRequestInfo.extract(record).ifPresent(this::runWriteRequest);
+            OpcUaRequestInfo.extract(record).ifPresent(requestInfos::add);
         }
+        runWriteRequests(requestInfos);
     }
 
     private static class OpcUaRequestInfo {
@@ -520,12 +706,14 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
         for (ChannelRecord record : channelRecords) {
             OpcUaRequestInfo.extract(record).ifPresent(preparedRead.requestInfos::add);
         }
+        preparedRead.readValueIds = toReadValueIds(preparedRead.requestInfos);
         return preparedRead;
     }
 
     private class OpcUaPreparedRead implements PreparedRead {
 
         private List<OpcUaRequestInfo> requestInfos = new ArrayList<>();
+        private List<ReadValueId> readValueIds;
         private volatile List<ChannelRecord> channelRecords;
 
         @Override
@@ -537,9 +725,7 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
                 OpcUaDriver.this.connect();
             }
 
-            for (OpcUaRequestInfo requestInfo : requestInfos) {
-                OpcUaDriver.this.runReadRequest(requestInfo);
-            }
+            OpcUaDriver.this.runReadRequests(requestInfos, readValueIds);
 
             return Collections.unmodifiableList(channelRecords);
         }
@@ -0,0 +1,374 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+package org.eclipse.kura.internal.driver.opcua;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import org.eclipse.kura.channel.listener.ChannelListener;
+import org.eclipse.kura.driver.opcua.localization.OpcUaMessages;
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.type.DataType;
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscription;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscriptionManager;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ExtensionObject;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.DataChangeTrigger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.DeadbandType;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.MonitoringMode;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.DataChangeFilter;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoringParameters;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Class {@link OpcUaSubscriptionHandler} keeps the {@link ChannelListener}s registered on the
+ * {@link OpcUaDriver} and maps each of them to an OPC-UA monitored item.
+ * <br/>
+ * <br/>
+ * The monitored items sharing the same sampling interval are grouped in a single subscription, whose
+ * publishing interval is the sampling interval itself. The registrations survive the connection: the
+ * monitored items are created again when the driver reconnects and when the server fails to transfer a
+ * subscription to a new session.
+ */
+final class OpcUaSubscriptionHandler implements UaSubscriptionManager.SubscriptionListener {
+
+    /** The Logger instance. */
+    private static final Logger logger = LoggerFactory.getLogger(OpcUaSubscriptionHandler.class);
+
+    /** Localization Resource. */
+    private static final OpcUaMessages message = LocalizationAdapter.adapt(OpcUaMessages.class);
+
+    private static final String CHANNEL_NAME = "+name";
+
+    private static final String CHANNEL_VALUE_TYPE = "+value.type";
+
+    private final Map<ChannelListener, Registration> registrations = new HashMap<>();
+
+    private final Map<Double, UaSubscription> subscriptions = new HashMap<>();
+
+    private final AtomicInteger clientHandles = new AtomicInteger();
+
+    private final BiConsumer<Registration, DataValue> valueConsumer;
+
+    private OpcUaClient client;
+
+    private long requestTimeout;
+
+    /**
+     * Instantiates a new subscription handler.
+     *
+     * @param valueConsumer
+     *            the function receiving the data change notifications of the registered channels
+     */
+    OpcUaSubscriptionHandler(final BiConsumer<Registration, DataValue> valueConsumer) {
+        this.valueConsumer = valueConsumer;
+    }
+
+    /**
+     * Registers a channel listener. The monitored item is created immediately if the driver is connected,
+     * otherwise on the next connection.
+     *
+     * @param channelConfig
+     *            the channel configuration
+     * @param listener
+     *            the channel listener
+     * @throws IllegalArgumentException
+     *             if the channel configuration is not valid
+     * @throws ExecutionException
+     *             if the monitored item cannot be created
+     * @throws InterruptedException
+     *             if interrupted while waiting for the server
+     * @throws TimeoutException
+     *             if the server does not reply in time
+     */
+    synchronized void register(final Map<String, Object> channelConfig, final ChannelListener listener)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        final Registration registration = new Registration(channelConfig, listener);
+        final Registration previous = this.registrations.put(listener, registration);
+        if (nonNull(this.client)) {
+            if (nonNull(previous)) {
+                deleteMonitoredItem(previous);
+            }
+            createMonitoredItems(Collections.singletonList(registration));
+        }
+    }
+
+    /**
+     * Unregisters a channel listener and deletes its monitored item.
+     *
+     * @param listener
+     *            the channel listener
+     * @throws ExecutionException
+     *             if the monitored item cannot be deleted
+     * @throws InterruptedException
+     *             if interrupted while waiting for the server
+     * @throws TimeoutException
+     *             if the server does not reply in time
+     */
+    synchronized void unregister(final ChannelListener listener)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        final Registration registration = this.registrations.remove(listener);
+        if (nonNull(registration) && nonNull(this.client)) {
+            deleteMonitoredItem(registration);
+        }
+    }
+
+    /**
+     * Returns whether any channel listener is registered.
+     *
+     * @return true if at least a channel listener is registered
+     */
+    synchronized boolean hasRegistrations() {
+        return !this.registrations.isEmpty();
+    }
+
+    /**
+     * Creates the monitored items of all the registered channel listeners on a newly connected client.
+     *
+     * @param client
+     *            the connected client
+     * @param requestTimeout
+     *            the timeout in milliseconds of the OPC-UA requests
+     */
+    synchronized void connected(final OpcUaClient client, final long requestTimeout) {
+        this.client = client;
+        this.requestTimeout = requestTimeout;
+        this.subscriptions.clear();
+        client.getSubscriptionManager().addSubscriptionListener(this);
+
+        if (this.registrations.isEmpty()) {
+            return;
+        }
+        try {
+            createMonitoredItems(new ArrayList<>(this.registrations.values()));
+        } catch (final Exception e) {
+            logger.warn(message.errorCreatingMonitoredItems(), e);
+        }
+    }
+
+    /**
+     * Forgets the subscriptions of the client being disconnected. The registrations are kept.
+     */
+    synchronized void disconnected() {
+        if (nonNull(this.client)) {
+            this.client.getSubscriptionManager().removeSubscriptionListener(this);
+        }
+        this.client = null;
+        this.subscriptions.clear();
+        for (final Registration registration : this.registrations.values()) {
+            registration.monitoredItem = null;
+            registration.subscription = null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onSubscriptionTransferFailed(final UaSubscription subscription, final StatusCode statusCode) {
+        logger.warn(message.subscriptionTransferFailed(statusCode.getValue()));
+        // called on a client thread, that must not wait for the responses of the server
+        CompletableFuture.runAsync(() -> recreateSubscription(subscription));
+    }
+
+    private synchronized void recreateSubscription(final UaSubscription subscription) {
+        if (isNull(this.client)) {
+            return;
+        }
+        this.subscriptions.values().remove(subscription);
+
+        final List<Registration> affected = new ArrayList<>();
+        for (final Registration registration : this.registrations.values()) {
+            if (registration.subscription == subscription) {
+                registration.monitoredItem = null;
+                registration.subscription = null;
+                affected.add(registration);
+            }
+        }
+        try {
+            createMonitoredItems(affected);
+        } catch (final Exception e) {
+            logger.warn(message.errorCreatingMonitoredItems(), e);
+        }
+    }
+
+    private void createMonitoredItems(final List<Registration> registrations)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        final Map<Double, List<Registration>> groups = new HashMap<>();
+        for (final Registration registration : registrations) {
+            groups.computeIfAbsent(registration.samplingInterval, interval -> new ArrayList<>()).add(registration);
+        }
+
+        for (final Map.Entry<Double, List<Registration>> group : groups.entrySet()) {
+            final UaSubscription subscription = getSubscription(group.getKey());
+            final List<Registration> members = group.getValue();
+
+            final List<MonitoredItemCreateRequest> requests = new ArrayList<>(members.size());
+            for (final Registration registration : members) {
+                requests.add(registration.toCreateRequest(this.clientHandles.incrementAndGet()));
+            }
+
+            // the value consumer must be set before the first notification is dispatched
+            final List<UaMonitoredItem> items = runSafe(
+                    subscription.createMonitoredItems(TimestampsToReturn.Both, requests, (item, index) -> {
+                        final Registration registration = members.get(index);
+                        item.setValueConsumer((monitoredItem, value) -> notify(registration, value));
+                    }));
+
+            for (int i = 0; i < items.size(); i++) {
+                final Registration registration = members.get(i);
+                final UaMonitoredItem item = items.get(i);
+                if (item.getStatusCode().isGood()) {
+                    registration.monitoredItem = item;
+                    registration.subscription = subscription;
+                } else {
+                    logger.warn(message.errorCreatingMonitoredItem(registration.channelName,
+                            item.getStatusCode().getValue()));
+                }
+            }
+        }
+    }
+
+    private UaSubscription getSubscription(final double samplingInterval)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        UaSubscription subscription = this.subscriptions.get(samplingInterval);
+        if (isNull(subscription)) {
+            subscription = runSafe(this.client.getSubscriptionManager().createSubscription(samplingInterval));
+            this.subscriptions.put(samplingInterval, subscription);
+        }
+        return subscription;
+    }
+
+    private void deleteMonitoredItem(final Registration registration)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        final UaSubscription subscription = registration.subscription;
+        final UaMonitoredItem item = registration.monitoredItem;
+        registration.subscription = null;
+        registration.monitoredItem = null;
+        if (isNull(subscription) || isNull(item)) {
+            return;
+        }
+
+        runSafe(subscription.deleteMonitoredItems(Collections.singletonList(item)));
+
+        if (subscription.getMonitoredItems().isEmpty()) {
+            this.subscriptions.values().remove(subscription);
+            runSafe(this.client.getSubscriptionManager().deleteSubscription(subscription.getSubscriptionId()));
+        }
+    }
+
+    private void notify(final Registration registration, final DataValue value) {
+        try {
+            this.valueConsumer.accept(registration, value);
+        } catch (final Exception e) {
+            logger.warn(message.errorNotifyingListener(), e);
+        }
+    }
+
+    private <U> U runSafe(final Future<U> future) throws ExecutionException, InterruptedException, TimeoutException {
+        try {
+            return future.get(this.requestTimeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | InterruptedException | TimeoutException e) {
+            future.cancel(true);
+            throw e;
+        }
+    }
+
+    /**
+     * The registration of a {@link ChannelListener}, holding the channel properties needed to create its
+     * monitored item and to build the notified channel records.
+     */
+    static final class Registration {
+
+        final String channelName;
+        final DataType valueType;
+        final Map<String, Object> channelConfig;
+        final ChannelListener listener;
+        final NodeId nodeId;
+        final double samplingInterval;
+        final int queueSize;
+        final double deadband;
+
+        private UaSubscription subscription;
+        private UaMonitoredItem monitoredItem;
+
+        Registration(final Map<String, Object> channelConfig, final ChannelListener listener) {
+            requireNonNull(channelConfig, message.propertiesNonNull());
+            requireNonNull(listener, message.listenerNonNull());
+
+            final Object name = channelConfig.get(CHANNEL_NAME);
+            final Object valueType = channelConfig.get(CHANNEL_VALUE_TYPE);
+            if (isNull(name) || isNull(valueType)) {
+                throw new IllegalArgumentException(message.errorRetrievingValueType());
+            }
+            this.channelName = name.toString();
+            this.valueType = DataType.getDataType(valueType.toString());
+
+            try {
+                final int nodeNamespaceIndex = OpcUaChannelDescriptor.getNodeNamespaceIndex(channelConfig);
+                final NodeIdType nodeIdType = OpcUaChannelDescriptor.getNodeIdType(channelConfig);
+                this.nodeId = OpcUaChannelDescriptor.getNodeId(channelConfig, nodeNamespaceIndex, nodeIdType);
+            } catch (final Exception e) {
+                throw new IllegalArgumentException(message.errorRetrievingNodeId(), e);
+            }
+
+            try {
+                this.samplingInterval = OpcUaChannelDescriptor.getSamplingInterval(channelConfig);
+                this.queueSize = Math.max(1, OpcUaChannelDescriptor.getQueueSize(channelConfig));
+                this.deadband = OpcUaChannelDescriptor.getDeadband(channelConfig);
+            } catch (final Exception e) {
+                throw new IllegalArgumentException(message.errorRetrievingListenParameters(), e);
+            }
+
+            this.channelConfig = channelConfig;
+            this.listener = listener;
+        }
+
+        private MonitoredItemCreateRequest toCreateRequest(final int clientHandle) {
+            final ReadValueId readValueId = new ReadValueId(this.nodeId, AttributeId.Value.uid(), null,
+                    QualifiedName.NULL_VALUE);
+
+            ExtensionObject filter = null;
+            if (this.deadband > 0) {
+                filter = ExtensionObject.encode(new DataChangeFilter(DataChangeTrigger.StatusValue,
+                        uint(DeadbandType.Absolute.getValue()), this.deadband));
+            }
+
+            final MonitoringParameters parameters = new MonitoringParameters(uint(clientHandle),
+                    this.samplingInterval, filter, uint(this.queueSize), true);
+            return new MonitoredItemCreateRequest(readValueId, MonitoringMode.Reporting, parameters);
+        }
+    }
+}
@@ -15,15 +15,20 @@ package org.eclipse.kura.internal.driver.s7plc;
 import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 
 import org.eclipse.kura.KuraException;
+import org.eclipse.kura.channel.ChannelFlag;
 import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.ChannelStatus;
 import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.crypto.CryptoService;
 import org.eclipse.kura.driver.ChannelDescriptor;
+import org.eclipse.kura.driver.PreparedRead;
+import org.eclipse.kura.driver.binary.ByteArrayBuffer;
 import org.eclipse.kura.driver.block.BlockFactory;
 import org.eclipse.kura.driver.block.task.AbstractBlockDriver;
 import org.eclipse.kura.driver.block.task.BlockTask;
@@ -39,6 +44,7 @@ import org.slf4j.LoggerFactory;
 
 import Moka7.S7;
 import Moka7.S7Client;
+import Moka7.S7DataItem;
 
 /**
  * The Kura S7PlcDriver is a S7 PLC Driver implementation for Kura Asset-Driver
@@ -52,7 +58,11 @@ import Moka7.S7Client;
  *
  * The required properties are enlisted in {@link S7PlcChannelDescriptor} and
  * the driver connection specific properties are enlisted in
- * {@link S7PlcOptions}
+ * {@link S7PlcOptions}<br/>
+ * <br/>
+ *
+ * The blocks resulting from the aggregation are transferred using multi variable requests, each request carries as
+ * many blocks, possibly belonging to different data blocks, as allowed by the negotiated PDU length.
  *
  * @see S7PlcChannelDescriptor
  * @see S7PlcOptions
@@ -63,6 +73,13 @@ public final class S7PlcDriver extends AbstractBlockDriver<S7PlcDomain> implemen
 
     private static final S7PlcMessages messages = LocalizationAdapter.adapt(S7PlcMessages.class);
 
+    // S7 header, function and items count
+    private static final int MULTI_VAR_REQUEST_HEADER_SIZE = 12;
+    private static final int MULTI_VAR_RESPONSE_HEADER_SIZE = 14;
+    private static final int MULTI_VAR_ITEM_SPEC_SIZE = 12;
+    private static final int MULTI_VAR_ITEM_DATA_HEADER_SIZE = 4;
+    private static final int MULTI_VAR_ITEM_RESULT_SIZE = 1;
+
     private S7Client client = new S7Client();
 
     private S7PlcOptions options;
@@ -200,6 +217,167 @@ public final class S7PlcDriver extends AbstractBlockDriver<S7PlcDomain> implemen
         }
     }
 
+    @Override
+    public synchronized void read(final List<ChannelRecord> records) throws ConnectionException {
+        connect();
+        try {
+            runReadTasks(optimize(records, Mode.READ));
+        } catch (Exception e) {
+            logger.warn(messages.errorUnexpectedException(), e);
+            setFailure(records, e);
+        }
+    }
+
+    @Override
+    public synchronized void write(final List<ChannelRecord> records) throws ConnectionException {
+        connect();
+        try {
+            runWriteTasks(optimize(records, Mode.WRITE));
+        } catch (Exception e) {
+            logger.warn(messages.errorUnexpectedException(), e);
+            setFailure(records, e);
+        }
+    }
+
+    @Override
+    protected PreparedRead createPreparedRead(List<ChannelRecord> records,
+            Map<S7PlcDomain, List<BlockTask>> tasksByDomain) {
+        final List<BlockTask> tasks = new ArrayList<>();
+        tasksByDomain.values().forEach(tasks::addAll);
+        return new S7PlcPreparedRead(records, tasks);
+    }
+
+    private static void setFailure(List<ChannelRecord> records, Exception e) {
+        for (ChannelRecord record : records) {
+            record.setChannelStatus(new ChannelStatus(ChannelFlag.FAILURE, e.getMessage(), e));
+            record.setTimestamp(System.currentTimeMillis());
+        }
+    }
+
+    private void runReadTasks(List<BlockTask> tasks) {
+        transfer(getToplevelTasks(tasks, Mode.READ), Mode.READ);
+        tasks.forEach(this::runTask);
+    }
+
+    private void runWriteTasks(List<BlockTask> tasks) {
+        // the read tasks created for updating bits must complete before the write tasks fill their buffers
+        transfer(getToplevelTasks(tasks, Mode.READ), Mode.READ);
+        tasks.stream().filter(task -> task.getMode() == Mode.READ).forEach(this::runTask);
+
+        final List<S7PlcToplevelBlockTask> writeTasks = new ArrayList<>();
+        for (S7PlcToplevelBlockTask task : getToplevelTasks(tasks, Mode.WRITE)) {
+            try {
+                task.prepareWrite();
+                writeTasks.add(task);
+            } catch (Exception e) {
+                // the task will report the failure when run
+                logger.debug(messages.errorUnexpectedException(), e);
+            }
+        }
+        transfer(writeTasks, Mode.WRITE);
+        tasks.stream().filter(task -> task.getMode() != Mode.READ).forEach(this::runTask);
+    }
+
+    private static List<S7PlcToplevelBlockTask> getToplevelTasks(List<BlockTask> tasks, Mode mode) {
+        final List<S7PlcToplevelBlockTask> result = new ArrayList<>(tasks.size());
+        for (BlockTask task : tasks) {
+            if (task instanceof S7PlcToplevelBlockTask && task.getMode() == mode) {
+                result.add((S7PlcToplevelBlockTask) task);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Transfers the buffers of the provided tasks using multi variable requests. The tasks that have been transferred
+     * successfully are notified, the other ones will perform their own request when run.
+     */
+    private void transfer(List<S7PlcToplevelBlockTask> tasks, Mode mode) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        int requestCount = 0;
+        for (List<S7PlcToplevelBlockTask> batch : toBatches(tasks, mode)) {
+            if (batch.size() > 1 && transferBatch(batch, mode)) {
+                requestCount++;
+            } else {
+                requestCount += batch.size();
+            }
+        }
+        logger.debug("Transferred {} blocks ({}) using {} requests, {} round trips saved", tasks.size(), mode,
+                requestCount, tasks.size() - requestCount);
+    }
+
+    private boolean transferBatch(List<S7PlcToplevelBlockTask> batch, Mode mode) {
+        final S7DataItem[] items = new S7DataItem[batch.size()];
+        for (int i = 0; i < items.length; i++) {
+            final S7PlcToplevelBlockTask task = batch.get(i);
+            final byte[] data = ((ByteArrayBuffer) task.getBuffer()).getBackingArray();
+            items[i] = new S7DataItem(S7.S7AreaDB, task.getAreaNo(), task.getStart(), data.length, data);
+        }
+        final int result;
+        if (mode == Mode.READ) {
+            result = this.client.ReadMultiVars(items, items.length);
+        } else {
+            result = this.client.WriteMultiVars(items, items.length);
+        }
+        if (result != 0) {
+            logger.debug("Multi variable request failed, falling back to single requests, status: {}", result);
+            return false;
+        }
+        for (int i = 0; i < items.length; i++) {
+            if (items[i].Result == 0) {
+                batch.get(i).setTransferred();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits the provided tasks into groups that can be transferred with a single multi variable request without
+     * exceeding the negotiated PDU length, neither for the request nor for the response. Tasks that do not fit a PDU
+     * on their own are returned as singleton groups, they will be split by Moka7.
+     */
+    private List<List<S7PlcToplevelBlockTask>> toBatches(List<S7PlcToplevelBlockTask> tasks, Mode mode) {
+        final int pduLength = this.client.PDULength();
+        final List<List<S7PlcToplevelBlockTask>> result = new ArrayList<>();
+
+        List<S7PlcToplevelBlockTask> batch = new ArrayList<>();
+        int requestSize = MULTI_VAR_REQUEST_HEADER_SIZE;
+        int responseSize = MULTI_VAR_RESPONSE_HEADER_SIZE;
+
+        for (S7PlcToplevelBlockTask task : tasks) {
+            final int length = task.getEnd() - task.getStart();
+            // odd sized items are followed by a fill byte
+            final int paddedLength = length + (length & 1);
+            final int itemRequestSize;
+            final int itemResponseSize;
+            if (mode == Mode.READ) {
+                itemRequestSize = MULTI_VAR_ITEM_SPEC_SIZE;
+                itemResponseSize = MULTI_VAR_ITEM_DATA_HEADER_SIZE + paddedLength;
+            } else {
+                itemRequestSize = MULTI_VAR_ITEM_SPEC_SIZE + MULTI_VAR_ITEM_DATA_HEADER_SIZE + paddedLength;
+                itemResponseSize = MULTI_VAR_ITEM_RESULT_SIZE;
+            }
+            if (batch.size() == S7Client.MaxVars || requestSize + itemRequestSize > pduLength
+                    || responseSize + itemResponseSize > pduLength) {
+                if (!batch.isEmpty()) {
+                    result.add(batch);
+                }
+                batch = new ArrayList<>();
+                requestSize = MULTI_VAR_REQUEST_HEADER_SIZE;
+                responseSize = MULTI_VAR_RESPONSE_HEADER_SIZE;
+            }
+            batch.add(task);
+            requestSize += itemRequestSize;
+            responseSize += itemResponseSize;
+        }
+        if (!batch.isEmpty()) {
+            result.add(batch);
+        }
+        return result;
+    }
+
     public synchronized void write(int db, int offset, byte[] data) throws IOException {
         int result = this.client.WriteArea(S7.S7AreaDB, db, offset, data.length, data);
         if (result != 0) {
@@ -216,6 +394,35 @@ public final class S7PlcDriver extends AbstractBlockDriver<S7PlcDomain> implemen
         }
     }
 
+    private class S7PlcPreparedRead implements PreparedRead {
+
+        private final List<ChannelRecord> records;
+        private final List<BlockTask> tasks;
+
+        public S7PlcPreparedRead(List<ChannelRecord> records, List<BlockTask> tasks) {
+            this.records = records;
+            this.tasks = tasks;
+        }
+
+        @Override
+        public void close() throws Exception {
+        }
+
+        @Override
+        public List<ChannelRecord> execute() throws ConnectionException, KuraException {
+            synchronized (S7PlcDriver.this) {
+                connect();
+                runReadTasks(this.tasks);
+                return this.records;
+            }
+        }
+
+        @Override
+        public List<ChannelRecord> getChannelRecords() {
+            return this.records;
+        }
+    }
+
     @SuppressWarnings("serial")
     private class Moka7Exception extends IOException {
 
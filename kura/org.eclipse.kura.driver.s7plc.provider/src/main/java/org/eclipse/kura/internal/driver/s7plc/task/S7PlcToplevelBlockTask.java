@@ -22,6 +22,11 @@ import org.eclipse.kura.internal.driver.s7plc.S7PlcDriver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Transfers a contiguous range of a data block. The transfer can also be performed in advance by the driver, together
+ * with the ones of other tasks, in this case the task is notified using {@link #setTransferred()} and it will only
+ * process its children when run.
+ */
 public class S7PlcToplevelBlockTask extends ToplevelBlockTask {
 
     private static final Logger logger = LoggerFactory.getLogger(S7PlcDriver.class);
@@ -29,6 +34,8 @@ public class S7PlcToplevelBlockTask extends ToplevelBlockTask {
     private int areaNo;
     private ByteArrayBuffer data;
     private S7PlcDriver driver;
+    private boolean isTransferred;
+    private boolean isPrepared;
 
     public S7PlcToplevelBlockTask(S7PlcDriver driver, Mode mode, int dbNumber, int start, int end) {
         super(start, end, mode);
@@ -36,7 +43,52 @@ public class S7PlcToplevelBlockTask extends ToplevelBlockTask {
         this.driver = driver;
     }
 
+    public int getAreaNo() {
+        return this.areaNo;
+    }
+
+    /**
+     * Notifies this task that its buffer has already been transferred, the next {@link #processBuffer()} call will
+     * not perform any request.
+     */
+    public void setTransferred() {
+        this.isTransferred = true;
+    }
+
+    /**
+     * Fills the buffer of a write task by running its children, without transferring it. The next {@link #run()}
+     * call will not run the children again. If this method fails, the failure will be reported by {@link #run()}.
+     *
+     * @throws IOException
+     *             if the children fail
+     */
+    public void prepareWrite() throws IOException {
+        runChildren();
+        this.isPrepared = true;
+    }
+
+    @Override
+    public void run() throws IOException {
+        if (!this.isPrepared) {
+            super.run();
+            return;
+        }
+        this.isPrepared = false;
+        try {
+            processBuffer();
+            onSuccess();
+        } catch (Exception e) {
+            onFailure(e);
+            throw e;
+        }
+    }
+
+    @Override
     public void processBuffer() throws IOException {
+        if (this.isTransferred) {
+            this.isTransferred = false;
+            return;
+        }
         if (getMode() == Mode.READ) {
             logger.debug("Reading from PLC, DB{} offset: {} length: {}", areaNo, getStart(), getBuffer().getLength());
             driver.read(areaNo, getStart(), ((ByteArrayBuffer) getBuffer()).getBackingArray());
@@ -8,6 +8,9 @@
  ******************************************************************************/
 package org.eclipse.kura.internal.json.marshaller.unmarshaller;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -53,6 +56,21 @@ public class JsonMarshallUnmarshallImpl implements Marshaller, Unmarshaller {
         throw new KuraException(KuraErrorCode.INVALID_PARAMETER);
     }
 
+    @Override
+    public void marshal(Object object, Writer writer) throws KuraException {
+        if (object instanceof WireGraphConfiguration) {
+            JsonObject result = marshalWireGraphConfiguration((WireGraphConfiguration) object);
+            try {
+                result.writeTo(writer);
+                writer.flush();
+            } catch (IOException e) {
+                throw new KuraException(KuraErrorCode.ENCODE_ERROR, e);
+            }
+            return;
+        }
+        throw new KuraException(KuraErrorCode.INVALID_PARAMETER);
+    }
+
     private JsonObject marshalWireGraphConfiguration(WireGraphConfiguration graphConfiguration) {
         JsonArray wireConfigurationJson = marshalWireConfigurationList(graphConfiguration.getWireConfigurations());
         JsonArray wireComponentConfigurationJson = marshalWireComponentConfigurationList(
@@ -158,13 +176,28 @@ public class JsonMarshallUnmarshallImpl implements Marshaller, Unmarshaller {
         throw new IllegalArgumentException("Invalid parameter!");
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T unmarshal(Reader reader, Class<T> clazz) throws KuraException {
+        if (clazz.equals(WireGraphConfiguration.class)) {
+            try {
+                return (T) unmarshalToWireGraphConfiguration(Json.parse(reader).asObject());
+            } catch (IOException e) {
+                throw new KuraException(KuraErrorCode.DECODER_ERROR, e);
+            }
+        }
+        throw new IllegalArgumentException("Invalid parameter!");
+    }
+
     private WireGraphConfiguration unmarshalToWireGraphConfiguration(String jsonString) {
+        return unmarshalToWireGraphConfiguration(Json.parse(jsonString).asObject());
+    }
+
+    private WireGraphConfiguration unmarshalToWireGraphConfiguration(JsonObject json) {
 
         List<WireComponentConfiguration> wireCompConfigList = new ArrayList<>();
         List<WireConfiguration> wireConfigList = new ArrayList<>();
 
-        JsonObject json = Json.parse(jsonString).asObject();
-
         for (JsonObject.Member member : json) {
             String name = member.getName();
             JsonValue value = member.getValue();
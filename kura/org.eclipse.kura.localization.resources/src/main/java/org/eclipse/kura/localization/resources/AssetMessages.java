@@ -281,4 +281,16 @@ public interface AssetMessages {
     @En("Failed close prepared read")
     public String errorClosingPreparingRead();
 
+    @En("Asset PIDs cannot be null")
+    public String assetPidsNonNull();
+
+    @En("The read did not complete within the timeout")
+    public String readTimedOut();
+
+    @En("Error while reading asset {0}")
+    public String errorReadingAsset(String assetPid);
+
+    @En("Interrupted while waiting for asset reads to complete")
+    public String readInterrupted();
+
 }
@@ -699,4 +699,34 @@ public interface WireMessages {
 
     @En("Unexpected exception while dispatching envelope")
     public String fifoUnexpectedExceptionWhileDispatching();
+
+    @En("Wire Dispatcher cannot be null")
+    public String wireDispatcherNonNull();
+
+    @En("Interrupted while waiting for room in the mailbox")
+    public String dispatcherInterruptedWhileDispatching();
+
+    @En("Unexpected exception while delivering envelope")
+    public String dispatcherUnexpectedExceptionWhileDelivering();
+
+    @En("Emit listeners tracker cannot be null")
+    public String emitListenersNonNull();
+
+    @En("If true, the channel is emitted only if its value changed or if the maximum silence time elapsed")
+    public String reportByExceptionDesc();
+
+    @En("Minimum absolute difference from the last emitted value for reporting a change")
+    public String absoluteDeadbandDesc();
+
+    @En("Minimum difference from the last emitted value, in percent of that value, for reporting a change")
+    public String percentDeadbandDesc();
+
+    @En("Maximum time in milliseconds between two emissions of the channel, 0 means no limit")
+    public String maxSilenceDesc();
+
+    @En("Invalid value for channel property {0}, using default")
+    public String invalidChannelProperty(String property);
+
+    @En("No channel value changed, nothing to emit")
+    public String noChannelChanged();
 }
@@ -18,8 +18,13 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.eclipse.kura.KuraConnectionStatus;
 import org.eclipse.kura.comm.CommConnection;
@@ -37,7 +42,9 @@ import org.slf4j.LoggerFactory;
  * pairings to hold 32 bit data (see the configureDataMap for more detail).
  * <p>
  * The protocol supports RTU and ASCII mode operation.
- *
+ * <p>
+ * The asynchronous reads use a separate {@link ModbusTcpPipeline} connection in real MODBUS-TCP/IP mode, so that the
+ * synchronous functions keep their one request per round trip behavior.
  */
 public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
 
@@ -57,6 +64,8 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
     private String m_connType = null;
     private Communicate m_comm;
     private Properties m_modbusProperties = null;
+    private int m_pipelineDepth;
+    private ModbusTcpPipeline m_pipeline;
     private static int transactionIndex = 0;
 
     public void setConnectionFactory(ConnectionFactory connectionFactory) {
@@ -214,6 +223,10 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
         if (this.m_respTout < 0) {
             throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_CONFIGURATION);
         }
+        this.m_pipelineDepth = Integer.parseInt(connectionConfig.getProperty("pipelineDepth", "1"));
+        if (this.m_pipelineDepth < 1) {
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_CONFIGURATION);
+        }
         this.m_protConfigd = true;
 
         if (this.m_connConfigd) {
@@ -221,6 +234,7 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
             this.m_comm = null;
             this.m_connConfigd = false;
         }
+        closePipeline();
 
         if (PROTOCOL_CONNECTION_TYPE_SERIAL.equals(this.m_connType)) {
             if (!serialPortExists()) {
@@ -257,6 +271,7 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
 
     @Override
     public void disconnect() throws ModbusProtocolException {
+        closePipeline();
         if (this.m_connConfigd) {
             this.m_comm.disconnect();
             this.m_comm = null;
@@ -884,9 +899,6 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
             throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
         }
 
-        boolean[] ret = new boolean[count];
-        int index = 0;
-
         byte[] resp;
         /*
          * construct the command issue and get results
@@ -907,30 +919,7 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
         /*
          * process the response (address & CRC already confirmed)
          */
-        if (resp.length < 3 || resp.length < (resp[2] & 0xff) + 3) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
-        if ((resp[2] & 0xff) == (count + 7) / 8) {
-            byte mask = 1;
-            int byteOffset = 3;
-            for (int j = 0; j < count; j++, index++) {
-                // get this point's value
-                if ((resp[byteOffset] & mask) == mask) {
-                    ret[index] = true;
-                } else {
-                    ret[index] = false;
-                }
-                // advance the mask and offset index
-                if ((mask <<= 1) == 0) {
-                    mask = 1;
-                    byteOffset++;
-                }
-            }
-        } else {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_ADDRESS);
-        }
-
-        return ret;
+        return parseBits(resp, count);
     }
 
     @Override
@@ -939,9 +928,6 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
             throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
         }
 
-        boolean[] ret = new boolean[count];
-        int index = 0;
-
         byte[] resp;
         /*
          * construct the command issue and get results
@@ -962,30 +948,7 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
         /*
          * process the response (address & CRC already confirmed)
          */
-        if (resp.length < 3 || resp.length < (resp[2] & 0xff) + 3) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
-        if ((resp[2] & 0xff) == (count + 7) / 8) {
-            byte mask = 1;
-            int byteOffset = 3;
-            for (int j = 0; j < count; j++, index++) {
-                // get this point's value
-                if ((resp[byteOffset] & mask) == mask) {
-                    ret[index] = true;
-                } else {
-                    ret[index] = false;
-                }
-                // advance the mask and offset index
-                if ((mask <<= 1) == 0) {
-                    mask = 1;
-                    byteOffset++;
-                }
-            }
-        } else {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_ADDRESS);
-        }
-
-        return ret;
+        return parseBits(resp, count);
     }
 
     @Override
@@ -1089,9 +1052,6 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
             throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
         }
 
-        int[] ret = new int[count];
-        int index = 0;
-
         byte[] resp;
         /*
          * construct the command issue and get results, putting the results
@@ -1113,24 +1073,7 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
         /*
          * process the response (address & CRC already confirmed)
          */
-        if (resp.length < 3 || resp.length < (resp[2] & 0xff) + 3) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
-        if ((resp[2] & 0xff) == count * 2) {
-            int byteOffset = 3;
-            for (int j = 0; j < count; j++, index++) {
-                int val = resp[byteOffset + ModbusDataOrder.MODBUS_WORD_ORDER_BIG_ENDIAN.charAt(0) - '1'] & 0xff;
-                val <<= 8;
-                val += resp[byteOffset + ModbusDataOrder.MODBUS_WORD_ORDER_BIG_ENDIAN.charAt(1) - '1'] & 0xff;
-
-                ret[index] = val;
-
-                byteOffset += 2;
-            }
-        } else {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_ADDRESS);
-        }
-        return ret;
+        return parseRegisters(resp, count);
     }
 
     @Override
@@ -1140,9 +1083,6 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
             throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
         }
 
-        int[] ret = new int[count];
-        int index = 0;
-
         byte[] resp;
         /*
          * construct the command issue and get results, putting the results
@@ -1164,24 +1104,7 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
         /*
          * process the response (address & CRC already confirmed)
          */
-        if (resp.length < 3 || resp.length < (resp[2] & 0xff) + 3) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
-        if ((resp[2] & 0xff) == count * 2) {
-            int byteOffset = 3;
-            for (int j = 0; j < count; j++, index++) {
-                int val = resp[byteOffset + ModbusDataOrder.MODBUS_WORD_ORDER_BIG_ENDIAN.charAt(0) - '1'] & 0xff;
-                val <<= 8;
-                val += resp[byteOffset + ModbusDataOrder.MODBUS_WORD_ORDER_BIG_ENDIAN.charAt(1) - '1'] & 0xff;
-
-                ret[index] = val;
-
-                byteOffset += 2;
-            }
-        } else {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_ADDRESS);
-        }
-        return ret;
+        return parseRegisters(resp, count);
     }
 
     @Override
@@ -1399,6 +1322,229 @@ public class ModbusProtocolDevice implements ModbusProtocolDeviceService {
         return mce;
     }
 
+    private static boolean[] parseBits(byte[] resp, int count) throws ModbusProtocolException {
+        if (resp.length < 3 || resp.length < (resp[2] & 0xff) + 3) {
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
+        }
+        if ((resp[2] & 0xff) != (count + 7) / 8) {
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_ADDRESS);
+        }
+        boolean[] ret = new boolean[count];
+        byte mask = 1;
+        int byteOffset = 3;
+        for (int j = 0; j < count; j++) {
+            // get this point's value
+            ret[j] = (resp[byteOffset] & mask) == mask;
+            // advance the mask and offset index
+            if ((mask <<= 1) == 0) {
+                mask = 1;
+                byteOffset++;
+            }
+        }
+        return ret;
+    }
+
+    private static int[] parseRegisters(byte[] resp, int count) throws ModbusProtocolException {
+        if (resp.length < 3 || resp.length < (resp[2] & 0xff) + 3) {
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
+        }
+        if ((resp[2] & 0xff) != count * 2) {
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_ADDRESS);
+        }
+        int[] ret = new int[count];
+        int byteOffset = 3;
+        for (int j = 0; j < count; j++) {
+            int val = resp[byteOffset + ModbusDataOrder.MODBUS_WORD_ORDER_BIG_ENDIAN.charAt(0) - '1'] & 0xff;
+            val <<= 8;
+            val += resp[byteOffset + ModbusDataOrder.MODBUS_WORD_ORDER_BIG_ENDIAN.charAt(1) - '1'] & 0xff;
+            ret[j] = val;
+            byteOffset += 2;
+        }
+        return ret;
+    }
+
+    @Override
+    public Future<ModbusReadResult> readAsync(ModbusReadRequest request) throws ModbusProtocolException {
+        if (!this.m_connConfigd) {
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
+        }
+        int maxCount = request.isBitRead() ? 2000 : 125;
+        if (request.getCount() < 1 || request.getCount() > maxCount) {
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_LENGTH);
+        }
+
+        if (!PROTOCOL_CONNECTION_TYPE_ETHER_TCP.equals(this.m_connType)) {
+            // no transaction id to match the responses, execute the request now
+            try {
+                return new ReadFuture(request, executeRead(request));
+            } catch (ModbusProtocolException e) {
+                return new ReadFuture(request, ModbusReadResult.ofException(request, e));
+            }
+        }
+
+        byte[] cmd = new byte[6];
+        cmd[0] = (byte) request.getUnitAddr();
+        cmd[1] = (byte) request.getFunctionCode();
+        cmd[2] = (byte) (request.getDataAddress() / 256);
+        cmd[3] = (byte) (request.getDataAddress() % 256);
+        cmd[4] = (byte) (request.getCount() / 256);
+        cmd[5] = (byte) (request.getCount() % 256);
+
+        return new ReadFuture(request, getPipeline().submit(cmd));
+    }
+
+    @Override
+    public List<ModbusReadResult> read(List<ModbusReadRequest> requests) throws ModbusProtocolException {
+        if (!this.m_connConfigd) {
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
+        }
+
+        // submit everything first, the pipeline sends the requests as soon as it has room
+        List<Future<ModbusReadResult>> futures = new ArrayList<Future<ModbusReadResult>>(requests.size());
+        for (ModbusReadRequest request : requests) {
+            try {
+                futures.add(readAsync(request));
+            } catch (ModbusProtocolException e) {
+                futures.add(new ReadFuture(request, ModbusReadResult.ofException(request, e)));
+            }
+        }
+
+        List<ModbusReadResult> results = new ArrayList<ModbusReadResult>(requests.size());
+        for (int i = 0; i < futures.size(); i++) {
+            results.add(((ReadFuture) futures.get(i)).getResult());
+        }
+        return results;
+    }
+
+    private ModbusReadResult executeRead(ModbusReadRequest request) throws ModbusProtocolException {
+        int unitAddr = request.getUnitAddr();
+        int dataAddress = request.getDataAddress();
+        int count = request.getCount();
+        switch (request.getFunctionCode()) {
+        case ModbusFunctionCodes.READ_COIL_STATUS:
+            return ModbusReadResult.ofBits(request, readCoils(unitAddr, dataAddress, count));
+        case ModbusFunctionCodes.READ_INPUT_STATUS:
+            return ModbusReadResult.ofBits(request, readDiscreteInputs(unitAddr, dataAddress, count));
+        case ModbusFunctionCodes.READ_HOLDING_REGS:
+            return ModbusReadResult.ofRegisters(request, readHoldingRegisters(unitAddr, dataAddress, count));
+        default:
+            return ModbusReadResult.ofRegisters(request, readInputRegisters(unitAddr, dataAddress, count));
+        }
+    }
+
+    private synchronized ModbusTcpPipeline getPipeline() throws ModbusProtocolException {
+        if (this.m_pipeline == null) {
+            String ipAddress = this.m_modbusProperties.getProperty("ipAddress");
+            String port = this.m_modbusProperties.getProperty("ethport");
+            if (ipAddress == null || port == null) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_CONFIGURATION);
+            }
+            this.m_pipeline = new ModbusTcpPipeline(ipAddress, Integer.parseInt(port), this.m_pipelineDepth,
+                    this.m_respTout);
+        }
+        return this.m_pipeline;
+    }
+
+    private synchronized void closePipeline() {
+        if (this.m_pipeline != null) {
+            this.m_pipeline.close();
+            this.m_pipeline = null;
+        }
+    }
+
+    /**
+     * Future result of an asynchronous read, the response is decoded by the thread waiting for it.
+     */
+    private static final class ReadFuture implements Future<ModbusReadResult> {
+
+        private final ModbusReadRequest request;
+        private final ModbusTcpPipeline.Transaction transaction;
+        private ModbusReadResult result;
+
+        ReadFuture(ModbusReadRequest request, ModbusTcpPipeline.Transaction transaction) {
+            this.request = request;
+            this.transaction = transaction;
+        }
+
+        ReadFuture(ModbusReadRequest request, ModbusReadResult result) {
+            this.request = request;
+            this.transaction = null;
+            this.result = result;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return this.transaction != null && this.transaction.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return this.transaction != null && this.transaction.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return this.transaction == null || this.transaction.isDone();
+        }
+
+        @Override
+        public ModbusReadResult get() throws InterruptedException, ExecutionException {
+            if (this.transaction != null) {
+                this.transaction.get();
+            }
+            return toValue(getResult());
+        }
+
+        @Override
+        public ModbusReadResult get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            if (this.transaction != null) {
+                this.transaction.get(timeout, unit);
+            }
+            return toValue(getResult());
+        }
+
+        private static ModbusReadResult toValue(ModbusReadResult result) throws ExecutionException {
+            if (!result.isSuccessful()) {
+                throw new ExecutionException(result.getException());
+            }
+            return result;
+        }
+
+        /**
+         * Waits for the response and decodes it, a failure is reported by the returned result.
+         */
+        synchronized ModbusReadResult getResult() {
+            if (this.result == null) {
+                try {
+                    this.result = decode(this.transaction.getResponse());
+                } catch (ModbusProtocolException e) {
+                    this.result = ModbusReadResult.ofException(this.request, e);
+                }
+            }
+            return this.result;
+        }
+
+        private ModbusReadResult decode(byte[] resp) throws ModbusProtocolException {
+            if (resp.length < 3 || (resp[0] & 0xff) != (this.request.getUnitAddr() & 0xff)) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
+                        "incorrect modbus id " + String.format("%02X", resp[0]));
+            }
+            if ((resp[1] & 0x7f) != this.request.getFunctionCode()) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
+                        "incorrect function number " + String.format("%02X", resp[1]));
+            }
+            if ((resp[1] & 0x80) == 0x80) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
+                        "Modbus responds an error = " + String.format("%02X", resp[2]));
+            }
+            if (this.request.isBitRead()) {
+                return ModbusReadResult.ofBits(this.request, parseBits(resp, this.request.getCount()));
+            }
+            return ModbusReadResult.ofRegisters(this.request, parseRegisters(resp, this.request.getCount()));
+        }
+    }
+
     /**
      * Calculates and returns the next transaction index for Modbus TCP.
      * 
@@ -11,7 +11,9 @@
  *******************************************************************************/
 package org.eclipse.kura.protocol.modbus;
 
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Future;
 
 import org.eclipse.kura.KuraConnectionStatus;
 
@@ -56,6 +58,10 @@ import org.eclipse.kura.KuraConnectionStatus;
  * in the attached
  * field device.
  * </ul>
+ * <p>
+ * The read functions are also available as asynchronous requests through {@link #readAsync(ModbusReadRequest)} and
+ * {@link #read(List)}. In real MODBUS-TCP/IP mode several requests are kept in flight on the same socket, up to the
+ * configured pipeline depth, and the responses are matched to the requests by transaction id.
  */
 
 public interface ModbusProtocolDeviceService {
@@ -114,6 +120,8 @@ public interface ModbusProtocolDeviceService {
      *            <li>transmissionMode : modbus transmission mode, can be RTU or ASCII, in Ethernet mode only RTU is
      *            supported
      *            <li>respTimeout : Timeout in milliseconds on a question/response request.
+     *            <li>pipelineDepth : optional, maximum number of asynchronous requests in flight on the socket in
+     *            real MODBUS-TCP/IP mode, 1 if not specified
      *            </ul>
      *            
      * @throws ModbusProtocolException with a {@link ModbusProtocolErrorCode#INVALID_CONFIGURATION}
@@ -374,4 +382,38 @@ public interface ModbusProtocolDeviceService {
      *             the cause of the exception
      */
     public void writeMultipleRegister(int unitAddr, int dataAddress, int[] data) throws ModbusProtocolException;
+
+    /**
+     * Submits a read of coils, discrete inputs, holding registers or input registers without waiting for the
+     * response.
+     * <p>
+     * In real MODBUS-TCP/IP mode the request is sent on a pipelined connection, where up to pipelineDepth requests
+     * are in flight at the same time and every request has its own respTimeout. In the other modes the request is
+     * executed before returning and the returned future is already completed.
+     *
+     * @param request
+     *            the read request
+     * @return the future result of the request. A failed request completes the future with an
+     *         {@link java.util.concurrent.ExecutionException} whose cause is a {@link ModbusProtocolException}
+     * @throws ModbusProtocolException with a {@link ModbusProtocolErrorCode#NOT_CONNECTED}
+     *             current connection is in a status other than <b>CONNECTED</b>
+     * @throws ModbusProtocolException with a {@link ModbusProtocolErrorCode#CONNECTION_FAILURE}
+     *             if the pipelined connection cannot be opened
+     * @since 1.1
+     */
+    public Future<ModbusReadResult> readAsync(ModbusReadRequest request) throws ModbusProtocolException;
+
+    /**
+     * Executes a batch of read requests, keeping as many of them in flight as the pipeline depth allows, and waits
+     * for all the responses.
+     *
+     * @param requests
+     *            the read requests
+     * @return the results, in the same order of the requests. The failure of a request is reported by
+     *         {@link ModbusReadResult#getException()} and does not affect the other requests
+     * @throws ModbusProtocolException with a {@link ModbusProtocolErrorCode#NOT_CONNECTED}
+     *             current connection is in a status other than <b>CONNECTED</b>
+     * @since 1.1
+     */
+    public List<ModbusReadResult> read(List<ModbusReadRequest> requests) throws ModbusProtocolException;
 }
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.protocol.modbus;
+
+/**
+ * The ModbusReadRequest class describes a read of a contiguous block of data points, submitted through
+ * {@link ModbusProtocolDeviceService#readAsync(ModbusReadRequest)} or
+ * {@link ModbusProtocolDeviceService#read(java.util.List)}.
+ * <ul>
+ * <li>unitAddr : modbus slave address (must be unique in the range 1 - 247)
+ * <li>functionCode : one of {@link ModbusFunctionCodes#READ_COIL_STATUS},
+ * {@link ModbusFunctionCodes#READ_INPUT_STATUS}, {@link ModbusFunctionCodes#READ_HOLDING_REGS} or
+ * {@link ModbusFunctionCodes#READ_INPUT_REGS}
+ * <li>dataAddress : starting address
+ * <li>count : quantity of coils, inputs or registers
+ * </ul>
+ *
+ * @since 1.1
+ */
+public class ModbusReadRequest {
+
+    private final int unitAddr;
+    private final int functionCode;
+    private final int dataAddress;
+    private final int count;
+
+    /**
+     * @throws IllegalArgumentException
+     *             if the function code is not a read function code
+     */
+    public ModbusReadRequest(int unitAddr, int functionCode, int dataAddress, int count) {
+        if (functionCode != ModbusFunctionCodes.READ_COIL_STATUS
+                && functionCode != ModbusFunctionCodes.READ_INPUT_STATUS
+                && functionCode != ModbusFunctionCodes.READ_HOLDING_REGS
+                && functionCode != ModbusFunctionCodes.READ_INPUT_REGS) {
+            throw new IllegalArgumentException("Not a read function code: " + functionCode);
+        }
+        this.unitAddr = unitAddr;
+        this.functionCode = functionCode;
+        this.dataAddress = dataAddress;
+        this.count = count;
+    }
+
+    public int getUnitAddr() {
+        return this.unitAddr;
+    }
+
+    public int getFunctionCode() {
+        return this.functionCode;
+    }
+
+    public int getDataAddress() {
+        return this.dataAddress;
+    }
+
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * @return true if the request reads coils or discrete inputs, false if it reads registers
+     */
+    public boolean isBitRead() {
+        return this.functionCode == ModbusFunctionCodes.READ_COIL_STATUS
+                || this.functionCode == ModbusFunctionCodes.READ_INPUT_STATUS;
+    }
+
+    @Override
+    public String toString() {
+        return "ModbusReadRequest [unitAddr=" + this.unitAddr + ", functionCode=" + this.functionCode
+                + ", dataAddress=" + this.dataAddress + ", count=" + this.count + "]";
+    }
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.protocol.modbus;
+
+/**
+ * The ModbusReadResult class contains the outcome of a {@link ModbusReadRequest}.
+ * <ul>
+ * <li>bits : the requested data points of a coils or discrete inputs read, null otherwise
+ * <li>registers : the requested data points of a registers read (data registers on 2 bytes), null otherwise
+ * <li>exception : the failure of the request, null if the request succeeded
+ * </ul>
+ *
+ * @since 1.1
+ */
+public class ModbusReadResult {
+
+    private final ModbusReadRequest request;
+    private final boolean[] bits;
+    private final int[] registers;
+    private final ModbusProtocolException exception;
+
+    private ModbusReadResult(ModbusReadRequest request, boolean[] bits, int[] registers,
+            ModbusProtocolException exception) {
+        this.request = request;
+        this.bits = bits;
+        this.registers = registers;
+        this.exception = exception;
+    }
+
+    static ModbusReadResult ofBits(ModbusReadRequest request, boolean[] bits) {
+        return new ModbusReadResult(request, bits, null, null);
+    }
+
+    static ModbusReadResult ofRegisters(ModbusReadRequest request, int[] registers) {
+        return new ModbusReadResult(request, null, registers, null);
+    }
+
+    static ModbusReadResult ofException(ModbusReadRequest request, ModbusProtocolException exception) {
+        return new ModbusReadResult(request, null, null, exception);
+    }
+
+    public ModbusReadRequest getRequest() {
+        return this.request;
+    }
+
+    public boolean[] getBits() {
+        return this.bits;
+    }
+
+    public int[] getRegisters() {
+        return this.registers;
+    }
+
+    public ModbusProtocolException getException() {
+        return this.exception;
+    }
+
+    public boolean isSuccessful() {
+        return this.exception == null;
+    }
+}
@@ -0,0 +1,443 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.protocol.modbus;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Modbus TCP transport keeping several transactions in flight on the same socket.
+ * <p>
+ * Requests are framed with an MBAP header carrying a transaction id and written as soon as the pipeline has room,
+ * up to the configured depth. A single I/O thread reads the responses, which the server may send in any order, and
+ * matches them to the pending transactions by transaction id. Every transaction has its own response timeout,
+ * counted from the moment the request is written on the socket. A failure of the socket fails all the pending
+ * transactions, the connection is opened again by the next submitted request.
+ */
+final class ModbusTcpPipeline {
+
+    private static final Logger s_logger = LoggerFactory.getLogger(ModbusTcpPipeline.class);
+
+    private static final int MBAP_HEADER_LENGTH = 6;
+
+    /** Maximum length of a Modbus TCP frame: MBAP header, unit id and a 253 bytes PDU. */
+    private static final int MAX_FRAME_LENGTH = 260;
+
+    private final String ipAddress;
+    private final int port;
+    private final int depth;
+    private final int respTimeout;
+
+    private final Object lock = new Object();
+    private final LinkedList<Transaction> queued = new LinkedList<Transaction>();
+    private final Map<Integer, Transaction> inFlight = new HashMap<Integer, Transaction>();
+
+    private SocketChannel channel;
+    private Selector selector;
+    private Thread ioThread;
+    private int transactionIndex;
+    private boolean closed;
+
+    /**
+     * @param ipAddress
+     *            address of the field device
+     * @param port
+     *            TCP port of the field device
+     * @param depth
+     *            maximum number of transactions in flight on the socket
+     * @param respTimeout
+     *            timeout in milliseconds on the response of each transaction
+     */
+    ModbusTcpPipeline(String ipAddress, int port, int depth, int respTimeout) {
+        this.ipAddress = ipAddress;
+        this.port = port;
+        this.depth = Math.max(1, depth);
+        this.respTimeout = respTimeout;
+    }
+
+    /**
+     * Queues a request for transmission.
+     *
+     * @param pdu
+     *            the request starting with the unit id, without MBAP header
+     * @return the transaction, completed with the response starting with the unit id
+     * @throws ModbusProtocolException
+     *             if the connection to the field device cannot be opened
+     */
+    Transaction submit(byte[] pdu) throws ModbusProtocolException {
+        synchronized (this.lock) {
+            if (this.closed) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
+            }
+            if (this.channel == null) {
+                open();
+            }
+            Transaction transaction = new Transaction(pdu);
+            this.queued.addLast(transaction);
+            this.selector.wakeup();
+            return transaction;
+        }
+    }
+
+    /**
+     * Closes the socket and fails the pending transactions.
+     */
+    void close() {
+        Thread thread;
+        synchronized (this.lock) {
+            this.closed = true;
+            thread = this.ioThread;
+            shutdown(new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED));
+        }
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join(this.respTimeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    boolean isConnected() {
+        synchronized (this.lock) {
+            return this.channel != null;
+        }
+    }
+
+    private void open() throws ModbusProtocolException {
+        SocketChannel newChannel = null;
+        try {
+            newChannel = SocketChannel.open();
+            newChannel.socket().setTcpNoDelay(true);
+            newChannel.socket().connect(new InetSocketAddress(this.ipAddress, this.port), this.respTimeout);
+            newChannel.configureBlocking(false);
+            Selector newSelector = Selector.open();
+            newChannel.register(newSelector, SelectionKey.OP_READ);
+
+            this.channel = newChannel;
+            this.selector = newSelector;
+            this.ioThread = new Thread(new IoLoop(newChannel, newSelector),
+                    "ModbusTcpPipeline-" + this.ipAddress + ":" + this.port);
+            this.ioThread.setDaemon(true);
+            this.ioThread.start();
+            s_logger.info("Pipelined TCP connected to {}:{}, depth {}",
+                    new Object[] { this.ipAddress, this.port, this.depth });
+        } catch (IOException e) {
+            closeQuietly(newChannel);
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.CONNECTION_FAILURE, e.getMessage());
+        }
+    }
+
+    /**
+     * Must be called holding the lock.
+     */
+    private void shutdown(ModbusProtocolException cause) {
+        List<Transaction> failed = new ArrayList<Transaction>(this.inFlight.values());
+        failed.addAll(this.queued);
+        this.inFlight.clear();
+        this.queued.clear();
+        for (Transaction transaction : failed) {
+            transaction.fail(cause);
+        }
+
+        closeQuietly(this.channel);
+        if (this.selector != null) {
+            this.selector.wakeup();
+            try {
+                this.selector.close();
+            } catch (IOException e) {
+                s_logger.debug("Error closing selector", e);
+            }
+        }
+        this.channel = null;
+        this.selector = null;
+        this.ioThread = null;
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            s_logger.debug("Error closing TCP channel", e);
+        }
+    }
+
+    private int nextTransactionId() {
+        do {
+            this.transactionIndex = (this.transactionIndex + 1) & 0xffff;
+        } while (this.inFlight.containsKey(this.transactionIndex));
+        return this.transactionIndex;
+    }
+
+    /**
+     * The I/O loop owning the socket: writes the queued requests while the pipeline has room, reads and dispatches
+     * the responses and expires the transactions waiting for too long.
+     */
+    private final class IoLoop implements Runnable {
+
+        private final SocketChannel ioChannel;
+        private final Selector ioSelector;
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(MAX_FRAME_LENGTH * 4);
+        private final LinkedList<ByteBuffer> writeQueue = new LinkedList<ByteBuffer>();
+
+        IoLoop(SocketChannel channel, Selector selector) {
+            this.ioChannel = channel;
+            this.ioSelector = selector;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    long timeout;
+                    synchronized (ModbusTcpPipeline.this.lock) {
+                        if (ModbusTcpPipeline.this.channel != this.ioChannel) {
+                            return;
+                        }
+                        fillPipeline();
+                        timeout = expireTransactions();
+                    }
+                    flushWrites();
+                    this.ioSelector.select(timeout);
+                    if (this.ioSelector.selectedKeys().isEmpty()) {
+                        continue;
+                    }
+                    this.ioSelector.selectedKeys().clear();
+                    read();
+                }
+            } catch (Exception e) {
+                synchronized (ModbusTcpPipeline.this.lock) {
+                    if (ModbusTcpPipeline.this.channel == this.ioChannel) {
+                        s_logger.error("Socket disconnect in pipelined transport: " + e);
+                        shutdown(new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE,
+                                "Socket failure: " + e.getMessage()));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Moves the queued requests in flight while the pipeline has room. Must be called holding the lock.
+         */
+        private void fillPipeline() {
+            while (ModbusTcpPipeline.this.inFlight.size() < ModbusTcpPipeline.this.depth
+                    && !ModbusTcpPipeline.this.queued.isEmpty()) {
+                Transaction transaction = ModbusTcpPipeline.this.queued.removeFirst();
+                if (transaction.isDone()) {
+                    continue;
+                }
+                int id = nextTransactionId();
+                byte[] pdu = transaction.request;
+                ByteBuffer frame = ByteBuffer.allocate(MBAP_HEADER_LENGTH + pdu.length);
+                frame.putShort((short) id);
+                frame.putShort((short) 0);
+                frame.putShort((short) pdu.length);
+                frame.put(pdu);
+                frame.flip();
+
+                transaction.deadline = System.currentTimeMillis() + ModbusTcpPipeline.this.respTimeout;
+                ModbusTcpPipeline.this.inFlight.put(id, transaction);
+                this.writeQueue.addLast(frame);
+            }
+        }
+
+        /**
+         * Fails the transactions whose response timed out. Must be called holding the lock.
+         *
+         * @return the time to wait for the next deadline, 0 if nothing is in flight
+         */
+        private long expireTransactions() {
+            long now = System.currentTimeMillis();
+            long next = 0;
+            Iterator<Transaction> it = ModbusTcpPipeline.this.inFlight.values().iterator();
+            while (it.hasNext()) {
+                Transaction transaction = it.next();
+                long remaining = transaction.deadline - now;
+                if (remaining <= 0 || transaction.isDone()) {
+                    it.remove();
+                    transaction.fail(
+                            new ModbusProtocolException(ModbusProtocolErrorCode.RESPONSE_TIMEOUT, "Recv timeout"));
+                } else if (next == 0 || remaining < next) {
+                    next = remaining;
+                }
+            }
+            return next;
+        }
+
+        private void flushWrites() throws IOException {
+            while (!this.writeQueue.isEmpty()) {
+                ByteBuffer frame = this.writeQueue.getFirst();
+                this.ioChannel.write(frame);
+                if (frame.hasRemaining()) {
+                    // the socket buffer is full, the rest is written after the next select
+                    this.ioChannel.keyFor(this.ioSelector).interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                this.writeQueue.removeFirst();
+            }
+            SelectionKey key = this.ioChannel.keyFor(this.ioSelector);
+            if (key != null && key.isValid()) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        private void read() throws IOException {
+            int count = this.ioChannel.read(this.readBuffer);
+            if (count < 0) {
+                throw new IOException("Connection closed by the field device");
+            }
+            this.readBuffer.flip();
+            while (this.readBuffer.remaining() >= MBAP_HEADER_LENGTH) {
+                int start = this.readBuffer.position();
+                int id = this.readBuffer.getShort(start) & 0xffff;
+                int length = this.readBuffer.getShort(start + 4) & 0xffff;
+                if (length == 0 || length > MAX_FRAME_LENGTH - MBAP_HEADER_LENGTH) {
+                    throw new IOException("Invalid MBAP length " + length);
+                }
+                if (this.readBuffer.remaining() < MBAP_HEADER_LENGTH + length) {
+                    break;
+                }
+                byte[] response = new byte[length];
+                this.readBuffer.position(start + MBAP_HEADER_LENGTH);
+                this.readBuffer.get(response);
+                dispatch(id, response);
+            }
+            this.readBuffer.compact();
+        }
+
+        private void dispatch(int id, byte[] response) {
+            Transaction transaction;
+            synchronized (ModbusTcpPipeline.this.lock) {
+                transaction = ModbusTcpPipeline.this.inFlight.remove(id);
+            }
+            if (transaction == null) {
+                s_logger.debug("Discarding response to unknown or expired transaction {}", id);
+                return;
+            }
+            transaction.complete(response);
+        }
+    }
+
+    /**
+     * A request submitted to the pipeline and its pending response.
+     */
+    static final class Transaction implements Future<byte[]> {
+
+        private final byte[] request;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile byte[] response;
+        private volatile ModbusProtocolException exception;
+        private volatile boolean cancelled;
+        private long deadline;
+
+        private Transaction(byte[] request) {
+            this.request = request;
+        }
+
+        private void complete(byte[] response) {
+            if (this.done.getCount() > 0) {
+                this.response = response;
+                this.done.countDown();
+            }
+        }
+
+        private void fail(ModbusProtocolException exception) {
+            if (this.done.getCount() > 0) {
+                this.exception = exception;
+                this.done.countDown();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (this.done.getCount() == 0) {
+                return false;
+            }
+            this.cancelled = true;
+            fail(new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE, "Cancelled"));
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return this.done.getCount() == 0;
+        }
+
+        @Override
+        public byte[] get() throws InterruptedException, ExecutionException {
+            this.done.await();
+            return getOrThrow();
+        }
+
+        @Override
+        public byte[] get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            if (!this.done.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            return getOrThrow();
+        }
+
+        private byte[] getOrThrow() throws ExecutionException {
+            if (this.exception != null) {
+                throw new ExecutionException(this.exception);
+            }
+            return this.response;
+        }
+
+        /**
+         * Waits for the response and returns it.
+         *
+         * @return the response starting with the unit id
+         * @throws ModbusProtocolException
+         *             if the transaction failed
+         */
+        byte[] getResponse() throws ModbusProtocolException {
+            try {
+                this.done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.TRANSACTION_FAILURE, "Interrupted");
+            }
+            if (this.exception != null) {
+                throw this.exception;
+            }
+            return this.response;
+        }
+    }
+}
@@ -20,11 +20,13 @@ import java.util.stream.Collectors;
 
 import javax.annotation.security.RolesAllowed;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -72,6 +74,15 @@ public class AssetRestService {
                 .getServiceReferences(Asset.class, null);
     }
 
+    @GET
+    @RolesAllowed("assets")
+    @Path("/_read")
+    @Produces(MediaType.APPLICATION_JSON)
+    public JsonElement readAll(@QueryParam("timeout") @DefaultValue("30000") long timeout)
+            throws InvalidSyntaxException {
+        return getChannelSerializer().toJsonTree(this.assetService.readAllChannels(listAssetPids(), timeout));
+    }
+
     @GET
     @RolesAllowed("assets")
     @Path("/{pid}")
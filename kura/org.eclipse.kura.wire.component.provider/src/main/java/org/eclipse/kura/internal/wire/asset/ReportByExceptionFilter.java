@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.asset;
+
+import static org.eclipse.kura.internal.wire.asset.WireAssetChannelDescriptor.ABSOLUTE_DEADBAND;
+import static org.eclipse.kura.internal.wire.asset.WireAssetChannelDescriptor.MAX_SILENCE;
+import static org.eclipse.kura.internal.wire.asset.WireAssetChannelDescriptor.PERCENT_DEADBAND;
+import static org.eclipse.kura.internal.wire.asset.WireAssetChannelDescriptor.REPORT_BY_EXCEPTION;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.channel.Channel;
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.localization.resources.WireMessages;
+import org.eclipse.kura.type.TypedValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Class ReportByExceptionFilter keeps track of the last value emitted for each channel of a {@link WireAsset}
+ * and drops the read results of the channels in report by exception mode whose value did not change.
+ * <br/>
+ * <br/>
+ * The value of a numeric channel is considered changed if its difference from the last emitted value exceeds both
+ * the absolute deadband and the percent deadband of the channel, the value of other channels is considered changed
+ * if it is not equal to the last emitted value. A channel is emitted regardless of its value if the time elapsed
+ * since its last emission, measured using the channel record timestamps, is greater than or equal to the maximum
+ * silence time of the channel.
+ * <br/>
+ * <br/>
+ * The state of a channel is discarded if the channel configuration changes or if a read fails, so the next successful
+ * read is always emitted.
+ */
+final class ReportByExceptionFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportByExceptionFilter.class);
+
+    private static final WireMessages message = LocalizationAdapter.adapt(WireMessages.class);
+
+    private final Map<String, ChannelState> states = new HashMap<>();
+
+    /**
+     * Returns the records that should be emitted, failed reads and records of channels that are not in report by
+     * exception mode are always returned.
+     *
+     * @param channelRecords
+     *            the read results
+     * @param channels
+     *            the channels of the asset
+     * @return the records to be emitted, in the same order as the provided ones
+     */
+    synchronized List<ChannelRecord> filter(final List<ChannelRecord> channelRecords,
+            final Map<String, Channel> channels) {
+        this.states.keySet().retainAll(channels.keySet());
+
+        final List<ChannelRecord> result = new ArrayList<>(channelRecords.size());
+        for (final ChannelRecord channelRecord : channelRecords) {
+            final String channelName = channelRecord.getChannelName();
+            final Channel channel = channels.get(channelName);
+            if (channel == null) {
+                result.add(channelRecord);
+                continue;
+            }
+
+            ChannelState state = this.states.get(channelName);
+            if (state == null || state.channel != channel) {
+                state = new ChannelState(channel);
+                this.states.put(channelName, state);
+            }
+
+            if (!state.isReportByException) {
+                result.add(channelRecord);
+            } else if (channelRecord.getChannelStatus().getChannelFlag() == ChannelFlag.FAILURE) {
+                state.reset();
+                result.add(channelRecord);
+            } else if (state.shouldReport(channelRecord)) {
+                result.add(channelRecord);
+            }
+        }
+        return result;
+    }
+
+    private static final class ChannelState {
+
+        private final Channel channel;
+        private final boolean isReportByException;
+        private final double absoluteDeadband;
+        private final double percentDeadband;
+        private final long maxSilence;
+
+        private TypedValue<?> lastValue;
+        private long lastTimestamp;
+
+        ChannelState(final Channel channel) {
+            this.channel = channel;
+
+            final Map<String, Object> config = channel.getConfiguration();
+            this.isReportByException = Boolean.parseBoolean(String.valueOf(config.get(REPORT_BY_EXCEPTION)));
+            this.absoluteDeadband = Math.abs(getDouble(config, ABSOLUTE_DEADBAND));
+            this.percentDeadband = Math.abs(getDouble(config, PERCENT_DEADBAND));
+            this.maxSilence = getLong(config, MAX_SILENCE);
+        }
+
+        boolean shouldReport(final ChannelRecord channelRecord) {
+            final TypedValue<?> value = channelRecord.getValue();
+            final long timestamp = channelRecord.getTimestamp();
+
+            final boolean isReported = this.lastValue == null || isChanged(value)
+                    || this.maxSilence > 0 && timestamp - this.lastTimestamp >= this.maxSilence;
+
+            if (isReported) {
+                this.lastValue = value;
+                this.lastTimestamp = timestamp;
+            }
+            return isReported;
+        }
+
+        void reset() {
+            this.lastValue = null;
+        }
+
+        private boolean isChanged(final TypedValue<?> value) {
+            if (value == null) {
+                return true;
+            }
+            final Object current = value.getValue();
+            final Object last = this.lastValue.getValue();
+            final boolean hasDeadband = this.absoluteDeadband > 0 || this.percentDeadband > 0;
+
+            if (!hasDeadband || !(current instanceof Number) || !(last instanceof Number)) {
+                return !value.equals(this.lastValue);
+            }
+
+            final double lastNumber = ((Number) last).doubleValue();
+            final double delta = Math.abs(((Number) current).doubleValue() - lastNumber);
+            if (Double.isNaN(delta)) {
+                return !value.equals(this.lastValue);
+            }
+            return delta > this.absoluteDeadband && delta > Math.abs(lastNumber) * this.percentDeadband / 100;
+        }
+
+        private static double getDouble(final Map<String, Object> config, final String key) {
+            final Object value = config.get(key);
+            if (value == null) {
+                return 0;
+            }
+            try {
+                return Double.parseDouble(value.toString());
+            } catch (final NumberFormatException e) {
+                logger.warn(message.invalidChannelProperty(key), e);
+                return 0;
+            }
+        }
+
+        private static long getLong(final Map<String, Object> config, final String key) {
+            final Object value = config.get(key);
+            if (value == null) {
+                return 0;
+            }
+            try {
+                return Long.parseLong(value.toString());
+            } catch (final NumberFormatException e) {
+                logger.warn(message.invalidChannelProperty(key), e);
+                return 0;
+            }
+        }
+    }
+}
@@ -34,6 +34,7 @@ import org.eclipse.kura.channel.ChannelFlag;
 import org.eclipse.kura.channel.ChannelRecord;
 import org.eclipse.kura.channel.ChannelStatus;
 import org.eclipse.kura.channel.ChannelType;
+import org.eclipse.kura.driver.ChannelDescriptor;
 import org.eclipse.kura.localization.LocalizationAdapter;
 import org.eclipse.kura.localization.resources.WireMessages;
 import org.eclipse.kura.type.TypedValue;
@@ -86,6 +87,14 @@ import org.slf4j.LoggerFactory;
  * contains the typed value of this channel in the received {@link WireRecord} will be
  * considered as a WRITE Value in that specific channel in B and this value will
  * be written to {@code B}'s channel
+ * <br/>
+ * <br/>
+ * By default the values of all the channels are emitted after each read. A channel can be configured in report by
+ * exception mode using the {@code +report.by.exception} channel property, in this case the channel is included in the
+ * emitted {@link WireRecord} only if its value changed since the last emission. Changes of numeric channels smaller
+ * than the deadbands specified by the {@code +deadband.absolute} and {@code +deadband.percent} properties are ignored.
+ * The {@code +max.silence} property specifies the maximum time in milliseconds between two emissions of a channel.
+ * No {@link WireRecord} is emitted if none of the channels need to be emitted.
  *
  * @see Channel
  * @see ChannelRecord
@@ -113,6 +122,8 @@ public final class WireAsset extends BaseAsset implements WireEmitter, WireRecei
 
     private WireSupport wireSupport;
 
+    private final ReportByExceptionFilter reportByExceptionFilter = new ReportByExceptionFilter();
+
     /**
      * Binds the Wire Helper Service.
      *
@@ -191,6 +202,12 @@ public final class WireAsset extends BaseAsset implements WireEmitter, WireRecei
         return CONF_PID;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected ChannelDescriptor getBaseChannelDescriptor() {
+        return new WireAssetChannelDescriptor();
+    }
+
     /**
      * This method is triggered as soon as the wire component receives a Wire
      * Envelope. After it receives a {@link WireEnvelope}, it checks for all associated
@@ -217,7 +234,13 @@ public final class WireAsset extends BaseAsset implements WireEmitter, WireRecei
 
         if (hasReadChannels()) {
             try {
-                emitChannelRecords(readAllChannels());
+                final List<ChannelRecord> channelRecords = this.reportByExceptionFilter.filter(readAllChannels(),
+                        getAssetConfiguration().getAssetChannels());
+                if (channelRecords.isEmpty()) {
+                    logger.debug(message.noChannelChanged());
+                } else {
+                    emitChannelRecords(channelRecords);
+                }
             } catch (final KuraException e) {
                 logger.error(message.errorPerformingRead(), e);
             }
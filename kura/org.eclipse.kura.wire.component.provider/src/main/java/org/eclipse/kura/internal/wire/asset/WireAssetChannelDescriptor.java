@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.asset;
+
+import static org.eclipse.kura.asset.provider.AssetConstants.CHANNEL_DEFAULT_PROPERTY_PREFIX;
+
+import java.util.List;
+
+import org.eclipse.kura.asset.provider.BaseChannelDescriptor;
+import org.eclipse.kura.core.configuration.metatype.Tad;
+import org.eclipse.kura.core.configuration.metatype.Tscalar;
+import org.eclipse.kura.driver.ChannelDescriptor;
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.localization.resources.WireMessages;
+
+/**
+ * The Class WireAssetChannelDescriptor extends the generic channel properties provided by
+ * {@link BaseChannelDescriptor} with the properties that control the report by exception mode of a
+ * {@link WireAsset}:
+ *
+ * <ul>
+ * <li>{@code +report.by.exception} enables the report by exception mode for the channel</li>
+ * <li>{@code +deadband.absolute} the absolute deadband applied to numeric channels</li>
+ * <li>{@code +deadband.percent} the deadband applied to numeric channels, in percent of the last emitted
+ * value</li>
+ * <li>{@code +max.silence} the maximum time in milliseconds between two emissions of the channel</li>
+ * </ul>
+ */
+final class WireAssetChannelDescriptor implements ChannelDescriptor {
+
+    static final String REPORT_BY_EXCEPTION = CHANNEL_DEFAULT_PROPERTY_PREFIX.value() + "report.by.exception";
+
+    static final String ABSOLUTE_DEADBAND = CHANNEL_DEFAULT_PROPERTY_PREFIX.value() + "deadband.absolute";
+
+    static final String PERCENT_DEADBAND = CHANNEL_DEFAULT_PROPERTY_PREFIX.value() + "deadband.percent";
+
+    static final String MAX_SILENCE = CHANNEL_DEFAULT_PROPERTY_PREFIX.value() + "max.silence";
+
+    private static final WireMessages message = LocalizationAdapter.adapt(WireMessages.class);
+
+    private final List<Tad> elements;
+
+    /**
+     * Instantiates a new wire asset channel descriptor.
+     */
+    @SuppressWarnings("unchecked")
+    WireAssetChannelDescriptor() {
+        this.elements = (List<Tad>) new BaseChannelDescriptor().getDescriptor();
+
+        this.elements.add(newAd(REPORT_BY_EXCEPTION, Tscalar.BOOLEAN, "false", message.reportByExceptionDesc()));
+        this.elements.add(newAd(ABSOLUTE_DEADBAND, Tscalar.DOUBLE, "0.0", message.absoluteDeadbandDesc()));
+        this.elements.add(newAd(PERCENT_DEADBAND, Tscalar.DOUBLE, "0.0", message.percentDeadbandDesc()));
+        this.elements.add(newAd(MAX_SILENCE, Tscalar.LONG, "0", message.maxSilenceDesc()));
+    }
+
+    private static Tad newAd(final String id, final Tscalar type, final String defaultValue,
+            final String description) {
+        final Tad result = new Tad();
+        result.setId(id);
+        result.setName(id.substring(1));
+        result.setType(type);
+        result.setDefault(defaultValue);
+        result.setDescription(description);
+        result.setCardinality(0);
+        result.setRequired(false);
+        if (type != Tscalar.BOOLEAN) {
+            result.setMin("0");
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object getDescriptor() {
+        return this.elements;
+    }
+}
@@ -74,9 +74,13 @@ public final class DbServiceHelper {
      *            the connection instance to be closed
      */
     public void close(final Connection conn) {
-        logger.debug(message.closingConnection() + conn);
+        if (logger.isDebugEnabled()) {
+            logger.debug(message.closingConnection() + conn);
+        }
         this.dbService.close(conn);
-        logger.debug(message.closingConnectionDone());
+        if (logger.isDebugEnabled()) {
+            logger.debug(message.closingConnectionDone());
+        }
     }
 
     /**
@@ -86,9 +90,13 @@ public final class DbServiceHelper {
      *            the result sets
      */
     public void close(final ResultSet... rss) {
-        logger.debug(message.closingResultSet() + Arrays.toString(rss));
+        if (logger.isDebugEnabled()) {
+            logger.debug(message.closingResultSet() + Arrays.toString(rss));
+        }
         this.dbService.close(rss);
-        logger.debug(message.closingResultSetDone());
+        if (logger.isDebugEnabled()) {
+            logger.debug(message.closingResultSetDone());
+        }
     }
 
     /**
@@ -98,9 +106,13 @@ public final class DbServiceHelper {
      *            the SQL statements
      */
     public void close(final Statement... stmts) {
-        logger.debug(message.closingStatement() + Arrays.toString(stmts));
+        if (logger.isDebugEnabled()) {
+            logger.debug(message.closingStatement() + Arrays.toString(stmts));
+        }
         this.dbService.close(stmts);
-        logger.debug(message.closingStatementDone());
+        if (logger.isDebugEnabled()) {
+            logger.debug(message.closingStatementDone());
+        }
     }
 
     /**
@@ -117,7 +129,9 @@ public final class DbServiceHelper {
      */
     public synchronized void execute(final String sql, final Integer... params) throws SQLException {
         requireNonNull(sql, message.sqlQueryNonNull());
-        logger.debug(message.execSql() + sql);
+        if (logger.isDebugEnabled()) {
+            logger.debug(message.execSql() + sql);
+        }
         Connection conn = null;
         PreparedStatement stmt = null;
         try {
@@ -135,7 +149,9 @@ public final class DbServiceHelper {
             this.close(stmt);
             this.close(conn);
         }
-        logger.debug(message.execSqlDone());
+        if (logger.isDebugEnabled()) {
+            logger.debug(message.execSqlDone());
+        }
     }
 
     /**
@@ -159,9 +175,13 @@ public final class DbServiceHelper {
      */
     public void rollback(final Connection conn) {
         requireNonNull(conn, message.connectionNonNull());
-        logger.debug(message.rollback() + conn);
+        if (logger.isDebugEnabled()) {
+            logger.debug(message.rollback() + conn);
+        }
         this.dbService.rollback(conn);
-        logger.debug(message.rollbackDone());
+        if (logger.isDebugEnabled()) {
+            logger.debug(message.rollbackDone());
+        }
     }
 
     /**
@@ -176,7 +196,9 @@ public final class DbServiceHelper {
      */
     public String sanitizeSqlTableAndColumnName(final String string) {
         requireNonNull(string, message.stringNonNull());
-        logger.debug(message.sanitize() + string);
+        if (logger.isDebugEnabled()) {
+            logger.debug(message.sanitize() + string);
+        }
         final String sanitizedName = string.replaceAll("\"", "\"\"");
         return "\"" + sanitizedName + "\"";
     }
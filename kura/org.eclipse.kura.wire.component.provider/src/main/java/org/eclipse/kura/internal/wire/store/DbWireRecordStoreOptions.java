@@ -37,6 +37,12 @@ final class DbWireRecordStoreOptions {
 
     private static final String TABLE_NAME = "table.name";
 
+    private static final String PARTITION_INTERVAL = "partition.interval";
+
+    private static final String PARTITION_COUNT = "partition.count";
+
+    private static final int DEFAULT_PARTITION_COUNT = 24;
+
     private final Map<String, Object> properties;
 
     /**
@@ -86,4 +92,32 @@ final class DbWireRecordStoreOptions {
         }
         return tableName;
     }
+
+    /**
+     * Returns the partition interval as configured.
+     *
+     * @return the partition interval in seconds, 0 if the table is not partitioned
+     */
+    int getPartitionInterval() {
+        int interval = 0;
+        final Object configuredInterval = this.properties.get(PARTITION_INTERVAL);
+        if (nonNull(configuredInterval) && configuredInterval instanceof Integer) {
+            interval = Math.max(0, (Integer) configuredInterval);
+        }
+        return interval;
+    }
+
+    /**
+     * Returns the number of partitions to keep as configured.
+     *
+     * @return the number of partitions
+     */
+    int getPartitionCount() {
+        int count = DEFAULT_PARTITION_COUNT;
+        final Object configuredCount = this.properties.get(PARTITION_COUNT);
+        if (nonNull(configuredCount) && configuredCount instanceof Integer) {
+            count = Math.max(1, (Integer) configuredCount);
+        }
+        return count;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,539 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.h2db.store;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.text.MessageFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.eclipse.kura.internal.wire.h2db.common.H2DbServiceHelper;
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.localization.resources.WireMessages;
+import org.eclipse.kura.util.collection.CollectionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Class H2DbTablePartitions manages the time partitions of the table of a {@link H2DbWireRecordStore}.
+ * <p>
+ * The records are stored in one table per partition interval, named after the configured table and the start of
+ * the interval in milliseconds (e.g. {@code WR_data_1508342400000}). A view with the configured table name joins
+ * all the partitions, so that the queries of the filters keep working unchanged. The conditions of a query on the
+ * view are pushed down to every partition, a query on a TIMESTAMP range only finds rows in the timestamp index of
+ * the partitions overlapping the range.
+ * <p>
+ * The IDs of the records are drawn from a sequence shared by all the partitions, so that they are unique in the
+ * view as well.
+ * <p>
+ * Retention drops whole partitions: only the configured number of partitions is kept and the oldest partitions are
+ * dropped first when the table has to be cleaned up.
+ */
+final class H2DbTablePartitions {
+
+    private static final Logger logger = LoggerFactory.getLogger(H2DbTablePartitions.class);
+
+    private static final WireMessages message = LocalizationAdapter.adapt(WireMessages.class);
+
+    private static final String COLUMN_NAME = "COLUMN_NAME";
+
+    private static final String COLUMN_SIZE = "COLUMN_SIZE";
+
+    private static final String DATA_TYPE = "DATA_TYPE";
+
+    private static final String TABLE_NAME = "TABLE_NAME";
+
+    private static final String TYPE_NAME = "TYPE_NAME";
+
+    private static final String SQL_CREATE_SEQUENCE = "CREATE SEQUENCE {0} START WITH {1};";
+
+    private static final String SQL_CREATE_TABLE = "CREATE TABLE IF NOT EXISTS {0} (ID BIGINT DEFAULT NEXT VALUE FOR {1} PRIMARY KEY, TIMESTAMP BIGINT);";
+
+    private static final String SQL_CREATE_TABLE_INDEX = "CREATE INDEX IF NOT EXISTS {0} ON {1} (TIMESTAMP DESC);";
+
+    private static final String SQL_CREATE_VIEW = "CREATE OR REPLACE VIEW {0} AS {1};";
+
+    private static final String SQL_DROP_TABLE = "DROP TABLE {0};";
+
+    private static final String SQL_DROP_VIEW = "DROP VIEW IF EXISTS {0};";
+
+    private static final String SQL_MAX_TIMESTAMP = "SELECT MAX(TIMESTAMP) FROM {0};";
+
+    private static final String SQL_MAX_ID = "SELECT MAX(ID) FROM {0};";
+
+    private static final String SQL_RENAME_TABLE = "ALTER TABLE {0} RENAME TO {1};";
+
+    private static final String SQL_ROW_COUNT_TABLE = "SELECT COUNT(*) FROM {0};";
+
+    private static final String SQL_SEQUENCE_EXISTS = "SELECT COUNT(*) FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?;";
+
+    private static final String SQL_SET_ID_SEQUENCE = "ALTER TABLE {0} ALTER COLUMN ID SET DEFAULT NEXT VALUE FOR {1};";
+
+    private static final String[] TABLE_TYPE = new String[] { "TABLE" };
+
+    private static final String[] VIEW_TYPE = new String[] { "VIEW" };
+
+    private final H2DbServiceHelper dbHelper;
+
+    private final String tableName;
+
+    private final long interval;
+
+    private final int maximumPartitions;
+
+    /** The partition table names mapped by the start of their interval. */
+    private final NavigableMap<Long, String> partitions = new TreeMap<>();
+
+    private String currentPartition;
+
+    private long currentStart;
+
+    /**
+     * Instantiates the partitions of a table.
+     *
+     * @param dbHelper
+     *            the database helper
+     * @param tableName
+     *            the configured table name, used as the name of the view
+     * @param interval
+     *            the partition interval in milliseconds
+     * @param maximumPartitions
+     *            the number of partitions to keep
+     * @throws NullPointerException
+     *             if any of the provided arguments is null
+     * @throws IllegalArgumentException
+     *             if the interval or the number of partitions is not positive
+     */
+    H2DbTablePartitions(final H2DbServiceHelper dbHelper, final String tableName, final long interval,
+            final int maximumPartitions) {
+        requireNonNull(dbHelper, message.dbServiceNonNull());
+        requireNonNull(tableName, message.tableNameNonNull());
+        if (interval <= 0 || maximumPartitions <= 0) {
+            throw new IllegalArgumentException("Partition interval and count must be positive");
+        }
+        this.dbHelper = dbHelper;
+        this.tableName = tableName;
+        this.interval = interval;
+        this.maximumPartitions = maximumPartitions;
+    }
+
+    /**
+     * Reads the existing partitions and creates the view. A plain table with the configured name, left by the store
+     * before partitioning was enabled, becomes the partition of its most recent record. The ID sequence shared by the
+     * partitions is created if needed, starting after the IDs already in use.
+     *
+     * @param timestamp
+     *            the current time, used to create the first partition
+     * @throws SQLException
+     *             the SQL exception
+     */
+    void reconcile(final long timestamp) throws SQLException {
+        this.partitions.clear();
+        this.currentPartition = null;
+
+        readPartitions();
+        final boolean plainTable = tableExists(this.tableName, TABLE_TYPE);
+        createSequence(plainTable);
+
+        if (plainTable) {
+            final long start = getStart(getMaxTimestamp(this.tableName, timestamp));
+            final String partition = getPartitionName(start);
+            if (tableExists(partition, TABLE_TYPE)) {
+                logger.warn("Table {} can not be moved to the existing partition {}", this.tableName, partition);
+            } else {
+                logger.info("Moving table {} to partition {}", this.tableName, partition);
+                this.dbHelper.execute(MessageFormat.format(SQL_RENAME_TABLE, sanitize(this.tableName),
+                        sanitize(partition)));
+                // the records of the table keep their IDs, the new records get their IDs from the shared sequence
+                this.dbHelper.execute(MessageFormat.format(SQL_SET_ID_SEQUENCE, sanitize(partition),
+                        sanitize(getSequenceName())));
+            }
+        }
+
+        readPartitions();
+        if (this.partitions.containsKey(getStart(timestamp))) {
+            getPartition(timestamp);
+            // the number of partitions to keep might have changed
+            dropExpiredPartitions();
+        } else {
+            getPartition(timestamp);
+        }
+    }
+
+    /**
+     * Returns the partition the records created at the provided time are stored in, creating it if needed. When a
+     * new partition is created the partitions exceeding the configured number are dropped.
+     *
+     * @param timestamp
+     *            the record timestamp
+     * @return the partition table name
+     * @throws SQLException
+     *             the SQL exception
+     */
+    String getPartition(final long timestamp) throws SQLException {
+        if (nonNull(this.currentPartition) && timestamp >= this.currentStart
+                && timestamp - this.currentStart < this.interval) {
+            return this.currentPartition;
+        }
+
+        final long start = getStart(timestamp);
+        String partition = this.partitions.get(start);
+        if (isNull(partition)) {
+            partition = getPartitionName(start);
+            createTable(partition);
+            this.partitions.put(start, partition);
+            this.currentPartition = partition;
+            this.currentStart = start;
+            dropExpiredPartitions();
+        }
+        this.currentPartition = partition;
+        this.currentStart = start;
+        return partition;
+    }
+
+    /**
+     * Drops the oldest partitions exceeding the configured number of partitions, the current partition is always
+     * kept. The view is updated before the partitions are dropped.
+     *
+     * @throws SQLException
+     *             the SQL exception
+     */
+    private void dropExpiredPartitions() throws SQLException {
+        final List<String> expired = CollectionUtil.newArrayList();
+        while (this.partitions.size() > this.maximumPartitions) {
+            if (this.partitions.firstKey() == this.currentStart) {
+                // the clock went back, the current partition is older than the ones kept
+                break;
+            }
+            expired.add(this.partitions.pollFirstEntry().getValue());
+        }
+        updateView();
+        for (final String expiredPartition : expired) {
+            dropTable(expiredPartition);
+        }
+    }
+
+    /**
+     * Returns the most recent partition.
+     *
+     * @return the partition table name
+     */
+    String getNewestPartition() {
+        return this.partitions.lastEntry().getValue();
+    }
+
+    /**
+     * Drops the oldest partition, unless it is the only partition left.
+     *
+     * @return the number of records dropped with the partition or -1 if no partition has been dropped
+     * @throws SQLException
+     *             the SQL exception
+     */
+    int dropOldestPartition() throws SQLException {
+        if (this.partitions.size() < 2) {
+            return -1;
+        }
+        final String oldest = this.partitions.pollFirstEntry().getValue();
+        if (oldest.equals(this.currentPartition)) {
+            this.currentPartition = null;
+        }
+        final int count = countRecords(oldest);
+        updateView();
+        dropTable(oldest);
+        return count;
+    }
+
+    /**
+     * Returns the number of records in all the partitions.
+     *
+     * @return the number of records
+     * @throws SQLException
+     *             the SQL exception
+     */
+    int countRecords() throws SQLException {
+        int count = 0;
+        for (final String partition : this.partitions.values()) {
+            count += countRecords(partition);
+        }
+        return count;
+    }
+
+    /**
+     * Creates or replaces the view joining the partitions. The columns of the view are the union of the partition
+     * columns, typed as in the most recent partition defining them: a partition missing a column, or having it with
+     * a different type, contributes null values for it.
+     *
+     * @throws SQLException
+     *             the SQL exception
+     */
+    void updateView() throws SQLException {
+        updateView(null, null);
+    }
+
+    /**
+     * Updates the view so that it does not depend on a column of a partition anymore, the column can then be
+     * dropped.
+     *
+     * @param partition
+     *            the partition table name
+     * @param columnName
+     *            the column name
+     * @throws SQLException
+     *             the SQL exception
+     */
+    void releaseColumn(final String partition, final String columnName) throws SQLException {
+        updateView(partition, columnName);
+    }
+
+    private void updateView(final String excludedPartition, final String excludedColumn) throws SQLException {
+        final Map<String, Map<String, String>> partitionColumns = new LinkedHashMap<>();
+        final Map<String, String> viewColumns = new LinkedHashMap<>();
+        for (final String partition : this.partitions.descendingMap().values()) {
+            final Map<String, String> columns = getColumnTypes(partition);
+            if (partition.equals(excludedPartition)) {
+                columns.remove(excludedColumn);
+            }
+            partitionColumns.put(partition, columns);
+            for (final Entry<String, String> column : columns.entrySet()) {
+                viewColumns.putIfAbsent(column.getKey(), column.getValue());
+            }
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        for (final String partition : this.partitions.values()) {
+            final Map<String, String> columns = partitionColumns.get(partition);
+            if (sb.length() > 0) {
+                sb.append(" UNION ALL ");
+            }
+            sb.append("SELECT ");
+            boolean first = true;
+            for (final Entry<String, String> column : viewColumns.entrySet()) {
+                if (!first) {
+                    sb.append(", ");
+                }
+                first = false;
+                final String sqlColName = sanitize(column.getKey());
+                if (column.getValue().equals(columns.get(column.getKey()))) {
+                    sb.append(sqlColName);
+                } else {
+                    sb.append("CAST(NULL AS ").append(column.getValue()).append(") AS ").append(sqlColName);
+                }
+            }
+            sb.append(" FROM ").append(sanitize(partition));
+        }
+        this.dbHelper.execute(MessageFormat.format(SQL_CREATE_VIEW, sanitize(this.tableName), sb.toString()));
+    }
+
+    /**
+     * Turns the view of a partitioned table back into a plain table, once partitioning has been disabled: the view
+     * is dropped and the most recent partition is renamed to the configured table name. The older partitions are
+     * left in the database, as well as the ID sequence the renamed table keeps using.
+     *
+     * @param dbHelper
+     *            the database helper
+     * @param tableName
+     *            the configured table name
+     * @throws SQLException
+     *             the SQL exception
+     */
+    static void restoreTable(final H2DbServiceHelper dbHelper, final String tableName) throws SQLException {
+        final H2DbTablePartitions partitions = new H2DbTablePartitions(dbHelper, tableName, 1, 1);
+        if (!partitions.tableExists(tableName, VIEW_TYPE)) {
+            return;
+        }
+        partitions.readPartitions();
+        dbHelper.execute(MessageFormat.format(SQL_DROP_VIEW, partitions.sanitize(tableName)));
+        if (!partitions.partitions.isEmpty()) {
+            final String newest = partitions.getNewestPartition();
+            logger.info("Moving partition {} to table {}, the older partitions are not part of the table anymore",
+                    newest, tableName);
+            dbHelper.execute(MessageFormat.format(SQL_RENAME_TABLE, partitions.sanitize(newest),
+                    partitions.sanitize(tableName)));
+        }
+    }
+
+    private long getStart(final long timestamp) {
+        return Math.floorDiv(timestamp, this.interval) * this.interval;
+    }
+
+    private String getPartitionName(final long start) {
+        return this.tableName + "_" + start;
+    }
+
+    private String getSequenceName() {
+        return this.tableName + "_SEQ";
+    }
+
+    private void createTable(final String partition) throws SQLException {
+        final String sqlPartition = sanitize(partition);
+        logger.info(message.creatingTable(sqlPartition));
+        this.dbHelper.execute(MessageFormat.format(SQL_CREATE_TABLE, sqlPartition, sanitize(getSequenceName())));
+        this.dbHelper.execute(
+                MessageFormat.format(SQL_CREATE_TABLE_INDEX, sanitize(partition + "_TIMESTAMP"), sqlPartition));
+    }
+
+    /**
+     * Creates the ID sequence shared by the partitions, unless it already exists. The sequence starts after the
+     * highest ID of the existing partitions and of the plain table about to be moved to a partition.
+     */
+    private void createSequence(final boolean plainTable) throws SQLException {
+        if (sequenceExists()) {
+            return;
+        }
+        long maxId = plainTable ? getMaxId(this.tableName) : 0;
+        for (final String partition : this.partitions.values()) {
+            maxId = Math.max(maxId, getMaxId(partition));
+        }
+        this.dbHelper.execute(MessageFormat.format(SQL_CREATE_SEQUENCE, sanitize(getSequenceName()),
+                String.valueOf(maxId + 1)));
+    }
+
+    private String sanitize(final String name) {
+        return this.dbHelper.sanitizeSqlTableAndColumnName(name);
+    }
+
+    private void readPartitions() throws SQLException {
+        final String prefix = this.tableName + "_";
+        Connection conn = null;
+        ResultSet rsTbls = null;
+        try {
+            conn = this.dbHelper.getConnection();
+            final DatabaseMetaData dbMetaData = conn.getMetaData();
+            final String escape = dbMetaData.getSearchStringEscape();
+            final String pattern = prefix.replace(escape, escape + escape).replace("_", escape + "_")
+                    .replace("%", escape + "%") + "%";
+            rsTbls = dbMetaData.getTables(conn.getCatalog(), null, pattern, TABLE_TYPE);
+            while (rsTbls.next()) {
+                final String name = rsTbls.getString(TABLE_NAME);
+                final String suffix = name.substring(prefix.length());
+                if (suffix.matches("-?\\d+")) {
+                    try {
+                        this.partitions.put(Long.parseLong(suffix), name);
+                    } catch (NumberFormatException e) {
+                        // not a partition of this table
+                    }
+                }
+            }
+        } finally {
+            this.dbHelper.close(rsTbls);
+            this.dbHelper.close(conn);
+        }
+    }
+
+    private boolean tableExists(final String name, final String[] types) throws SQLException {
+        Connection conn = null;
+        ResultSet rsTbls = null;
+        try {
+            conn = this.dbHelper.getConnection();
+            rsTbls = conn.getMetaData().getTables(conn.getCatalog(), null, name, types);
+            while (rsTbls.next()) {
+                if (name.equals(rsTbls.getString(TABLE_NAME))) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            this.dbHelper.close(rsTbls);
+            this.dbHelper.close(conn);
+        }
+    }
+
+    private boolean sequenceExists() throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rset = null;
+        try {
+            conn = this.dbHelper.getConnection();
+            stmt = conn.prepareStatement(SQL_SEQUENCE_EXISTS);
+            stmt.setString(1, getSequenceName());
+            rset = stmt.executeQuery();
+            return rset.next() && rset.getInt(1) > 0;
+        } finally {
+            this.dbHelper.close(rset);
+            this.dbHelper.close(stmt);
+            this.dbHelper.close(conn);
+        }
+    }
+
+    private Map<String, String> getColumnTypes(final String partition) throws SQLException {
+        final Map<String, String> columns = new LinkedHashMap<>();
+        Connection conn = null;
+        ResultSet rsColumns = null;
+        try {
+            conn = this.dbHelper.getConnection();
+            rsColumns = conn.getMetaData().getColumns(conn.getCatalog(), null, partition, null);
+            while (rsColumns.next()) {
+                String typeName = rsColumns.getString(TYPE_NAME);
+                if (rsColumns.getInt(DATA_TYPE) == Types.VARCHAR) {
+                    typeName += "(" + rsColumns.getInt(COLUMN_SIZE) + ")";
+                }
+                columns.put(rsColumns.getString(COLUMN_NAME), typeName);
+            }
+        } finally {
+            this.dbHelper.close(rsColumns);
+            this.dbHelper.close(conn);
+        }
+        return columns;
+    }
+
+    private long getMaxTimestamp(final String name, final long defaultTimestamp) throws SQLException {
+        return queryLong(MessageFormat.format(SQL_MAX_TIMESTAMP, sanitize(name)), defaultTimestamp);
+    }
+
+    private long getMaxId(final String name) throws SQLException {
+        return queryLong(MessageFormat.format(SQL_MAX_ID, sanitize(name)), 0);
+    }
+
+    private int countRecords(final String partition) throws SQLException {
+        return (int) queryLong(MessageFormat.format(SQL_ROW_COUNT_TABLE, sanitize(partition)), 0);
+    }
+
+    private void dropTable(final String partition) throws SQLException {
+        logger.info("Dropping partition {}", partition);
+        this.dbHelper.execute(MessageFormat.format(SQL_DROP_TABLE, sanitize(partition)));
+    }
+
+    private long queryLong(final String sql, final long defaultValue) throws SQLException {
+        Connection conn = null;
+        Statement stmt = null;
+        ResultSet rset = null;
+        try {
+            conn = this.dbHelper.getConnection();
+            stmt = conn.createStatement();
+            rset = stmt.executeQuery(sql);
+            if (!rset.next()) {
+                return defaultValue;
+            }
+            final long value = rset.getLong(1);
+            return rset.wasNull() ? defaultValue : value;
+        } finally {
+            this.dbHelper.close(rset);
+            this.dbHelper.close(stmt);
+            this.dbHelper.close(conn);
+        }
+    }
+}
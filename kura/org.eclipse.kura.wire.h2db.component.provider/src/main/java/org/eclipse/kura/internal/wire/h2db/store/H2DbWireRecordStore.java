@@ -28,6 +28,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.MessageFormat;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -98,6 +99,10 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
 
     private static final String[] TABLE_TYPE = new String[] { "TABLE" };
 
+    private static final int MAX_CACHED_STATEMENTS = 64;
+
+    private static final int UNKNOWN_TABLE_SIZE = -1;
+
     private H2DbServiceHelper dbHelper;
 
     private H2DbWireRecordStoreOptions wireRecordStoreOptions;
@@ -110,6 +115,28 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
 
     private ComponentContext componentContext;
 
+    /** The JDBC types of the table columns mapped by the sanitized column name, null if not read yet. */
+    private Map<String, Integer> columnTypes;
+
+    /** The insert statements of the record shapes already reconciled with the table. */
+    private final Map<String, String> insertStatements = new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+            return size() > MAX_CACHED_STATEMENTS;
+        }
+    };
+
+    private int tableSize = UNKNOWN_TABLE_SIZE;
+
+    /** The time partitions of the table, null if the table is not partitioned. */
+    private H2DbTablePartitions partitions;
+
+    /** The table the cached schema and insert statements refer to. */
+    private String insertTableName;
+
     public synchronized void bindDbService(final H2DbService dbService) {
         H2DbWireRecordStore.this.dbHelper = H2DbServiceHelper.of(dbService);
         reconcileDB(wireRecordStoreOptions.getTableName());
@@ -201,6 +228,11 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
      *            the no of records to keep in the table
      */
     private void truncate(final int noOfRecordsToKeep) {
+        if (nonNull(this.partitions)) {
+            truncatePartitions(noOfRecordsToKeep);
+            return;
+        }
+
         final String tableName = this.wireRecordStoreOptions.getTableName();
         final String sqlTableName = this.dbHelper.sanitizeSqlTableAndColumnName(tableName);
         Connection conn = null;
@@ -216,21 +248,83 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
                 if (noOfRecordsToKeep == 0) {
                     logger.info(message.truncatingTable(sqlTableName));
                     this.dbHelper.execute(MessageFormat.format(SQL_TRUNCATE_TABLE, sqlTableName));
+                    this.tableSize = 0;
                 } else {
                     logger.info(message.partiallyEmptyingTable(sqlTableName));
                     this.dbHelper.execute(MessageFormat.format(SQL_DELETE_RANGE_TABLE, sqlTableName,
                             Integer.toString(noOfRecordsToKeep)));
+                    if (this.tableSize > noOfRecordsToKeep) {
+                        this.tableSize = noOfRecordsToKeep;
+                    }
                 }
             }
         } catch (final SQLException sqlException) {
             logger.error(message.errorTruncatingTable(sqlTableName), sqlException);
+            this.tableSize = UNKNOWN_TABLE_SIZE;
         } finally {
             this.dbHelper.close(rsTbls);
             this.dbHelper.close(conn);
         }
     }
 
+    /**
+     * Drops the oldest partitions until the number of records to keep is reached. If the most recent partition
+     * alone still exceeds it, its oldest records are deleted.
+     *
+     * @param noOfRecordsToKeep
+     *            the no of records to keep in the table
+     */
+    private void truncatePartitions(final int noOfRecordsToKeep) {
+        final String sqlTableName = this.dbHelper
+                .sanitizeSqlTableAndColumnName(this.wireRecordStoreOptions.getTableName());
+        try {
+            int size = getTableSize();
+            while (size > noOfRecordsToKeep) {
+                final int dropped = this.partitions.dropOldestPartition();
+                if (dropped < 0) {
+                    break;
+                }
+                size -= dropped;
+            }
+            this.tableSize = size;
+
+            if (size > noOfRecordsToKeep) {
+                final String sqlPartitionName = this.dbHelper
+                        .sanitizeSqlTableAndColumnName(this.partitions.getNewestPartition());
+                if (noOfRecordsToKeep == 0) {
+                    logger.info(message.truncatingTable(sqlPartitionName));
+                    this.dbHelper.execute(MessageFormat.format(SQL_TRUNCATE_TABLE, sqlPartitionName));
+                } else {
+                    logger.info(message.partiallyEmptyingTable(sqlPartitionName));
+                    this.dbHelper.execute(MessageFormat.format(SQL_DELETE_RANGE_TABLE, sqlPartitionName,
+                            Integer.toString(noOfRecordsToKeep)));
+                }
+                this.tableSize = noOfRecordsToKeep;
+            }
+        } catch (final SQLException sqlException) {
+            logger.error(message.errorTruncatingTable(sqlTableName), sqlException);
+            this.tableSize = UNKNOWN_TABLE_SIZE;
+        }
+    }
+
+    /**
+     * Returns the number of records in the table. The table is counted once, then the size is tracked as records
+     * are inserted and the table is truncated.
+     *
+     * @return the number of records in the table
+     * @throws SQLException
+     *             the SQL exception
+     */
     private int getTableSize() throws SQLException {
+        if (this.tableSize != UNKNOWN_TABLE_SIZE) {
+            return this.tableSize;
+        }
+
+        if (nonNull(this.partitions)) {
+            this.tableSize = this.partitions.countRecords();
+            return this.tableSize;
+        }
+
         final String tableName = this.wireRecordStoreOptions.getTableName();
         final String sqlTableName = this.dbHelper.sanitizeSqlTableAndColumnName(tableName);
 
@@ -254,6 +348,7 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
             this.dbHelper.close(conn);
         }
 
+        this.tableSize = size;
         return size;
     }
 
@@ -279,9 +374,7 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
                 logger.warn("Exception while trying to clean db");
             }
 
-            for (WireRecord wireRecord : records) {
-                store(wireRecord);
-            }
+            store(records);
         } else {
             logger.warn("DbService instance not attached");
         }
@@ -291,46 +384,63 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
     }
 
     /**
-     * Stores the provided {@link WireRecord} in the database
+     * Stores the provided {@link WireRecord}s in the database in a single transaction
      *
-     * @param wireRecord
-     *            the {@link WireRecord} to be stored
+     * @param wireRecords
+     *            the {@link WireRecord}s to be stored
      * @throws NullPointerException
      *             if the provided argument is null
      */
-    private void store(final WireRecord wireRecord) {
-        requireNonNull(wireRecord, message.wireRecordNonNull());
+    private void store(final List<WireRecord> wireRecords) {
+        requireNonNull(wireRecords, message.wireRecordsNonNull());
         int retryCount = 0;
         final String tableName = this.wireRecordStoreOptions.getTableName();
         do {
             try {
-                insertDataRecord(tableName, wireRecord);
+                insertDataRecords(getInsertTableName(tableName), wireRecords);
                 break;
             } catch (final SQLException e) {
                 logger.error(message.insertionFailed(), e);
-                reconcileDB(wireRecord, tableName);
+                // the cached schema might not match the table anymore, it is read again on retry
+                reconcileDB(tableName);
                 retryCount++;
             }
         } while (retryCount < 2);
     }
 
     /**
-     * Tries to reconcile the database.
+     * Returns the table the records are inserted into: the configured table or, if the table is partitioned, the
+     * current partition. The cached schema and insert statements are dropped when the partition changes.
      *
-     * @param wireRecord
-     *            against which the database columns have to be reconciled.
      * @param tableName
-     *            the table name in the database that needs to be reconciled.
+     *            the configured table name
+     * @return the name of the table to insert the records into
+     * @throws SQLException
+     *             the SQL exception
      */
-    private void reconcileDB(final WireRecord wireRecord, final String tableName) {
-        try {
-            if (nonNull(tableName) && !tableName.isEmpty()) {
-                reconcileTable(tableName);
-                reconcileColumns(tableName, wireRecord);
+    private String getInsertTableName(final String tableName) throws SQLException {
+        final String name = nonNull(this.partitions) ? this.partitions.getPartition(new Date().getTime()) : tableName;
+        if (!name.equals(this.insertTableName)) {
+            this.columnTypes = null;
+            this.insertStatements.clear();
+            if (nonNull(this.insertTableName)) {
+                // expired partitions might have been dropped
+                this.tableSize = UNKNOWN_TABLE_SIZE;
             }
-        } catch (final SQLException ee) {
-            logger.error(message.errorStoring(), ee);
+            this.insertTableName = name;
         }
+        return name;
+    }
+
+    /**
+     * Drops the cached table schema, the cached insert statements and the tracked table size, so that they are read
+     * again from the database.
+     */
+    private void invalidateCaches() {
+        this.columnTypes = null;
+        this.insertStatements.clear();
+        this.insertTableName = null;
+        this.tableSize = UNKNOWN_TABLE_SIZE;
     }
 
     /**
@@ -340,9 +450,20 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
      *            the table name in the database that needs to be reconciled.
      */
     private synchronized void reconcileDB(final String tableName) {
+        invalidateCaches();
+        this.partitions = null;
         try {
             if (nonNull(dbHelper) && nonNull(tableName) && !tableName.isEmpty()) {
-                reconcileTable(tableName);
+                final int partitionInterval = this.wireRecordStoreOptions.getPartitionInterval();
+                if (partitionInterval > 0) {
+                    final H2DbTablePartitions tablePartitions = new H2DbTablePartitions(this.dbHelper, tableName,
+                            partitionInterval * 1000L, this.wireRecordStoreOptions.getPartitionCount());
+                    tablePartitions.reconcile(new Date().getTime());
+                    this.partitions = tablePartitions;
+                } else {
+                    H2DbTablePartitions.restoreTable(this.dbHelper, tableName);
+                    reconcileTable(tableName);
+                }
             }
         } catch (final SQLException ee) {
             logger.error(message.errorStoring(), ee);
@@ -388,20 +509,18 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
     }
 
     /**
-     * Reconcile columns.
+     * Returns the types of the table columns, reading them from the database metadata if they are not cached.
      *
      * @param tableName
      *            the table name
-     * @param wireRecord
-     *            the data record
+     * @return the JDBC types of the columns mapped by the sanitized column names
      * @throws SQLException
      *             the SQL exception
-     * @throws NullPointerException
-     *             if any of the provided arguments is null
      */
-    private void reconcileColumns(final String tableName, final WireRecord wireRecord) throws SQLException {
-        requireNonNull(tableName, message.tableNameNonNull());
-        requireNonNull(wireRecord, message.wireRecordNonNull());
+    private Map<String, Integer> getColumnTypes(final String tableName) throws SQLException {
+        if (nonNull(this.columnTypes)) {
+            return this.columnTypes;
+        }
 
         Connection conn = null;
         ResultSet rsColumns = null;
@@ -423,6 +542,28 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
             this.dbHelper.close(rsColumns);
             this.dbHelper.close(conn);
         }
+        this.columnTypes = columns;
+        return columns;
+    }
+
+    /**
+     * Reconcile columns.
+     *
+     * @param tableName
+     *            the table name
+     * @param wireRecord
+     *            the data record
+     * @throws SQLException
+     *             the SQL exception
+     * @throws NullPointerException
+     *             if any of the provided arguments is null
+     */
+    private void reconcileColumns(final String tableName, final WireRecord wireRecord) throws SQLException {
+        requireNonNull(tableName, message.tableNameNonNull());
+        requireNonNull(wireRecord, message.wireRecordNonNull());
+
+        final Map<String, Integer> columns = getColumnTypes(tableName);
+        boolean columnsChanged = false;
         // reconcile columns
         for (Entry<String, TypedValue<?>> entry : wireRecord.getProperties().entrySet()) {
             final String sqlColName = this.dbHelper.sanitizeSqlTableAndColumnName(entry.getKey());
@@ -433,74 +574,161 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
                 // add column
                 this.dbHelper.execute(
                         MessageFormat.format(SQL_ADD_COLUMN, sqlTableName, sqlColName, jdbcType.getTypeString()));
+                columns.put(sqlColName, jdbcType.getType());
+                columnsChanged = true;
             } else if (sqlColType != jdbcType.getType()) {
                 // drop old column and add new one
+                if (nonNull(this.partitions)) {
+                    this.partitions.releaseColumn(tableName, entry.getKey());
+                }
                 this.dbHelper.execute(MessageFormat.format(SQL_DROP_COLUMN, sqlTableName, sqlColName));
                 this.dbHelper.execute(
                         MessageFormat.format(SQL_ADD_COLUMN, sqlTableName, sqlColName, jdbcType.getTypeString()));
+                columns.put(sqlColName, jdbcType.getType());
+                columnsChanged = true;
             }
         }
+
+        if (columnsChanged && nonNull(this.partitions)) {
+            // the view exposes the new columns of the partition
+            this.partitions.updateView();
+        }
     }
 
     /**
-     * Insert the provided {@link WireRecord} to the specified table
+     * Returns the key identifying the shape of the provided record properties: their names and types, in the
+     * iteration order used to bind them.
+     *
+     * @param properties
+     *            the record properties
+     * @return the shape key
+     */
+    private static String getShapeKey(final Map<String, TypedValue<?>> properties) {
+        final StringBuilder sb = new StringBuilder();
+        for (Entry<String, TypedValue<?>> entry : properties.entrySet()) {
+            sb.append(entry.getKey()).append('\u0000').append(entry.getValue().getType().ordinal()).append('\u0000');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the insert statement of the provided record shape. The first time a shape is seen its columns are
+     * reconciled with the table and the statement is cached.
      *
      * @param tableName
      *            the table name
      * @param wireRecord
      *            the {@link WireRecord}
+     * @param shapeKey
+     *            the shape key of the record
+     * @return the insert SQL statement
+     * @throws SQLException
+     *             the SQL exception
+     */
+    private String getInsertStatement(final String tableName, final WireRecord wireRecord, final String shapeKey)
+            throws SQLException {
+        String sqlInsert = this.insertStatements.get(shapeKey);
+        if (isNull(sqlInsert)) {
+            reconcileColumns(tableName, wireRecord);
+
+            final String sqlTableName = this.dbHelper.sanitizeSqlTableAndColumnName(tableName);
+            final StringBuilder sbCols = new StringBuilder();
+            final StringBuilder sbVals = new StringBuilder();
+
+            // add the timestamp
+            sbCols.append("TIMESTAMP");
+            sbVals.append("?");
+
+            for (Entry<String, TypedValue<?>> entry : wireRecord.getProperties().entrySet()) {
+                final String sqlColName = this.dbHelper.sanitizeSqlTableAndColumnName(entry.getKey());
+                sbCols.append(", ").append(sqlColName);
+                sbVals.append(", ?");
+            }
+
+            sqlInsert = MessageFormat.format(SQL_INSERT_RECORD, sqlTableName, sbCols.toString(), sbVals.toString());
+            this.insertStatements.put(shapeKey, sqlInsert);
+        }
+        return sqlInsert;
+    }
+
+    /**
+     * Insert the provided {@link WireRecord}s to the specified table in a single transaction. Consecutive records
+     * with the same shape are sent to the database as one JDBC batch.
+     *
+     * @param tableName
+     *            the table name
+     * @param wireRecords
+     *            the {@link WireRecord}s
      * @throws SQLException
      *             the SQL exception
      * @throws NullPointerException
      *             if any of the provided arguments is null
      */
-    private void insertDataRecord(final String tableName, final WireRecord wireRecord) throws SQLException {
+    private void insertDataRecords(final String tableName, final List<WireRecord> wireRecords) throws SQLException {
         requireNonNull(tableName, message.tableNameNonNull());
-        requireNonNull(wireRecord, message.wireRecordNonNull());
+        requireNonNull(wireRecords, message.wireRecordsNonNull());
+
+        if (wireRecords.isEmpty()) {
+            return;
+        }
+
+        // resolve the statements first, the schema changes must not run inside the insert transaction
+        final String[] sqlInserts = new String[wireRecords.size()];
+        for (int i = 0; i < sqlInserts.length; i++) {
+            final WireRecord wireRecord = wireRecords.get(i);
+            requireNonNull(wireRecord, message.wireRecordNonNull());
+            sqlInserts[i] = getInsertStatement(tableName, wireRecord, getShapeKey(wireRecord.getProperties()));
+        }
 
-        final Map<String, TypedValue<?>> wireRecordProperties = wireRecord.getProperties();
+        if (logger.isDebugEnabled()) {
+            logger.debug(message.storingRecord(this.dbHelper.sanitizeSqlTableAndColumnName(tableName)));
+        }
 
+        final Map<String, PreparedStatement> statements = CollectionUtil.newHashMap();
         Connection connection = null;
-        PreparedStatement stmt = null;
         try {
             connection = this.dbHelper.getConnection();
-            stmt = prepareStatement(connection, tableName, wireRecordProperties, new Date().getTime());
-            stmt.execute();
+            PreparedStatement batch = null;
+            for (int i = 0; i < sqlInserts.length; i++) {
+                PreparedStatement stmt = statements.get(sqlInserts[i]);
+                if (isNull(stmt)) {
+                    stmt = connection.prepareStatement(sqlInserts[i]);
+                    statements.put(sqlInserts[i], stmt);
+                }
+                if (nonNull(batch) && batch != stmt) {
+                    // keep the insertion order of the records
+                    batch.executeBatch();
+                }
+                bindRecord(stmt, wireRecords.get(i).getProperties(), new Date().getTime());
+                stmt.addBatch();
+                batch = stmt;
+            }
+            batch.executeBatch();
             connection.commit();
-            logger.debug(message.stored());
+            if (this.tableSize != UNKNOWN_TABLE_SIZE) {
+                this.tableSize += sqlInserts.length;
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug(message.stored());
+            }
         } catch (final SQLException e) {
-            this.dbHelper.rollback(connection);
+            if (nonNull(connection)) {
+                this.dbHelper.rollback(connection);
+            }
             throw e;
         } finally {
-            this.dbHelper.close(stmt);
+            for (final PreparedStatement stmt : statements.values()) {
+                this.dbHelper.close(stmt);
+            }
             this.dbHelper.close(connection);
         }
     }
 
-    private PreparedStatement prepareStatement(Connection connection, String tableName,
-            final Map<String, TypedValue<?>> properties, long timestamp) throws SQLException {
-
-        final String sqlTableName = this.dbHelper.sanitizeSqlTableAndColumnName(tableName);
-        final StringBuilder sbCols = new StringBuilder();
-        final StringBuilder sbVals = new StringBuilder();
-
-        // add the timestamp
-        sbCols.append("TIMESTAMP");
-        sbVals.append("?");
-
-        int i = 2;
-        for (Entry<String, TypedValue<?>> entry : properties.entrySet()) {
-            final String sqlColName = this.dbHelper.sanitizeSqlTableAndColumnName(entry.getKey());
-            sbCols.append(", ").append(sqlColName);
-            sbVals.append(", ?");
-        }
-
-        logger.debug(message.storingRecord(sqlTableName));
-        final String sqlInsert = MessageFormat.format(SQL_INSERT_RECORD, sqlTableName, sbCols.toString(),
-                sbVals.toString());
-        final PreparedStatement stmt = connection.prepareStatement(sqlInsert);
+    private void bindRecord(final PreparedStatement stmt, final Map<String, TypedValue<?>> properties,
+            final long timestamp) throws SQLException {
         stmt.setLong(1, timestamp);
 
+        int i = 2;
         for (Entry<String, TypedValue<?>> entry : properties.entrySet()) {
             final DataType dataType = entry.getValue().getType();
             final Object value = entry.getValue();
@@ -533,7 +761,6 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
             }
             i++;
         }
-        return stmt;
     }
 
     protected void restartDbServiceTracker() {
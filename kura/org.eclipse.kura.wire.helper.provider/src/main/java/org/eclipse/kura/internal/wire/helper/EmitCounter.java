@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.helper;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.kura.wire.WireEmitStatistics;
+
+/**
+ * The Class EmitCounter counts the Wire Envelopes emitted by a Wire Emitter.
+ * <p>
+ * Counting an emit only touches a {@link LongAdder} cell and a volatile timestamp, so that emitters running on
+ * different threads do not contend. The emit rate is computed when the statistics are read, from the count
+ * difference between two samples taken at least {@link #SAMPLING_INTERVAL} milliseconds apart.
+ */
+final class EmitCounter {
+
+    /** The minimum time between two rate samples, in milliseconds. */
+    static final long SAMPLING_INTERVAL = 1000;
+
+    private final LongAdder emitCount = new LongAdder();
+
+    private volatile long lastEmitTimestamp;
+
+    private long sampleCount;
+
+    private long sampleTimestamp;
+
+    private double emitRate;
+
+    /**
+     * Instantiates a new counter.
+     *
+     * @param now
+     *            the current time in milliseconds, the first rate sample starts at this time
+     */
+    EmitCounter(final long now) {
+        this.sampleTimestamp = now;
+    }
+
+    /**
+     * Counts an emitted envelope.
+     *
+     * @param now
+     *            the current time in milliseconds
+     */
+    void emitted(final long now) {
+        this.emitCount.increment();
+        this.lastEmitTimestamp = now;
+    }
+
+    /**
+     * Returns a snapshot of the counter, sampling the emit rate if the sampling interval has elapsed.
+     *
+     * @param emitterPid
+     *            the Wire Emitter PID
+     * @param now
+     *            the current time in milliseconds
+     * @return the emit statistics
+     */
+    synchronized WireEmitStatistics sample(final String emitterPid, final long now) {
+        final long count = this.emitCount.sum();
+        final long elapsed = now - this.sampleTimestamp;
+        if (elapsed >= SAMPLING_INTERVAL) {
+            this.emitRate = (count - this.sampleCount) * 1000.0 / elapsed;
+            this.sampleCount = count;
+            this.sampleTimestamp = now;
+        }
+        return new WireEmitStatistics(emitterPid, count, this.emitRate, this.lastEmitTimestamp);
+    }
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.helper;
+
+import static org.eclipse.kura.wire.WireSupport.EMIT_EVENT_TOPIC;
+import static org.osgi.service.event.EventConstants.EVENT_TOPIC;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.event.EventHandler;
+import org.osgi.util.tracker.ServiceTrackerCustomizer;
+
+/**
+ * The Class EmitListenerTrackerCustomizer tracks the Event Handlers subscribed to the
+ * {@link org.eclipse.kura.wire.WireSupport#EMIT_EVENT_TOPIC} topic, so that the emit events are only posted while
+ * somebody is listening to them.
+ */
+final class EmitListenerTrackerCustomizer
+        implements ServiceTrackerCustomizer<EventHandler, ServiceReference<EventHandler>> {
+
+    private final Set<ServiceReference<EventHandler>> listeners = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Checks whether an Event Handler subscribed to the emit events is registered.
+     *
+     * @return true if the emit events have at least one listener
+     */
+    boolean hasListeners() {
+        return !this.listeners.isEmpty();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ServiceReference<EventHandler> addingService(final ServiceReference<EventHandler> reference) {
+        modifiedService(reference, reference);
+        return reference;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void modifiedService(final ServiceReference<EventHandler> reference,
+            final ServiceReference<EventHandler> service) {
+        if (isSubscribed(reference.getProperty(EVENT_TOPIC))) {
+            this.listeners.add(reference);
+        } else {
+            this.listeners.remove(reference);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void removedService(final ServiceReference<EventHandler> reference,
+            final ServiceReference<EventHandler> service) {
+        this.listeners.remove(reference);
+    }
+
+    /**
+     * Checks whether the provided event.topics property value matches the emit topic. A topic ending with
+     * {@code *} matches all the topics starting with the same prefix.
+     *
+     * @param topics
+     *            the event.topics property value, either a String, a String array or a collection of Strings
+     * @return true if one of the topics matches the emit topic
+     */
+    static boolean isSubscribed(final Object topics) {
+        if (topics instanceof String) {
+            return matches((String) topics);
+        }
+        if (topics instanceof String[]) {
+            return isSubscribed(Arrays.asList((String[]) topics));
+        }
+        if (topics instanceof Collection<?>) {
+            for (final Object topic : (Collection<?>) topics) {
+                if (topic instanceof String && matches((String) topic)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(final String topic) {
+        if (topic == null) {
+            return false;
+        }
+        if (topic.endsWith("*")) {
+            return EMIT_EVENT_TOPIC.startsWith(topic.substring(0, topic.length() - 1));
+        }
+        return EMIT_EVENT_TOPIC.equals(topic);
+    }
+}
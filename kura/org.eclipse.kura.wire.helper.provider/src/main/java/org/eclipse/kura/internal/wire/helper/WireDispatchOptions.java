@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.helper;
+
+import static java.util.Objects.nonNull;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The Class WireDispatchOptions provides the options of the {@link WireDispatcher}. The options are part of the
+ * Wire Service configuration and are read from the properties of the Wire Service registration.
+ */
+final class WireDispatchOptions {
+
+    /**
+     * The way envelopes are delivered to the Wire Receivers.
+     */
+    enum DispatchMode {
+        /** Envelopes are delivered on the thread of the emitter. */
+        SYNCHRONOUS,
+        /** Envelopes are queued in the mailbox of each receiver and delivered by the dispatcher threads. */
+        ASYNCHRONOUS
+    }
+
+    /**
+     * The action taken when an envelope is dispatched to a receiver whose mailbox is full.
+     */
+    enum BackpressurePolicy {
+        /** The emitter waits until the mailbox has room for the envelope. */
+        BLOCK,
+        /** The oldest envelope in the mailbox is discarded. */
+        DROP_OLDEST,
+        /** The new envelope is discarded. */
+        DROP_NEWEST
+    }
+
+    private static final String CONF_DISPATCH_MODE = "wire.dispatch.mode";
+
+    private static final String CONF_THREAD_COUNT = "wire.dispatch.thread-count";
+
+    private static final String CONF_MAILBOX_CAPACITY = "wire.dispatch.mailbox-capacity";
+
+    private static final String CONF_BACKPRESSURE = "wire.dispatch.backpressure";
+
+    private static final DispatchMode DEFAULT_DISPATCH_MODE = DispatchMode.SYNCHRONOUS;
+
+    private static final int DEFAULT_THREAD_COUNT = 2;
+
+    private static final int DEFAULT_MAILBOX_CAPACITY = 100;
+
+    private static final BackpressurePolicy DEFAULT_BACKPRESSURE = BackpressurePolicy.BLOCK;
+
+    private final Map<String, Object> properties;
+
+    /**
+     * Instantiates new dispatch options with the default values.
+     */
+    WireDispatchOptions() {
+        this(Collections.<String, Object> emptyMap());
+    }
+
+    /**
+     * Instantiates new dispatch options.
+     *
+     * @param properties
+     *            the Wire Service properties
+     */
+    WireDispatchOptions(final Map<String, Object> properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Returns the dispatch mode.
+     *
+     * @return the dispatch mode
+     */
+    DispatchMode getDispatchMode() {
+        DispatchMode mode = DEFAULT_DISPATCH_MODE;
+        final Object configuredMode = this.properties.get(CONF_DISPATCH_MODE);
+        if (nonNull(configuredMode) && configuredMode instanceof String) {
+            try {
+                mode = DispatchMode.valueOf((String) configuredMode);
+            } catch (IllegalArgumentException e) {
+                // keep the default
+            }
+        }
+        return mode;
+    }
+
+    /**
+     * Returns the number of threads delivering the envelopes in asynchronous mode.
+     *
+     * @return the number of dispatcher threads
+     */
+    int getThreadCount() {
+        int threadCount = DEFAULT_THREAD_COUNT;
+        final Object configuredCount = this.properties.get(CONF_THREAD_COUNT);
+        if (nonNull(configuredCount) && configuredCount instanceof Integer) {
+            threadCount = Math.max(1, (Integer) configuredCount);
+        }
+        return threadCount;
+    }
+
+    /**
+     * Returns the maximum number of envelopes waiting in the mailbox of each receiver.
+     *
+     * @return the mailbox capacity
+     */
+    int getMailboxCapacity() {
+        int capacity = DEFAULT_MAILBOX_CAPACITY;
+        final Object configuredCapacity = this.properties.get(CONF_MAILBOX_CAPACITY);
+        if (nonNull(configuredCapacity) && configuredCapacity instanceof Integer) {
+            capacity = Math.max(1, (Integer) configuredCapacity);
+        }
+        return capacity;
+    }
+
+    /**
+     * Returns the policy applied when a mailbox is full.
+     *
+     * @return the backpressure policy
+     */
+    BackpressurePolicy getBackpressurePolicy() {
+        BackpressurePolicy policy = DEFAULT_BACKPRESSURE;
+        final Object configuredPolicy = this.properties.get(CONF_BACKPRESSURE);
+        if (nonNull(configuredPolicy) && configuredPolicy instanceof String) {
+            try {
+                policy = BackpressurePolicy.valueOf((String) configuredPolicy);
+            } catch (IllegalArgumentException e) {
+                // keep the default
+            }
+        }
+        return policy;
+    }
+}
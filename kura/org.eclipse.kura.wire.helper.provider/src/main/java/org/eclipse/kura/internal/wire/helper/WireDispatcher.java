@@ -0,0 +1,321 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.helper;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.eclipse.kura.internal.wire.helper.WireDispatchOptions.BackpressurePolicy;
+import org.eclipse.kura.internal.wire.helper.WireDispatchOptions.DispatchMode;
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.localization.resources.WireMessages;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Class WireDispatcher delivers the Wire Envelopes of a wire graph to the Wire Receivers.
+ * <p>
+ * In {@link DispatchMode#SYNCHRONOUS} mode an envelope is delivered on the thread of the emitter, as the Wire Admin
+ * does. In {@link DispatchMode#ASYNCHRONOUS} mode each receiver owns an ordered {@link Mailbox}: envelopes are
+ * queued in the mailbox and delivered by a bounded pool of dispatcher threads, one envelope at a time per
+ * receiver, so that the branches of the graph run concurrently while every receiver still sees its envelopes in
+ * order. When a mailbox is full the configured {@link BackpressurePolicy} is applied.
+ * <p>
+ * A dispatcher thread is never blocked by a full mailbox, since the mailbox could be waiting for that very thread
+ * to be drained: the envelope is queued beyond the capacity instead, the emitters upstream are still throttled by
+ * the full mailboxes at the edge of the graph.
+ */
+final class WireDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(WireDispatcher.class);
+
+    private static final WireMessages message = LocalizationAdapter.adapt(WireMessages.class);
+
+    /** The maximum number of envelopes delivered before a mailbox gives way to the other mailboxes. */
+    private static final int MAX_DELIVERIES_PER_RUN = 16;
+
+    private static final long BLOCK_CHECK_INTERVAL = 1000;
+
+    private static final ThreadLocal<Boolean> dispatcherThread = new ThreadLocal<>();
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong deliveredCount = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private volatile DispatchMode dispatchMode;
+
+    private volatile int mailboxCapacity;
+
+    private volatile BackpressurePolicy backpressurePolicy;
+
+    /**
+     * Instantiates a new dispatcher with the default options.
+     */
+    WireDispatcher() {
+        this(new WireDispatchOptions());
+    }
+
+    /**
+     * Instantiates a new dispatcher.
+     *
+     * @param options
+     *            the dispatch options
+     */
+    WireDispatcher(final WireDispatchOptions options) {
+        final int threadCount = options.getThreadCount();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(() -> {
+                dispatcherThread.set(Boolean.TRUE);
+                runnable.run();
+            }, "WireDispatcher-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(threadCount, threadCount, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+        update(options);
+    }
+
+    /**
+     * Applies new dispatch options. Envelopes already queued are still delivered.
+     *
+     * @param options
+     *            the new dispatch options
+     */
+    void update(final WireDispatchOptions options) {
+        final int threadCount = options.getThreadCount();
+        if (threadCount > this.executor.getMaximumPoolSize()) {
+            this.executor.setMaximumPoolSize(threadCount);
+            this.executor.setCorePoolSize(threadCount);
+        } else {
+            this.executor.setCorePoolSize(threadCount);
+            this.executor.setMaximumPoolSize(threadCount);
+        }
+        this.mailboxCapacity = options.getMailboxCapacity();
+        this.backpressurePolicy = options.getBackpressurePolicy();
+        this.dispatchMode = options.getDispatchMode();
+
+        logger.info("Wire dispatch mode: {}, threads: {}, mailbox capacity: {}, backpressure: {}", this.dispatchMode,
+                threadCount, this.mailboxCapacity, this.backpressurePolicy);
+    }
+
+    /**
+     * Stops the dispatcher threads. Envelopes still queued are discarded.
+     */
+    void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Creates the mailbox of a receiver.
+     *
+     * @param receiver
+     *            the function delivering an envelope to the receiver
+     * @return the mailbox
+     */
+    Mailbox newMailbox(final Consumer<WireEnvelope> receiver) {
+        return new Mailbox(receiver);
+    }
+
+    /**
+     * Returns the number of envelopes delivered to the receivers.
+     *
+     * @return the number of delivered envelopes
+     */
+    long getDeliveredCount() {
+        return this.deliveredCount.get();
+    }
+
+    /**
+     * Returns the number of envelopes discarded because of a full mailbox.
+     *
+     * @return the number of discarded envelopes
+     */
+    long getDroppedCount() {
+        return this.droppedCount.get();
+    }
+
+    private static boolean isDispatcherThread() {
+        return dispatcherThread.get() != null;
+    }
+
+    /**
+     * The ordered mailbox of a Wire Receiver.
+     */
+    final class Mailbox implements Runnable {
+
+        private final Consumer<WireEnvelope> receiver;
+
+        private final Lock lock = new ReentrantLock();
+
+        private final Condition notFull = this.lock.newCondition();
+
+        private final ArrayDeque<WireEnvelope> envelopes = new ArrayDeque<>();
+
+        private boolean scheduled;
+
+        private Mailbox(final Consumer<WireEnvelope> receiver) {
+            this.receiver = receiver;
+        }
+
+        /**
+         * Dispatches an envelope to the receiver according to the current dispatch mode.
+         *
+         * @param envelope
+         *            the envelope
+         * @throws NullPointerException
+         *             if the envelope is null
+         */
+        void dispatch(final WireEnvelope envelope) {
+            requireNonNull(envelope, message.wireEnvelopeNonNull());
+
+            this.lock.lock();
+            try {
+                // envelopes still queued from a previous asynchronous configuration must be delivered first
+                if (WireDispatcher.this.dispatchMode == DispatchMode.SYNCHRONOUS && this.envelopes.isEmpty()) {
+                    this.lock.unlock();
+                    try {
+                        deliver(envelope);
+                    } finally {
+                        this.lock.lock();
+                    }
+                    return;
+                }
+
+                if (!enqueue(envelope) || this.scheduled) {
+                    return;
+                }
+                this.scheduled = true;
+            } finally {
+                this.lock.unlock();
+            }
+            schedule();
+        }
+
+        /**
+         * Returns the number of envelopes waiting in the mailbox.
+         *
+         * @return the number of queued envelopes
+         */
+        int size() {
+            this.lock.lock();
+            try {
+                return this.envelopes.size();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < MAX_DELIVERIES_PER_RUN; i++) {
+                final WireEnvelope envelope;
+                this.lock.lock();
+                try {
+                    envelope = this.envelopes.pollFirst();
+                    if (envelope == null) {
+                        this.scheduled = false;
+                        return;
+                    }
+                    this.notFull.signal();
+                } finally {
+                    this.lock.unlock();
+                }
+                deliver(envelope);
+            }
+            // give way to the other mailboxes, the mailbox is still marked as scheduled
+            schedule();
+        }
+
+        private boolean enqueue(final WireEnvelope envelope) {
+            final int capacity = WireDispatcher.this.mailboxCapacity;
+            if (this.envelopes.size() >= capacity) {
+                switch (WireDispatcher.this.backpressurePolicy) {
+                case DROP_OLDEST:
+                    this.envelopes.pollFirst();
+                    dropped();
+                    break;
+                case DROP_NEWEST:
+                    dropped();
+                    return false;
+                default:
+                    awaitRoom(capacity);
+                    break;
+                }
+            }
+            this.envelopes.addLast(envelope);
+            return true;
+        }
+
+        private void awaitRoom(final int capacity) {
+            if (isDispatcherThread()) {
+                return;
+            }
+            try {
+                while (this.envelopes.size() >= capacity && !WireDispatcher.this.executor.isShutdown()) {
+                    this.notFull.await(BLOCK_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                logger.warn(message.dispatcherInterruptedWhileDispatching(), e);
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void schedule() {
+            try {
+                WireDispatcher.this.executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                logger.debug("Dispatcher stopped, discarding queued envelopes");
+                this.lock.lock();
+                try {
+                    this.envelopes.clear();
+                    this.scheduled = false;
+                    this.notFull.signalAll();
+                } finally {
+                    this.lock.unlock();
+                }
+            }
+        }
+
+        private void deliver(final WireEnvelope envelope) {
+            try {
+                this.receiver.accept(envelope);
+                WireDispatcher.this.deliveredCount.incrementAndGet();
+            } catch (Exception e) {
+                logger.warn(message.dispatcherUnexpectedExceptionWhileDelivering(), e);
+            }
+        }
+
+        private void dropped() {
+            final long dropped = WireDispatcher.this.droppedCount.incrementAndGet();
+            logger.debug("Mailbox full, envelope discarded. Total discarded envelopes: {}", dropped);
+        }
+    }
+}
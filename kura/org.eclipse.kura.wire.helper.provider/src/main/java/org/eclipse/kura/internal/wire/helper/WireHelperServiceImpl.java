@@ -17,18 +17,29 @@ import static java.util.Objects.requireNonNull;
 import static org.eclipse.kura.configuration.ConfigurationService.KURA_SERVICE_PID;
 import static org.osgi.framework.Constants.SERVICE_PID;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.eclipse.kura.localization.LocalizationAdapter;
 import org.eclipse.kura.localization.resources.WireMessages;
+import org.eclipse.kura.util.collection.CollectionUtil;
 import org.eclipse.kura.util.service.ServiceUtil;
 import org.eclipse.kura.wire.WireComponent;
+import org.eclipse.kura.wire.WireEmitStatistics;
 import org.eclipse.kura.wire.WireEmitter;
 import org.eclipse.kura.wire.WireHelperService;
 import org.eclipse.kura.wire.WireReceiver;
+import org.eclipse.kura.wire.WireService;
 import org.eclipse.kura.wire.WireSupport;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.ServiceReference;
+import org.osgi.service.component.ComponentContext;
 import org.osgi.service.event.EventAdmin;
+import org.osgi.service.event.EventHandler;
+import org.osgi.util.tracker.ServiceTracker;
 
 /**
  * The Class WireHelperServiceImpl is the implementation of
@@ -40,6 +51,16 @@ public final class WireHelperServiceImpl implements WireHelperService {
 
     private volatile EventAdmin eventAdmin;
 
+    private final WireDispatcher dispatcher = new WireDispatcher();
+
+    private ServiceTracker<WireService, ServiceReference<WireService>> wireServiceTracker;
+
+    private final EmitListenerTrackerCustomizer emitListeners = new EmitListenerTrackerCustomizer();
+
+    private ServiceTracker<EventHandler, ServiceReference<EventHandler>> emitListenerTracker;
+
+    private final Map<String, EmitCounter> emitCounters = new ConcurrentHashMap<>();
+
     /**
      * Binds the Event Admin Service.
      *
@@ -64,6 +85,39 @@ public final class WireHelperServiceImpl implements WireHelperService {
         }
     }
 
+    /**
+     * OSGi service component activation callback.
+     *
+     * @param componentContext
+     *            the component context
+     */
+    protected void activate(final ComponentContext componentContext) {
+        this.wireServiceTracker = new ServiceTracker<>(componentContext.getBundleContext(), WireService.class,
+                new WireServiceTrackerCustomizer(this.dispatcher));
+        this.wireServiceTracker.open();
+        this.emitListenerTracker = new ServiceTracker<>(componentContext.getBundleContext(), EventHandler.class,
+                this.emitListeners);
+        this.emitListenerTracker.open();
+    }
+
+    /**
+     * OSGi service component deactivation callback.
+     *
+     * @param componentContext
+     *            the component context
+     */
+    protected void deactivate(final ComponentContext componentContext) {
+        if (this.wireServiceTracker != null) {
+            this.wireServiceTracker.close();
+            this.wireServiceTracker = null;
+        }
+        if (this.emitListenerTracker != null) {
+            this.emitListenerTracker.close();
+            this.emitListenerTracker = null;
+        }
+        this.dispatcher.shutdown();
+    }
+
     /** {@inheritDoc} */
     @Override
     public String getPid(final WireComponent wireComponent) {
@@ -161,6 +215,33 @@ public final class WireHelperServiceImpl implements WireHelperService {
     /** {@inheritDoc} */
     @Override
     public WireSupport newWireSupport(final WireComponent wireComponent) {
-        return new WireSupportImpl(wireComponent, this, this.eventAdmin);
+        final WireSupportImpl wireSupport = new WireSupportImpl(wireComponent, this, this.eventAdmin,
+                this.dispatcher, this.emitListeners);
+        final String pid = wireSupport.getPid();
+        if (pid != null && wireComponent instanceof WireEmitter) {
+            this.emitCounters.put(pid, wireSupport.getEmitCounter());
+        }
+        return wireSupport;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, WireEmitStatistics> getEmitStatistics() {
+        final BundleContext context = FrameworkUtil.getBundle(WireHelperServiceImpl.class).getBundleContext();
+        final ServiceReference<?>[] refs = ServiceUtil.getServiceReferences(context, WireComponent.class, null);
+        final Set<String> pids = CollectionUtil.newHashSet();
+        for (final ServiceReference<?> ref : refs) {
+            pids.add(String.valueOf(ref.getProperty(KURA_SERVICE_PID)));
+        }
+
+        // the counters of the deleted Wire Components are discarded
+        this.emitCounters.keySet().retainAll(pids);
+
+        final long now = System.currentTimeMillis();
+        final Map<String, WireEmitStatistics> statistics = CollectionUtil.newHashMap();
+        for (final Map.Entry<String, EmitCounter> entry : this.emitCounters.entrySet()) {
+            statistics.put(entry.getKey(), entry.getValue().sample(entry.getKey(), now));
+        }
+        return Collections.unmodifiableMap(statistics);
     }
 }
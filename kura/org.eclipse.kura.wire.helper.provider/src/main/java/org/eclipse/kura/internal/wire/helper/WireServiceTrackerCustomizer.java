@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.helper;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Map;
+
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.localization.resources.WireMessages;
+import org.eclipse.kura.util.collection.CollectionUtil;
+import org.eclipse.kura.wire.WireService;
+import org.osgi.framework.ServiceReference;
+import org.osgi.util.tracker.ServiceTrackerCustomizer;
+
+/**
+ * The Class WireServiceTrackerCustomizer tracks the Wire Service registration and applies the dispatch options
+ * found in its properties to the {@link WireDispatcher}, so that the dispatch of the wire graph is configured
+ * together with the graph itself.
+ */
+final class WireServiceTrackerCustomizer implements ServiceTrackerCustomizer<WireService, ServiceReference<WireService>> {
+
+    private static final WireMessages message = LocalizationAdapter.adapt(WireMessages.class);
+
+    private final WireDispatcher dispatcher;
+
+    /**
+     * Instantiates a new Wire Service tracker.
+     *
+     * @param dispatcher
+     *            the dispatcher to configure
+     * @throws NullPointerException
+     *             if the argument is null
+     */
+    WireServiceTrackerCustomizer(final WireDispatcher dispatcher) {
+        requireNonNull(dispatcher, message.wireDispatcherNonNull());
+        this.dispatcher = dispatcher;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ServiceReference<WireService> addingService(final ServiceReference<WireService> reference) {
+        this.dispatcher.update(new WireDispatchOptions(getProperties(reference)));
+        return reference;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void modifiedService(final ServiceReference<WireService> reference,
+            final ServiceReference<WireService> service) {
+        this.dispatcher.update(new WireDispatchOptions(getProperties(reference)));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void removedService(final ServiceReference<WireService> reference,
+            final ServiceReference<WireService> service) {
+        this.dispatcher.update(new WireDispatchOptions());
+    }
+
+    private static Map<String, Object> getProperties(final ServiceReference<?> reference) {
+        final Map<String, Object> properties = CollectionUtil.newHashMap();
+        for (final String key : reference.getPropertyKeys()) {
+            properties.put(key, reference.getProperty(key));
+        }
+        return properties;
+    }
+}
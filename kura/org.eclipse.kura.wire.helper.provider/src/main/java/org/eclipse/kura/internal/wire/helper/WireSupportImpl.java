@@ -45,7 +45,7 @@ final class WireSupportImpl implements WireSupport {
 
     private List<Wire> incomingWires;
 
-    private List<Wire> outgoingWires;
+    private volatile List<Wire> outgoingWires;
 
     private final WireComponent wireSupporter;
 
@@ -53,6 +53,12 @@ final class WireSupportImpl implements WireSupport {
 
     private String pid;
 
+    private final WireDispatcher.Mailbox mailbox;
+
+    private final EmitListenerTrackerCustomizer emitListeners;
+
+    private final EmitCounter emitCounter;
+
     /**
      * Instantiates a new wire support implementation.
      *
@@ -62,14 +68,21 @@ final class WireSupportImpl implements WireSupport {
      *            the Wire Helper service
      * @param eventAdmin
      *            the Event Admin service
+     * @param dispatcher
+     *            the dispatcher delivering the received envelopes
+     * @param emitListeners
+     *            the tracker of the emit event listeners
      * @throws NullPointerException
      *             if any of the provided arguments is null
      */
     WireSupportImpl(final WireComponent wireSupporter, final WireHelperService wireHelperService,
-            final EventAdmin eventAdmin) {
+            final EventAdmin eventAdmin, final WireDispatcher dispatcher,
+            final EmitListenerTrackerCustomizer emitListeners) {
         requireNonNull(wireSupporter, message.wireSupportedComponentNonNull());
         requireNonNull(wireHelperService, message.wireHelperServiceNonNull());
         requireNonNull(eventAdmin, message.eventAdminNonNull());
+        requireNonNull(dispatcher, message.wireDispatcherNonNull());
+        requireNonNull(emitListeners, message.emitListenersNonNull());
 
         this.outgoingWires = CollectionUtil.newArrayList();
         this.incomingWires = CollectionUtil.newArrayList();
@@ -77,6 +90,9 @@ final class WireSupportImpl implements WireSupport {
         this.pid = wireHelperService.getPid(wireSupporter);
         this.wireSupporter = wireSupporter;
         this.eventAdmin = eventAdmin;
+        this.mailbox = dispatcher.newMailbox(this::deliver);
+        this.emitListeners = emitListeners;
+        this.emitCounter = new EmitCounter(System.currentTimeMillis());
     }
 
     /** {@inheritDoc} */
@@ -87,19 +103,31 @@ final class WireSupportImpl implements WireSupport {
 
     /** {@inheritDoc} */
     @Override
-    public synchronized void emit(final List<WireRecord> wireRecords) {
+    public void emit(final List<WireRecord> wireRecords) {
         requireNonNull(wireRecords, message.wireRecordsNonNull());
         if (this.wireSupporter instanceof WireEmitter) {
             final WireEnvelope wei = new WireEnvelope(emitterPid, wireRecords);
             for (final Wire wire : this.outgoingWires) {
                 wire.update(wei);
             }
-            final Map<String, Object> properties = CollectionUtil.newHashMap();
-            properties.put("emitter", pid);
-            this.eventAdmin.postEvent(new Event(WireSupport.EMIT_EVENT_TOPIC, properties));
+            this.emitCounter.emitted(System.currentTimeMillis());
+            if (this.emitListeners.hasListeners()) {
+                final Map<String, Object> properties = CollectionUtil.newHashMap();
+                properties.put("emitter", pid);
+                this.eventAdmin.postEvent(new Event(WireSupport.EMIT_EVENT_TOPIC, properties));
+            }
         }
     }
 
+    /**
+     * Gets the emit counter.
+     *
+     * @return the emit counter
+     */
+    EmitCounter getEmitCounter() {
+        return this.emitCounter;
+    }
+
     /**
      * Gets the incoming wires.
      *
@@ -109,6 +137,15 @@ final class WireSupportImpl implements WireSupport {
         return Collections.unmodifiableList(this.incomingWires);
     }
 
+    /**
+     * Gets the Kura Service PID of the wire supporter.
+     *
+     * @return the Kura Service PID or null if the wire supporter was not registered on creation
+     */
+    String getPid() {
+        return this.pid;
+    }
+
     /**
      * Gets the outgoing wires.
      *
@@ -135,7 +172,11 @@ final class WireSupportImpl implements WireSupport {
     public void updated(final Wire wire, final Object value) {
         requireNonNull(wire, message.wireNonNull());
         if (value instanceof WireEnvelope && this.wireSupporter instanceof WireReceiver) {
-            ((WireReceiver) this.wireSupporter).onWireReceive((WireEnvelope) value);
+            this.mailbox.dispatch((WireEnvelope) value);
         }
     }
+
+    private void deliver(final WireEnvelope wireEnvelope) {
+        ((WireReceiver) this.wireSupporter).onWireReceive(wireEnvelope);
+    }
 }
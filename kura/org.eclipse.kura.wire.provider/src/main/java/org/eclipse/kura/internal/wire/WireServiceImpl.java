@@ -45,6 +45,7 @@ import org.eclipse.kura.util.collection.CollectionUtil;
 import org.eclipse.kura.util.service.ServiceUtil;
 import org.eclipse.kura.wire.WireComponent;
 import org.eclipse.kura.wire.WireConfiguration;
+import org.eclipse.kura.wire.WireEmitStatistics;
 import org.eclipse.kura.wire.WireHelperService;
 import org.eclipse.kura.wire.WireService;
 import org.eclipse.kura.wire.graph.WireComponentConfiguration;
@@ -326,6 +327,12 @@ public class WireServiceImpl implements ConfigurableComponent, WireService, Wire
         logger.info(message.removingWiresDone());
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, WireEmitStatistics> getEmitStatistics() {
+        return this.wireHelperService.getEmitStatistics();
+    }
+
     /** {@inheritDoc} */
     @Override
     public Set<WireConfiguration> getWireConfigurations() {
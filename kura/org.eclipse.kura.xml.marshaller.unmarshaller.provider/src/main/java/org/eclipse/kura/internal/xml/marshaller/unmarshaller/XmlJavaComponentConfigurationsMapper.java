@@ -15,6 +15,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.eclipse.kura.configuration.ComponentConfiguration;
 import org.eclipse.kura.configuration.metatype.OCD;
 import org.eclipse.kura.core.configuration.ComponentConfigurationImpl;
@@ -26,10 +32,17 @@ import org.eclipse.kura.core.configuration.XmlConfigPropertyAdapted.ConfigProper
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
-public class XmlJavaComponentConfigurationsMapper implements XmlJavaDataMapper {
+/**
+ * Maps {@link XmlComponentConfigurations} to and from XML using the StAX streaming API, so that snapshots are written
+ * and read one configuration at a time without building a DOM of the whole document.
+ */
+public class XmlJavaComponentConfigurationsMapper {
+
+    private static final String ESF_NAMESPACE_URI = "http://eurotech.com/esf/2.0";
+    private static final String OCD_NAMESPACE_URI = "http://www.osgi.org/xmlns/metatype/v1.2.0";
 
     private static final String CONFIGURATIONS = "configurations";
     private static final String PROPERTIES = "properties";
@@ -44,129 +57,183 @@ public class XmlJavaComponentConfigurationsMapper implements XmlJavaDataMapper {
     private static final String CONFIGURATIONS_CONFIGURATION_PROPERTY_TYPE = "type";
     private static final String CONFIGURATIONS_CONFIGURATION_PROPERTY_VALUE = "value";
 
-    private Document marshallDoc = null;
+    private static final String INDENT = "    ";
 
-    @Override
-    public Element marshal(Document doc, Object object) throws Exception {
-        this.marshallDoc = doc;
-        Element configurations = doc.createElement(ESF_NAMESPACE + ":" + CONFIGURATIONS);
-        configurations.setAttributeNS("http://www.w3.org/2000/xmlns/", "xmlns:esf", "http://eurotech.com/esf/2.0");
-        configurations.setAttributeNS("http://www.w3.org/2000/xmlns/", "xmlns:ocd",
-                "http://www.osgi.org/xmlns/metatype/v1.2.0");
-        doc.appendChild(configurations);
+    private XMLStreamWriter writer;
+    private int depth;
 
-        XmlComponentConfigurations xmlCompConfig = (XmlComponentConfigurations) object;
-        List<ComponentConfiguration> configs = xmlCompConfig.getConfigurations();
+    public void marshal(XMLStreamWriter writer, XmlComponentConfigurations xmlCompConfig) throws Exception {
+        this.writer = writer;
+        this.depth = 0;
 
+        writer.writeStartDocument("UTF-8", "1.0");
+        writeStartElement(XmlJavaDataMapper.ESF_NAMESPACE, CONFIGURATIONS, ESF_NAMESPACE_URI);
+        writer.writeNamespace(XmlJavaDataMapper.ESF_NAMESPACE, ESF_NAMESPACE_URI);
+        writer.writeNamespace(XmlJavaDataMapper.OCD_NAMESPACE, OCD_NAMESPACE_URI);
+
+        List<ComponentConfiguration> configs = xmlCompConfig.getConfigurations();
         if (configs != null) {
             for (ComponentConfiguration config : configs) {
-                Element configuration = marshallConfiguration(config);
-                configurations.appendChild(configuration);
+                marshallConfiguration(config);
             }
         }
-        return configurations;
+
+        writeEndElement(configs != null && !configs.isEmpty());
+        writer.writeEndDocument();
+        writer.flush();
     }
 
-    @SuppressWarnings("unchecked")
-    @Override
-    public <T> T unmarshal(Document doc) throws Exception {
+    public XmlComponentConfigurations unmarshal(XMLStreamReader reader) throws Exception {
         XmlComponentConfigurations xcc = new XmlComponentConfigurations();
 
-        // Get all configurations
-        NodeList configurationList = doc.getElementsByTagName(ESF_NAMESPACE + ":" + CONFIGURATIONS_CONFIGURATION);
-
         List<ComponentConfiguration> compConfList = new ArrayList<>();
-        // Iterate through all the configuration elements inside configurations tag
-        for (int configIndex = 0; configIndex < configurationList.getLength(); configIndex++) {
-            Element configuration = (Element) configurationList.item(configIndex);
-            ComponentConfiguration cci = parseConfiguration(configuration);
-            compConfList.add(cci);
+        // Iterate through all the configuration elements, wherever they are in the document
+        while (reader.hasNext()) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT
+                    && CONFIGURATIONS_CONFIGURATION.equals(getLocalName(reader))) {
+                compConfList.add(parseConfiguration(reader));
+            }
         }
         xcc.setConfigurations(compConfList);
-        return (T) xcc;
+        return xcc;
     }
 
     //
     // Marshaller's private methods
     //
-    private Element marshallConfiguration(ComponentConfiguration config) throws Exception {
+    private void marshallConfiguration(ComponentConfiguration config) throws Exception {
         // get ComponentConfigurationImpl Object data
         String configPid = config.getPid();
         Map<String, Object> configProperty = config.getConfigurationProperties();
         OCD configOCD = config.getDefinition();
 
         // create configuration element
-        Element configurationElement = this.marshallDoc
-                .createElement(ESF_NAMESPACE + ":" + CONFIGURATIONS_CONFIGURATION);
-        Attr propertiesAttribute = this.marshallDoc.createAttribute(CONFIGURATION_PID);
-        propertiesAttribute.setNodeValue(configPid);
-        configurationElement.setAttributeNode(propertiesAttribute);
+        writeStartElement(XmlJavaDataMapper.ESF_NAMESPACE, CONFIGURATIONS_CONFIGURATION, ESF_NAMESPACE_URI);
+        if (configPid != null) {
+            this.writer.writeAttribute(CONFIGURATION_PID, configPid);
+        }
 
-        // Add OCD node and marshall definitions
+        // Add OCD node and marshall definitions, the definitions are small and reuse the DOM mapper
+        boolean hasChildren = false;
         if (configOCD != null) {
-            Element ocd = new XmlJavaMetadataMapper().marshal(this.marshallDoc, configOCD);
-            configurationElement.appendChild(ocd);
+            Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+            Element ocd = new XmlJavaMetadataMapper().marshal(doc, configOCD);
+            if (ocd != null) {
+                writeDomElement(ocd);
+                hasChildren = true;
+            }
         }
 
         // Add properties Node and marshall properties
         if (configProperty != null) {
-            Element properties = this.marshallDoc.createElement(ESF_NAMESPACE + ":" + PROPERTIES);
-            marshallProperties(configProperty, properties);
-            configurationElement.appendChild(properties);
+            writeStartElement(XmlJavaDataMapper.ESF_NAMESPACE, PROPERTIES, ESF_NAMESPACE_URI);
+            boolean hasProperties = marshallProperties(configProperty);
+            writeEndElement(hasProperties);
+            hasChildren = true;
         }
 
-        return configurationElement;
+        writeEndElement(hasChildren);
     }
 
-    private void marshallProperties(Map<String, Object> propertyMap, Element properties) throws Exception {
+    private boolean marshallProperties(Map<String, Object> propertyMap) throws Exception {
         XmlConfigPropertiesAdapter xmlPropAdapter = new XmlConfigPropertiesAdapter();
         XmlConfigPropertiesAdapted configPropAdapted = xmlPropAdapter.marshal(propertyMap);
 
+        boolean hasProperties = false;
         XmlConfigPropertyAdapted[] propArray = configPropAdapted.getProperties();
         for (XmlConfigPropertyAdapted propertyObj : propArray) {
-            Element property = marshallProperty(propertyObj);
-            if (property != null) {
-                properties.appendChild(property);
-            }
+            hasProperties |= marshallProperty(propertyObj);
         }
+        return hasProperties;
     }
 
-    private Element marshallProperty(XmlConfigPropertyAdapted propertyObj) {
+    private boolean marshallProperty(XmlConfigPropertyAdapted propertyObj) throws XMLStreamException {
         String name = propertyObj.getName();
         Boolean array = propertyObj.getArray();
         Boolean encrypted = propertyObj.isEncrypted();
         ConfigPropertyType cpt = propertyObj.getType();
         String[] values = propertyObj.getValues();
 
-        if (values != null) {
-            Element property = this.marshallDoc
-                    .createElement(ESF_NAMESPACE + ":" + CONFIGURATIONS_CONFIGURATION_PROPERTY);
-            Attr attName = this.marshallDoc.createAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_NAME);
-            attName.setNodeValue(name);
-            property.setAttributeNode(attName);
+        if (values == null) {
+            return false;
+        }
 
-            Attr attArray = this.marshallDoc.createAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_ARRAY);
-            attArray.setNodeValue(array.toString());
-            property.setAttributeNode(attArray);
+        writeStartElement(XmlJavaDataMapper.ESF_NAMESPACE, CONFIGURATIONS_CONFIGURATION_PROPERTY, ESF_NAMESPACE_URI);
+        this.writer.writeAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_ARRAY, array.toString());
+        this.writer.writeAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_ENCRYPTED, encrypted.toString());
+        this.writer.writeAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_NAME, name);
+        this.writer.writeAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_TYPE, getStringValue(cpt));
+
+        for (String value : values) {
+            writeStartElement(XmlJavaDataMapper.ESF_NAMESPACE, CONFIGURATIONS_CONFIGURATION_PROPERTY_VALUE,
+                    ESF_NAMESPACE_URI);
+            writeText(value);
+            writeEndElement(false);
+        }
 
-            Attr attEncrypted = this.marshallDoc.createAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_ENCRYPTED);
-            attEncrypted.setNodeValue(encrypted.toString());
-            property.setAttributeNode(attEncrypted);
+        writeEndElement(values.length > 0);
+        return true;
+    }
 
-            Attr attType = this.marshallDoc.createAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_TYPE);
+    private void writeDomElement(Element element) throws XMLStreamException {
+        boolean hasChildren = false;
+        writeStartElement(element.getTagName());
 
-            attType.setNodeValue(getStringValue(cpt));
-            property.setAttributeNode(attType);
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attribute = (Attr) attributes.item(i);
+            this.writer.writeAttribute(attribute.getName(), attribute.getValue());
+        }
 
-            for (String value : values) {
-                Element valueElem = this.marshallDoc
-                        .createElement(ESF_NAMESPACE + ":" + CONFIGURATIONS_CONFIGURATION_PROPERTY_VALUE);
-                valueElem.setTextContent(value);
-                property.appendChild(valueElem);
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                writeDomElement((Element) child);
+                hasChildren = true;
+            } else if (child.getNodeType() == Node.TEXT_NODE) {
+                writeText(child.getNodeValue());
             }
-            return property;
         }
-        return null;
+
+        writeEndElement(hasChildren);
+    }
+
+    private void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        indent();
+        this.writer.writeStartElement(prefix, localName, namespaceURI);
+        this.depth++;
+    }
+
+    private void writeStartElement(String name) throws XMLStreamException {
+        indent();
+        this.writer.writeStartElement(name);
+        this.depth++;
+    }
+
+    private void writeEndElement(boolean hasChildElements) throws XMLStreamException {
+        this.depth--;
+        if (hasChildElements) {
+            indent();
+        }
+        this.writer.writeEndElement();
+    }
+
+    private void indent() throws XMLStreamException {
+        StringBuilder sb = new StringBuilder("\n");
+        for (int i = 0; i < this.depth; i++) {
+            sb.append(INDENT);
+        }
+        this.writer.writeCharacters(sb.toString());
+    }
+
+    private void writeText(String text) throws XMLStreamException {
+        // carriage returns must be escaped to survive the end of line normalization of the parser
+        int start = 0;
+        for (int i = text.indexOf('\r'); i >= 0; i = text.indexOf('\r', start)) {
+            this.writer.writeCharacters(text.substring(start, i));
+            this.writer.writeEntityRef("#13");
+            start = i + 1;
+        }
+        this.writer.writeCharacters(text.substring(start));
     }
 
     private String getStringValue(ConfigPropertyType type) {
@@ -200,69 +267,78 @@ public class XmlJavaComponentConfigurationsMapper implements XmlJavaDataMapper {
     //
     // Unmarshaller's private methods
     //
-    private ComponentConfiguration parseConfiguration(Element configuration) throws Exception {
+    private ComponentConfiguration parseConfiguration(XMLStreamReader reader) throws Exception {
         XmlConfigPropertiesAdapter xmlPropAdapter = new XmlConfigPropertiesAdapter();
 
-        // get configuration's properties
-        NodeList propertiesList = configuration.getChildNodes();
-
-        // get effective elements
-        Element[] propertiesArray = getElementNodes(propertiesList);
+        String pid = getAttribute(reader, CONFIGURATION_PID);
 
         XmlConfigPropertiesAdapted xmlPropertiesAdapted = new XmlConfigPropertiesAdapted();
-        for (Element element : propertiesArray) {
-            // parse property elements
-            NodeList propertyList = element.getChildNodes();
-            Element[] propertyArray = getElementNodes(propertyList);
-
-            XmlConfigPropertyAdapted[] xmlConfigProperties = new XmlConfigPropertyAdapted[propertyArray.length];
-            for (int propertyIndex = 0; propertyIndex < propertyArray.length; propertyIndex++) {
-                XmlConfigPropertyAdapted xmlProperty = parseProperty(propertyArray[propertyIndex]);
-                xmlConfigProperties[propertyIndex] = xmlProperty;
+        int level = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (level == 0 && PROPERTIES.equals(getLocalName(reader))) {
+                    xmlPropertiesAdapted.setProperties(parseProperties(reader));
+                } else {
+                    // definitions are not unmarshalled
+                    level++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (level == 0) {
+                    break;
+                }
+                level--;
             }
-            xmlPropertiesAdapted.setProperties(xmlConfigProperties);
         }
 
         Map<String, Object> propertiesMap = xmlPropAdapter.unmarshal(xmlPropertiesAdapted);
 
-        String pid = configuration.getAttribute(CONFIGURATION_PID);
         return new ComponentConfigurationImpl(pid, null, propertiesMap);
     }
 
-    private XmlConfigPropertyAdapted parseProperty(Element property) {
-        NodeList valuesList = property.getChildNodes();
-        Element[] valuesArray = getElementNodes(valuesList);
-        String[] values = new String[valuesArray.length];
+    private XmlConfigPropertyAdapted[] parseProperties(XMLStreamReader reader) throws XMLStreamException {
+        List<XmlConfigPropertyAdapted> xmlConfigProperties = new ArrayList<>();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            xmlConfigProperties.add(parseProperty(reader));
+        }
+        return xmlConfigProperties.toArray(new XmlConfigPropertyAdapted[xmlConfigProperties.size()]);
+    }
+
+    private XmlConfigPropertyAdapted parseProperty(XMLStreamReader reader) throws XMLStreamException {
+        String name = getAttribute(reader, CONFIGURATIONS_CONFIGURATION_PROPERTY_NAME);
+        String type = getAttribute(reader, CONFIGURATIONS_CONFIGURATION_PROPERTY_TYPE);
+        String array = getAttribute(reader, CONFIGURATIONS_CONFIGURATION_PROPERTY_ARRAY);
+        String encrypted = getAttribute(reader, CONFIGURATIONS_CONFIGURATION_PROPERTY_ENCRYPTED);
 
         // get values
-        for (int valIndex = 0; valIndex < valuesArray.length; valIndex++) {
-            values[valIndex] = valuesArray[valIndex].getTextContent();
+        List<String> values = new ArrayList<>();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            values.add(reader.getElementText());
         }
 
-        String name = property.getAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_NAME);
-        String type = property.getAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_TYPE);
-        String array = property.getAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_ARRAY);
-        String encrypted = property.getAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_ENCRYPTED);
-
         ConfigPropertyType cct = getType(type);
 
-        XmlConfigPropertyAdapted xmlProperty = new XmlConfigPropertyAdapted(name, cct, values);
+        XmlConfigPropertyAdapted xmlProperty = new XmlConfigPropertyAdapted(name, cct,
+                values.toArray(new String[values.size()]));
         xmlProperty.setArray(Boolean.parseBoolean(array));
         xmlProperty.setEncrypted(Boolean.parseBoolean(encrypted));
 
         return xmlProperty;
     }
 
-    private Element[] getElementNodes(NodeList propertiesList) {
-        List<Element> elementList = new ArrayList<>();
-        for (int propIndex = 0; propIndex < propertiesList.getLength(); propIndex++) {
-            Node currentNode = propertiesList.item(propIndex);
-            if (currentNode.getNodeType() == Node.ELEMENT_NODE) {
-                Element el = (Element) currentNode;
-                elementList.add(el);
+    private static String getLocalName(XMLStreamReader reader) {
+        // the prefix is part of the local name if the reader is not namespace aware
+        String name = reader.getLocalName();
+        return name.substring(name.indexOf(':') + 1);
+    }
+
+    private static String getAttribute(XMLStreamReader reader, String name) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (name.equals(reader.getAttributeLocalName(i))) {
+                return reader.getAttributeValue(i);
             }
         }
-        return elementList.toArray(new Element[0]);
+        return "";
     }
 
     private ConfigPropertyType getType(String type) {
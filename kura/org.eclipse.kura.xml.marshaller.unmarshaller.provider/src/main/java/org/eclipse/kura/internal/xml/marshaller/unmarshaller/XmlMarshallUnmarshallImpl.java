@@ -21,6 +21,11 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
@@ -48,18 +53,47 @@ public class XmlMarshallUnmarshallImpl implements Marshaller, Unmarshaller {
 
     private static final Logger logger = LoggerFactory.getLogger(XmlMarshallUnmarshallImpl.class);
 
+    private final XMLInputFactory inputFactory;
+    private final XMLOutputFactory outputFactory;
+
+    public XmlMarshallUnmarshallImpl() {
+        this.inputFactory = XMLInputFactory.newInstance();
+        this.inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        this.outputFactory = XMLOutputFactory.newInstance();
+    }
+
     @Override
     public String marshal(Object object) throws KuraException {
         StringWriter sw = new StringWriter();
+        marshal(object, sw);
+        return sw.toString();
+    }
+
+    @Override
+    public void marshal(Object object, Writer w) throws KuraException {
         try {
-            marshal(object, sw);
+            if (object instanceof XmlComponentConfigurations) {
+                // Snapshots are streamed to the writer
+                marshalStream((XmlComponentConfigurations) object, w);
+            } else {
+                marshalDom(object, w);
+            }
         } catch (Exception e) {
             throw new KuraException(KuraErrorCode.ENCODE_ERROR);
         }
-        return sw.toString();
     }
 
-    private void marshal(Object object, Writer w) throws Exception {
+    private void marshalStream(XmlComponentConfigurations object, Writer w) throws Exception {
+        XMLStreamWriter xmlWriter = this.outputFactory.createXMLStreamWriter(w);
+        try {
+            new XmlJavaComponentConfigurationsMapper().marshal(xmlWriter, object);
+        } finally {
+            xmlWriter.close();
+        }
+    }
+
+    private void marshalDom(Object object, Writer w) throws Exception {
         try {
             DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
             DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
@@ -79,8 +113,6 @@ public class XmlMarshallUnmarshallImpl implements Marshaller, Unmarshaller {
 
                 new XmlJavaSnapshotIdResultMapper().marshal(doc, object);
 
-            } else if (object instanceof XmlComponentConfigurations) {
-                new XmlJavaComponentConfigurationsMapper().marshal(doc, object);
             } else if (object instanceof XmlDeploymentPackages) {
                 // Expected resulting xml:
                 // <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
@@ -124,6 +156,7 @@ public class XmlMarshallUnmarshallImpl implements Marshaller, Unmarshaller {
 
             StreamResult result = new StreamResult(w); // System.out
             transformer.transform(source, result);
+            w.flush();
         } catch (ParserConfigurationException pce) {
             logger.warn("Parser Exception", pce);
         } catch (TransformerException tfe) {
@@ -138,7 +171,39 @@ public class XmlMarshallUnmarshallImpl implements Marshaller, Unmarshaller {
         return unmarshal(sr, clazz);
     }
 
-    private <T> T unmarshal(Reader r, Class<T> clazz) throws KuraException {
+    @Override
+    public <T> T unmarshal(Reader r, Class<T> clazz) throws KuraException {
+        // identify the correct parser that has to execute
+        if (clazz.equals(XmlComponentConfigurations.class)) {
+            // Snapshot parser, streamed from the reader
+            return clazz.cast(unmarshalStream(r));
+        } else if (clazz.equals(MetaData.class) || clazz.equals(Tmetadata.class)) {
+            // MetaData parser
+            return new XmlJavaMetadataMapper().unmarshal(parse(r));
+        } else {
+            throw new IllegalArgumentException("Class not supported!");
+        }
+    }
+
+    private XmlComponentConfigurations unmarshalStream(Reader r) throws KuraException {
+        XMLStreamReader xmlReader = null;
+        try {
+            xmlReader = this.inputFactory.createXMLStreamReader(r);
+            return new XmlJavaComponentConfigurationsMapper().unmarshal(xmlReader);
+        } catch (Exception e) {
+            throw new KuraException(KuraErrorCode.DECODER_ERROR, e);
+        } finally {
+            if (xmlReader != null) {
+                try {
+                    xmlReader.close();
+                } catch (XMLStreamException e) {
+                    logger.warn("Failed to close the XML reader", e);
+                }
+            }
+        }
+    }
+
+    private Document parse(Reader r) throws KuraException {
         DocumentBuilderFactory factory = null;
         DocumentBuilder parser = null;
 
@@ -164,20 +229,6 @@ public class XmlMarshallUnmarshallImpl implements Marshaller, Unmarshaller {
         } catch (SAXException | IOException | IllegalArgumentException se) {
             throw new KuraException(KuraErrorCode.DECODER_ERROR, se);
         }
-
-        // identify the correct parser that has to execute
-        if (clazz.equals(XmlComponentConfigurations.class)) {
-            try {
-                // Snapshot parser
-                return new XmlJavaComponentConfigurationsMapper().unmarshal(doc);
-            } catch (Exception e) {
-                throw new KuraException(KuraErrorCode.DECODER_ERROR, e);
-            }
-        } else if (clazz.equals(MetaData.class) || clazz.equals(Tmetadata.class)) {
-            // MetaData parser
-            return new XmlJavaMetadataMapper().unmarshal(doc);
-        } else {
-            throw new IllegalArgumentException("Class not supported!");
-        }
+        return doc;
     }
 }
@@ -116,7 +116,7 @@ public class CloudClientImplTest {
         int priority = 5;
         int expectedValue = 42;
 
-        doReturn(appPayload).when(mockCloudService).encodePayload(payload);
+        doReturn(appPayload).when(mockCloudService).encodePayload(fullTopic, payload);
         doReturn(expectedValue).when(mockDataService).publish(fullTopic, appPayload, qos, retain, priority);
 
         // Execute method
@@ -150,7 +150,7 @@ public class CloudClientImplTest {
         byte[] appPayload = { 1, 2, 3 };
         int expectedValue = 42;
 
-        doReturn(appPayload).when(mockCloudService).encodePayload(payload);
+        doReturn(appPayload).when(mockCloudService).encodePayload(fullTopic, payload);
         doReturn(expectedValue).when(mockDataService).publish(fullTopic, appPayload, qos, retain, priority);
 
         // Execute method
@@ -217,7 +217,7 @@ public class CloudClientImplTest {
         byte[] appPayload = { 1, 2, 3 };
         int expectedValue = 42;
 
-        doReturn(appPayload).when(mockCloudService).encodePayload(payload);
+        doReturn(appPayload).when(mockCloudService).encodePayload(fullTopic, payload);
         doReturn(expectedValue).when(mockDataService).publish(fullTopic, appPayload, qos, retain, priority);
 
         // Execute method
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.kura.core.util.GZipUtil;
+import org.junit.Test;
+
+public class CloudPayloadCompressorTest {
+
+    private static final String TOPIC = "account/client/app/topic";
+
+    @Test
+    public void testBelowThreshold() {
+        CloudPayloadCompressor compressor = new CloudPayloadCompressor(1024, 0);
+        byte[] source = repeat("aaaaaaaaaa", 50);
+
+        assertSame(source, compressor.compress(TOPIC, source));
+    }
+
+    @Test
+    public void testNotReduced() {
+        CloudPayloadCompressor compressor = new CloudPayloadCompressor(0, 0);
+        byte[] source = "abcdefghijklmnopqrstuvwxyz".getBytes(StandardCharsets.UTF_8);
+
+        assertSame(source, compressor.compress(TOPIC, source));
+    }
+
+    @Test
+    public void testGzipCompatible() throws IOException {
+        CloudPayloadCompressor compressor = new CloudPayloadCompressor(0, 0);
+
+        // the pooled compressors must be reset between the messages
+        for (int i = 0; i < 10; i++) {
+            byte[] source = repeat("metric." + i + "=value;", 20 + i);
+            byte[] compressed = compressor.compress(TOPIC, source);
+
+            assertTrue(compressed.length < source.length);
+            assertTrue(GZipUtil.isCompressed(compressed));
+            assertArrayEquals(source, GZipUtil.decompress(compressed));
+            assertArrayEquals(source, compressor.decompress(TOPIC, compressed));
+        }
+    }
+
+    @Test
+    public void testDictionary() throws IOException {
+        CloudPayloadCompressor sender = new CloudPayloadCompressor(0, 256);
+        CloudPayloadCompressor receiver = new CloudPayloadCompressor(0, 256);
+
+        boolean dictionaryUsed = false;
+        for (int i = 0; i < 20; i++) {
+            byte[] source = ("{\"temperature\":" + (20 + i) + ",\"humidity\":" + (40 + i) + ",\"pressure\":1013}")
+                    .getBytes(StandardCharsets.UTF_8);
+            byte[] compressed = sender.compress(TOPIC, source);
+            dictionaryUsed |= compressed != source && !GZipUtil.isCompressed(compressed);
+
+            assertArrayEquals(source, receiver.decompress(TOPIC, compressed));
+        }
+        assertTrue(dictionaryUsed);
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownDictionary() throws IOException {
+        CloudPayloadCompressor sender = new CloudPayloadCompressor(0, 256);
+        CloudPayloadCompressor receiver = new CloudPayloadCompressor(0, 256);
+
+        byte[] source = repeat("{\"temperature\":20,\"humidity\":40}", 10);
+        sender.compress(TOPIC, source);
+        byte[] compressed = sender.compress(TOPIC, source);
+        assertFalse(GZipUtil.isCompressed(compressed));
+
+        // the receiver missed the payload the dictionary has been trained from
+        receiver.decompress(TOPIC, compressed);
+    }
+
+    @Test
+    public void testUncompressedPassThrough() throws IOException {
+        CloudPayloadCompressor compressor = new CloudPayloadCompressor(0, 256);
+        byte[] source = { 0x08, 0x01, 0x12, 0x00 };
+
+        assertSame(source, compressor.decompress(TOPIC, source));
+    }
+
+    private static byte[] repeat(String value, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(value);
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+
+import org.eclipse.kura.KuraInvalidMessageException;
+import org.eclipse.kura.core.message.protobuf.KuraPayloadProto;
+import org.eclipse.kura.core.message.protobuf.KuraPayloadProto.KuraPayload.KuraMetric;
+import org.eclipse.kura.core.util.GZipUtil;
+import org.eclipse.kura.message.KuraPayload;
+import org.junit.Test;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+
+public class CloudPayloadProtoBufDecoderTest {
+
+    @Test
+    public void testDecodeProtoBufMessage() throws Exception {
+        KuraPayloadProto.KuraPayload.Builder builder = KuraPayloadProto.KuraPayload.newBuilder();
+        builder.setTimestamp(1500000000000L);
+        builder.setPosition(KuraPayloadProto.KuraPayload.KuraPosition.newBuilder().setLatitude(1.5)
+                .setLongitude(2.5).setSatellites(4).setTimestamp(1400000000000L));
+        builder.addMetric(KuraMetric.newBuilder().setName("int").setType(KuraMetric.ValueType.INT32).setIntValue(-3));
+        builder.addMetric(
+                KuraMetric.newBuilder().setName("string").setType(KuraMetric.ValueType.STRING).setStringValue("è"));
+        builder.addMetric(KuraMetric.newBuilder().setName("bytes").setType(KuraMetric.ValueType.BYTES)
+                .setBytesValue(ByteString.copyFrom(new byte[] { 4, 5 })));
+        // a missing value is decoded as the default value for the type
+        builder.addMetric(KuraMetric.newBuilder().setName("double").setType(KuraMetric.ValueType.DOUBLE));
+        builder.setBody(ByteString.copyFrom(new byte[] { 1, 2 }));
+
+        KuraPayload payload = new CloudPayloadProtoBufDecoderImpl(builder.build().toByteArray()).buildFromByteArray();
+
+        assertEquals(new Date(1500000000000L), payload.getTimestamp());
+        assertEquals(1.5, payload.getPosition().getLatitude(), 0.0);
+        assertEquals(2.5, payload.getPosition().getLongitude(), 0.0);
+        assertEquals(4, (int) payload.getPosition().getSatellites());
+        assertEquals(new Date(1400000000000L), payload.getPosition().getTimestamp());
+        assertNull(payload.getPosition().getAltitude());
+        assertEquals(4, payload.metrics().size());
+        assertEquals(-3, payload.getMetric("int"));
+        assertEquals("è", payload.getMetric("string"));
+        assertArrayEquals(new byte[] { 4, 5 }, (byte[]) payload.getMetric("bytes"));
+        assertEquals(0.0, payload.getMetric("double"));
+        assertArrayEquals(new byte[] { 1, 2 }, payload.getBody());
+    }
+
+    @Test
+    public void testDecodeCompressed() throws Exception {
+        KuraPayloadProto.KuraPayload message = KuraPayloadProto.KuraPayload.newBuilder()
+                .addMetric(KuraMetric.newBuilder().setName("long").setType(KuraMetric.ValueType.INT64).setLongValue(7))
+                .build();
+
+        KuraPayload payload = new CloudPayloadProtoBufDecoderImpl(GZipUtil.compress(message.toByteArray()))
+                .buildFromByteArray();
+
+        assertEquals(7L, payload.getMetric("long"));
+    }
+
+    @Test
+    public void testSkipUnknownFields() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(out);
+        output.writeInt64(1, 10);
+        output.writeString(3, "extension");
+        output.writeFixed32(4999, 5);
+        output.writeByteArray(5001, new byte[] { 9 });
+        output.flush();
+
+        KuraPayload payload = new CloudPayloadProtoBufDecoderImpl(out.toByteArray()).buildFromByteArray();
+
+        assertEquals(new Date(10), payload.getTimestamp());
+        assertArrayEquals(new byte[] { 9 }, payload.getBody());
+        assertEquals(0, payload.metrics().size());
+    }
+
+    @Test(expected = KuraInvalidMessageException.class)
+    public void testMissingMetricType() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(out);
+        byte[] metric = KuraMetric.newBuilder().setName("name").setType(KuraMetric.ValueType.INT32).setIntValue(1)
+                .build().toByteArray();
+        // drop the type field, encoded after the name
+        byte[] truncated = new byte[] { metric[0], metric[1], metric[2], metric[3], metric[4], metric[5],
+                metric[8], metric[9] };
+        output.writeByteArray(5000, truncated);
+        output.flush();
+
+        new CloudPayloadProtoBufDecoderImpl(out.toByteArray()).buildFromByteArray();
+    }
+
+    @Test(expected = KuraInvalidMessageException.class)
+    public void testTruncatedMessage() throws Exception {
+        byte[] bytes = KuraPayloadProto.KuraPayload.newBuilder().setBody(ByteString.copyFrom(new byte[10])).build()
+                .toByteArray();
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+        new CloudPayloadProtoBufDecoderImpl(truncated).buildFromByteArray();
+    }
+}
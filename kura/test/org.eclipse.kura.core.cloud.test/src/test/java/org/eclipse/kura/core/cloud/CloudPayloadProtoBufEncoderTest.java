@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.eclipse.kura.core.message.protobuf.KuraPayloadProto;
+import org.eclipse.kura.core.message.protobuf.KuraPayloadProto.KuraPayload.KuraMetric;
+import org.eclipse.kura.message.KuraPayload;
+import org.eclipse.kura.message.KuraPosition;
+import org.junit.Test;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UninitializedMessageException;
+
+public class CloudPayloadProtoBufEncoderTest {
+
+    @Test
+    public void testEmptyPayload() throws IOException {
+        byte[] bytes = new CloudPayloadProtoBufEncoderImpl(new KuraPayload()).getBytes();
+
+        assertEquals(0, bytes.length);
+    }
+
+    @Test
+    public void testSameBytesAsProtoBufMessage() throws IOException {
+        KuraPayload payload = new KuraPayload();
+        payload.setTimestamp(new Date(1500000000000L));
+
+        KuraPosition position = new KuraPosition();
+        position.setLatitude(45.1);
+        position.setLongitude(-13.5);
+        position.setAltitude(200);
+        position.setHeading(90);
+        position.setTimestamp(new Date(1400000000000L));
+        position.setSatellites(7);
+        position.setStatus(-1);
+        payload.setPosition(position);
+
+        payload.addMetric("double", 1.5);
+        payload.addMetric("float", -2.5f);
+        payload.addMetric("long", Long.MIN_VALUE);
+        payload.addMetric("int", -1);
+        payload.addMetric("bool", true);
+        payload.addMetric("string", "è漢😀");
+        payload.addMetric("bytes", new byte[] { 1, 2, 3 });
+        payload.addMetric("null", null);
+        payload.setBody("body".getBytes());
+
+        // the expected output is built through the generated protobuf message
+        KuraPayloadProto.KuraPayload.Builder builder = KuraPayloadProto.KuraPayload.newBuilder();
+        builder.setTimestamp(1500000000000L);
+        builder.setPosition(KuraPayloadProto.KuraPayload.KuraPosition.newBuilder().setLatitude(45.1)
+                .setLongitude(-13.5).setAltitude(200).setHeading(90).setTimestamp(1400000000000L).setSatellites(7)
+                .setStatus(-1));
+        for (String name : payload.metricNames()) {
+            KuraMetric.Builder metric = KuraMetric.newBuilder().setName(name);
+            Object value = payload.getMetric(name);
+            if (value instanceof Double) {
+                metric.setType(KuraMetric.ValueType.DOUBLE).setDoubleValue((Double) value);
+            } else if (value instanceof Float) {
+                metric.setType(KuraMetric.ValueType.FLOAT).setFloatValue((Float) value);
+            } else if (value instanceof Long) {
+                metric.setType(KuraMetric.ValueType.INT64).setLongValue((Long) value);
+            } else if (value instanceof Integer) {
+                metric.setType(KuraMetric.ValueType.INT32).setIntValue((Integer) value);
+            } else if (value instanceof Boolean) {
+                metric.setType(KuraMetric.ValueType.BOOL).setBoolValue((Boolean) value);
+            } else if (value instanceof String) {
+                metric.setType(KuraMetric.ValueType.STRING).setStringValue((String) value);
+            } else if (value instanceof byte[]) {
+                metric.setType(KuraMetric.ValueType.BYTES).setBytesValue(ByteString.copyFrom((byte[]) value));
+            } else {
+                continue;
+            }
+            builder.addMetric(metric);
+        }
+        builder.setBody(ByteString.copyFrom("body".getBytes()));
+
+        byte[] bytes = new CloudPayloadProtoBufEncoderImpl(payload).getBytes();
+
+        assertArrayEquals(builder.build().toByteArray(), bytes);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        KuraPayload payload = new KuraPayload();
+        payload.setTimestamp(new Date());
+        KuraPosition position = new KuraPosition();
+        position.setLatitude(10);
+        position.setLongitude(20);
+        position.setSpeed(3.5);
+        payload.setPosition(position);
+        for (int i = 0; i < 500; i++) {
+            payload.addMetric("metric." + i, i % 2 == 0 ? (Object) i : (Object) ("value " + i));
+        }
+
+        byte[] bytes = new CloudPayloadProtoBufEncoderImpl(payload).getBytes();
+        KuraPayload decoded = new CloudPayloadProtoBufDecoderImpl(bytes).buildFromByteArray();
+
+        assertEquals(payload.getTimestamp(), decoded.getTimestamp());
+        assertEquals(10, decoded.getPosition().getLatitude(), 0.0);
+        assertEquals(20, decoded.getPosition().getLongitude(), 0.0);
+        assertEquals(3.5, decoded.getPosition().getSpeed(), 0.0);
+        assertEquals(payload.metrics(), decoded.metrics());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testUnsupportedMetricType() throws IOException {
+        KuraPayload payload = new KuraPayload();
+        payload.addMetric("char", 'c');
+
+        new CloudPayloadProtoBufEncoderImpl(payload).getBytes();
+    }
+
+    @Test(expected = UninitializedMessageException.class)
+    public void testPositionWithoutCoordinates() throws IOException {
+        KuraPayload payload = new KuraPayload();
+        KuraPosition position = new KuraPosition();
+        position.setAltitude(100);
+        payload.setPosition(position);
+
+        new CloudPayloadProtoBufEncoderImpl(payload).getBytes();
+    }
+}
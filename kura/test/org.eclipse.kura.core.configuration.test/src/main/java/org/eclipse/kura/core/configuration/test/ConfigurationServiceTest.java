@@ -667,7 +667,8 @@ public class ConfigurationServiceTest {
 
         String cfgxml = null;
         try {
-            cfgxml = (String) TestUtil.invokePrivate(configurationService, "marshal", cfgs);
+            cfgxml = (String) TestUtil.invokePrivate(configurationService, "marshal",
+                    new Class<?>[] { Object.class }, cfgs);
         } catch (Throwable e) {
             // TODO Auto-generated catch block
             e.printStackTrace();
@@ -861,7 +862,8 @@ public class ConfigurationServiceTest {
 
         String cfgxml = null;
         try {
-            cfgxml = (String) TestUtil.invokePrivate(configurationService, "marshal", cfgs);
+            cfgxml = (String) TestUtil.invokePrivate(configurationService, "marshal",
+                    new Class<?>[] { Object.class }, cfgs);
         } catch (Throwable e) {
             // TODO Auto-generated catch block
             e.printStackTrace();
@@ -981,7 +983,8 @@ class MultiStepCSValidator implements CSValidator {
         XmlComponentConfigurations configurations = null;
         try {
             configurations = (XmlComponentConfigurations) TestUtil.invokePrivate(
-                    ConfigurationServiceTest.configurationService, "unmarshal", arg0, XmlComponentConfigurations.class);
+                    ConfigurationServiceTest.configurationService, "unmarshal",
+                    new Class<?>[] { String.class, Class.class }, arg0, XmlComponentConfigurations.class);
         } catch (Throwable e) {
         }
 
@@ -1023,7 +1026,7 @@ class MultiStepCSValidator implements CSValidator {
                 String cfgxml = null;
                 try {
                     cfgxml = (String) TestUtil.invokePrivate(ConfigurationServiceTest.configurationService, "marshal",
-                            this.configs);
+                            new Class<?>[] { Object.class }, this.configs);
                 } catch (Throwable e) {
 
                 }
@@ -23,10 +23,17 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Dictionary;
@@ -1343,7 +1350,7 @@ public class ConfigurationServiceTest {
         CryptoService cryptoServiceMock = mock(CryptoService.class);
         cs.setCryptoService(cryptoServiceMock);
 
-        when(cryptoServiceMock.decryptAes((char[]) anyObject())).thenReturn(null);
+        when(cryptoServiceMock.aesDecryptingStream((InputStream) anyObject())).thenReturn(null);
 
         try {
             cs.loadEncryptedSnapshotFileContent(snapshotID);
@@ -1368,21 +1375,17 @@ public class ConfigurationServiceTest {
         ConfigurationServiceImpl cs = new ConfigurationServiceImpl() {
 
             @Override
-            protected <T> T unmarshal(String xmlString, Class<T> clazz) throws KuraException {
+            protected <T> T unmarshal(Reader reader, Class<T> clazz) throws KuraException {
                 XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
 
-                return xmlMarshaller.unmarshal(xmlString, clazz);
+                return xmlMarshaller.unmarshal(reader, clazz);
             }
 
             @Override
-            protected String marshal(Object object) {
+            protected void marshal(Object object, Writer writer) throws KuraException {
                 XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
-                try {
-                    return xmlMarshaller.marshal(object);
-                } catch (KuraException e) {
 
-                }
-                return null;
+                xmlMarshaller.marshal(object, writer);
             }
         };
 
@@ -1410,12 +1413,12 @@ public class ConfigurationServiceTest {
         cs.setCryptoService(cryptoServiceMock);
 
         // ensure the proper file is read
-        when(cryptoServiceMock.decryptAes("test".toCharArray())).thenReturn(decrypted.toCharArray());
+        mockDecryptingStream(cryptoServiceMock, "test", decrypted);
 
         XmlComponentConfigurations configurations = cs.loadEncryptedSnapshotFileContent(snapshotID);
 
         verify(systemServiceMock, times(1)).getKuraSnapshotsDirectory();
-        verify(cryptoServiceMock, times(1)).decryptAes("test".toCharArray());
+        verify(cryptoServiceMock, times(1)).aesDecryptingStream((InputStream) anyObject());
 
         f1.delete();
         d1.delete();
@@ -1602,6 +1605,112 @@ public class ConfigurationServiceTest {
         assertEquals("call load xml", 3, calls[1]);
     }
 
+    @Test
+    public void testLoadLatestSnapshotConfigurationsCached() throws Throwable {
+        // the latest snapshot is loaded only once, until a newer one is available
+
+        final Set<Long> snapshotList = new TreeSet<>();
+        snapshotList.add(123L);
+
+        Map<String, Object> props = new HashMap<>();
+        props.put("key", "value");
+        final XmlComponentConfigurations xmlComponentConfigurations = new XmlComponentConfigurations();
+        List<ComponentConfiguration> configurations = new ArrayList<>();
+        configurations.add(new ComponentConfigurationImpl("pid", null, props));
+        xmlComponentConfigurations.setConfigurations(configurations);
+
+        final int[] calls = { 0 };
+
+        ConfigurationServiceImpl cs = new ConfigurationServiceImpl() {
+
+            @Override
+            public Set<Long> getSnapshots() throws KuraException {
+                return snapshotList;
+            }
+
+            @Override
+            XmlComponentConfigurations loadEncryptedSnapshotFileContent(long snapshotID) throws KuraException {
+                calls[0]++;
+                return xmlComponentConfigurations;
+            }
+        };
+
+        List<ComponentConfiguration> result = (List<ComponentConfiguration>) TestUtil.invokePrivate(cs,
+                "loadLatestSnapshotConfigurations");
+        result.get(0).getConfigurationProperties().put("key", "changed");
+
+        result = (List<ComponentConfiguration>) TestUtil.invokePrivate(cs, "loadLatestSnapshotConfigurations");
+
+        assertEquals("snapshot loaded once", 1, calls[0]);
+        assertEquals("one configuration", 1, result.size());
+        assertEquals("cached copy not modified", "value", result.get(0).getConfigurationProperties().get("key"));
+
+        snapshotList.add(1234L);
+        TestUtil.invokePrivate(cs, "loadLatestSnapshotConfigurations");
+
+        assertEquals("newer snapshot loaded", 2, calls[0]);
+    }
+
+    @Test
+    public void testApplySnapshotConfigurationsConcurrently() throws Throwable {
+        // configurations are pushed to ConfigurationAdmin by multiple threads, factory configurations registered
+
+        final int count = 20;
+        final Map<String, String> registered = new HashMap<>();
+
+        ConfigurationServiceImpl cs = new ConfigurationServiceImpl() {
+
+            @Override
+            synchronized void registerComponentConfiguration(String pid, String servicePid, String factoryPid) {
+                registered.put(pid, servicePid);
+            }
+        };
+
+        ConfigurationAdmin configAdminMock = mock(ConfigurationAdmin.class);
+        cs.setConfigurationAdmin(configAdminMock);
+
+        List<ComponentConfiguration> configs = new ArrayList<>();
+        List<Configuration> cfgMocks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> props = new HashMap<>();
+            Configuration cfgMock = mock(Configuration.class);
+            cfgMocks.add(cfgMock);
+            if (i % 2 == 0) {
+                props.put(ConfigurationAdmin.SERVICE_FACTORYPID, "factory");
+                when(configAdminMock.getConfiguration("factory." + i, "?")).thenReturn(cfgMock);
+                configs.add(new ComponentConfigurationImpl("pid" + i, null, props));
+                if (i == 0) {
+                    // a duplicate factory pid is created only once
+                    configs.add(new ComponentConfigurationImpl("pid" + i, null, props));
+                }
+            } else {
+                when(configAdminMock.getConfiguration("pid" + i, "?")).thenReturn(cfgMock);
+                configs.add(new ComponentConfigurationImpl("pid" + i, null, props));
+            }
+        }
+        when(configAdminMock.createFactoryConfiguration("factory", null)).thenAnswer(new Answer<Configuration>() {
+
+            private int next = 0;
+
+            @Override
+            public synchronized Configuration answer(InvocationOnMock invocation) throws Throwable {
+                Configuration factoryCfgMock = mock(Configuration.class);
+                when(factoryCfgMock.getPid()).thenReturn("factory." + this.next);
+                this.next += 2;
+                return factoryCfgMock;
+            }
+        });
+
+        TestUtil.invokePrivate(cs, "applySnapshotConfigurations", new Class<?>[] { List.class, int.class }, configs,
+                4);
+
+        for (Configuration cfgMock : cfgMocks) {
+            verify(cfgMock, times(1)).update((Dictionary<String, ?>) anyObject());
+        }
+        verify(configAdminMock, times(count / 2)).createFactoryConfiguration("factory", null);
+        assertEquals("factory configurations registered", count / 2, registered.size());
+    }
+
     @Test
     public void testEncryptPlainSnapshotsNoFile() throws Throwable {
         // snapshot file doesn't exist
@@ -1668,21 +1777,17 @@ public class ConfigurationServiceTest {
             }
 
             @Override
-            protected <T> T unmarshal(String xmlString, Class<T> clazz) throws KuraException {
+            protected <T> T unmarshal(Reader reader, Class<T> clazz) throws KuraException {
                 XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
 
-                return xmlMarshaller.unmarshal(xmlString, clazz);
+                return xmlMarshaller.unmarshal(reader, clazz);
             }
 
             @Override
-            protected String marshal(Object object) {
+            protected void marshal(Object object, Writer writer) throws KuraException {
                 XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
-                try {
-                    return xmlMarshaller.marshal(object);
-                } catch (KuraException e) {
 
-                }
-                return null;
+                xmlMarshaller.marshal(object, writer);
             }
         };
 
@@ -1691,14 +1796,14 @@ public class ConfigurationServiceTest {
 
         String encCfg = "encrypted";
         char[] encrypted = encCfg.toCharArray();
-        when(cryptoServiceMock.encryptAes((char[]) Matchers.anyObject())).thenReturn(encrypted);
+        mockEncryptingStream(cryptoServiceMock, encCfg);
 
         BundleContext bundleContext = mock(BundleContext.class);
         TestUtil.setFieldValue(cs, "bundleContext", bundleContext);
 
         TestUtil.invokePrivate(cs, "encryptPlainSnapshots");
 
-        verify(cryptoServiceMock, times(1)).encryptAes((char[]) Matchers.anyObject());
+        verify(cryptoServiceMock, times(1)).aesEncryptingStream((OutputStream) anyObject());
 
         FileReader fr = new FileReader(f1);
         char[] chars = new char[encCfg.length()];
@@ -1712,6 +1817,30 @@ public class ConfigurationServiceTest {
         d1.delete();
     }
 
+    private void mockEncryptingStream(CryptoService cryptoServiceMock, final String encrypted) throws KuraException {
+        // the 'encrypted' content is written before the plain content
+        when(cryptoServiceMock.aesEncryptingStream((OutputStream) anyObject())).thenAnswer(invocation -> {
+            OutputStream out = (OutputStream) invocation.getArguments()[0];
+            out.write(encrypted.getBytes(StandardCharsets.UTF_8));
+            return out;
+        });
+    }
+
+    private void mockDecryptingStream(CryptoService cryptoServiceMock, final String encrypted,
+            final String decrypted) throws KuraException {
+        when(cryptoServiceMock.aesDecryptingStream((InputStream) anyObject())).thenAnswer(invocation -> {
+            InputStream in = (InputStream) invocation.getArguments()[0];
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) {
+                content.write(b);
+            }
+            in.close();
+            assertEquals("proper file read", encrypted, content.toString("UTF-8"));
+            return new ByteArrayInputStream(decrypted.getBytes(StandardCharsets.UTF_8));
+        });
+    }
+
     private String prepareSnapshotXML() throws Exception {
         XmlComponentConfigurations cfgs = prepareSnapshot();
 
@@ -1763,21 +1892,17 @@ public class ConfigurationServiceTest {
             }
 
             @Override
-            protected <T> T unmarshal(String xmlString, Class<T> clazz) throws KuraException {
+            protected <T> T unmarshal(Reader reader, Class<T> clazz) throws KuraException {
                 XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
 
-                return xmlMarshaller.unmarshal(xmlString, clazz);
+                return xmlMarshaller.unmarshal(reader, clazz);
             }
 
             @Override
-            protected String marshal(Object object) {
+            protected void marshal(Object object, Writer writer) throws KuraException {
                 XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
-                try {
-                    return xmlMarshaller.marshal(object);
-                } catch (KuraException e) {
 
-                }
-                return null;
+                xmlMarshaller.marshal(object, writer);
             }
         };
 
@@ -1785,8 +1910,7 @@ public class ConfigurationServiceTest {
         cs.setCryptoService(cryptoServiceMock);
 
         String encCfg = "encrypted";
-        char[] encrypted = encCfg.toCharArray();
-        when(cryptoServiceMock.encryptAes((char[]) Matchers.anyObject())).thenReturn(encrypted);
+        mockEncryptingStream(cryptoServiceMock, encCfg);
 
         try {
             TestUtil.invokePrivate(cs, "writeSnapshot", sid, cfg);
@@ -1795,7 +1919,7 @@ public class ConfigurationServiceTest {
             assertEquals("Error code.", KuraErrorCode.INTERNAL_ERROR, e.getCode());
         }
 
-        verify(cryptoServiceMock, times(1)).encryptAes((char[]) Matchers.anyObject());
+        verify(cryptoServiceMock, times(1)).aesEncryptingStream((OutputStream) anyObject());
 
         d1.delete();
         d2.delete();
@@ -1823,21 +1947,17 @@ public class ConfigurationServiceTest {
             }
 
             @Override
-            protected <T> T unmarshal(String xmlString, Class<T> clazz) throws KuraException {
+            protected <T> T unmarshal(Reader reader, Class<T> clazz) throws KuraException {
                 XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
 
-                return xmlMarshaller.unmarshal(xmlString, clazz);
+                return xmlMarshaller.unmarshal(reader, clazz);
             }
 
             @Override
-            protected String marshal(Object object) {
+            protected void marshal(Object object, Writer writer) throws KuraException {
                 XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
-                try {
-                    return xmlMarshaller.marshal(object);
-                } catch (KuraException e) {
 
-                }
-                return null;
+                xmlMarshaller.marshal(object, writer);
             }
         };
 
@@ -1846,14 +1966,14 @@ public class ConfigurationServiceTest {
 
         String encCfg = "encrypted";
         char[] encrypted = encCfg.toCharArray();
-        when(cryptoServiceMock.encryptAes((char[]) Matchers.anyObject())).thenReturn(encrypted);
+        mockEncryptingStream(cryptoServiceMock, encCfg);
 
         BundleContext bundleContext = mock(BundleContext.class);
         TestUtil.setFieldValue(cs, "bundleContext", bundleContext);
 
         TestUtil.invokePrivate(cs, "writeSnapshot", sid, cfg);
 
-        verify(cryptoServiceMock, times(1)).encryptAes((char[]) Matchers.anyObject());
+        verify(cryptoServiceMock, times(1)).aesEncryptingStream((OutputStream) anyObject());
 
         File f1 = new File(d1, "snapshot_" + sid + ".xml");
         f1.deleteOnExit();
@@ -2119,21 +2239,17 @@ public class ConfigurationServiceTest {
             }
 
             @Override
-            protected <T> T unmarshal(String xmlString, Class<T> clazz) throws KuraException {
+            protected <T> T unmarshal(Reader reader, Class<T> clazz) throws KuraException {
                 XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
 
-                return xmlMarshaller.unmarshal(xmlString, clazz);
+                return xmlMarshaller.unmarshal(reader, clazz);
             }
 
             @Override
-            protected String marshal(Object object) {
+            protected void marshal(Object object, Writer writer) throws KuraException {
                 XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
-                try {
-                    return xmlMarshaller.marshal(object);
-                } catch (KuraException e) {
 
-                }
-                return null;
+                xmlMarshaller.marshal(object, writer);
             }
         };
 
@@ -2141,8 +2257,7 @@ public class ConfigurationServiceTest {
         cs.setCryptoService(cryptoServiceMock);
 
         String encCfg = "encrypted";
-        char[] encrypted = encCfg.toCharArray();
-        when(cryptoServiceMock.encryptAes((char[]) Matchers.anyObject())).thenReturn(encrypted);
+        mockEncryptingStream(cryptoServiceMock, encCfg);
 
         SystemService systemServiceMock = mock(SystemService.class);
         cs.setSystemService(systemServiceMock);
@@ -2154,7 +2269,7 @@ public class ConfigurationServiceTest {
 
         Long sid = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", configs);
 
-        verify(cryptoServiceMock, times(1)).encryptAes((char[]) Matchers.anyObject());
+        verify(cryptoServiceMock, times(1)).aesEncryptingStream((OutputStream) anyObject());
         verify(systemServiceMock, times(1)).getKuraSnapshotsCount();
 
         assertNotNull(sid);
@@ -2200,21 +2315,17 @@ public class ConfigurationServiceTest {
             }
 
             @Override
-            protected <T> T unmarshal(String xmlString, Class<T> clazz) throws KuraException {
+            protected <T> T unmarshal(Reader reader, Class<T> clazz) throws KuraException {
                 XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
 
-                return xmlMarshaller.unmarshal(xmlString, clazz);
+                return xmlMarshaller.unmarshal(reader, clazz);
             }
 
             @Override
-            protected String marshal(Object object) {
+            protected void marshal(Object object, Writer writer) throws KuraException {
                 XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
-                try {
-                    return xmlMarshaller.marshal(object);
-                } catch (KuraException e) {
 
-                }
-                return null;
+                xmlMarshaller.marshal(object, writer);
             }
         };
 
@@ -2222,8 +2333,7 @@ public class ConfigurationServiceTest {
         cs.setCryptoService(cryptoServiceMock);
 
         String encCfg = "encrypted";
-        char[] encrypted = encCfg.toCharArray();
-        when(cryptoServiceMock.encryptAes((char[]) Matchers.anyObject())).thenReturn(encrypted);
+        mockEncryptingStream(cryptoServiceMock, encCfg);
 
         SystemService systemServiceMock = mock(SystemService.class);
         cs.setSystemService(systemServiceMock);
@@ -2238,7 +2348,7 @@ public class ConfigurationServiceTest {
 
         Long sid = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", configs);
 
-        verify(cryptoServiceMock, times(1)).encryptAes((char[]) Matchers.anyObject());
+        verify(cryptoServiceMock, times(1)).aesEncryptingStream((OutputStream) anyObject());
         verify(systemServiceMock, times(1)).getKuraSnapshotsCount();
 
         assertNotNull(sid);
@@ -2285,21 +2395,17 @@ public class ConfigurationServiceTest {
             }
 
             @Override
-            protected <T> T unmarshal(String xmlString, Class<T> clazz) throws KuraException {
+            protected <T> T unmarshal(Reader reader, Class<T> clazz) throws KuraException {
                 XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
 
-                return xmlMarshaller.unmarshal(xmlString, clazz);
+                return xmlMarshaller.unmarshal(reader, clazz);
             }
 
             @Override
-            protected String marshal(Object object) {
+            protected void marshal(Object object, Writer writer) throws KuraException {
                 XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
-                try {
-                    return xmlMarshaller.marshal(object);
-                } catch (KuraException e) {
 
-                }
-                return null;
+                xmlMarshaller.marshal(object, writer);
             }
         };
 
@@ -2307,8 +2413,7 @@ public class ConfigurationServiceTest {
         cs.setCryptoService(cryptoServiceMock);
 
         String encCfg = "encrypted";
-        char[] encrypted = encCfg.toCharArray();
-        when(cryptoServiceMock.encryptAes((char[]) Matchers.anyObject())).thenReturn(encrypted);
+        mockEncryptingStream(cryptoServiceMock, encCfg);
 
         SystemService systemServiceMock = mock(SystemService.class);
         cs.setSystemService(systemServiceMock);
@@ -2320,7 +2425,7 @@ public class ConfigurationServiceTest {
 
         Long sid = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", configs);
 
-        verify(cryptoServiceMock, times(1)).encryptAes((char[]) Matchers.anyObject());
+        verify(cryptoServiceMock, times(1)).aesEncryptingStream((OutputStream) anyObject());
         verify(systemServiceMock, times(1)).getKuraSnapshotsCount();
 
         assertNotNull(sid);
@@ -2462,6 +2567,36 @@ public class ConfigurationServiceTest {
         verify(cfgMock, times(1)).update((Dictionary<String, ?>) anyObject());
     }
 
+    @Test
+    public void testUpdateWithDefaultConfigurationUnchanged() throws Throwable {
+        // configuration already up to date is not updated again
+
+        String pid = "123";
+        Tocd ocd = null;
+
+        ConfigurationServiceImpl cs = new ConfigurationServiceImpl() {
+
+            @Override
+            boolean mergeWithDefaults(OCD ocd, Map<String, Object> properties) throws KuraException {
+                return false;
+            }
+        };
+
+        ConfigurationAdmin configAdminMock = mock(ConfigurationAdmin.class);
+        cs.setConfigurationAdmin(configAdminMock);
+
+        Configuration cfgMock = mock(Configuration.class);
+        when(configAdminMock.getConfiguration(pid, "?")).thenReturn(cfgMock);
+
+        Dictionary<String, Object> props = new Hashtable<>();
+        props.put(ConfigurationService.KURA_SERVICE_PID, pid);
+        when(cfgMock.getProperties()).thenReturn(props);
+
+        TestUtil.invokePrivate(cs, "updateWithDefaultConfiguration", pid, ocd);
+
+        verify(cfgMock, times(0)).update((Dictionary<String, ?>) anyObject());
+    }
+
     @Test
     public void testUpdateWithDefaultConfiguration() throws Throwable {
         final String pid = "123";
@@ -2835,9 +2970,10 @@ public class ConfigurationServiceTest {
         cs.setCryptoService(cryptoServiceMock);
 
         String decrypted = prepareSnapshotXML();
-        when(cryptoServiceMock.decryptAes("test".toCharArray())).thenReturn(decrypted.toCharArray());
+        mockDecryptingStream(cryptoServiceMock, "test", decrypted);
 
         when(cryptoServiceMock.encryptAes((char[]) anyObject())).thenReturn("encrypted".toCharArray());
+        mockEncryptingStream(cryptoServiceMock, "encrypted");
 
         SystemService systemServiceMock = mock(SystemService.class);
         cs.setSystemService(systemServiceMock);
@@ -2859,7 +2995,7 @@ public class ConfigurationServiceTest {
 
         cs.rollback(id);
 
-        verify(cryptoServiceMock, times(1)).decryptAes("test".toCharArray());
+        verify(cryptoServiceMock, times(1)).aesDecryptingStream((InputStream) anyObject());
         verify(cryptoServiceMock, times(1)).encryptAes((char[]) anyObject());
         verify(systemServiceMock, times(1)).getKuraSnapshotsCount();
 
@@ -2902,21 +3038,17 @@ public class ConfigurationServiceTest {
             }
 
             @Override
-            protected <T> T unmarshal(String xmlString, Class<T> clazz) throws KuraException {
+            protected <T> T unmarshal(Reader reader, Class<T> clazz) throws KuraException {
                 XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
 
-                return xmlMarshaller.unmarshal(xmlString, clazz);
+                return xmlMarshaller.unmarshal(reader, clazz);
             }
 
             @Override
-            protected String marshal(Object object) {
+            protected void marshal(Object object, Writer writer) throws KuraException {
                 XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
-                try {
-                    return xmlMarshaller.marshal(object);
-                } catch (KuraException e) {
 
-                }
-                return null;
+                xmlMarshaller.marshal(object, writer);
             }
         };
 
@@ -2936,9 +3068,10 @@ public class ConfigurationServiceTest {
         cs.setCryptoService(cryptoServiceMock);
 
         String decrypted = prepareSnapshotXML();
-        when(cryptoServiceMock.decryptAes("test".toCharArray())).thenReturn(decrypted.toCharArray());
+        mockDecryptingStream(cryptoServiceMock, "test", decrypted);
 
         when(cryptoServiceMock.encryptAes((char[]) anyObject())).thenReturn("encrypted".toCharArray());
+        mockEncryptingStream(cryptoServiceMock, "encrypted");
 
         SystemService systemServiceMock = mock(SystemService.class);
         cs.setSystemService(systemServiceMock);
@@ -2983,7 +3116,7 @@ public class ConfigurationServiceTest {
             // OK
         }
 
-        verify(cryptoServiceMock, times(1)).decryptAes("test".toCharArray());
+        verify(cryptoServiceMock, times(1)).aesDecryptingStream((InputStream) anyObject());
 
         File[] files = d1.listFiles();
 
@@ -3030,9 +3163,10 @@ public class ConfigurationServiceTest {
         cs.setCryptoService(cryptoServiceMock);
 
         String decrypted = prepareSnapshotXML();
-        when(cryptoServiceMock.decryptAes("test".toCharArray())).thenReturn(decrypted.toCharArray());
+        mockDecryptingStream(cryptoServiceMock, "test", decrypted);
 
         when(cryptoServiceMock.encryptAes((char[]) anyObject())).thenReturn("encrypted".toCharArray());
+        mockEncryptingStream(cryptoServiceMock, "encrypted");
 
         SystemService systemServiceMock = mock(SystemService.class);
         cs.setSystemService(systemServiceMock);
@@ -3063,7 +3197,7 @@ public class ConfigurationServiceTest {
 
         cs.rollback(id);
 
-        verify(cryptoServiceMock, times(1)).decryptAes("test".toCharArray());
+        verify(cryptoServiceMock, times(1)).aesDecryptingStream((InputStream) anyObject());
         verify(cryptoServiceMock, times(1)).encryptAes((char[]) anyObject());
         verify(systemServiceMock, times(1)).getKuraSnapshotsCount();
 
@@ -3228,4 +3362,185 @@ public class ConfigurationServiceTest {
         assertTrue(implementingDouble.stream().filter(config -> isOCDFor(config, "bar", barOcd)).findAny().isPresent());
         assertTrue(implementingDouble.stream().filter(config -> isOCDFor(config, "baz", bazOcd)).findAny().isPresent());
     }
+
+    @Test
+    public void testSaveSnapshotDelta() throws Throwable {
+        // only the first snapshot is written in full, the following ones are written as deltas
+
+        final String dir = "dirSSD";
+        ConfigurationServiceImpl cs = prepareSnapshotDeltaService(dir, 10);
+
+        List<ComponentConfiguration> configs = prepareDeltaConfigurations(4);
+        long sid1 = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", configs);
+
+        configs.get(1).getConfigurationProperties().put("value", 100);
+        long sid2 = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", configs);
+
+        configs.remove(2);
+        long sid3 = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", configs);
+
+        assertTrue(new File(dir, "snapshot_" + sid1 + ".xml").exists());
+        assertFalse(new File(dir, "snapshot_" + sid2 + ".xml").exists());
+        assertTrue(new File(dir, "delta_" + sid2 + "_" + sid1 + ".xml").exists());
+        assertTrue(new File(dir, "delta_" + sid3 + "_" + sid1 + ".xml").exists());
+        assertEquals(new TreeSet<>(Arrays.asList(sid1, sid2, sid3)), cs.getSnapshots());
+
+        List<ComponentConfiguration> snapshot2 = cs.loadEncryptedSnapshotFileContent(sid2).getConfigurations();
+        assertEquals(4, snapshot2.size());
+        assertEquals("pid1", snapshot2.get(1).getPid());
+        assertEquals(100, snapshot2.get(1).getConfigurationProperties().get("value"));
+        assertEquals(3, snapshot2.get(3).getConfigurationProperties().get("value"));
+
+        List<ComponentConfiguration> snapshot3 = cs.getSnapshot(sid3);
+        assertEquals(3, snapshot3.size());
+        assertEquals("pid3", snapshot3.get(2).getPid());
+
+        deleteDirectory(dir);
+    }
+
+    @Test
+    public void testCompactSnapshots() throws Throwable {
+        // the latest delta is rewritten as a full snapshot, the base of the following deltas
+
+        final String dir = "dirCS";
+        ConfigurationServiceImpl cs = prepareSnapshotDeltaService(dir, 10);
+
+        List<ComponentConfiguration> configs = prepareDeltaConfigurations(4);
+        long sid1 = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", configs);
+        configs.get(0).getConfigurationProperties().put("value", 100);
+        long sid2 = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", configs);
+
+        cs.compactSnapshots();
+
+        assertTrue(new File(dir, "snapshot_" + sid2 + ".xml").exists());
+        assertFalse(new File(dir, "delta_" + sid2 + "_" + sid1 + ".xml").exists());
+        assertEquals(100, cs.getSnapshot(sid2).get(0).getConfigurationProperties().get("value"));
+
+        configs.get(3).getConfigurationProperties().put("value", 300);
+        long sid3 = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", configs);
+        assertTrue(new File(dir, "delta_" + sid3 + "_" + sid2 + ".xml").exists());
+
+        deleteDirectory(dir);
+    }
+
+    @Test
+    public void testSaveSnapshotDeltaTooManyChanges() throws Throwable {
+        // a full snapshot is written if more than half of the configurations have changed
+
+        final String dir = "dirSSDTMC";
+        ConfigurationServiceImpl cs = prepareSnapshotDeltaService(dir, 10);
+
+        List<ComponentConfiguration> configs = prepareDeltaConfigurations(4);
+        TestUtil.invokePrivate(cs, "saveSnapshot", configs);
+        for (int i = 0; i < 3; i++) {
+            configs.get(i).getConfigurationProperties().put("value", 100);
+        }
+        long sid2 = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", configs);
+
+        assertTrue(new File(dir, "snapshot_" + sid2 + ".xml").exists());
+
+        deleteDirectory(dir);
+    }
+
+    @Test
+    public void testGarbageCollectionKeepsSnapshotDeltaBase() throws Throwable {
+        // the full snapshot is not deleted while deltas based on it remain, but it is not listed anymore
+
+        final String dir = "dirGCKSDB";
+        ConfigurationServiceImpl cs = prepareSnapshotDeltaService(dir, 2);
+
+        List<ComponentConfiguration> configs = prepareDeltaConfigurations(4);
+        long sid1 = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", configs);
+        configs.get(0).getConfigurationProperties().put("value", 100);
+        long sid2 = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", configs);
+        configs.get(0).getConfigurationProperties().put("value", 200);
+        long sid3 = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", configs);
+
+        assertEquals(2, cs.getSnapshots().size());
+        assertEquals(new TreeSet<>(Arrays.asList(sid2, sid3)), cs.getSnapshots());
+        assertFalse(new File(dir, "snapshot_" + sid1 + ".xml").exists());
+        assertTrue(new File(dir, "base_" + sid1 + ".xml").exists());
+        assertEquals(100, cs.getSnapshot(sid2).get(0).getConfigurationProperties().get("value"));
+        assertEquals(200, cs.getSnapshot(sid3).get(0).getConfigurationProperties().get("value"));
+
+        // no listed full snapshot is left to compute a delta against
+        configs.get(0).getConfigurationProperties().put("value", 300);
+        long sid4 = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", configs);
+
+        assertEquals(new TreeSet<>(Arrays.asList(sid3, sid4)), cs.getSnapshots());
+        assertTrue(new File(dir, "snapshot_" + sid4 + ".xml").exists());
+        assertTrue(new File(dir, "base_" + sid1 + ".xml").exists());
+
+        // the base is deleted with the last delta based on it
+        configs.get(0).getConfigurationProperties().put("value", 400);
+        long sid5 = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", configs);
+
+        assertEquals(2, cs.getSnapshots().size());
+        assertEquals(new TreeSet<>(Arrays.asList(sid4, sid5)), cs.getSnapshots());
+        assertFalse(new File(dir, "delta_" + sid3 + "_" + sid1 + ".xml").exists());
+        assertFalse(new File(dir, "base_" + sid1 + ".xml").exists());
+        assertEquals(400, cs.getSnapshot(sid5).get(0).getConfigurationProperties().get("value"));
+
+        deleteDirectory(dir);
+    }
+
+    private ConfigurationServiceImpl prepareSnapshotDeltaService(final String dir, int snapshotsCount)
+            throws NoSuchFieldException, KuraException {
+        deleteDirectory(dir);
+        new File(dir).mkdirs();
+
+        ConfigurationServiceImpl cs = new ConfigurationServiceImpl() {
+
+            @Override
+            String getSnapshotsDirectory() {
+                return dir;
+            }
+
+            @Override
+            protected <T> T unmarshal(Reader reader, Class<T> clazz) throws KuraException {
+                return new XmlMarshallUnmarshallImpl().unmarshal(reader, clazz);
+            }
+
+            @Override
+            protected void marshal(Object object, Writer writer) throws KuraException {
+                new XmlMarshallUnmarshallImpl().marshal(object, writer);
+            }
+        };
+
+        CryptoService cryptoServiceMock = mock(CryptoService.class);
+        cs.setCryptoService(cryptoServiceMock);
+        when(cryptoServiceMock.aesEncryptingStream((OutputStream) anyObject()))
+                .thenAnswer(invocation -> invocation.getArguments()[0]);
+        when(cryptoServiceMock.aesDecryptingStream((InputStream) anyObject()))
+                .thenAnswer(invocation -> invocation.getArguments()[0]);
+
+        SystemService systemServiceMock = mock(SystemService.class);
+        cs.setSystemService(systemServiceMock);
+        when(systemServiceMock.getKuraSnapshotsCount()).thenReturn(snapshotsCount);
+
+        TestUtil.setFieldValue(cs, "bundleContext", mock(BundleContext.class));
+
+        return cs;
+    }
+
+    private List<ComponentConfiguration> prepareDeltaConfigurations(int count) {
+        List<ComponentConfiguration> configs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> props = new HashMap<>();
+            props.put("value", i);
+            props.put("names", new String[] { "a" + i, "b" + i });
+            configs.add(new ComponentConfigurationImpl("pid" + i, null, props));
+        }
+        return configs;
+    }
+
+    private void deleteDirectory(String dir) {
+        File[] files = new File(dir).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        new File(dir).delete();
+    }
 }
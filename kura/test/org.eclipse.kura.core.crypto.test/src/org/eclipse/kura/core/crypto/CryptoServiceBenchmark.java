@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the throughput of the char array and stream encryption on snapshot sized inputs. Not run as part of the
+ * unit tests, enable it with -Dkura.crypto.benchmark=true and select the sizes in KB of the inputs with
+ * -Dkura.crypto.benchmark.sizes=16,256,1024.
+ */
+public class CryptoServiceBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(CryptoServiceBenchmark.class);
+
+    private static final int ROUNDS = 200;
+    private static final int WARMUP_PASSES = 5;
+
+    private CryptoServiceImpl cryptoService;
+
+    @Before
+    public void setup() {
+        assumeTrue("Benchmark not enabled", Boolean.getBoolean("kura.crypto.benchmark"));
+        this.cryptoService = new CryptoServiceImpl();
+    }
+
+    @Test
+    public void testThroughput() throws Exception {
+        for (String size : System.getProperty("kura.crypto.benchmark.sizes", "16,256,1024").split(",")) {
+            benchmark(Integer.parseInt(size.trim()));
+        }
+    }
+
+    private void benchmark(final int sizeKb) throws Exception {
+        final StringBuilder builder = new StringBuilder(sizeKb * 1024);
+        builder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<esf:configurations>\n");
+        for (int i = 0; builder.length() < sizeKb * 1024; i++) {
+            builder.append("    <esf:property name=\"property.").append(i)
+                    .append("\" type=\"String\"><esf:value>value ").append(i).append("</esf:value></esf:property>\n");
+        }
+        final char[] snapshot = builder.toString().toCharArray();
+        final byte[] snapshotBytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+
+        for (int pass = 0; pass <= WARMUP_PASSES; pass++) {
+            // the first passes warm up the JIT, the cipher intrinsics are used only once the code is compiled
+            char[] decrypted = null;
+            long start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                decrypted = this.cryptoService.decryptAes(this.cryptoService.encryptAes(snapshot));
+            }
+            report(pass, "char[] AES/ECB + Base64", start, snapshotBytes.length);
+            assertArrayEquals(snapshot, decrypted);
+
+            ByteArrayOutputStream decryptedBytes = null;
+            start = System.nanoTime();
+            final byte[] buffer = new byte[8192];
+            for (int i = 0; i < ROUNDS; i++) {
+                final ByteArrayOutputStream encrypted = new ByteArrayOutputStream(snapshotBytes.length + 64);
+                try (OutputStream out = this.cryptoService.aesEncryptingStream(encrypted)) {
+                    out.write(snapshotBytes);
+                }
+                decryptedBytes = new ByteArrayOutputStream(snapshotBytes.length);
+                try (InputStream in = this.cryptoService
+                        .aesDecryptingStream(new ByteArrayInputStream(encrypted.toByteArray()))) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        decryptedBytes.write(buffer, 0, read);
+                    }
+                }
+            }
+            report(pass, "stream AES/GCM", start, snapshotBytes.length);
+            assertArrayEquals(snapshotBytes, decryptedBytes.toByteArray());
+        }
+    }
+
+    private static void report(int pass, String name, long start, int size) {
+        if (pass < WARMUP_PASSES) {
+            return;
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        logger.info(String.format("%-24s %8.1f MB/s (encrypt + decrypt, %d KB x %d)", name,
+                size * (double) ROUNDS / seconds / (1024 * 1024), size / 1024, ROUNDS));
+    }
+}
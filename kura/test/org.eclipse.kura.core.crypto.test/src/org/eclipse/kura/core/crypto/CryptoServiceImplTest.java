@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.eclipse.kura.KuraErrorCode;
+import org.eclipse.kura.KuraException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CryptoServiceImplTest {
+
+    private CryptoServiceImpl cryptoService;
+
+    @Before
+    public void setup() {
+        this.cryptoService = new CryptoServiceImpl();
+    }
+
+    @Test
+    public void testEncryptDecryptAes() throws Exception {
+        char[] encrypted = this.cryptoService.encryptAes("secret".toCharArray());
+
+        // the same value is always encrypted the same way
+        assertArrayEquals(encrypted, this.cryptoService.encryptAes("secret".toCharArray()));
+        assertArrayEquals("secret".toCharArray(), this.cryptoService.decryptAes(encrypted));
+        assertArrayEquals("other".toCharArray(),
+                this.cryptoService.decryptAes(this.cryptoService.encryptAes("other".toCharArray())));
+    }
+
+    @Test
+    public void testStreamRoundTrip() throws Exception {
+        final int segment = AesGcmStreams.SEGMENT_SIZE;
+        for (int size : new int[] { 0, 1, segment - 1, segment, segment + 1, 2 * segment, 3 * segment + 100 }) {
+            byte[] data = data(size);
+
+            byte[] encrypted = encrypt(data);
+            assertFalse(Arrays.equals(encrypted, encrypt(data)));
+
+            assertArrayEquals("size " + size, data, decrypt(encrypted));
+        }
+    }
+
+    @Test
+    public void testStreamTruncated() throws Exception {
+        // removing the last segment is detected
+        final int segment = AesGcmStreams.SEGMENT_SIZE;
+        byte[] encrypted = encrypt(data(2 * segment));
+        int headerLength = encrypted.length - 2 * (segment + 16);
+
+        try {
+            decrypt(Arrays.copyOf(encrypted, headerLength + segment + 16));
+            fail("Exception expected");
+        } catch (IOException e) {
+            // OK
+        }
+    }
+
+    @Test
+    public void testStreamDecryptsEncryptAes() throws Exception {
+        // values encrypted by encryptAes are decrypted, even if split in lines
+        String value = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><configurations/>";
+        String encrypted = new String(this.cryptoService.encryptAes(value.toCharArray()));
+        String split = encrypted.substring(0, 10) + "\r\n" + encrypted.substring(10) + "\n";
+
+        assertEquals(value, new String(decrypt(split.getBytes(StandardCharsets.US_ASCII)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testStreamTampered() throws Exception {
+        byte[] encrypted = encrypt("some data".getBytes(StandardCharsets.UTF_8));
+        encrypted[encrypted.length - 1] ^= 1;
+
+        try {
+            decrypt(encrypted);
+            fail("Exception expected");
+        } catch (IOException e) {
+            // OK
+        }
+    }
+
+    @Test
+    public void testStreamNotEncrypted() throws Exception {
+        try {
+            decrypt("<?xml version=\"1.0\"?><configurations/>".getBytes(StandardCharsets.UTF_8));
+            fail("Exception expected");
+        } catch (KuraException e) {
+            assertEquals(KuraErrorCode.DECODER_ERROR, e.getCode());
+        }
+    }
+
+    private static byte[] data(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    private byte[] encrypt(byte[] data) throws KuraException, IOException {
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        try (OutputStream out = this.cryptoService.aesEncryptingStream(encrypted)) {
+            out.write(data);
+        }
+        return encrypted.toByteArray();
+    }
+
+    private byte[] decrypt(byte[] encrypted) throws KuraException, IOException {
+        ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        try (InputStream in = this.cryptoService.aesDecryptingStream(new ByteArrayInputStream(encrypted))) {
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                decrypted.write(buffer, 0, count);
+            }
+        }
+        return decrypted.toByteArray();
+    }
+}
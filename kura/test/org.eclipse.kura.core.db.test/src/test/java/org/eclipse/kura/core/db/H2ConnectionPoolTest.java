@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.core.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.core.testutil.TestUtil;
+import org.eclipse.kura.db.CallerConnectionStatistics;
+import org.eclipse.kura.db.ConnectionPoolStatistics;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class H2ConnectionPoolTest {
+
+    private static int dbCount;
+
+    private H2ConnectionPool pool;
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:pooltest" + dbCount++);
+        dataSource.setUser("SA");
+        dataSource.setPassword("");
+
+        this.pool = new H2ConnectionPool(dataSource);
+        this.pool.setMaxSize(2);
+        this.pool.setTimeout(5, TimeUnit.SECONDS);
+
+        this.executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        this.pool.dispose();
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testConnectionReused() throws SQLException {
+        Connection conn = this.pool.getConnection("caller");
+        conn.close();
+        conn = this.pool.getConnection("caller");
+        conn.close();
+
+        ConnectionPoolStatistics statistics = this.pool.getStatistics();
+        assertEquals(1, statistics.getSize());
+        assertEquals(1, statistics.getIdleCount());
+        assertEquals(0, statistics.getActiveCount());
+        assertEquals(2, statistics.getMaxSize());
+
+        CallerConnectionStatistics callerStatistics = statistics.getCallerStatistics().get("caller");
+        assertEquals(2, callerStatistics.getAcquiredCount());
+        assertEquals(0, callerStatistics.getActiveCount());
+        assertEquals(0, callerStatistics.getTimeoutCount());
+    }
+
+    @Test
+    public void testMinSize() throws SQLException {
+        this.pool.setMinSize(5);
+
+        // capped by the maximum size
+        ConnectionPoolStatistics statistics = this.pool.getStatistics();
+        assertEquals(2, statistics.getSize());
+        assertEquals(2, statistics.getIdleCount());
+    }
+
+    @Test
+    public void testCallerQuota() throws SQLException {
+        this.pool.setCallerQuota(1);
+        this.pool.setTimeout(100, TimeUnit.MILLISECONDS);
+
+        Connection conn1 = this.pool.getConnection("caller1");
+        try {
+            this.pool.getConnection("caller1");
+            fail("Exception expected");
+        } catch (SQLTimeoutException e) {
+            assertTrue(e.getMessage().contains("caller1"));
+        }
+
+        // other callers are not affected
+        Connection conn2 = this.pool.getConnection("caller2");
+
+        ConnectionPoolStatistics statistics = this.pool.getStatistics();
+        assertEquals(1, statistics.getCallerStatistics().get("caller1").getTimeoutCount());
+        assertEquals(1, statistics.getCallerStatistics().get("caller1").getActiveCount());
+        assertEquals(1, statistics.getCallerStatistics().get("caller2").getActiveCount());
+
+        conn1.close();
+        conn2.close();
+
+        // lifting the quota
+        this.pool.setCallerQuota(0);
+        conn1 = this.pool.getConnection("caller1");
+        conn2 = this.pool.getConnection("caller1");
+        conn1.close();
+        conn2.close();
+    }
+
+    @Test
+    public void testWaitForConnection() throws Exception {
+        Connection conn1 = this.pool.getConnection("caller");
+        Connection conn2 = this.pool.getConnection("caller");
+
+        Future<Connection> waiting = this.executor.submit(() -> this.pool.getConnection("waiting"));
+        while (this.pool.getStatistics().getWaitingCount() == 0) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(50);
+
+        conn1.close();
+        Connection conn3 = waiting.get(5, TimeUnit.SECONDS);
+        assertNotNull(conn3);
+
+        CallerConnectionStatistics statistics = this.pool.getStatistics().getCallerStatistics().get("waiting");
+        assertEquals(1, statistics.getAcquiredCount());
+        assertTrue(statistics.getMaxWaitTime() >= 50);
+
+        conn2.close();
+        conn3.close();
+
+        statistics = this.pool.getStatistics().getCallerStatistics().get("caller");
+        assertTrue(statistics.getMaxHoldTime() >= 50);
+    }
+
+    @Test
+    public void testTimeout() throws SQLException {
+        this.pool.setTimeout(100, TimeUnit.MILLISECONDS);
+
+        Connection conn1 = this.pool.getConnection("caller1");
+        Connection conn2 = this.pool.getConnection("caller2");
+        try {
+            this.pool.getConnection("caller3");
+            fail("Exception expected");
+        } catch (SQLTimeoutException e) {
+            // OK
+        }
+        assertEquals(1, this.pool.getStatistics().getCallerStatistics().get("caller3").getTimeoutCount());
+
+        conn1.close();
+        conn2.close();
+    }
+
+    @Test
+    public void testReduceMaxSize() throws SQLException {
+        Connection conn1 = this.pool.getConnection("caller");
+        Connection conn2 = this.pool.getConnection("caller");
+
+        this.pool.setMaxSize(1);
+        conn1.close();
+
+        // the returned connection is closed, as the pool is above its maximum size
+        assertEquals(1, this.pool.getStatistics().getSize());
+        assertEquals(0, this.pool.getStatistics().getIdleCount());
+
+        conn2.close();
+        assertEquals(1, this.pool.getStatistics().getSize());
+        assertEquals(1, this.pool.getStatistics().getIdleCount());
+    }
+
+    @Test
+    public void testLeakDetection() throws Throwable {
+        this.pool.setLeakThreshold(1, TimeUnit.MILLISECONDS);
+
+        Connection conn = this.pool.getConnection("caller");
+        Thread.sleep(10);
+        TestUtil.invokePrivate(this.pool, "detectLeaks");
+        TestUtil.invokePrivate(this.pool, "detectLeaks");
+
+        // reported once
+        assertEquals(1, this.pool.getStatistics().getCallerStatistics().get("caller").getLeakCount());
+
+        conn.close();
+        assertEquals(0, this.pool.getStatistics().getActiveCount());
+    }
+
+    @Test
+    public void testDispose() throws Exception {
+        Connection conn1 = this.pool.getConnection("caller");
+        Connection conn2 = this.pool.getConnection("caller");
+
+        Future<Connection> waiting = this.executor.submit(() -> this.pool.getConnection("waiting"));
+        while (this.pool.getStatistics().getWaitingCount() == 0) {
+            Thread.sleep(1);
+        }
+
+        this.pool.dispose();
+        try {
+            waiting.get(5, TimeUnit.SECONDS);
+            fail("Exception expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+
+        conn1.close();
+        conn2.close();
+        assertEquals(0, this.pool.getStatistics().getSize());
+    }
+}
@@ -10,6 +10,7 @@ package org.eclipse.kura.core.db;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -25,6 +26,8 @@ import java.util.Map;
 import org.eclipse.kura.KuraException;
 import org.eclipse.kura.core.testutil.TestUtil;
 import org.eclipse.kura.crypto.CryptoService;
+import org.eclipse.kura.db.CallerConnectionStatistics;
+import org.eclipse.kura.db.ConnectionPoolStatistics;
 import org.junit.Test;
 
 public class H2DbServiceImplTest {
@@ -69,6 +72,45 @@ public class H2DbServiceImplTest {
         svc.deactivate(null);
     }
 
+    @Test
+    public void testConnectionPoolStatistics() throws KuraException, SQLException {
+        final String enc = "enc";
+        char[] encPass = enc.toCharArray();
+
+        H2DbServiceImpl svc = new H2DbServiceImpl();
+
+        CryptoService csMock = mock(CryptoService.class);
+        svc.setCryptoService(csMock);
+
+        when(csMock.decryptAes(encPass)).thenReturn("pass".toCharArray());
+
+        Map<String, Object> props = new HashMap<>();
+        props.put("db.user", "USR");
+        props.put("db.password", enc);
+        props.put("db.connection.pool.max.size", 3);
+        props.put("db.connection.pool.min.size", 2);
+        props.put("db.connector.url", "jdbc:h2:mem:statsdb");
+
+        assertNull(svc.getConnectionPoolStatistics());
+
+        svc.updated(props);
+
+        Connection conn = svc.getConnection();
+
+        ConnectionPoolStatistics statistics = svc.getConnectionPoolStatistics();
+        assertEquals(3, statistics.getMaxSize());
+        assertEquals(2, statistics.getSize());
+        assertEquals(1, statistics.getActiveCount());
+
+        // outside of a framework the caller is identified by its class
+        CallerConnectionStatistics callerStatistics = statistics.getCallerStatistics()
+                .get(H2DbServiceImplTest.class.getName());
+        assertEquals(1, callerStatistics.getActiveCount());
+
+        svc.close(conn);
+        svc.deactivate(null);
+    }
+
     @Test
     public void testUpdateFailUrlPattern() throws KuraException, SQLException {
         String pass = "pass";
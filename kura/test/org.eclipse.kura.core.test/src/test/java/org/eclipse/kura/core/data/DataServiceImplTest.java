@@ -10,32 +10,43 @@ package org.eclipse.kura.core.data;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.kura.KuraConnectException;
 import org.eclipse.kura.KuraStoreException;
+import org.eclipse.kura.core.data.store.GroupCommitStage;
 import org.eclipse.kura.core.testutil.TestUtil;
 import org.eclipse.kura.data.DataTransportService;
 import org.eclipse.kura.data.DataTransportToken;
+import org.eclipse.kura.data.StoreBatchStatistics;
 import org.eclipse.kura.db.H2DbService;
 import org.eclipse.kura.status.CloudConnectionStatusEnum;
 import org.eclipse.kura.status.CloudConnectionStatusService;
@@ -538,6 +549,197 @@ public class DataServiceImplTest {
         verify(storeMock, times(1)).confirmed(msgId);
     }
 
+    @Test
+    public void testPublishWindow() throws Throwable {
+        // publish a window of messages up to the in-flight limit and acknowledge them to the store at once
+
+        DataServiceImpl svc = new DataServiceImpl();
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("in-flight-messages.max-number", 2);
+        properties.put("enable.rate.limit", false);
+        properties.put("publisher.prefetch-size", 4);
+        TestUtil.setFieldValue(svc, "dataServiceOptions", new DataServiceOptions(properties));
+
+        TestUtil.setFieldValue(svc, "inFlightMsgIds", new HashMap<DataTransportToken, Integer>());
+        TestUtil.setFieldValue(svc, "dataServiceListeners", mock(DataServiceListenerS.class));
+
+        DataMessage qos0 = new DataMessage.Builder(1).withTopic("t0").withPayload(new byte[0]).withQos(0).build();
+        DataMessage qos1a = new DataMessage.Builder(2).withTopic("t1").withPayload(new byte[0]).withQos(1).build();
+        DataMessage qos1b = new DataMessage.Builder(3).withTopic("t1").withPayload(new byte[0]).withQos(1).build();
+        DataMessage qos1c = new DataMessage.Builder(4).withTopic("t1").withPayload(new byte[0]).withQos(1).build();
+
+        DataStore storeMock = mock(DataStore.class);
+        TestUtil.setFieldValue(svc, "store", storeMock);
+        when(storeMock.getNextMessages(4)).thenReturn(Arrays.asList(qos0, qos1a, qos1b, qos1c))
+                .thenReturn(Collections.<DataMessage> emptyList());
+
+        DataTransportToken token1 = new DataTransportToken(10, "s");
+        DataTransportToken token2 = new DataTransportToken(11, "s");
+        DataTransportService dtsMock = mock(DataTransportService.class);
+        TestUtil.setFieldValue(svc, "dataTransportService", dtsMock);
+        when(dtsMock.isConnected()).thenReturn(true);
+        when(dtsMock.publish("t0", new byte[0], 0, false)).thenReturn(null);
+        when(dtsMock.publish("t1", new byte[0], 1, false)).thenReturn(token1).thenReturn(token2);
+
+        ExecutorService publisherExecutor = Executors.newSingleThreadExecutor();
+        TestUtil.setFieldValue(svc, "publisherExecutor", publisherExecutor);
+
+        TestUtil.invokePrivate(svc, "submitPublishingWork");
+
+        Map<Integer, DataTransportToken> expected = new LinkedHashMap<>();
+        expected.put(1, null);
+        expected.put(2, token1);
+        expected.put(3, token2);
+        verify(storeMock, timeout(5000)).published(expected);
+        verify(storeMock, timeout(5000).times(2)).getNextMessages(4);
+
+        ((AtomicBoolean) TestUtil.getFieldValue(svc, "publisherEnabled")).set(false);
+        publisherExecutor.shutdownNow();
+        publisherExecutor.awaitTermination(5, TimeUnit.SECONDS);
+
+        // the fourth message exceeds the in-flight limit and is not published
+        verify(dtsMock, times(3)).publish(anyString(), (byte[]) anyObject(), anyInt(), eq(false));
+        verify(storeMock, never()).published(anyInt());
+        assertEquals(2, ((Map<?, ?>) TestUtil.getFieldValue(svc, "inFlightMsgIds")).size());
+    }
+
+    @Test
+    public void testMemoryQueue() throws Throwable {
+        // QoS 0 messages bypass the store while connected and are moved to the store on disconnection
+
+        DataServiceImpl svc = new DataServiceImpl();
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("memory-queue.enabled", true);
+        properties.put("memory-queue.max-messages", 1);
+        DataServiceOptions dataServiceOptions = new DataServiceOptions(properties);
+        TestUtil.setFieldValue(svc, "dataServiceOptions", dataServiceOptions);
+        TestUtil.invokePrivate(svc, "configureMemoryQueue");
+
+        DataStore storeMock = mock(DataStore.class);
+        TestUtil.setFieldValue(svc, "store", storeMock);
+        TestUtil.setFieldValue(svc, "storeStage", new GroupCommitStage(storeMock, 0, 1));
+        when(storeMock.store("t", null, 0, false, 5)).thenReturn(new DataMessage.Builder(3).withTopic("t").build());
+        when(storeMock.store("t", null, 1, false, 5)).thenReturn(new DataMessage.Builder(4).withTopic("t").build());
+        when(storeMock.allUnpublishedMessagesNoPayload())
+                .thenReturn(Arrays.asList(new DataMessage.Builder(3).withTopic("t").build()));
+
+        DataTransportService dtsMock = mock(DataTransportService.class);
+        TestUtil.setFieldValue(svc, "dataTransportService", dtsMock);
+        when(dtsMock.isConnected()).thenReturn(true);
+
+        int queuedId = svc.publish("t", null, 0, false, 5);
+        assertTrue(queuedId < 0);
+
+        // queue full
+        assertEquals(3, svc.publish("t", null, 0, false, 5));
+        // QoS 1 and high priority messages are always stored
+        assertEquals(4, svc.publish("t", null, 1, false, 5));
+        verify(storeMock, times(1)).store("t", null, 0, false, 5);
+
+        assertEquals(Arrays.asList(3, queuedId), svc.getUnpublishedMessageIds("t"));
+
+        // disconnection
+        svc.setCloudConnectionStatusService(mock(CloudConnectionStatusService.class));
+        TestUtil.setFieldValue(svc, "dataServiceListeners", mock(DataServiceListenerS.class));
+        when(storeMock.store((List<DataMessage>) anyObject()))
+                .thenReturn(Arrays.asList(new DataMessage.Builder(5).withTopic("t").build()));
+
+        svc.onDisconnected();
+
+        verify(storeMock, times(1)).store((List<DataMessage>) anyObject());
+        assertEquals(Arrays.asList(3), svc.getUnpublishedMessageIds("t"));
+    }
+
+    @Test
+    public void testSpilledMemoryQueueMessageId() throws Throwable {
+        // a message moved from the memory queue to the store is reported with the ID returned by publish
+
+        DataServiceImpl svc = new DataServiceImpl();
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("memory-queue.enabled", true);
+        properties.put("memory-queue.max-messages", 1);
+        properties.put("enable.rate.limit", false);
+        properties.put("publisher.prefetch-size", 4);
+        TestUtil.setFieldValue(svc, "dataServiceOptions", new DataServiceOptions(properties));
+        TestUtil.invokePrivate(svc, "configureMemoryQueue");
+
+        DataStore storeMock = mock(DataStore.class);
+        TestUtil.setFieldValue(svc, "store", storeMock);
+        DataMessage stored = new DataMessage.Builder(5).withTopic("t").withPayload(new byte[0]).withQos(0).build();
+        when(storeMock.store((List<DataMessage>) anyObject())).thenReturn(Arrays.asList(stored));
+        when(storeMock.allUnpublishedMessagesNoPayload()).thenReturn(Arrays.asList(stored));
+        when(storeMock.getNextMessages(4)).thenReturn(Arrays.asList(stored))
+                .thenReturn(Collections.<DataMessage> emptyList());
+
+        DataTransportService dtsMock = mock(DataTransportService.class);
+        TestUtil.setFieldValue(svc, "dataTransportService", dtsMock);
+        when(dtsMock.isConnected()).thenReturn(true);
+
+        int queuedId = svc.publish("t", new byte[0], 0, false, 5);
+        assertTrue(queuedId < 0);
+
+        // disconnection
+        svc.setCloudConnectionStatusService(mock(CloudConnectionStatusService.class));
+        DataServiceListenerS listenersMock = mock(DataServiceListenerS.class);
+        TestUtil.setFieldValue(svc, "dataServiceListeners", listenersMock);
+
+        svc.onDisconnected();
+
+        assertEquals(Arrays.asList(queuedId), svc.getUnpublishedMessageIds("t"));
+
+        // publication from the store after reconnecting
+        TestUtil.setFieldValue(svc, "inFlightMsgIds", new HashMap<DataTransportToken, Integer>());
+        ExecutorService publisherExecutor = Executors.newSingleThreadExecutor();
+        TestUtil.setFieldValue(svc, "publisherExecutor", publisherExecutor);
+
+        TestUtil.invokePrivate(svc, "submitPublishingWork");
+
+        verify(listenersMock, timeout(5000)).onMessagePublished(queuedId, "t");
+
+        ((AtomicBoolean) TestUtil.getFieldValue(svc, "publisherEnabled")).set(false);
+        publisherExecutor.shutdownNow();
+        publisherExecutor.awaitTermination(5, TimeUnit.SECONDS);
+
+        verify(listenersMock, never()).onMessagePublished(5, "t");
+        assertTrue(((Map<?, ?>) TestUtil.getFieldValue(svc, "spilledMsgIds")).isEmpty());
+    }
+
+    @Test
+    public void testGetStoreBatchStatistics() throws Throwable {
+        // the batch sizes of the store stage are reported through the service interface
+
+        DataServiceImpl svc = new DataServiceImpl();
+
+        StoreBatchStatistics statistics = svc.getStoreBatchStatistics();
+        assertEquals(0, statistics.getBatchCount());
+        assertEquals(0, statistics.getAverageBatchSize(), 0);
+
+        DataServiceOptions dataServiceOptions = new DataServiceOptions(new HashMap<String, Object>());
+        TestUtil.setFieldValue(svc, "dataServiceOptions", dataServiceOptions);
+        TestUtil.invokePrivate(svc, "configureMemoryQueue");
+
+        DataStore storeMock = mock(DataStore.class);
+        TestUtil.setFieldValue(svc, "store", storeMock);
+        TestUtil.setFieldValue(svc, "storeStage", new GroupCommitStage(storeMock, 0, 1));
+        when(storeMock.store("t", null, 1, false, 5)).thenReturn(new DataMessage.Builder(3).withTopic("t").build());
+
+        DataTransportService dtsMock = mock(DataTransportService.class);
+        TestUtil.setFieldValue(svc, "dataTransportService", dtsMock);
+
+        svc.publish("t", null, 1, false, 5);
+        svc.publish("t", null, 1, false, 5);
+
+        statistics = svc.getStoreBatchStatistics();
+        assertEquals(2, statistics.getBatchCount());
+        assertEquals(2, statistics.getMessageCount());
+        assertEquals(1, statistics.getLastBatchSize());
+        assertEquals(1, statistics.getMaxBatchSize());
+        assertEquals(1, statistics.getAverageBatchSize(), 0);
+    }
+
     @Test
     public void testGetUnpublishedMessageIds() throws NoSuchFieldException, KuraStoreException {
         // build message ids from unpublished list
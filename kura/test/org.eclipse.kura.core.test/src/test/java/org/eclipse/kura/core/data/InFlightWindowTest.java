@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.data.DataTransportToken;
+import org.eclipse.kura.data.InFlightStatistics;
+import org.junit.Test;
+
+public class InFlightWindowTest {
+
+    private int nextMessageId;
+
+    @Test
+    public void testFixedWindow() {
+        InFlightWindow window = new InFlightWindow();
+        window.configure(9, false);
+
+        for (int i = 0; i < 20; i++) {
+            confirm(window, 2000);
+        }
+
+        assertEquals(9, window.getWindowSize());
+    }
+
+    @Test
+    public void testLatencyHistogram() {
+        InFlightWindow window = new InFlightWindow();
+        window.configure(9, false);
+
+        confirm(window, 5);
+        confirm(window, 10);
+        confirm(window, 70);
+        confirm(window, 20000);
+        // restored from the store, no publish time
+        window.onConfirmed(new DataTransportToken(1000, "s"), 0);
+
+        InFlightStatistics statistics = window.getStatistics(3);
+        assertEquals(3, statistics.getInFlightCount());
+        assertEquals(9, statistics.getWindowSize());
+        assertEquals(4, statistics.getConfirmedCount());
+        assertArrayEquals(InFlightWindow.LATENCY_BUCKET_BOUNDS, statistics.getLatencyBucketBounds());
+        assertArrayEquals(new long[] { 2, 0, 1, 0, 0, 0, 0, 0, 0, 1 }, statistics.getLatencyBucketCounts());
+    }
+
+    @Test
+    public void testAdaptiveWindowDecrease() {
+        InFlightWindow window = new InFlightWindow();
+        window.configure(16, true);
+
+        for (int i = 0; i < 10; i++) {
+            confirm(window, 20);
+        }
+        assertEquals(16, window.getWindowSize());
+
+        // the broker slows down, the window shrinks down to a single message
+        for (int i = 0; i < 200; i++) {
+            confirm(window, 1000);
+        }
+        assertEquals(1, window.getWindowSize());
+    }
+
+    @Test
+    public void testAdaptiveWindowRecovery() {
+        InFlightWindow window = new InFlightWindow();
+        window.configure(8, true);
+
+        confirm(window, 20);
+        for (int i = 0; i < 50; i++) {
+            confirm(window, 1000);
+        }
+        int reduced = window.getWindowSize();
+        assertTrue(reduced < 8);
+
+        for (int i = 0; i < 200; i++) {
+            confirm(window, 20);
+        }
+        assertEquals(8, window.getWindowSize());
+    }
+
+    @Test
+    public void testConfigureAndClear() {
+        InFlightWindow window = new InFlightWindow();
+        window.configure(8, true);
+
+        confirm(window, 20);
+        for (int i = 0; i < 50; i++) {
+            confirm(window, 1000);
+        }
+        assertTrue(window.getWindowSize() < 8);
+
+        window.configure(2, true);
+        assertTrue(window.getWindowSize() <= 2);
+
+        window.clear();
+        assertEquals(2, window.getWindowSize());
+        assertEquals(51, window.getStatistics(0).getConfirmedCount());
+    }
+
+    @Test
+    public void testCongestionEvents() {
+        InFlightWindow window = new InFlightWindow();
+        window.configure(2, false);
+
+        window.onCongestion();
+        window.onCongestion();
+        assertEquals(1, window.getStatistics(2).getCongestionCount());
+
+        confirm(window, 10);
+        window.onCongestion();
+        assertEquals(2, window.getStatistics(2).getCongestionCount());
+    }
+
+    private void confirm(InFlightWindow window, long latencyMillis) {
+        DataTransportToken token = new DataTransportToken(this.nextMessageId++, "s");
+        long publishTime = TimeUnit.SECONDS.toNanos(this.nextMessageId);
+        window.onPublished(token, publishTime);
+        window.onConfirmed(token, publishTime + TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+    }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.core.data.store;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.kura.KuraStoreException;
+import org.eclipse.kura.core.data.DataMessage;
+import org.eclipse.kura.core.testutil.TestUtil;
+import org.eclipse.kura.db.H2DbService;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DbDataStoreTest {
+
+    private static int dbCount;
+
+    private Connection keepAlive;
+    private DbDataStore store;
+
+    @Before
+    public void setup() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:dbdatastoretest" + dbCount++);
+        dataSource.setUser("SA");
+        dataSource.setPassword("");
+
+        // the in-memory database lives as long as a connection is open
+        this.keepAlive = dataSource.getConnection();
+
+        H2DbService dbServiceMock = mock(H2DbService.class);
+        when(dbServiceMock.getConnection()).thenAnswer(invocation -> dataSource.getConnection());
+
+        this.store = new DbDataStore("ds_messages");
+        TestUtil.setFieldValue(this.store, "dbService", dbServiceMock);
+        this.keepAlive.createStatement().execute((String) TestUtil.getFieldValue(this.store, "sqlCreateTable"));
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        this.keepAlive.close();
+    }
+
+    @Test
+    public void testStoreBatch() throws Exception {
+        TestUtil.setFieldValue(this.store, "capacity", 10);
+
+        List<DataMessage> stored = this.store.store(Arrays.asList(message("t1", new byte[] { 1 }, 5),
+                message("t2", new byte[] { 2 }, 5), message("t3", null, 0)));
+
+        assertEquals(3, stored.size());
+        for (int i = 0; i < 3; i++) {
+            DataMessage message = stored.get(i);
+            assertEquals("t" + (i + 1), message.getTopic());
+            assertNotNull(message.getCreatedOn());
+            if (i > 0) {
+                assertTrue(message.getId() > stored.get(i - 1).getId());
+            }
+
+            // the returned messages are the ones in the store
+            DataMessage read = this.store.get(message.getId());
+            assertEquals(message.getTopic(), read.getTopic());
+            assertArrayEquals(read.getPayload(), message.getPayload());
+        }
+        assertArrayEquals(new byte[] { 2 }, stored.get(1).getPayload());
+    }
+
+    @Test
+    public void testStoreBatchCapacity() throws KuraStoreException, NoSuchFieldException {
+        TestUtil.setFieldValue(this.store, "capacity", 2);
+        this.store.store("t0", null, 0, false, 5);
+
+        // the priority 0 message is always stored and counts for the capacity of the following messages
+        List<DataMessage> stored = this.store
+                .store(Arrays.asList(message("t1", null, 0), message("t2", null, 5), message("t3", null, 5)));
+
+        assertEquals(3, stored.size());
+        assertEquals("t1", stored.get(0).getTopic());
+        assertNull(stored.get(1));
+        assertNull(stored.get(2));
+        assertEquals(2, this.store.allUnpublishedMessagesNoPayload().size());
+    }
+
+    private static DataMessage message(String topic, byte[] payload, int priority) {
+        return new DataMessage.Builder(0).withTopic(topic).withPayload(payload).withPriority(priority).build();
+    }
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.core.data.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.kura.KuraStoreCapacityReachedException;
+import org.eclipse.kura.KuraStoreException;
+import org.eclipse.kura.core.data.DataMessage;
+import org.eclipse.kura.core.data.DataStore;
+import org.junit.Test;
+
+public class GroupCommitStageTest {
+
+    @Test
+    public void testConcurrentPublishersGetDistinctIds() throws Exception {
+        final AtomicInteger ids = new AtomicInteger();
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+
+        DataStore storeMock = mock(DataStore.class);
+        when(storeMock.store((List<DataMessage>) anyObject())).thenAnswer(invocation -> {
+            List<DataMessage> messages = (List<DataMessage>) invocation.getArguments()[0];
+            batchSizes.add(messages.size());
+            Thread.sleep(20);
+            List<DataMessage> result = new ArrayList<>();
+            for (DataMessage message : messages) {
+                result.add(new DataMessage.Builder(ids.incrementAndGet()).withTopic(message.getTopic()).build());
+            }
+            return result;
+        });
+
+        final GroupCommitStage stage = new GroupCommitStage(storeMock, 10, 50);
+
+        final int publishers = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(publishers);
+        List<Future<DataMessage>> futures = new ArrayList<>();
+        for (int i = 0; i < publishers; i++) {
+            final String topic = "topic/" + i;
+            futures.add(executor.submit((Callable<DataMessage>) () -> stage.store(topic, new byte[0], 0, false, 5)));
+        }
+
+        Set<Integer> messageIds = new HashSet<>();
+        for (int i = 0; i < publishers; i++) {
+            DataMessage message = futures.get(i).get();
+            assertEquals("topic/" + i, message.getTopic());
+            messageIds.add(message.getId());
+        }
+        executor.shutdown();
+
+        assertEquals(publishers, messageIds.size());
+        assertEquals(publishers, stage.getStatistics().getMessageCount());
+        assertTrue(stage.getStatistics().getBatchCount() < publishers);
+        assertTrue(stage.getStatistics().getMaxBatchSize() > 1);
+        assertEquals(stage.getStatistics().getBatchCount(), batchSizes.size());
+    }
+
+    @Test
+    public void testRejectedMessage() throws KuraStoreException {
+        DataStore storeMock = mock(DataStore.class);
+        when(storeMock.store((List<DataMessage>) anyObject())).thenReturn(Collections.singletonList(null));
+
+        GroupCommitStage stage = new GroupCommitStage(storeMock, 0, 10);
+
+        try {
+            stage.store("topic", new byte[0], 0, false, 5);
+            fail("Exception expected");
+        } catch (KuraStoreCapacityReachedException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testStoreFailure() throws KuraStoreException {
+        DataStore storeMock = mock(DataStore.class);
+        KuraStoreException failure = new KuraStoreException("test");
+        when(storeMock.store((List<DataMessage>) anyObject())).thenThrow(failure);
+
+        GroupCommitStage stage = new GroupCommitStage(storeMock, 0, 10);
+
+        try {
+            stage.store("topic", new byte[0], 0, false, 5);
+            fail("Exception expected");
+        } catch (KuraStoreException e) {
+            assertSame(failure, e);
+        }
+
+        // a failed batch does not prevent further batches
+        doReturn(Collections.singletonList(new DataMessage.Builder(1).build())).when(storeMock)
+                .store((List<DataMessage>) anyObject());
+        assertEquals(1, stage.store("topic", new byte[0], 0, false, 5).getId());
+    }
+
+    @Test
+    public void testGroupingDisabled() throws KuraStoreException {
+        DataStore storeMock = mock(DataStore.class);
+        when(storeMock.store("topic", null, 1, true, 3)).thenReturn(new DataMessage.Builder(7).build());
+
+        GroupCommitStage stage = new GroupCommitStage(storeMock, 100, 1);
+
+        assertEquals(7, stage.store("topic", null, 1, true, 3).getId());
+        assertEquals(1, stage.getStatistics().getLastBatchSize());
+    }
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.core.data.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.kura.core.data.DataMessage;
+import org.junit.Test;
+
+public class MemoryMessageQueueTest {
+
+    @Test
+    public void testPriorityOrder() {
+        MemoryMessageQueue queue = new MemoryMessageQueue(10, 1024);
+
+        DataMessage low = queue.offer("low", new byte[0], 0, false, 7);
+        DataMessage high1 = queue.offer("high1", new byte[0], 0, false, 2);
+        DataMessage high2 = queue.offer("high2", new byte[0], 0, false, 2);
+
+        assertSame(high1, queue.peek());
+        assertTrue(queue.remove(high1));
+        assertSame(high2, queue.peek());
+        assertTrue(queue.remove(high2));
+        assertSame(low, queue.peek());
+        assertTrue(queue.remove(low));
+        assertNull(queue.peek());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testNegativeIds() {
+        MemoryMessageQueue queue = new MemoryMessageQueue(10, 1024);
+
+        int id1 = queue.offer("t", new byte[0], 0, false, 5).getId();
+        int id2 = queue.offer("t", new byte[0], 0, false, 5).getId();
+
+        assertTrue(id1 < 0);
+        assertTrue(id2 < 0);
+        assertTrue(id1 != id2);
+    }
+
+    @Test
+    public void testBounds() {
+        MemoryMessageQueue queue = new MemoryMessageQueue(2, 10);
+
+        assertNotNull(queue.offer("t", new byte[6], 0, false, 5));
+        assertNull(queue.offer("t", new byte[6], 0, false, 5));
+        assertNotNull(queue.offer("t", new byte[4], 0, false, 5));
+        assertNull(queue.offer("t", new byte[0], 0, false, 5));
+        assertEquals(2, queue.size());
+        assertEquals(10, queue.getSizeInBytes());
+
+        assertTrue(queue.remove(queue.peek()));
+        assertEquals(4, queue.getSizeInBytes());
+        assertNotNull(queue.offer("t", new byte[6], 0, false, 5));
+    }
+
+    @Test
+    public void testDrain() {
+        MemoryMessageQueue queue = new MemoryMessageQueue(10, 1024);
+        DataMessage low = queue.offer("low", new byte[] { 1 }, 0, false, 7);
+        DataMessage high = queue.offer("high", new byte[] { 2 }, 0, false, 2);
+
+        List<DataMessage> messages = queue.drain();
+
+        assertEquals(2, messages.size());
+        assertSame(high, messages.get(0));
+        assertSame(low, messages.get(1));
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.getSizeInBytes());
+        // a drained message is no longer queued
+        assertTrue(!queue.remove(high));
+    }
+}
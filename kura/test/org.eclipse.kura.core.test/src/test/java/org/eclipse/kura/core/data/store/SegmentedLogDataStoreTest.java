@@ -0,0 +1,321 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.core.data.store;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.KuraStoreCapacityReachedException;
+import org.eclipse.kura.KuraStoreException;
+import org.eclipse.kura.core.data.DataMessage;
+import org.eclipse.kura.data.DataTransportToken;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SegmentedLogDataStoreTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    private File directory;
+    private SegmentedLogDataStore store;
+
+    @Before
+    public void setUp() throws KuraStoreException {
+        this.directory = new File("target/segmented-log-store-test");
+        deleteDirectory();
+        this.store = start();
+    }
+
+    @After
+    public void tearDown() {
+        this.store.stop();
+        deleteDirectory();
+    }
+
+    @Test
+    public void testStoreAndGet() throws KuraStoreException {
+        DataMessage stored = this.store.store("topic/a", new byte[] { 1, 2, 3 }, 1, true, 4);
+
+        DataMessage message = this.store.get(stored.getId());
+
+        assertNotNull(message);
+        assertEquals("topic/a", message.getTopic());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, message.getPayload());
+        assertEquals(1, message.getQos());
+        assertTrue(message.isRetain());
+        assertEquals(4, message.getPriority());
+        assertNotNull(message.getCreatedOn());
+        assertNull(message.getPublishedOn());
+        assertNull(this.store.get(stored.getId() + 1));
+    }
+
+    @Test
+    public void testNextMessageOrder() throws KuraStoreException {
+        int low = this.store.store("low", new byte[0], 0, false, 7).getId();
+        int high1 = this.store.store("high1", new byte[0], 0, false, 2).getId();
+        int high2 = this.store.store("high2", new byte[0], 0, false, 2).getId();
+
+        assertEquals(high1, this.store.getNextMessage().getId());
+        this.store.published(high1);
+        assertEquals(high2, this.store.getNextMessage().getId());
+        this.store.published(high2);
+        assertEquals(low, this.store.getNextMessage().getId());
+        this.store.published(low);
+        assertNull(this.store.getNextMessage());
+    }
+
+    @Test
+    public void testNextMessagesWindow() throws KuraStoreException {
+        int low = this.store.store("low", new byte[] { 7 }, 0, false, 7).getId();
+        int high1 = this.store.store("high1", new byte[] { 2 }, 1, false, 2).getId();
+        int high2 = this.store.store("high2", new byte[0], 0, false, 2).getId();
+
+        List<DataMessage> window = this.store.getNextMessages(2);
+        assertEquals(2, window.size());
+        assertEquals(high1, window.get(0).getId());
+        assertArrayEquals(new byte[] { 2 }, window.get(0).getPayload());
+        assertEquals(high2, window.get(1).getId());
+
+        Map<Integer, DataTransportToken> published = new LinkedHashMap<>();
+        published.put(high1, new DataTransportToken(12, "session"));
+        published.put(high2, null);
+        this.store.published(published);
+
+        window = this.store.getNextMessages(2);
+        assertEquals(1, window.size());
+        assertEquals(low, window.get(0).getId());
+
+        this.store.stop();
+        this.store = start();
+
+        List<DataMessage> inFlightMessages = this.store.allInFlightMessagesNoPayload();
+        assertEquals(1, inFlightMessages.size());
+        assertEquals(12, inFlightMessages.get(0).getPublishedMessageId());
+        assertNotNull(this.store.get(high2).getPublishedOn());
+        assertEquals(low, this.store.getNextMessage().getId());
+    }
+
+    @Test
+    public void testStateRecovery() throws KuraStoreException {
+        int confirmed = this.store.store("t", new byte[] { 1 }, 1, false, 5).getId();
+        int inFlight = this.store.store("t", new byte[] { 2 }, 1, false, 5).getId();
+        int unpublished = this.store.store("t", new byte[] { 3 }, 1, false, 5).getId();
+
+        this.store.published(confirmed, 10, "session");
+        this.store.confirmed(confirmed);
+        this.store.published(inFlight, 11, "session");
+
+        this.store.stop();
+        this.store = start();
+
+        assertNotNull(this.store.get(confirmed).getConfirmedOn());
+
+        List<DataMessage> inFlightMessages = this.store.allInFlightMessagesNoPayload();
+        assertEquals(1, inFlightMessages.size());
+        assertEquals(inFlight, inFlightMessages.get(0).getId());
+        assertEquals(11, inFlightMessages.get(0).getPublishedMessageId());
+        assertEquals("session", inFlightMessages.get(0).getSessionId());
+
+        List<DataMessage> unpublishedMessages = this.store.allUnpublishedMessagesNoPayload();
+        assertEquals(1, unpublishedMessages.size());
+        assertEquals(unpublished, unpublishedMessages.get(0).getId());
+        assertArrayEquals(new byte[] { 3 }, this.store.getNextMessage().getPayload());
+
+        // IDs keep increasing after a restart
+        assertTrue(this.store.store("t", new byte[0], 0, false, 5).getId() > unpublished);
+    }
+
+    @Test
+    public void testUnpublishAndDropInFlightMessages() throws KuraStoreException {
+        int id1 = this.store.store("t", new byte[0], 1, false, 5).getId();
+        int id2 = this.store.store("t", new byte[0], 1, false, 5).getId();
+        this.store.published(id1, 1, "s");
+        this.store.published(id2, 2, "s");
+
+        this.store.unpublishAllInFlighMessages();
+        assertEquals(2, this.store.allUnpublishedMessagesNoPayload().size());
+        assertEquals(0, this.store.allInFlightMessagesNoPayload().size());
+
+        this.store.published(id1, 3, "s");
+        this.store.dropAllInFlightMessages();
+
+        this.store.stop();
+        this.store = start();
+
+        List<DataMessage> dropped = this.store.allDroppedInFlightMessagesNoPayload();
+        assertEquals(1, dropped.size());
+        assertEquals(id1, dropped.get(0).getId());
+        assertEquals(id2, this.store.getNextMessage().getId());
+    }
+
+    @Test
+    public void testCapacity() throws KuraStoreException {
+        this.store.update(900, 60, 2);
+        this.store.store("t", new byte[0], 0, false, 5);
+        this.store.store("t", new byte[0], 0, false, 5);
+
+        try {
+            this.store.store("t", new byte[0], 0, false, 5);
+            fail("Exception expected");
+        } catch (KuraStoreCapacityReachedException e) {
+            // expected
+        }
+
+        // life-cycle messages bypass the capacity check
+        assertNotNull(this.store.store("t", new byte[0], 0, false, 0));
+    }
+
+    @Test
+    public void testSegmentsReclaimed() throws KuraStoreException {
+        final byte[] payload = new byte[512];
+        for (int i = 0; i < 40; i++) {
+            DataMessage message = this.store.store("t", payload, 0, false, 5);
+            this.store.published(message.getId());
+        }
+        final int pinned = this.store.store("t", payload, 1, false, 5).getId();
+        assertTrue(countSegmentFiles() > 5);
+
+        this.store.deleteStaleMessages(0);
+
+        assertEquals(1, countSegmentFiles());
+        assertArrayEquals(payload, this.store.get(pinned).getPayload());
+
+        this.store.stop();
+        this.store = start();
+
+        assertEquals(1, this.store.allUnpublishedMessagesNoPayload().size());
+        assertArrayEquals(payload, this.store.getNextMessage().getPayload());
+    }
+
+    @Test
+    public void testLargeMessage() throws KuraStoreException {
+        final byte[] payload = new byte[SEGMENT_SIZE * 3];
+        payload[payload.length - 1] = 42;
+        int id = this.store.store("t", payload, 0, false, 5).getId();
+
+        this.store.stop();
+        this.store = start();
+
+        assertArrayEquals(payload, this.store.get(id).getPayload());
+    }
+
+    @Test
+    public void testTruncatedRecordDiscarded() throws KuraStoreException, IOException {
+        int id1 = this.store.store("t", new byte[] { 1 }, 0, false, 5).getId();
+        int id2 = this.store.store("t", new byte[] { 2 }, 0, false, 5).getId();
+        this.store.stop();
+
+        // corrupt the payload of the last record, as if the process crashed while writing it
+        File segment = this.directory.listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            long position = findByte(file, (byte) 2);
+            file.seek(position);
+            file.write(9);
+        }
+
+        this.store = start();
+
+        assertNotNull(this.store.get(id1));
+        assertNull(this.store.get(id2));
+        int id3 = this.store.store("t", new byte[] { 3 }, 0, false, 5).getId();
+
+        this.store.stop();
+        this.store = start();
+
+        assertArrayEquals(new byte[] { 3 }, this.store.get(id3).getPayload());
+    }
+
+    @Test
+    public void testReplaySegmentFilledToTheEnd() throws KuraStoreException {
+        // a first record of 36 bytes and a second one of 4050 bytes leave 2 bytes at the end of the segment
+        int id1 = this.store.store("t", new byte[0], 0, false, 5).getId();
+        int id2 = this.store.store("t", new byte[4014], 0, false, 5).getId();
+        assertEquals(1, countSegmentFiles());
+
+        this.store.stop();
+        this.store = start();
+
+        assertNotNull(this.store.get(id1));
+        assertEquals(4014, this.store.get(id2).getPayload().length);
+
+        int id3 = this.store.store("t", new byte[] { 3 }, 0, false, 5).getId();
+
+        this.store.stop();
+        this.store = start();
+
+        assertArrayEquals(new byte[] { 3 }, this.store.get(id3).getPayload());
+    }
+
+    @Test
+    public void testPurgedMessagesNotReplayed() throws KuraStoreException {
+        int purged = this.store.store("t", new byte[] { 1 }, 0, false, 5).getId();
+        int kept = this.store.store("t", new byte[] { 2 }, 0, false, 5).getId();
+        this.store.published(purged);
+
+        this.store.deleteStaleMessages(0);
+        assertNull(this.store.get(purged));
+
+        // the segment is not reclaimed, as it still holds a live message
+        this.store.stop();
+        this.store = start();
+
+        assertNull(this.store.get(purged));
+        assertArrayEquals(new byte[] { 2 }, this.store.get(kept).getPayload());
+        assertEquals(1, this.store.allUnpublishedMessagesNoPayload().size());
+    }
+
+    private SegmentedLogDataStore start() throws KuraStoreException {
+        SegmentedLogDataStore result = new SegmentedLogDataStore(this.directory, SEGMENT_SIZE);
+        result.start(null, 900, 60, 1000);
+        return result;
+    }
+
+    private int countSegmentFiles() {
+        int count = 0;
+        for (File file : this.directory.listFiles()) {
+            if (file.getName().startsWith("segment-")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long findByte(RandomAccessFile file, byte value) throws IOException {
+        long result = -1;
+        for (long i = LogSegment.HEADER_SIZE; i < file.length(); i++) {
+            file.seek(i);
+            if (file.readByte() == value) {
+                result = i;
+            }
+        }
+        return result;
+    }
+
+    private void deleteDirectory() {
+        File[] files = this.directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        this.directory.delete();
+    }
+}
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.data.transport.mqtt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.paho.client.mqttv3.MqttPersistable;
+import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MqttJournalPersistenceTest {
+
+    private static final String CLIENT_ID = "client";
+    private static final String SERVER_URI = "tcp://broker:1883";
+
+    private File directory;
+    private MqttJournalPersistence persistence;
+
+    @Before
+    public void setUp() throws MqttPersistenceException {
+        this.directory = new File("target/mqtt-journal-test");
+        deleteDirectory();
+        this.persistence = open(1024);
+    }
+
+    @After
+    public void tearDown() throws MqttPersistenceException {
+        this.persistence.close();
+        deleteDirectory();
+    }
+
+    @Test
+    public void testPutGetRemove() throws MqttPersistenceException {
+        this.persistence.put("s-1", new Persistable(new byte[] { 0x32, 1 }, new byte[] { 1, 2, 3 }));
+        this.persistence.put("s-2", new Persistable(new byte[] { 0x32, 2 }, null));
+
+        assertTrue(this.persistence.containsKey("s-1"));
+        assertPersistable(new byte[] { 0x32, 1 }, new byte[] { 1, 2, 3 }, this.persistence.get("s-1"));
+        assertPersistable(new byte[] { 0x32, 2 }, new byte[0], this.persistence.get("s-2"));
+        assertEquals(2, keys().size());
+
+        this.persistence.remove("s-1");
+        assertFalse(this.persistence.containsKey("s-1"));
+        assertNull(this.persistence.get("s-1"));
+        assertEquals(Collections.singletonList("s-2"), keys());
+    }
+
+    @Test
+    public void testRecovery() throws MqttPersistenceException {
+        this.persistence.put("s-1", new Persistable(new byte[] { 1 }, new byte[] { 10 }));
+        this.persistence.put("s-2", new Persistable(new byte[] { 2 }, new byte[] { 20 }));
+        this.persistence.put("s-1", new Persistable(new byte[] { 3 }, new byte[] { 30 }));
+        this.persistence.remove("s-2");
+        this.persistence.close();
+
+        this.persistence = open(1024);
+
+        assertEquals(Collections.singletonList("s-1"), keys());
+        assertPersistable(new byte[] { 3 }, new byte[] { 30 }, this.persistence.get("s-1"));
+    }
+
+    @Test
+    public void testCorruptedTailDiscarded() throws MqttPersistenceException, IOException {
+        this.persistence.put("s-1", new Persistable(new byte[] { 1 }, new byte[] { 10 }));
+        this.persistence.put("s-2", new Persistable(new byte[] { 2 }, new byte[] { 20 }));
+        this.persistence.close();
+
+        // corrupt the payload of the last record
+        File journal = this.directory.listFiles((dir, name) -> name.endsWith(".journal"))[0];
+        try (RandomAccessFile file = new RandomAccessFile(journal, "rw")) {
+            long position = 8;
+            for (int i = 0; i < 2; i++) {
+                file.seek(position);
+                position += 8 + file.readInt();
+            }
+            file.seek(position - 1);
+            file.write(99);
+        }
+
+        this.persistence = open(1024);
+
+        assertEquals(Collections.singletonList("s-1"), keys());
+
+        // new records are appended after the last valid one
+        this.persistence.put("s-3", new Persistable(new byte[] { 3 }, new byte[] { 30 }));
+        this.persistence.close();
+        this.persistence = open(1024);
+        assertEquals(2, keys().size());
+        assertPersistable(new byte[] { 3 }, new byte[] { 30 }, this.persistence.get("s-3"));
+    }
+
+    @Test
+    public void testCompactionAndGrowth() throws MqttPersistenceException {
+        byte[] payload = new byte[100];
+        for (int i = 0; i < 200; i++) {
+            this.persistence.put("s-" + i, new Persistable(new byte[] { 1 }, payload));
+            if (i >= 3) {
+                this.persistence.remove("s-" + (i - 3));
+            }
+        }
+        // only the live records are kept, the journal does not grow
+        assertEquals(1024, this.persistence.getJournalSize());
+
+        for (int i = 200; i < 220; i++) {
+            this.persistence.put("s-" + i, new Persistable(new byte[] { 1 }, payload));
+        }
+        assertTrue(this.persistence.getJournalSize() > 1024);
+        this.persistence.close();
+
+        this.persistence = open(1024);
+        assertEquals(23, keys().size());
+        assertPersistable(new byte[] { 1 }, payload, this.persistence.get("s-219"));
+    }
+
+    @Test
+    public void testClear() throws MqttPersistenceException {
+        this.persistence.put("s-1", new Persistable(new byte[] { 1 }, new byte[] { 10 }));
+        this.persistence.clear();
+        this.persistence.close();
+
+        this.persistence = open(1024);
+        assertTrue(keys().isEmpty());
+    }
+
+    @Test(expected = MqttPersistenceException.class)
+    public void testInUse() throws MqttPersistenceException {
+        open(1024);
+    }
+
+    @Test(expected = MqttPersistenceException.class)
+    public void testClosed() throws MqttPersistenceException {
+        this.persistence.close();
+        this.persistence.get("s-1");
+    }
+
+    private MqttJournalPersistence open(int size) throws MqttPersistenceException {
+        MqttJournalPersistence result = new MqttJournalPersistence(this.directory.getPath(), size);
+        result.open(CLIENT_ID, SERVER_URI);
+        return result;
+    }
+
+    private List<String> keys() throws MqttPersistenceException {
+        return Collections.list(this.persistence.keys());
+    }
+
+    private static void assertPersistable(byte[] header, byte[] payload, MqttPersistable persistable)
+            throws MqttPersistenceException {
+        assertArrayEquals(header, copy(persistable.getHeaderBytes(), persistable.getHeaderOffset(),
+                persistable.getHeaderLength()));
+        assertArrayEquals(payload, copy(persistable.getPayloadBytes(), persistable.getPayloadOffset(),
+                persistable.getPayloadLength()));
+    }
+
+    private static byte[] copy(byte[] source, int offset, int length) {
+        byte[] result = new byte[length];
+        System.arraycopy(source, offset, result, 0, length);
+        return result;
+    }
+
+    private void deleteDirectory() {
+        File[] files = this.directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        this.directory.delete();
+    }
+
+    private static final class Persistable implements MqttPersistable {
+
+        private final byte[] header;
+        private final byte[] payload;
+
+        Persistable(byte[] header, byte[] payload) {
+            this.header = header;
+            this.payload = payload;
+        }
+
+        @Override
+        public byte[] getHeaderBytes() {
+            return this.header;
+        }
+
+        @Override
+        public int getHeaderLength() {
+            return this.header.length;
+        }
+
+        @Override
+        public int getHeaderOffset() {
+            return 0;
+        }
+
+        @Override
+        public byte[] getPayloadBytes() {
+            return this.payload;
+        }
+
+        @Override
+        public int getPayloadLength() {
+            return this.payload != null ? this.payload.length : 0;
+        }
+
+        @Override
+        public int getPayloadOffset() {
+            return 0;
+        }
+    }
+}
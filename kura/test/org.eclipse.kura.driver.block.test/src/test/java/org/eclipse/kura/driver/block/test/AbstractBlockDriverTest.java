@@ -18,7 +18,12 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -29,14 +34,19 @@ import org.eclipse.kura.channel.ChannelFlag;
 import org.eclipse.kura.channel.ChannelRecord;
 import org.eclipse.kura.driver.ChannelDescriptor;
 import org.eclipse.kura.driver.Driver.ConnectionException;
+import org.eclipse.kura.driver.PreparedRead;
 import org.eclipse.kura.driver.binary.Buffer;
+import org.eclipse.kura.driver.binary.BufferPool;
+import org.eclipse.kura.driver.binary.PooledBuffer;
 import org.eclipse.kura.driver.block.BlockFactory;
 import org.eclipse.kura.driver.block.ProhibitedBlock;
 import org.eclipse.kura.driver.block.task.AbstractBlockDriver;
 import org.eclipse.kura.driver.block.task.AbstractBlockDriver.Pair;
 import org.eclipse.kura.driver.block.task.BlockTask;
 import org.eclipse.kura.driver.block.task.BlockTaskAggregator;
+import org.eclipse.kura.driver.block.task.ExecutionPolicy;
 import org.eclipse.kura.driver.block.task.Mode;
+import org.eclipse.kura.driver.block.task.ParallelExecutionPolicy;
 import org.eclipse.kura.driver.block.task.ToplevelBlockTask;
 import org.eclipse.kura.driver.block.task.UpdateBlockTask;
 import org.eclipse.kura.type.DataType;
@@ -186,6 +196,115 @@ public class AbstractBlockDriverTest {
         }
     }
 
+    @Test
+    public void shouldRunDomainsConcurrently() throws ConnectionException, KuraException {
+        List<Pair<Integer, BlockTask>> tasks = new ArrayList<>();
+        tasks.addAll(testTasks(1, Mode.READ, 0, 3));
+        tasks.addAll(testTasks(2, Mode.READ, 0, 3));
+        tasks.addAll(testTasks(3, Mode.READ, 0, 3));
+        List<ChannelRecord> records = getRecords(tasks);
+
+        // the tasks of the three domains can only complete if they are running at the same time
+        CyclicBarrier barrier = new CyclicBarrier(3);
+        AtomicInteger completed = new AtomicInteger();
+        ParallelExecutionPolicy policy = new ParallelExecutionPolicy(2);
+        TestDriver driver = new TestDriver().withTasks(tasks).withExecutionPolicy(policy)
+                .withBlockFactoryProvider((domain, mode) -> new TestBlockFactory(mode, 0, 3) {
+
+                    @Override
+                    protected void process() throws IOException {
+                        try {
+                            barrier.await(5, TimeUnit.SECONDS);
+                            completed.incrementAndGet();
+                        } catch (Exception e) {
+                            throw new IOException(e);
+                        }
+                    }
+                });
+        try {
+            driver.read(records);
+            assertEquals(3, completed.get());
+            for (ChannelRecord record : records) {
+                assertEquals(true, record.getValue().getValue());
+            }
+
+            driver.prepareRead(records).execute();
+            assertEquals(6, completed.get());
+        } finally {
+            policy.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldPreserveOrderWithinDomain() throws ConnectionException {
+        List<Pair<Integer, BlockTask>> tasks = new ArrayList<>();
+        tasks.addAll(testTasks(1, Mode.UPDATE, 0, 3, 3, 5));
+        tasks.addAll(testTasks(2, Mode.UPDATE, 0, 3, 3, 5));
+        List<ChannelRecord> records = getRecords(tasks);
+
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        ParallelExecutionPolicy policy = new ParallelExecutionPolicy(2);
+        TestDriver driver = new TestDriver().withTasks(tasks).withExecutionPolicy(policy)
+                .withBlockFactoryProvider((domain, mode) -> new TestBlockFactory(mode, 0, 5) {
+
+                    @Override
+                    protected void process() {
+                        events.add(domain + " " + mode);
+                    }
+                });
+        try {
+            driver.write(records);
+        } finally {
+            policy.shutdown();
+        }
+
+        assertEquals(4, events.size());
+        assertTrue(events.indexOf("1 READ") < events.indexOf("1 WRITE"));
+        assertTrue(events.indexOf("2 READ") < events.indexOf("2 WRITE"));
+        for (ChannelRecord record : records) {
+            assertEquals(true, record.getValue().getValue());
+        }
+    }
+
+    @Test
+    public void shouldReleaseBuffers() throws Exception {
+        List<Pair<Integer, BlockTask>> tasks = testTasks(1, Mode.READ, 0, 3, 3, 5, 5, 10);
+        List<ChannelRecord> records = getRecords(tasks);
+        TestDriver driver = new TestDriver().withTasks(tasks);
+        BufferPool pool = driver.getBufferPool();
+        driver.withBlockFactoryProvider((domain, mode) -> new PooledBlockFactory(pool, mode));
+
+        driver.read(records);
+        assertEquals(1, pool.getAcquireCount());
+        assertEquals(1, pool.getReleaseCount());
+
+        driver.read(records);
+        assertEquals(2, pool.getAcquireCount());
+        assertEquals(2, pool.getReleaseCount());
+        assertEquals(1, pool.getAllocationCount());
+
+        // the buffers of a prepared read are retained until it is closed
+        PreparedRead preparedRead = driver.prepareRead(records);
+        preparedRead.execute();
+        preparedRead.execute();
+        assertEquals(3, pool.getAcquireCount());
+        assertEquals(2, pool.getReleaseCount());
+        assertEquals(0, pool.getFreeCount());
+        for (ChannelRecord record : records) {
+            assertEquals(true, record.getValue().getValue());
+        }
+
+        preparedRead.close();
+        assertEquals(3, pool.getReleaseCount());
+        assertEquals(1, pool.getFreeCount());
+        assertEquals(1, pool.getAllocationCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAcceptEmptyPool() {
+        new ParallelExecutionPolicy(0);
+    }
+
     private List<Pair<Integer, BlockTask>> testTasks(int domain, Mode mode, int... ranges) {
         assertTrue(ranges.length % 2 == 0);
         List<Pair<Integer, BlockTask>> result = new ArrayList<>(ranges.length / 2);
@@ -221,6 +340,7 @@ public class AbstractBlockDriverTest {
                 public void processBuffer() throws IOException {
                     assertEquals(TestBlockFactory.this.expectedStart, getStart());
                     assertEquals(TestBlockFactory.this.expectedEnd, getEnd());
+                    process();
                 }
 
                 @Override
@@ -230,6 +350,49 @@ public class AbstractBlockDriverTest {
             };
         }
 
+        protected void process() throws IOException {
+        }
+
+    }
+
+    private class PooledBlockFactory implements BlockFactory<ToplevelBlockTask> {
+
+        private final BufferPool pool;
+        private final Mode mode;
+
+        public PooledBlockFactory(BufferPool pool, Mode mode) {
+            this.pool = pool;
+            this.mode = mode;
+        }
+
+        @Override
+        public ToplevelBlockTask build(int start, int end) {
+            return new ToplevelBlockTask(start, end, this.mode) {
+
+                private PooledBuffer buffer;
+
+                @Override
+                public void processBuffer() throws IOException {
+                    assertEquals(getEnd() - getStart(), getBuffer().getLength());
+                }
+
+                @Override
+                public Buffer getBuffer() {
+                    if (this.buffer == null) {
+                        this.buffer = PooledBlockFactory.this.pool.acquire(getEnd() - getStart());
+                    }
+                    return this.buffer;
+                }
+
+                @Override
+                public void releaseBuffer() {
+                    if (this.buffer != null) {
+                        this.buffer.release();
+                        this.buffer = null;
+                    }
+                }
+            };
+        }
     }
 
     private class TestTask extends UpdateBlockTask {
@@ -279,6 +442,7 @@ public class AbstractBlockDriverTest {
         private Consumer<List<BlockTask>> afterAggregation;
         private Consumer<BlockTaskAggregator> beforeAggregation;
         private int minimumGapSize;
+        private ExecutionPolicy executionPolicy = ExecutionPolicy.SERIAL;
 
         public TestDriver withTasks(List<Pair<Integer, BlockTask>> tasks) {
             this.tasks = tasks;
@@ -306,6 +470,16 @@ public class AbstractBlockDriverTest {
             return this;
         }
 
+        public TestDriver withExecutionPolicy(ExecutionPolicy executionPolicy) {
+            this.executionPolicy = executionPolicy;
+            return this;
+        }
+
+        @Override
+        protected ExecutionPolicy getExecutionPolicy() {
+            return this.executionPolicy;
+        }
+
         @Override
         protected int getReadMinimumGapSizeForDomain(Integer domain) {
             return this.minimumGapSize;
@@ -319,10 +493,13 @@ public class AbstractBlockDriverTest {
         }
 
         @Override
-        protected List<BlockTask> optimize(List<ChannelRecord> records, Mode mode) throws KuraException {
-            List<BlockTask> result = super.optimize(records, mode);
+        protected Map<Integer, List<BlockTask>> optimizeByDomain(List<ChannelRecord> records, Mode mode)
+                throws KuraException {
+            Map<Integer, List<BlockTask>> result = super.optimizeByDomain(records, mode);
             if (this.afterAggregation != null) {
-                this.afterAggregation.accept(result);
+                List<BlockTask> tasks = new ArrayList<>();
+                result.values().forEach(tasks::addAll);
+                this.afterAggregation.accept(tasks);
             }
             return result;
         }
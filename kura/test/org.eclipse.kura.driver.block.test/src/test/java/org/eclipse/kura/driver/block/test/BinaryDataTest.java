@@ -21,11 +21,17 @@ import java.util.function.BiFunction;
 import org.eclipse.kura.driver.binary.BinaryData;
 import org.eclipse.kura.driver.binary.BinaryDataTypes;
 import org.eclipse.kura.driver.binary.ByteArrayBuffer;
+import org.eclipse.kura.driver.binary.BufferPool;
 import org.eclipse.kura.driver.binary.Endianness;
+import org.eclipse.kura.driver.binary.PooledBuffer;
 import org.junit.Test;
 
 public class BinaryDataTest {
 
+    private static final int UNALIGNED_OFFSET = 3;
+
+    private final BufferPool pool = new BufferPool();
+
     @Test
     public void shouldSupportUInt8() {
         testReadWrite(BinaryDataTypes.UINT8, (endianness, size) -> new byte[] { (byte) 0xab }, 171);
@@ -241,6 +247,22 @@ public class BinaryDataTest {
         ByteArrayBuffer writeBuf = new ByteArrayBuffer(new byte[data.getSize()]);
         data.write(writeBuf, 0, expectedValue);
         assertArrayEquals(testBuf.getBackingArray(), writeBuf.getBackingArray());
+        assertEquals(((Number) expectedValue).longValue(), data.readLong(testBuf, 0));
+        assertEquals(((Number) expectedValue).doubleValue(), data.readDouble(testBuf, 0), 0);
+
+        try (PooledBuffer pooledBuf = this.pool.acquire(data.getSize() + UNALIGNED_OFFSET)) {
+            pooledBuf.write(UNALIGNED_OFFSET, data.getSize(), testBuf.getBackingArray());
+            assertEquals(expectedValue, data.read(pooledBuf, UNALIGNED_OFFSET));
+            assertEquals(((Number) expectedValue).longValue(), data.readLong(pooledBuf, UNALIGNED_OFFSET));
+            assertEquals(((Number) expectedValue).doubleValue(), data.readDouble(pooledBuf, UNALIGNED_OFFSET), 0);
+        }
+
+        try (PooledBuffer pooledBuf = this.pool.acquire(data.getSize() + UNALIGNED_OFFSET)) {
+            data.write(pooledBuf, UNALIGNED_OFFSET, expectedValue);
+            final byte[] written = new byte[data.getSize()];
+            pooledBuf.read(UNALIGNED_OFFSET, data.getSize(), written);
+            assertArrayEquals(testBuf.getBackingArray(), written);
+        }
     }
 
 }
@@ -109,12 +109,26 @@ public class BlockAggregatorTest {
         new TestHelper().setInput(0, 1, 2, 3, 8, 9).prohibit(4, 7).expect(0, 3, 8, 9).setMinimumGapSize(10).exec();
     }
 
+    @Test
+    public void shouldAggregateAccordingToMaximumSize() {
+        new TestHelper().setInput(0, 2, 2, 4, 4, 6, 6, 8).expect(0, 4, 4, 8).setMaximumSize(4).exec();
+        new TestHelper().setInput(0, 2, 3, 5, 6, 8).expect(0, 5, 6, 8).setMinimumGapSize(2).setMaximumSize(5).exec();
+        new TestHelper().setInput(0, 4, 2, 8).expect(0, 4, 2, 8).setMaximumSize(6).exec();
+        new TestHelper().setInput(0, 10, 10, 12).expect(0, 10, 10, 12).setMaximumSize(4).exec();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAcceptNegativeMaximumSize() {
+        new TestHelper().setInput(0, 1).setMaximumSize(-1).exec();
+    }
+
     private static class TestHelper {
 
         private int[] inputBlocks;
         private int[] prohibitedBlocks;
         private int[] outputBlocks;
         private int minimumGapSize;
+        private int maximumSize;
         BlockAggregator<Block> aggregator;
 
         private TestHelper() {
@@ -141,6 +155,11 @@ public class BlockAggregatorTest {
             return (this);
         }
 
+        public TestHelper setMaximumSize(int maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
         public TestHelper prohibit(int... prohibitedBlocks) {
             if (prohibitedBlocks.length % 2 != 0) {
                 fail("block list size must be a multiple of 2");
@@ -164,6 +183,7 @@ public class BlockAggregatorTest {
             }
             aggregator = new BlockAggregator<Block>(inputBlocksTemp, (start, end) -> new Block(start, end));
             aggregator.setMinimumGapSize(minimumGapSize);
+            aggregator.setMaximumSize(maximumSize);
             Iterator<Block> blocks = aggregator.stream().iterator();
 
             if (outputBlocks != null) {
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+
+package org.eclipse.kura.driver.block.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.kura.driver.binary.BufferPool;
+import org.eclipse.kura.driver.binary.Endianness;
+import org.eclipse.kura.driver.binary.PooledBuffer;
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+    @Test
+    public void shouldReuseReleasedBuffers() {
+        BufferPool pool = new BufferPool();
+
+        PooledBuffer first = pool.acquire(10);
+        first.put(9, (byte) 0xff);
+        first.release();
+        // releasing twice has no effect
+        first.release();
+
+        PooledBuffer second = pool.acquire(12);
+        assertEquals(12, second.getLength());
+        // reused buffers are cleared
+        assertEquals(0, second.get(9));
+
+        assertEquals(2, pool.getAcquireCount());
+        assertEquals(1, pool.getReleaseCount());
+        assertEquals(1, pool.getAllocationCount());
+        assertEquals(16, pool.getAllocatedBytes());
+        assertEquals(0, pool.getFreeCount());
+    }
+
+    @Test
+    public void shouldRoundCapacityToPowerOfTwo() {
+        BufferPool pool = new BufferPool();
+
+        pool.acquire(17).release();
+        pool.acquire(32).release();
+        assertEquals(1, pool.getAllocationCount());
+        assertEquals(32, pool.getAllocatedBytes());
+
+        pool.acquire(33).release();
+        assertEquals(2, pool.getAllocationCount());
+        assertEquals(96, pool.getAllocatedBytes());
+        assertEquals(2, pool.getFreeCount());
+    }
+
+    @Test
+    public void shouldLimitRetainedBuffers() {
+        BufferPool pool = new BufferPool(1);
+
+        PooledBuffer first = pool.acquire(4);
+        PooledBuffer second = pool.acquire(4);
+        first.release();
+        second.release();
+        assertEquals(1, pool.getFreeCount());
+
+        pool.clear();
+        assertEquals(0, pool.getFreeCount());
+    }
+
+    @Test
+    public void shouldAccessPrimitives() {
+        BufferPool pool = new BufferPool();
+
+        try (PooledBuffer buffer = pool.acquire(8)) {
+            buffer.putInt(0, 0x01020304, Endianness.LITTLE_ENDIAN);
+            assertEquals(0x04, buffer.get(0));
+            assertEquals(0x01, buffer.get(3));
+            assertEquals(0x01020304, buffer.getInt(0, Endianness.LITTLE_ENDIAN));
+            assertEquals(0x0203, buffer.getShort(1, Endianness.LITTLE_ENDIAN));
+
+            buffer.putLong(0, 0x0102030405060708L, Endianness.BIG_ENDIAN);
+            assertEquals(0x0708, buffer.getShort(6, Endianness.BIG_ENDIAN));
+            assertEquals(0x0807060504030201L, buffer.getLong(0, Endianness.LITTLE_ENDIAN));
+
+            ByteBuffer view = buffer.asByteBuffer();
+            assertEquals(0, view.position());
+            assertEquals(8, view.remaining());
+            assertEquals(0x01, view.get(0));
+        }
+        assertEquals(1, pool.getReleaseCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativeLength() {
+        new BufferPool().acquire(-1);
+    }
+}
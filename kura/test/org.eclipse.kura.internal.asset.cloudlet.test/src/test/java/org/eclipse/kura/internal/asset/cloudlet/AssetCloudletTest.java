@@ -15,7 +15,10 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.kura.KuraErrorCode;
@@ -24,6 +27,9 @@ import org.eclipse.kura.asset.Asset;
 import org.eclipse.kura.asset.AssetConfiguration;
 import org.eclipse.kura.asset.AssetService;
 import org.eclipse.kura.channel.Channel;
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.ChannelStatus;
 import org.eclipse.kura.channel.ChannelType;
 import org.eclipse.kura.cloud.CloudClient;
 import org.eclipse.kura.cloud.CloudService;
@@ -32,6 +38,7 @@ import org.eclipse.kura.core.testutil.TestUtil;
 import org.eclipse.kura.message.KuraRequestPayload;
 import org.eclipse.kura.message.KuraResponsePayload;
 import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.IntegerValue;
 import org.junit.Test;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
@@ -400,6 +407,13 @@ public class AssetCloudletTest {
 
         when(asMock.getAssetPid(assetMock)).thenReturn("asset2");
 
+        ChannelRecord record = channel.createReadRecord();
+        record.setValue(new IntegerValue(3));
+        record.setChannelStatus(new ChannelStatus(ChannelFlag.SUCCESS));
+        Map<String, List<ChannelRecord>> results = new HashMap<>();
+        results.put("asset2", Arrays.asList(record));
+        when(asMock.readAllChannels(Collections.singleton("asset2"), 30000)).thenReturn(results);
+
         svc.activate(ccMock);
 
         AssetTrackerCustomizer atc = (AssetTrackerCustomizer) TestUtil.getFieldValue(svc, "assetTrackerCustomizer");
@@ -414,7 +428,8 @@ public class AssetCloudletTest {
         assertEquals(KuraResponsePayload.RESPONSE_CODE_OK, respPayload.getResponseCode());
         assertTrue(new String(respPayload.getBody()).contains("{\"name\":\"asset2\""));
 
-        verify(assetMock, times(1)).readAllChannels();
+        // all the assets are read with a single bulk request
+        verify(asMock, times(1)).readAllChannels(Collections.singleton("asset2"), 30000);
     }
 
     @Test
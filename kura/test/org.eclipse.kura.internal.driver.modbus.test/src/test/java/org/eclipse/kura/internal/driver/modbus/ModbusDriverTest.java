@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.driver.modbus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.core.testutil.TestUtil;
+import org.eclipse.kura.protocol.modbus.ModbusFunctionCodes;
+import org.eclipse.kura.protocol.modbus.ModbusProtocolDevice;
+import org.eclipse.kura.protocol.modbus.ModbusReadRequest;
+import org.eclipse.kura.protocol.modbus.ModbusReadResult;
+import org.eclipse.kura.type.BooleanValue;
+import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.IntegerValue;
+import org.eclipse.kura.type.TypedValue;
+import org.junit.Test;
+
+public class ModbusDriverTest {
+
+    @Test
+    public void testReadAggregation() throws Exception {
+        List<List<ModbusReadRequest>> submitted = new ArrayList<>();
+        ModbusDriver svc = newDriver(0, submitted);
+
+        List<ChannelRecord> records = new ArrayList<>();
+        records.add(newRecord("r0", 1, ModbusPrimaryTable.HOLDING_REGISTERS, 0, ModbusDataType.INT16,
+                DataType.INTEGER));
+        records.add(newRecord("r1", 1, ModbusPrimaryTable.HOLDING_REGISTERS, 1, ModbusDataType.UINT16,
+                DataType.INTEGER));
+        records.add(newRecord("r2", 1, ModbusPrimaryTable.HOLDING_REGISTERS, 2, ModbusDataType.INT32,
+                DataType.LONG));
+        records.add(newRecord("r10", 1, ModbusPrimaryTable.HOLDING_REGISTERS, 10, ModbusDataType.INT16,
+                DataType.INTEGER));
+        records.add(newRecord("i0", 1, ModbusPrimaryTable.INPUT_REGISTERS, 0, ModbusDataType.INT16,
+                DataType.INTEGER));
+        records.add(newRecord("c3", 2, ModbusPrimaryTable.COILS, 3, ModbusDataType.INT16, DataType.BOOLEAN));
+        records.add(newRecord("c4", 2, ModbusPrimaryTable.COILS, 4, ModbusDataType.INT16, DataType.BOOLEAN));
+
+        svc.read(records);
+
+        // one request per contiguous range, unit id and primary table
+        assertEquals(1, submitted.size());
+        List<ModbusReadRequest> requests = submitted.get(0);
+        assertEquals(4, requests.size());
+        assertRequest(requests, 1, ModbusFunctionCodes.READ_HOLDING_REGS, 0, 4);
+        assertRequest(requests, 1, ModbusFunctionCodes.READ_HOLDING_REGS, 10, 1);
+        assertRequest(requests, 1, ModbusFunctionCodes.READ_INPUT_REGS, 0, 1);
+        assertRequest(requests, 2, ModbusFunctionCodes.READ_COIL_STATUS, 3, 2);
+
+        // registers hold their address, coils are set on even addresses
+        assertEquals(0, records.get(0).getValue().getValue());
+        assertEquals(1, records.get(1).getValue().getValue());
+        assertEquals(2L << 16 | 3L, records.get(2).getValue().getValue());
+        assertEquals(10, records.get(3).getValue().getValue());
+        assertEquals(0, records.get(4).getValue().getValue());
+        assertEquals(new BooleanValue(false), records.get(5).getValue());
+        assertEquals(new BooleanValue(true), records.get(6).getValue());
+        for (ChannelRecord record : records) {
+            assertEquals(ChannelFlag.SUCCESS, record.getChannelStatus().getChannelFlag());
+        }
+    }
+
+    @Test
+    public void testReadHonorsPduSize() throws Exception {
+        List<List<ModbusReadRequest>> submitted = new ArrayList<>();
+        ModbusDriver svc = newDriver(200, submitted);
+
+        List<ChannelRecord> records = new ArrayList<>();
+        records.add(newRecord("r0", 1, ModbusPrimaryTable.HOLDING_REGISTERS, 0, ModbusDataType.INT16,
+                DataType.INTEGER));
+        records.add(newRecord("r100", 1, ModbusPrimaryTable.HOLDING_REGISTERS, 100, ModbusDataType.INT16,
+                DataType.INTEGER));
+        records.add(newRecord("r124", 1, ModbusPrimaryTable.HOLDING_REGISTERS, 124, ModbusDataType.INT16,
+                DataType.INTEGER));
+        records.add(newRecord("r125", 1, ModbusPrimaryTable.HOLDING_REGISTERS, 125, ModbusDataType.INT16,
+                DataType.INTEGER));
+        records.add(newRecord("r200", 1, ModbusPrimaryTable.HOLDING_REGISTERS, 200, ModbusDataType.INT16,
+                DataType.INTEGER));
+
+        svc.read(records);
+
+        // the gap size would allow a single request, but a read is limited to 125 registers
+        List<ModbusReadRequest> requests = submitted.get(0);
+        assertEquals(2, requests.size());
+        assertRequest(requests, 1, ModbusFunctionCodes.READ_HOLDING_REGS, 0, 125);
+        assertRequest(requests, 1, ModbusFunctionCodes.READ_HOLDING_REGS, 125, 76);
+        assertEquals(200, records.get(4).getValue().getValue());
+    }
+
+    @Test
+    public void testReadReusesPlan() throws Exception {
+        List<List<ModbusReadRequest>> submitted = new ArrayList<>();
+        ModbusDriver svc = newDriver(0, submitted);
+
+        svc.read(Arrays.asList(newRecord("r0", 1, ModbusPrimaryTable.HOLDING_REGISTERS, 7, ModbusDataType.INT16,
+                DataType.INTEGER)));
+        Object plan = TestUtil.getFieldValue(svc, "cachedRead");
+
+        List<ChannelRecord> records = Arrays.asList(newRecord("r0", 1, ModbusPrimaryTable.HOLDING_REGISTERS, 7,
+                ModbusDataType.INT16, DataType.INTEGER));
+        svc.read(records);
+
+        assertSame(plan, TestUtil.getFieldValue(svc, "cachedRead"));
+        assertEquals(2, submitted.size());
+        assertEquals(7, records.get(0).getValue().getValue());
+
+        // a different channel set invalidates the plan
+        svc.read(Arrays.asList(newRecord("r0", 1, ModbusPrimaryTable.HOLDING_REGISTERS, 8, ModbusDataType.INT16,
+                DataType.INTEGER)));
+
+        assertEquals(8, submitted.get(2).get(0).getDataAddress());
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        ModbusDriver svc = newDriver(0, new ArrayList<>());
+        ModbusProtocolDevice device = (ModbusProtocolDevice) TestUtil.getFieldValue(svc, "device");
+
+        List<ChannelRecord> records = new ArrayList<>();
+        records.add(newWriteRecord("r5", 1, ModbusPrimaryTable.HOLDING_REGISTERS, 5, ModbusDataType.INT16,
+                new IntegerValue(-2)));
+        records.add(newWriteRecord("r6", 1, ModbusPrimaryTable.HOLDING_REGISTERS, 6, ModbusDataType.UINT16,
+                new IntegerValue(0x1234)));
+        records.add(newWriteRecord("c0", 1, ModbusPrimaryTable.COILS, 0, ModbusDataType.INT16,
+                new BooleanValue(true)));
+        records.add(newWriteRecord("i0", 1, ModbusPrimaryTable.INPUT_REGISTERS, 0, ModbusDataType.INT16,
+                new IntegerValue(1)));
+
+        svc.write(records);
+
+        verify(device, times(1)).writeMultipleRegister(1, 5, new int[] { 0xfffe, 0x1234 });
+        verify(device, times(1)).writeMultipleCoils(1, 0, new boolean[] { true });
+        assertEquals(ChannelFlag.SUCCESS, records.get(0).getChannelStatus().getChannelFlag());
+        assertEquals(ChannelFlag.SUCCESS, records.get(2).getChannelStatus().getChannelFlag());
+        // input registers are read only
+        assertEquals(ChannelFlag.FAILURE, records.get(3).getChannelStatus().getChannelFlag());
+    }
+
+    private static ModbusDriver newDriver(int minimumGapSize, List<List<ModbusReadRequest>> submitted)
+            throws Exception {
+        ModbusDriver svc = new ModbusDriver();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("read.minimum.gap.size", minimumGapSize);
+        svc.updated(properties);
+
+        ModbusProtocolDevice device = mock(ModbusProtocolDevice.class);
+        when(device.read(anyObject())).thenAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            List<ModbusReadRequest> requests = invocation.getArgumentAt(0, List.class);
+            submitted.add(requests);
+            List<ModbusReadResult> results = new ArrayList<>();
+            for (ModbusReadRequest request : requests) {
+                results.add(newResult(request));
+            }
+            return results;
+        });
+        TestUtil.setFieldValue(svc, "device", device);
+        return svc;
+    }
+
+    private static ModbusReadResult newResult(ModbusReadRequest request) {
+        ModbusReadResult result = mock(ModbusReadResult.class);
+        when(result.isSuccessful()).thenReturn(true);
+        if (request.isBitRead()) {
+            boolean[] bits = new boolean[request.getCount()];
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] = (request.getDataAddress() + i) % 2 == 0;
+            }
+            when(result.getBits()).thenReturn(bits);
+        } else {
+            int[] registers = new int[request.getCount()];
+            for (int i = 0; i < registers.length; i++) {
+                registers[i] = request.getDataAddress() + i;
+            }
+            when(result.getRegisters()).thenReturn(registers);
+        }
+        return result;
+    }
+
+    private static void assertRequest(List<ModbusReadRequest> requests, int unitId, int functionCode, int address,
+            int count) {
+        for (ModbusReadRequest request : requests) {
+            if (request.getUnitAddr() == unitId && request.getFunctionCode() == functionCode
+                    && request.getDataAddress() == address) {
+                assertEquals(count, request.getCount());
+                return;
+            }
+        }
+        fail("Missing request, unit: " + unitId + " function: " + functionCode + " address: " + address);
+    }
+
+    private static Map<String, Object> newConfig(int unitId, ModbusPrimaryTable table, int address,
+            ModbusDataType dataType) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ModbusChannelDescriptor.UNIT_ID, unitId);
+        config.put(ModbusChannelDescriptor.PRIMARY_TABLE_ID, table.name());
+        config.put(ModbusChannelDescriptor.MEMORY_ADDRESS_ID, address);
+        config.put(ModbusChannelDescriptor.MODBUS_DATA_TYPE_ID, dataType.name());
+        return config;
+    }
+
+    private static ChannelRecord newRecord(String name, int unitId, ModbusPrimaryTable table, int address,
+            ModbusDataType dataType, DataType valueType) {
+        ChannelRecord record = ChannelRecord.createReadRecord(name, valueType);
+        record.setChannelConfig(newConfig(unitId, table, address, dataType));
+        return record;
+    }
+
+    private static ChannelRecord newWriteRecord(String name, int unitId, ModbusPrimaryTable table, int address,
+            ModbusDataType dataType, TypedValue<?> value) {
+        ChannelRecord record = ChannelRecord.createWriteRecord(name, value);
+        record.setChannelConfig(newConfig(unitId, table, address, dataType));
+        return record;
+    }
+}
@@ -31,6 +31,9 @@ public class OpcUaChannelDescriptorTest {
     private static final String NODE_ID_TYPE = "node.id.type";
     private static final String NODE_NAMESPACE_INDEX = "node.namespace.index";
     private static final String VARIABLE_TYPE = "opcua.type";
+    private static final String LISTEN_SAMPLING_INTERVAL = "listen.sampling.interval";
+    private static final String LISTEN_QUEUE_SIZE = "listen.queue.size";
+    private static final String LISTEN_DEADBAND = "listen.deadband";
 
     @Test
     public void testGetDescriptor() {
@@ -39,7 +42,7 @@ public class OpcUaChannelDescriptorTest {
         List<Tad> description = (List<Tad>) descriptor.getDescriptor();
 
         assertNotNull(description);
-        assertEquals(4, description.size());
+        assertEquals(7, description.size());
 
         assertEquals(NODE_ID, description.get(0).getName());
         assertEquals(NODE_NAMESPACE_INDEX, description.get(1).getName());
@@ -48,6 +51,27 @@ public class OpcUaChannelDescriptorTest {
 
         assertEquals(NODE_ID_TYPE, description.get(3).getName());
         assertEquals(4, description.get(3).getOption().size());
+
+        assertEquals(LISTEN_SAMPLING_INTERVAL, description.get(4).getName());
+        assertEquals(LISTEN_QUEUE_SIZE, description.get(5).getName());
+        assertEquals(LISTEN_DEADBAND, description.get(6).getName());
+    }
+
+    @Test
+    public void testGetListenParameters() {
+        Map<String, Object> properties = new HashMap<>();
+
+        assertEquals(1000.0, OpcUaChannelDescriptor.getSamplingInterval(properties), 0.0);
+        assertEquals(10, OpcUaChannelDescriptor.getQueueSize(properties));
+        assertEquals(0.0, OpcUaChannelDescriptor.getDeadband(properties), 0.0);
+
+        properties.put(LISTEN_SAMPLING_INTERVAL, "250");
+        properties.put(LISTEN_QUEUE_SIZE, "5");
+        properties.put(LISTEN_DEADBAND, "0.5");
+
+        assertEquals(250.0, OpcUaChannelDescriptor.getSamplingInterval(properties), 0.0);
+        assertEquals(5, OpcUaChannelDescriptor.getQueueSize(properties));
+        assertEquals(0.5, OpcUaChannelDescriptor.getDeadband(properties), 0.0);
     }
 
     @Test
@@ -10,44 +10,65 @@ package org.eclipse.kura.internal.driver.opcua;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.anyDouble;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 import org.eclipse.kura.KuraException;
 import org.eclipse.kura.channel.ChannelFlag;
 import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.listener.ChannelEvent;
+import org.eclipse.kura.channel.listener.ChannelListener;
 import org.eclipse.kura.core.testutil.TestUtil;
 import org.eclipse.kura.crypto.CryptoService;
 import org.eclipse.kura.driver.Driver.ConnectionException;
 import org.eclipse.kura.driver.PreparedRead;
 import org.eclipse.kura.type.DataType;
 import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
 import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
-import org.eclipse.milo.opcua.sdk.client.api.AddressSpace;
-import org.eclipse.milo.opcua.sdk.client.api.nodes.VariableNode;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscription;
+import org.eclipse.milo.opcua.sdk.client.subscriptions.OpcUaSubscriptionManager;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
 import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
 import org.eclipse.milo.opcua.stack.core.types.enumerated.IdType;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadResponse;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.WriteResponse;
+import org.eclipse.milo.opcua.stack.core.types.structured.WriteValue;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableList;
+
 public class OpcUaDriverTest {
 
     @SuppressWarnings("unchecked")
@@ -141,27 +162,28 @@ public class OpcUaDriverTest {
         assertFalse(value.isPresent());
     }
 
+    @SuppressWarnings("unchecked")
     @Test
     public void testReadNoNode() throws ConnectionException, NoSuchFieldException {
         // test read with a missing node exception
 
         OpcUaDriver svc = new OpcUaDriver();
 
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("request.timeout", 1);
+        TestUtil.setFieldValue(svc, "options", new OpcUaOptions(properties, mock(CryptoService.class)));
+
         OpcUaClient clientMock = mock(OpcUaClient.class);
         TestUtil.setFieldValue(svc, "client", clientMock);
 
-        AddressSpace asMock = mock(AddressSpace.class);
-        when(clientMock.getAddressSpace()).thenReturn(asMock);
-
         doAnswer(invocation -> {
-            NodeId nodeId = invocation.getArgumentAt(0, NodeId.class);
+            List<ReadValueId> readValueIds = invocation.getArgumentAt(2, List.class);
+            assertEquals(1, readValueIds.size());
+            assertNodeId(readValueIds.get(0).getNodeId(), 1);
 
-            assertEquals(1, ((UInteger) nodeId.getIdentifier()).intValue());
-            assertEquals(1, nodeId.getNamespaceIndex().intValue());
-            assertEquals(IdType.Numeric, nodeId.getType());
-
-            return null; // cause exception later on
-        }).when(asMock).createVariableNode(anyObject());
+            DataValue[] results = { new DataValue(new StatusCode(StatusCodes.Bad_NodeIdUnknown)) };
+            return CompletableFuture.completedFuture(new ReadResponse(null, results, null));
+        }).when(clientMock).read(anyDouble(), anyObject(), anyObject());
 
         List<ChannelRecord> records = new ArrayList<>();
         ChannelRecord record = ChannelRecord.createReadRecord("ch1", DataType.BOOLEAN);
@@ -227,6 +249,7 @@ public class OpcUaDriverTest {
         assertEquals(123, record.getValue().getValue());
     }
 
+    @SuppressWarnings("unchecked")
     protected void prepareForSuccessfulRead(OpcUaDriver svc, String val)
             throws NoSuchFieldException, InterruptedException, ExecutionException, TimeoutException {
 
@@ -239,27 +262,110 @@ public class OpcUaDriverTest {
         OpcUaClient clientMock = mock(OpcUaClient.class);
         TestUtil.setFieldValue(svc, "client", clientMock);
 
-        AddressSpace asMock = mock(AddressSpace.class);
-        when(clientMock.getAddressSpace()).thenReturn(asMock);
-
         Variant variant = new Variant(val);
         DataValue value = new DataValue(variant, StatusCode.GOOD);
 
-        CompletableFuture<DataValue> futureValue = mock(CompletableFuture.class);
-        when(futureValue.get(1000, TimeUnit.MILLISECONDS)).thenReturn(value);
+        doAnswer(invocation -> {
+            List<ReadValueId> readValueIds = invocation.getArgumentAt(2, List.class);
+            assertEquals(1, readValueIds.size());
+            assertNodeId(readValueIds.get(0).getNodeId(), 1);
+
+            return CompletableFuture.completedFuture(new ReadResponse(null, new DataValue[] { value }, null));
+        }).when(clientMock).read(anyDouble(), anyObject(), anyObject());
+    }
+
+    private static void assertNodeId(NodeId nodeId, int identifier) {
+        assertEquals(identifier, ((UInteger) nodeId.getIdentifier()).intValue());
+        assertEquals(1, nodeId.getNamespaceIndex().intValue());
+        assertEquals(IdType.Numeric, nodeId.getType());
+    }
+
+    private static ChannelRecord newRecord(String nodeId, ChannelRecord record) {
+        Map<String, Object> channelConfig = new HashMap<>();
+        channelConfig.put("node.namespace.index", "1");
+        channelConfig.put("node.id.type", "NUMERIC");
+        channelConfig.put("opcua.type", "DEFINED_BY_JAVA_TYPE");
+        channelConfig.put("node.id", nodeId);
+        record.setChannelConfig(channelConfig);
+        return record;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testReadChunks() throws Exception {
+        // test that the channels are read with one request per chunk of the server operation limit
+
+        OpcUaDriver svc = new OpcUaDriver();
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("request.timeout", 1);
+        TestUtil.setFieldValue(svc, "options", new OpcUaOptions(properties, mock(CryptoService.class)));
 
-        VariableNode node = mock(VariableNode.class);
-        when(node.readValue()).thenReturn(futureValue);
+        OpcUaClient clientMock = mock(OpcUaClient.class);
+        TestUtil.setFieldValue(svc, "client", clientMock);
+        TestUtil.setFieldValue(svc, "maxNodesPerRead", 2);
 
+        List<Integer> requestSizes = new ArrayList<>();
         doAnswer(invocation -> {
-            NodeId nodeId = invocation.getArgumentAt(0, NodeId.class);
+            List<ReadValueId> readValueIds = invocation.getArgumentAt(2, List.class);
+            requestSizes.add(readValueIds.size());
+
+            DataValue[] results = new DataValue[readValueIds.size()];
+            for (int i = 0; i < results.length; i++) {
+                UInteger identifier = (UInteger) readValueIds.get(i).getNodeId().getIdentifier();
+                results[i] = new DataValue(new Variant(identifier.intValue() * 10), StatusCode.GOOD);
+            }
+            return CompletableFuture.completedFuture(new ReadResponse(null, results, null));
+        }).when(clientMock).read(anyDouble(), anyObject(), anyObject());
 
-            assertEquals(1, ((UInteger) nodeId.getIdentifier()).intValue());
-            assertEquals(1, nodeId.getNamespaceIndex().intValue());
-            assertEquals(IdType.Numeric, nodeId.getType());
+        List<ChannelRecord> records = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            records.add(newRecord(Integer.toString(i), ChannelRecord.createReadRecord("ch" + i, DataType.INTEGER)));
+        }
 
-            return node;
-        }).when(asMock).createVariableNode(anyObject());
+        PreparedRead preparedRead = svc.prepareRead(records);
+        preparedRead.execute();
+        preparedRead.execute();
+
+        assertEquals(Arrays.asList(2, 2, 1, 2, 2, 1), requestSizes);
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(ChannelFlag.SUCCESS, records.get(i).getChannelStatus().getChannelFlag());
+            assertEquals((i + 1) * 10, records.get(i).getValue().getValue());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testWrite() throws Exception {
+        // test that all the channels are written with a single request and get their own status
+
+        OpcUaDriver svc = new OpcUaDriver();
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("request.timeout", 1);
+        TestUtil.setFieldValue(svc, "options", new OpcUaOptions(properties, mock(CryptoService.class)));
+
+        OpcUaClient clientMock = mock(OpcUaClient.class);
+        TestUtil.setFieldValue(svc, "client", clientMock);
+
+        doAnswer(invocation -> {
+            List<WriteValue> writeValues = invocation.getArgumentAt(0, List.class);
+            assertEquals(2, writeValues.size());
+            assertNodeId(writeValues.get(0).getNodeId(), 1);
+            assertEquals(10, writeValues.get(0).getValue().getValue().getValue());
+            assertNodeId(writeValues.get(1).getNodeId(), 2);
+
+            StatusCode[] results = { StatusCode.GOOD, StatusCode.BAD };
+            return CompletableFuture.completedFuture(new WriteResponse(null, results, null));
+        }).when(clientMock).write(anyObject());
+
+        ChannelRecord first = newRecord("1", ChannelRecord.createWriteRecord("ch1", TypedValues.newIntegerValue(10)));
+        ChannelRecord second = newRecord("2", ChannelRecord.createWriteRecord("ch2", TypedValues.newIntegerValue(20)));
+
+        svc.write(Arrays.asList(first, second));
+
+        assertEquals(ChannelFlag.SUCCESS, first.getChannelStatus().getChannelFlag());
+        assertEquals(ChannelFlag.FAILURE, second.getChannelStatus().getChannelFlag());
     }
 
     @Test
@@ -310,4 +416,85 @@ public class OpcUaDriverTest {
         assertEquals(123, record.getValue().getValue());
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testChannelListener() throws Exception {
+        // test that a registered listener gets a monitored item and is notified of the data changes
+
+        OpcUaDriver svc = new OpcUaDriver();
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("request.timeout", 1);
+        TestUtil.setFieldValue(svc, "options", new OpcUaOptions(properties, mock(CryptoService.class)));
+
+        OpcUaClient clientMock = mock(OpcUaClient.class);
+        TestUtil.setFieldValue(svc, "client", clientMock);
+
+        OpcUaSubscriptionManager managerMock = mock(OpcUaSubscriptionManager.class);
+        when(clientMock.getSubscriptionManager()).thenReturn(managerMock);
+
+        UaSubscription subscriptionMock = mock(UaSubscription.class);
+        when(managerMock.createSubscription(anyDouble()))
+                .thenReturn(CompletableFuture.completedFuture(subscriptionMock));
+
+        UaMonitoredItem itemMock = mock(UaMonitoredItem.class);
+        when(itemMock.getStatusCode()).thenReturn(StatusCode.GOOD);
+
+        AtomicReference<BiConsumer<UaMonitoredItem, DataValue>> valueConsumer = new AtomicReference<>();
+        doAnswer(invocation -> {
+            valueConsumer.set(invocation.getArgumentAt(0, BiConsumer.class));
+            return null;
+        }).when(itemMock).setValueConsumer(any(BiConsumer.class));
+
+        doAnswer(invocation -> {
+            List<MonitoredItemCreateRequest> requests = invocation.getArgumentAt(1, List.class);
+            assertEquals(1, requests.size());
+            assertEquals(250.0, requests.get(0).getRequestedParameters().getSamplingInterval(), 0.0);
+            assertEquals(5, requests.get(0).getRequestedParameters().getQueueSize().intValue());
+
+            invocation.getArgumentAt(2, BiConsumer.class).accept(itemMock, 0);
+            return CompletableFuture.completedFuture(Collections.singletonList(itemMock));
+        }).when(subscriptionMock).createMonitoredItems(anyObject(), anyObject(), anyObject());
+
+        ((OpcUaSubscriptionHandler) TestUtil.getFieldValue(svc, "subscriptionHandler")).connected(clientMock, 1000);
+
+        Map<String, Object> channelConfig = new HashMap<>();
+        channelConfig.put("+name", "ch1");
+        channelConfig.put("+value.type", "INTEGER");
+        channelConfig.put("node.namespace.index", "1");
+        channelConfig.put("node.id.type", "NUMERIC");
+        channelConfig.put("opcua.type", "DEFINED_BY_JAVA_TYPE");
+        channelConfig.put("node.id", "1");
+        channelConfig.put("listen.sampling.interval", "250");
+        channelConfig.put("listen.queue.size", "5");
+
+        List<ChannelEvent> events = new ArrayList<>();
+        ChannelListener listener = events::add;
+        svc.registerChannelListener(channelConfig, listener);
+
+        assertNotNull(valueConsumer.get());
+
+        valueConsumer.get().accept(itemMock,
+                new DataValue(new Variant(123), StatusCode.GOOD, new DateTime(new Date(1000L))));
+
+        assertEquals(1, events.size());
+        ChannelRecord record = events.get(0).getChannelRecord();
+        assertEquals("ch1", record.getChannelName());
+        assertEquals(ChannelFlag.SUCCESS, record.getChannelStatus().getChannelFlag());
+        assertEquals(123, record.getValue().getValue());
+        assertEquals(1000L, record.getTimestamp());
+
+        // the subscription is deleted together with its last monitored item
+        when(subscriptionMock.deleteMonitoredItems(anyObject()))
+                .thenReturn(CompletableFuture.completedFuture(Collections.singletonList(StatusCode.GOOD)));
+        when(subscriptionMock.getMonitoredItems()).thenReturn(ImmutableList.of());
+        when(subscriptionMock.getSubscriptionId()).thenReturn(UInteger.valueOf(1));
+        when(managerMock.deleteSubscription(anyObject()))
+                .thenReturn(CompletableFuture.completedFuture(subscriptionMock));
+
+        svc.unregisterChannelListener(listener);
+
+        verify(managerMock).deleteSubscription(UInteger.valueOf(1));
+    }
+
 }
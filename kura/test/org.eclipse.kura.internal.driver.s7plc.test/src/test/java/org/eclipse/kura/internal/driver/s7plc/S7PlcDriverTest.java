@@ -11,19 +11,27 @@ package org.eclipse.kura.internal.driver.s7plc;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.kura.KuraErrorCode;
 import org.eclipse.kura.KuraException;
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
 import org.eclipse.kura.core.testutil.TestUtil;
 import org.eclipse.kura.crypto.CryptoService;
 import org.eclipse.kura.driver.ChannelDescriptor;
@@ -31,10 +39,13 @@ import org.eclipse.kura.driver.block.BlockFactory;
 import org.eclipse.kura.driver.block.task.BlockTask;
 import org.eclipse.kura.driver.block.task.Mode;
 import org.eclipse.kura.driver.block.task.ToplevelBlockTask;
+import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.IntegerValue;
 import org.junit.Test;
 
 import Moka7.S7;
 import Moka7.S7Client;
+import Moka7.S7DataItem;
 
 public class S7PlcDriverTest {
 
@@ -353,4 +364,173 @@ public class S7PlcDriverTest {
 
         verify(s7Mock, times(1)).WriteArea(S7.S7AreaDB, db, offset, data.length, data);
     }
+
+    @Test
+    public void testReadMultiVars() throws Exception {
+        // blocks from different data blocks are read with a single request
+
+        S7PlcDriver svc = new S7PlcDriver();
+        List<List<S7DataItem>> requests = new ArrayList<>();
+        S7Client s7Mock = mockClient(svc, 240, requests);
+
+        List<ChannelRecord> records = new ArrayList<>();
+        records.add(createReadRecord("a", 1, 0));
+        records.add(createReadRecord("b", 2, 4));
+        records.add(createReadRecord("c", 3, 8));
+
+        svc.read(records);
+
+        assertEquals(1, requests.size());
+        assertEquals(3, requests.get(0).size());
+        verify(s7Mock, never()).ReadArea(anyInt(), anyInt(), anyInt(), anyInt(), anyObject());
+
+        // the mock fills each byte with the sum of the data block number and the offset
+        assertEquals(0x01020304, records.get(0).getValue().getValue());
+        assertEquals(0x06070809, records.get(1).getValue().getValue());
+        assertEquals(0x0B0C0D0E, records.get(2).getValue().getValue());
+        for (ChannelRecord record : records) {
+            assertEquals(ChannelFlag.SUCCESS, record.getChannelStatus().getChannelFlag());
+        }
+    }
+
+    @Test
+    public void testReadMultiVarsHonorsPduLength() throws Exception {
+        // requests: 12 + 12 bytes per item, responses: 14 + 8 bytes per item, three items do not fit 40 bytes
+
+        S7PlcDriver svc = new S7PlcDriver();
+        List<List<S7DataItem>> requests = new ArrayList<>();
+        S7Client s7Mock = mockClient(svc, 40, requests);
+
+        List<ChannelRecord> records = new ArrayList<>();
+        records.add(createReadRecord("a", 1, 0));
+        records.add(createReadRecord("b", 2, 0));
+        records.add(createReadRecord("c", 3, 0));
+
+        svc.read(records);
+
+        assertEquals(1, requests.size());
+        assertEquals(2, requests.get(0).size());
+        verify(s7Mock, times(1)).ReadArea(anyInt(), anyInt(), anyInt(), anyInt(), anyObject());
+        for (ChannelRecord record : records) {
+            assertEquals(ChannelFlag.SUCCESS, record.getChannelStatus().getChannelFlag());
+        }
+    }
+
+    @Test
+    public void testReadMultiVarsItemFailure() throws Exception {
+        // a block that cannot be read by the multi variable request is read on its own
+
+        S7PlcDriver svc = new S7PlcDriver();
+        S7Client s7Mock = mock(S7Client.class);
+        when(s7Mock.PDULength()).thenReturn(240);
+        when(s7Mock.ReadMultiVars(anyObject(), anyInt())).thenAnswer(invocation -> {
+            S7DataItem[] items = invocation.getArgumentAt(0, S7DataItem[].class);
+            items[0].Result = 0;
+            items[1].Result = S7Client.errS7DataRead;
+            return 0;
+        });
+        when(s7Mock.ReadArea(anyInt(), anyInt(), anyInt(), anyInt(), anyObject())).thenReturn(S7Client.errS7DataRead);
+        svc.updated(new HashMap<String, Object>());
+        TestUtil.setFieldValue(svc, CLIENT_FIELD, s7Mock);
+        s7Mock.Connected = true;
+
+        List<ChannelRecord> records = new ArrayList<>();
+        records.add(createReadRecord("a", 1, 0));
+        records.add(createReadRecord("b", 2, 0));
+
+        svc.read(records);
+
+        verify(s7Mock, times(1)).ReadArea(anyInt(), anyInt(), anyInt(), anyInt(), anyObject());
+        assertEquals(ChannelFlag.SUCCESS, records.get(0).getChannelStatus().getChannelFlag());
+        assertEquals(ChannelFlag.FAILURE, records.get(1).getChannelStatus().getChannelFlag());
+    }
+
+    @Test
+    public void testWriteMultiVars() throws Exception {
+        S7PlcDriver svc = new S7PlcDriver();
+        S7Client s7Mock = mockClient(svc, 240, new ArrayList<>());
+        List<S7DataItem> written = new ArrayList<>();
+        when(s7Mock.WriteMultiVars(anyObject(), anyInt())).thenAnswer(invocation -> {
+            S7DataItem[] items = invocation.getArgumentAt(0, S7DataItem[].class);
+            written.addAll(Arrays.asList(items));
+            for (S7DataItem item : items) {
+                item.Result = 0;
+            }
+            return 0;
+        });
+
+        List<ChannelRecord> records = new ArrayList<>();
+        records.add(createWriteRecord("a", 1, 2, 0x11223344));
+        records.add(createWriteRecord("b", 5, 0, -1));
+
+        svc.write(records);
+
+        assertEquals(2, written.size());
+        verify(s7Mock, never()).WriteArea(anyInt(), anyInt(), anyInt(), anyInt(), anyObject());
+        for (S7DataItem item : written) {
+            if (item.DBNumber == 1) {
+                assertEquals(2, item.Start);
+                assertEquals(0x11, item.Data[0]);
+                assertEquals(0x44, item.Data[3]);
+            } else {
+                assertEquals(5, item.DBNumber);
+                assertEquals(-1, item.Data[0]);
+            }
+        }
+        for (ChannelRecord record : records) {
+            assertEquals(ChannelFlag.SUCCESS, record.getChannelStatus().getChannelFlag());
+        }
+    }
+
+    private static S7Client mockClient(S7PlcDriver svc, int pduLength, List<List<S7DataItem>> requests)
+            throws NoSuchFieldException {
+        svc.updated(new HashMap<String, Object>());
+
+        S7Client s7Mock = mock(S7Client.class);
+        when(s7Mock.PDULength()).thenReturn(pduLength);
+        when(s7Mock.ReadMultiVars(anyObject(), anyInt())).thenAnswer(invocation -> {
+            S7DataItem[] items = invocation.getArgumentAt(0, S7DataItem[].class);
+            int count = invocation.getArgumentAt(1, Integer.class);
+            requests.add(Arrays.asList(items).subList(0, count));
+            for (int i = 0; i < count; i++) {
+                fill(items[i].DBNumber, items[i].Start, items[i].Amount, items[i].Data);
+                items[i].Result = 0;
+            }
+            return 0;
+        });
+        when(s7Mock.ReadArea(anyInt(), anyInt(), anyInt(), anyInt(), anyObject())).thenAnswer(invocation -> {
+            fill(invocation.getArgumentAt(1, Integer.class), invocation.getArgumentAt(2, Integer.class),
+                    invocation.getArgumentAt(3, Integer.class), invocation.getArgumentAt(4, byte[].class));
+            return 0;
+        });
+        TestUtil.setFieldValue(svc, CLIENT_FIELD, s7Mock);
+        s7Mock.Connected = true;
+        return s7Mock;
+    }
+
+    private static void fill(int db, int start, int amount, byte[] data) {
+        for (int i = 0; i < amount; i++) {
+            data[i] = (byte) (db + start + i);
+        }
+    }
+
+    private static Map<String, Object> createChannelConfig(int db, int offset) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(S7PlcChannelDescriptor.S7_ELEMENT_TYPE_ID, S7PlcDataType.DINT.name());
+        config.put(S7PlcChannelDescriptor.DATA_BLOCK_NO_ID, db);
+        config.put(S7PlcChannelDescriptor.OFFSET_ID, offset);
+        return config;
+    }
+
+    private static ChannelRecord createReadRecord(String name, int db, int offset) {
+        ChannelRecord record = ChannelRecord.createReadRecord(name, DataType.INTEGER);
+        record.setChannelConfig(createChannelConfig(db, offset));
+        return record;
+    }
+
+    private static ChannelRecord createWriteRecord(String name, int db, int offset, int value) {
+        ChannelRecord record = ChannelRecord.createWriteRecord(name, new IntegerValue(value));
+        record.setChannelConfig(createChannelConfig(db, offset));
+        return record;
+    }
 }
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+
+package org.eclipse.kura.protocol.modbus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Future;
+
+import org.eclipse.kura.protocol.modbus.test.PipelinedModbusServer;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ModbusTcpPipelineTest {
+
+    private static PipelinedModbusServer modbusServer;
+
+    private ModbusProtocolDevice modbusDevice;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        modbusServer = new PipelinedModbusServer();
+        modbusServer.start(32346);
+    }
+
+    @AfterClass
+    public static void stopServer() throws IOException {
+        modbusServer.stop();
+    }
+
+    @Before
+    public void connect() throws ModbusProtocolException {
+        modbusDevice = new ModbusProtocolDevice();
+        Properties connectionConfig = new Properties();
+        connectionConfig.setProperty("connectionType", ModbusProtocolDevice.PROTOCOL_CONNECTION_TYPE_ETHER_TCP);
+        connectionConfig.setProperty("ipAddress", "127.0.0.1");
+        connectionConfig.setProperty("ethport", "32346");
+        connectionConfig.setProperty("respTimeout", "1000");
+        connectionConfig.setProperty("transmissionMode", ModbusTransmissionMode.RTU);
+        connectionConfig.setProperty("pipelineDepth", "4");
+        modbusDevice.configureConnection(connectionConfig);
+    }
+
+    @After
+    public void disconnect() throws ModbusProtocolException {
+        modbusDevice.disconnect();
+    }
+
+    @Test
+    public void testReadBatch() throws ModbusProtocolException {
+        List<ModbusReadRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            requests.add(new ModbusReadRequest(1, ModbusFunctionCodes.READ_HOLDING_REGS, i * 10, 2));
+        }
+
+        List<ModbusReadResult> results = modbusDevice.read(requests);
+
+        assertEquals(10, results.size());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(results.get(i).isSuccessful());
+            assertArrayEquals(new int[] { i * 10, i * 10 + 1 }, results.get(i).getRegisters());
+        }
+        // the responses came back in reverse order, several requests were in flight
+        assertTrue(modbusServer.getMaxInFlight() > 1);
+        assertTrue(modbusServer.getMaxInFlight() <= 4);
+    }
+
+    @Test
+    public void testReadAsyncCoils() throws Exception {
+        Future<ModbusReadResult> future = modbusDevice
+                .readAsync(new ModbusReadRequest(1, ModbusFunctionCodes.READ_COIL_STATUS, 4, 3));
+
+        ModbusReadResult result = future.get();
+
+        assertTrue(future.isDone());
+        assertArrayEquals(new boolean[] { true, false, true }, result.getBits());
+    }
+
+    @Test
+    public void testResponseTimeout() throws ModbusProtocolException {
+        List<ModbusReadRequest> requests = new ArrayList<>();
+        requests.add(new ModbusReadRequest(1, ModbusFunctionCodes.READ_INPUT_REGS, 5, 1));
+        requests.add(new ModbusReadRequest(PipelinedModbusServer.SILENT_UNIT, ModbusFunctionCodes.READ_INPUT_REGS, 5,
+                1));
+        requests.add(new ModbusReadRequest(1, ModbusFunctionCodes.READ_INPUT_REGS, 6, 1));
+
+        List<ModbusReadResult> results = modbusDevice.read(requests);
+
+        assertArrayEquals(new int[] { 5 }, results.get(0).getRegisters());
+        assertFalse(results.get(1).isSuccessful());
+        assertEquals(ModbusProtocolErrorCode.RESPONSE_TIMEOUT, results.get(1).getException().getCode());
+        assertArrayEquals(new int[] { 6 }, results.get(2).getRegisters());
+    }
+}
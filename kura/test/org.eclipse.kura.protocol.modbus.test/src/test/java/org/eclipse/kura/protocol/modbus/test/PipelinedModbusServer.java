@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+
+package org.eclipse.kura.protocol.modbus.test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Modbus TCP server accepting several requests in flight: the requests received in a burst are answered in reverse
+ * order, echoing their transaction ids. Registers hold their own address, coils are set on even addresses and the
+ * requests to unit 99 are never answered.
+ */
+public class PipelinedModbusServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelinedModbusServer.class);
+
+    public static final int SILENT_UNIT = 99;
+
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private ServerSocket serverSocket;
+
+    public void start(int port) throws IOException {
+        serverSocket = new ServerSocket(port);
+        Thread acceptor = new Thread(() -> {
+            try {
+                while (!serverSocket.isClosed()) {
+                    Socket socket = serverSocket.accept();
+                    Thread handler = new Thread(() -> handle(socket), "PipelinedModbusHandler");
+                    handler.setDaemon(true);
+                    handler.start();
+                }
+            } catch (IOException e) {
+                logger.debug("PipelinedModbusServer stopped", e);
+            }
+        }, "PipelinedModbusServer");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public void stop() throws IOException {
+        serverSocket.close();
+    }
+
+    /**
+     * @return the maximum number of requests received before answering
+     */
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    private void handle(Socket socket) {
+        try {
+            socket.setSoTimeout(50);
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            List<byte[]> burst = new ArrayList<>();
+            while (true) {
+                byte[] request;
+                try {
+                    request = readFrame(in);
+                } catch (SocketTimeoutException e) {
+                    answer(burst, out);
+                    continue;
+                }
+                if (request == null) {
+                    return;
+                }
+                burst.add(request);
+            }
+        } catch (IOException e) {
+            logger.debug("PipelinedModbusHandler closed", e);
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("PipelinedModbusHandler", e);
+            }
+        }
+    }
+
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        byte[] header = new byte[6];
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        header[0] = (byte) first;
+        in.readFully(header, 1, 5);
+        int length = (header[4] & 0xff) << 8 | header[5] & 0xff;
+        byte[] frame = new byte[6 + length];
+        System.arraycopy(header, 0, frame, 0, 6);
+        in.readFully(frame, 6, length);
+        return frame;
+    }
+
+    private void answer(List<byte[]> burst, OutputStream out) throws IOException {
+        if (burst.isEmpty()) {
+            return;
+        }
+        maxInFlight.accumulateAndGet(burst.size(), Math::max);
+        Collections.reverse(burst);
+        for (byte[] request : burst) {
+            if ((request[6] & 0xff) != SILENT_UNIT) {
+                out.write(buildResponse(request));
+            }
+        }
+        out.flush();
+        burst.clear();
+    }
+
+    private static byte[] buildResponse(byte[] request) {
+        int function = request[7];
+        int address = (request[8] & 0xff) << 8 | request[9] & 0xff;
+        int count = (request[10] & 0xff) << 8 | request[11] & 0xff;
+
+        byte[] data;
+        if (function == 1 || function == 2) {
+            data = new byte[(count + 7) / 8];
+            for (int i = 0; i < count; i++) {
+                if ((address + i) % 2 == 0) {
+                    data[i / 8] |= 1 << (i % 8);
+                }
+            }
+        } else {
+            data = new byte[count * 2];
+            for (int i = 0; i < count; i++) {
+                data[2 * i] = (byte) ((address + i) >> 8);
+                data[2 * i + 1] = (byte) (address + i);
+            }
+        }
+
+        int length = 3 + data.length;
+        byte[] response = new byte[6 + length];
+        response[0] = request[0];
+        response[1] = request[1];
+        response[4] = (byte) (length >> 8);
+        response[5] = (byte) length;
+        response[6] = request[6];
+        response[7] = (byte) function;
+        response[8] = (byte) data.length;
+        System.arraycopy(data, 0, response, 9, data.length);
+        return response;
+    }
+}
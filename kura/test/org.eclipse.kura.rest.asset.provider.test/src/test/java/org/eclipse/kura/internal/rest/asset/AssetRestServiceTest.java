@@ -21,9 +21,11 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -195,6 +197,46 @@ public class AssetRestServiceTest {
                 json.toString());
     }
 
+    @Test
+    public void testReadAllAssets() throws InvalidSyntaxException {
+        // test reading all the channels of all the assets with a single request
+
+        Collection<ServiceReference<Asset>> svcRefs = new ArrayList<>();
+        ServiceReference<Asset> svcRef = mock(ServiceReference.class);
+        when(svcRef.getProperty("kura.service.pid")).thenReturn("pid1");
+        svcRefs.add(svcRef);
+        ServiceReference<Asset> svcRef2 = mock(ServiceReference.class);
+        when(svcRef2.getProperty("kura.service.pid")).thenReturn("pid2");
+        svcRefs.add(svcRef2);
+
+        AssetRestService svc = new AssetRestService() {
+
+            @Override
+            protected Collection<ServiceReference<Asset>> getAssetServiceReferences() throws InvalidSyntaxException {
+                return svcRefs;
+            }
+        };
+
+        AssetService asMock = mock(AssetService.class);
+        svc.setAssetService(asMock);
+
+        Map<String, List<ChannelRecord>> results = new LinkedHashMap<>();
+        ChannelRecord record = ChannelRecord.createReadRecord("ch1", DataType.INTEGER);
+        record.setChannelStatus(new ChannelStatus(ChannelFlag.SUCCESS));
+        record.setValue(TypedValues.newIntegerValue(1));
+        results.put("pid1", Arrays.asList(record));
+        record = ChannelRecord.createReadRecord("ch1", DataType.STRING);
+        record.setChannelStatus(new ChannelStatus(ChannelFlag.FAILURE));
+        results.put("pid2", Arrays.asList(record));
+        when(asMock.readAllChannels(Arrays.asList("pid1", "pid2"), 1000)).thenReturn(results);
+
+        JsonElement json = svc.readAll(1000);
+        assertEquals(
+                "{\"pid1\":[{\"channelStatus\":{\"channelFlag\":\"SUCCESS\"},\"name\":\"ch1\",\"valueType\":\"INTEGER\",\"value\":1,\"timestamp\":0}],"
+                        + "\"pid2\":[{\"channelStatus\":{\"channelFlag\":\"FAILURE\"},\"name\":\"ch1\",\"valueType\":\"STRING\",\"timestamp\":0}]}",
+                json.toString());
+    }
+
     @Test
     public void testReadSelectedChannelsValidationException() throws KuraException {
         // test selective channel read with invalid request
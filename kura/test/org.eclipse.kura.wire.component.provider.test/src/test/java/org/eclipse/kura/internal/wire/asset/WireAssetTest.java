@@ -31,6 +31,7 @@ import org.eclipse.kura.channel.ChannelRecord;
 import org.eclipse.kura.channel.ChannelStatus;
 import org.eclipse.kura.type.BooleanValue;
 import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.DoubleValue;
 import org.eclipse.kura.type.LongValue;
 import org.eclipse.kura.type.StringValue;
 import org.eclipse.kura.type.TypedValue;
@@ -142,4 +143,107 @@ public class WireAssetTest {
         verify(mockDriver).write(any());
     }
 
+    @Test
+    public void testReportByException() throws NoSuchFieldException, ConnectionException {
+        Map<String, Object> rbeChannelConfig = new HashMap<>();
+        rbeChannelConfig.put("+report.by.exception", "true");
+        rbeChannelConfig.put("+deadband.absolute", "1.0");
+        rbeChannelConfig.put("+max.silence", "1000");
+        Channel rbeChannel = new Channel("rbe", ChannelType.READ, DataType.DOUBLE, rbeChannelConfig);
+
+        Map<String, Object> plainChannelConfig = new HashMap<>();
+        Channel plainChannel = new Channel("plain", ChannelType.READ, DataType.DOUBLE, plainChannelConfig);
+
+        Map<String, Channel> channels = new HashMap<>();
+        channels.put(rbeChannel.getName(), rbeChannel);
+        channels.put(plainChannel.getName(), plainChannel);
+
+        // value of the rbe channel and timestamp for each read
+        double[][] reads = { { 10.0, 0 }, { 10.5, 100 }, { 11.5, 200 }, { 11.5, 300 }, { 11.5, 1200 } };
+        List<Map<String, TypedValue<?>>> emitted = new ArrayList<>();
+        WireAsset wireAsset = newReadAsset(channels, emitted, reads);
+
+        WireEnvelope wireEnvelope = new WireEnvelope("pid", new ArrayList<>());
+        for (int i = 0; i < reads.length; i++) {
+            wireAsset.onWireReceive(wireEnvelope);
+        }
+
+        assertEquals(5, emitted.size());
+        assertEquals(new DoubleValue(10.0), emitted.get(0).get("rbe"));
+        // change below the deadband
+        assertEquals(null, emitted.get(1).get("rbe"));
+        assertEquals(new DoubleValue(1), emitted.get(1).get("plain"));
+        assertEquals(new DoubleValue(11.5), emitted.get(2).get("rbe"));
+        assertEquals(new LongValue(200), emitted.get(2).get("rbe_timestamp"));
+        assertEquals(null, emitted.get(3).get("rbe"));
+        // max silence elapsed
+        assertEquals(new DoubleValue(11.5), emitted.get(4).get("rbe"));
+    }
+
+    @Test
+    public void testReportByExceptionNoChange() throws NoSuchFieldException, ConnectionException {
+        Map<String, Object> rbeChannelConfig = new HashMap<>();
+        rbeChannelConfig.put("+report.by.exception", "true");
+        rbeChannelConfig.put("+deadband.percent", "10");
+        Channel rbeChannel = new Channel("rbe", ChannelType.READ, DataType.DOUBLE, rbeChannelConfig);
+
+        Map<String, Channel> channels = new HashMap<>();
+        channels.put(rbeChannel.getName(), rbeChannel);
+
+        double[][] reads = { { 100.0, 0 }, { 109.0, 100 }, { 91.0, 200 }, { 111.0, 300 } };
+        List<Map<String, TypedValue<?>>> emitted = new ArrayList<>();
+        WireAsset wireAsset = newReadAsset(channels, emitted, reads);
+
+        WireEnvelope wireEnvelope = new WireEnvelope("pid", new ArrayList<>());
+        for (int i = 0; i < reads.length; i++) {
+            wireAsset.onWireReceive(wireEnvelope);
+        }
+
+        // nothing is emitted if no channel changed
+        assertEquals(2, emitted.size());
+        assertEquals(new DoubleValue(100.0), emitted.get(0).get("rbe"));
+        assertEquals(new DoubleValue(111.0), emitted.get(1).get("rbe"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static WireAsset newReadAsset(Map<String, Channel> channels, List<Map<String, TypedValue<?>>> emitted,
+            double[][] reads) throws NoSuchFieldException, ConnectionException {
+        AssetConfiguration assetConfiguration = new AssetConfiguration("description", "driverPid", channels);
+
+        WireAsset wireAsset = new WireAsset();
+        TestUtil.setFieldValue(wireAsset, "kuraServicePid", "componentName");
+        TestUtil.setFieldValue(wireAsset, "assetConfiguration", assetConfiguration);
+
+        Driver mockDriver = mock(Driver.class);
+        wireAsset.setDriver(mockDriver);
+
+        int[] readCount = { 0 };
+        doAnswer(invocation -> {
+            List<ChannelRecord> records = (List<ChannelRecord>) invocation.getArguments()[0];
+            double[] read = reads[readCount[0]++];
+            for (ChannelRecord record : records) {
+                if ("rbe".equals(record.getChannelName())) {
+                    record.setValue(new DoubleValue(read[0]));
+                } else {
+                    record.setValue(new DoubleValue(1));
+                }
+                record.setTimestamp((long) read[1]);
+                record.setChannelStatus(new ChannelStatus(ChannelFlag.SUCCESS));
+            }
+            return null;
+        }).when(mockDriver).read(any());
+
+        WireSupport mockWireSupport = mock(WireSupport.class);
+        TestUtil.setFieldValue(wireAsset, "wireSupport", mockWireSupport);
+
+        doAnswer(invocation -> {
+            List<WireRecord> wireRecords = (List<WireRecord>) invocation.getArguments()[0];
+            assertEquals(1, wireRecords.size());
+            emitted.add(wireRecords.get(0).getProperties());
+            return null;
+        }).when(mockWireSupport).emit(any());
+
+        return wireAsset;
+    }
+
 }
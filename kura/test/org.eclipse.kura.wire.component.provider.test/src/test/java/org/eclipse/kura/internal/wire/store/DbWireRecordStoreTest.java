@@ -19,6 +19,7 @@ import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -226,4 +227,105 @@ public class DbWireRecordStoreTest {
         connection.prepareStatement("SHUTDOWN").execute();
     }
 
+    @Test
+    public void testPartitionSequence() throws SQLException {
+        // store records in a plain table, enable partitioning, check the table has been moved behind a view, change
+        // a column type, clean it up and disable partitioning again
+        DbWireRecordStore store = new DbWireRecordStore();
+
+        Connection connection = getConnection();
+
+        DbService dbServiceMock = mock(DbService.class);
+        when(dbServiceMock.getConnection()).thenReturn(connection);
+
+        WireHelperService whsMock = mock(WireHelperService.class);
+        WireSupport wireSupportMock = mock(WireSupport.class);
+        when(whsMock.newWireSupport(store)).thenReturn(wireSupportMock);
+
+        store.bindDbService(dbServiceMock);
+        store.bindWireHelperService(whsMock);
+
+        ComponentContext ctx = mock(ComponentContext.class);
+        Map<String, Object> props = new HashMap<String, Object>();
+        String tableName = "STORE_TEST";
+        props.put("table.name", tableName);
+        props.put("maximum.table.size", 10);
+        props.put("cleanup.records.keep", 5);
+
+        // init
+        store.activate(ctx, props);
+
+        List<WireRecord> wireRecords = new ArrayList<WireRecord>();
+        Map<String, TypedValue<?>> recordProps = new HashMap<String, TypedValue<?>>();
+        recordProps.put("key", new StringValue("val"));
+        wireRecords.add(new WireRecord(recordProps));
+        recordProps = new HashMap<String, TypedValue<?>>();
+        recordProps.put("key", new StringValue("val"));
+        recordProps.put("intkey", new IntegerValue(1));
+        wireRecords.add(new WireRecord(recordProps));
+        WireEnvelope wireEvelope = new WireEnvelope("emitter", wireRecords);
+
+        store.onWireReceive(wireEvelope);
+
+        // enable partitioning
+        props.put("partition.interval", 3600);
+        props.put("partition.count", 2);
+        store.updated(props);
+
+        assertEquals("VIEW", getTableType(connection, tableName));
+        assertEquals(2, count(connection, tableName, null));
+
+        // change the type of a column referenced by the view
+        recordProps = new HashMap<String, TypedValue<?>>();
+        recordProps.put("intkey", new StringValue("one"));
+        store.onWireReceive(
+                new WireEnvelope("emitter", Collections.<WireRecord> singletonList(new WireRecord(recordProps))));
+
+        assertEquals(3, count(connection, tableName, null));
+        assertEquals(1, count(connection, tableName, "\"intkey\" = 'one'"));
+        // the records of the moved table keep their IDs, the new records get theirs from the shared sequence
+        assertEquals(3, countIds(connection, tableName));
+
+        // the single partition exceeds the maximum size, its oldest records are deleted
+        for (int i = 0; i < 4; i++) {
+            store.onWireReceive(wireEvelope);
+        }
+        assertEquals(11, count(connection, tableName, null));
+        store.onWireReceive(wireEvelope);
+        assertEquals(7, count(connection, tableName, null));
+
+        // disable partitioning
+        props.put("partition.interval", 0);
+        store.updated(props);
+
+        assertEquals("TABLE", getTableType(connection, tableName));
+        assertEquals(7, count(connection, tableName, null));
+
+        store.onWireReceive(wireEvelope);
+        assertEquals(9, count(connection, tableName, null));
+        assertEquals(9, countIds(connection, tableName));
+
+        // deinit
+        store.deactivate(null);
+        connection.prepareStatement("SHUTDOWN").execute();
+    }
+
+    private static String getTableType(Connection connection, String tableName) throws SQLException {
+        ResultSet tables = connection.getMetaData().getTables(null, null, tableName, null);
+        return tables.next() ? tables.getString("TABLE_TYPE") : null;
+    }
+
+    private static int count(Connection connection, String tableName, String condition) throws SQLException {
+        String sql = "SELECT count(*) FROM " + tableName + (condition != null ? " WHERE " + condition : "");
+        ResultSet resultSet = connection.prepareStatement(sql).executeQuery();
+        resultSet.next();
+        return resultSet.getInt(1);
+    }
+
+    private static int countIds(Connection connection, String tableName) throws SQLException {
+        ResultSet resultSet = connection.prepareStatement("SELECT count(DISTINCT ID) FROM " + tableName)
+                .executeQuery();
+        resultSet.next();
+        return resultSet.getInt(1);
+    }
 }
@@ -19,12 +19,14 @@ import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.kura.db.H2DbService;
+import org.eclipse.kura.internal.wire.h2db.common.H2DbServiceHelper;
 import org.eclipse.kura.type.BooleanValue;
 import org.eclipse.kura.type.ByteArrayValue;
 import org.eclipse.kura.type.DoubleValue;
@@ -429,4 +431,253 @@ public class H2DbWireRecordStoreTest {
         connection.prepareStatement("SHUTDOWN").execute();
     }
 
+    @Test
+    public void testBatchSequence() throws SQLException {
+        // store envelopes mixing record shapes, check the insertion order and the recovery from a schema changed
+        // behind the back of the store
+
+        Connection connection = getConnection();
+
+        H2DbService dbServiceMock = mock(H2DbService.class);
+        when(dbServiceMock.getConnection()).thenReturn(connection);
+
+        H2DbWireRecordStore store = new H2DbWireRecordStore() {
+
+            @Override
+            protected void restartDbServiceTracker() {
+                bindDbService(dbServiceMock);
+            }
+        };
+
+        WireHelperService whsMock = mock(WireHelperService.class);
+        WireSupport wireSupportMock = mock(WireSupport.class);
+        when(whsMock.newWireSupport(store)).thenReturn(wireSupportMock);
+
+        store.bindWireHelperService(whsMock);
+
+        ComponentContext ctx = mock(ComponentContext.class);
+        Map<String, Object> props = new HashMap<String, Object>();
+        String tableName = "H2_STORE_TEST";
+        props.put("table.name", tableName);
+
+        // init
+        store.activate(ctx, props);
+
+        List<WireRecord> wireRecords = new ArrayList<WireRecord>();
+        for (int i = 0; i < 10; i++) {
+            Map<String, TypedValue<?>> recordProps = new HashMap<String, TypedValue<?>>();
+            recordProps.put("seq", new IntegerValue(i));
+            if (i % 3 == 0) {
+                recordProps.put("strkey", new StringValue("val" + i));
+            }
+            wireRecords.add(new WireRecord(recordProps));
+        }
+        WireEnvelope wireEvelope = new WireEnvelope("emitter", wireRecords);
+
+        store.onWireReceive(wireEvelope);
+
+        ResultSet resultSet = connection
+                .prepareStatement("SELECT \"seq\", \"strkey\" FROM " + tableName + " ORDER BY ID").executeQuery();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(resultSet.next());
+            assertEquals(i, resultSet.getInt(1));
+            assertEquals(i % 3 == 0 ? "val" + i : null, resultSet.getString(2));
+        }
+        assertTrue(resultSet.isLast());
+
+        // drop a column, the cached schema does not match the table anymore
+        connection.prepareStatement("ALTER TABLE " + tableName + " DROP COLUMN \"strkey\"").execute();
+
+        store.onWireReceive(wireEvelope);
+
+        resultSet = connection.prepareStatement("SELECT count(*) FROM " + tableName).executeQuery();
+        resultSet.next();
+        assertEquals("Unexpected number of records", 20, resultSet.getInt(1));
+
+        resultSet = connection
+                .prepareStatement("SELECT count(*) FROM " + tableName + " WHERE \"strkey\" IS NOT NULL")
+                .executeQuery();
+        resultSet.next();
+        assertEquals("Unexpected number of records", 4, resultSet.getInt(1));
+
+        // deinit
+        store.deactivate(null);
+        connection.prepareStatement("SHUTDOWN").execute();
+    }
+
+    @Test
+    public void testPartitionSequence() throws SQLException {
+        // store records in a plain table, enable partitioning, check the table has been moved behind a view, clean
+        // it up and disable partitioning again
+
+        Connection connection = getConnection();
+
+        H2DbService dbServiceMock = mock(H2DbService.class);
+        when(dbServiceMock.getConnection()).thenReturn(connection);
+
+        H2DbWireRecordStore store = new H2DbWireRecordStore() {
+
+            @Override
+            protected void restartDbServiceTracker() {
+                bindDbService(dbServiceMock);
+            }
+        };
+
+        WireHelperService whsMock = mock(WireHelperService.class);
+        WireSupport wireSupportMock = mock(WireSupport.class);
+        when(whsMock.newWireSupport(store)).thenReturn(wireSupportMock);
+
+        store.bindWireHelperService(whsMock);
+
+        ComponentContext ctx = mock(ComponentContext.class);
+        Map<String, Object> props = new HashMap<String, Object>();
+        String tableName = "H2_STORE_TEST";
+        props.put("table.name", tableName);
+        props.put("maximum.table.size", 10);
+        props.put("cleanup.records.keep", 5);
+
+        // init
+        store.activate(ctx, props);
+
+        List<WireRecord> wireRecords = new ArrayList<WireRecord>();
+        Map<String, TypedValue<?>> recordProps = new HashMap<String, TypedValue<?>>();
+        recordProps.put("key", new StringValue("val"));
+        wireRecords.add(new WireRecord(recordProps));
+        WireEnvelope wireEvelope = new WireEnvelope("emitter", wireRecords);
+
+        store.onWireReceive(wireEvelope);
+        store.onWireReceive(wireEvelope);
+
+        // enable partitioning
+        props.put("partition.interval", 3600);
+        props.put("partition.count", 2);
+        store.updated(props);
+
+        assertEquals("VIEW", getTableType(connection, tableName));
+        assertEquals(2, count(connection, tableName, null));
+
+        // add a column to the current partition
+        recordProps = new HashMap<String, TypedValue<?>>();
+        recordProps.put("key", new StringValue("val"));
+        recordProps.put("intkey", new IntegerValue(1));
+        wireRecords.add(new WireRecord(recordProps));
+
+        store.onWireReceive(wireEvelope);
+
+        assertEquals(4, count(connection, tableName, null));
+        assertEquals(1, count(connection, tableName, "\"intkey\" = 1"));
+
+        // change the type of a column referenced by the view
+        recordProps = new HashMap<String, TypedValue<?>>();
+        recordProps.put("intkey", new StringValue("one"));
+        store.onWireReceive(
+                new WireEnvelope("emitter", Collections.<WireRecord> singletonList(new WireRecord(recordProps))));
+
+        assertEquals(5, count(connection, tableName, null));
+        assertEquals(1, count(connection, tableName, "\"intkey\" = 'one'"));
+        assertEquals(5, countIds(connection, tableName));
+
+        // the single partition exceeds the maximum size, its oldest records are deleted
+        for (int i = 0; i < 3; i++) {
+            store.onWireReceive(wireEvelope);
+        }
+        assertEquals(11, count(connection, tableName, null));
+        store.onWireReceive(wireEvelope);
+        assertEquals(7, count(connection, tableName, null));
+
+        // disable partitioning
+        props.put("partition.interval", 0);
+        store.updated(props);
+
+        assertEquals("TABLE", getTableType(connection, tableName));
+        assertEquals(7, count(connection, tableName, null));
+
+        store.onWireReceive(wireEvelope);
+        assertEquals(9, count(connection, tableName, null));
+        assertEquals(9, countIds(connection, tableName));
+
+        // deinit
+        store.deactivate(null);
+        connection.prepareStatement("SHUTDOWN").execute();
+    }
+
+    @Test
+    public void testPartitions() throws SQLException {
+        // roll partitions with explicit timestamps, check the view, the retention and the cleanup
+
+        Connection connection = getConnection();
+
+        H2DbService dbServiceMock = mock(H2DbService.class);
+        when(dbServiceMock.getConnection()).thenReturn(connection);
+
+        String tableName = "H2_PARTITION_TEST";
+        H2DbTablePartitions partitions = new H2DbTablePartitions(H2DbServiceHelper.of(dbServiceMock), tableName,
+                1000, 2);
+
+        partitions.reconcile(500);
+        String first = partitions.getPartition(600);
+        assertEquals(tableName + "_0", first);
+        assertEquals("VIEW", getTableType(connection, tableName));
+
+        connection.prepareStatement("ALTER TABLE " + first + " ADD COLUMN \"a\" INTEGER").execute();
+        connection.prepareStatement("INSERT INTO " + first + " (TIMESTAMP, \"a\") VALUES (500, 1)").execute();
+        partitions.updateView();
+
+        String second = partitions.getPartition(1500);
+        assertEquals(tableName + "_1000", second);
+        connection.prepareStatement("ALTER TABLE " + second + " ADD COLUMN \"b\" VARCHAR(10)").execute();
+        connection.prepareStatement("ALTER TABLE " + second + " ADD COLUMN \"a\" DOUBLE").execute();
+        connection
+                .prepareStatement(
+                        "INSERT INTO " + second + " (TIMESTAMP, \"a\", \"b\") VALUES (1500, 2.5, 'x'), (1600, 3.5, 'y')")
+                .execute();
+        partitions.updateView();
+
+        assertEquals(3, partitions.countRecords());
+        assertEquals(3, count(connection, tableName, null));
+        // the partitions share the ID sequence
+        assertEquals(3, countIds(connection, tableName));
+        assertEquals(2, count(connection, tableName, "TIMESTAMP >= 1000"));
+        assertEquals(2, count(connection, tableName, "\"b\" IS NOT NULL"));
+        // the column has a different type in the oldest partition, its values are hidden
+        assertEquals(2, count(connection, tableName, "\"a\" IS NOT NULL"));
+
+        // a third partition drops the oldest one
+        String third = partitions.getPartition(2500);
+        assertEquals(tableName + "_2000", third);
+        assertEquals(null, getTableType(connection, first));
+        assertEquals(2, count(connection, tableName, null));
+
+        assertEquals(2, partitions.dropOldestPartition());
+        assertEquals(null, getTableType(connection, second));
+        assertEquals(-1, partitions.dropOldestPartition());
+        assertEquals(third, partitions.getNewestPartition());
+        assertEquals(0, count(connection, tableName, null));
+
+        // restore the plain table
+        H2DbTablePartitions.restoreTable(H2DbServiceHelper.of(dbServiceMock), tableName);
+        assertEquals("TABLE", getTableType(connection, tableName));
+        assertEquals(null, getTableType(connection, third));
+
+        connection.prepareStatement("SHUTDOWN").execute();
+    }
+
+    private static String getTableType(Connection connection, String tableName) throws SQLException {
+        ResultSet tables = connection.getMetaData().getTables(null, null, tableName, null);
+        return tables.next() ? tables.getString("TABLE_TYPE") : null;
+    }
+
+    private static int count(Connection connection, String tableName, String condition) throws SQLException {
+        String sql = "SELECT count(*) FROM " + tableName + (condition != null ? " WHERE " + condition : "");
+        ResultSet resultSet = connection.prepareStatement(sql).executeQuery();
+        resultSet.next();
+        return resultSet.getInt(1);
+    }
+
+    private static int countIds(Connection connection, String tableName) throws SQLException {
+        ResultSet resultSet = connection.prepareStatement("SELECT count(DISTINCT ID) FROM " + tableName)
+                .executeQuery();
+        resultSet.next();
+        return resultSet.getInt(1);
+    }
 }
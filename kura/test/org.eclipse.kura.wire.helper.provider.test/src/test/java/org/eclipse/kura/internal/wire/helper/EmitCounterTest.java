@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.wire.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.eclipse.kura.wire.WireEmitStatistics;
+import org.junit.Test;
+
+public class EmitCounterTest {
+
+    @Test
+    public void testRateSampling() {
+        EmitCounter counter = new EmitCounter(1000);
+
+        WireEmitStatistics statistics = counter.sample("emitter", 1000);
+        assertEquals("emitter", statistics.getEmitterPid());
+        assertEquals(0, statistics.getEmitCount());
+        assertEquals(0, statistics.getLastEmitTimestamp());
+
+        for (int i = 0; i < 50; i++) {
+            counter.emitted(1500);
+        }
+
+        // the rate is sampled at most once per sampling interval
+        statistics = counter.sample("emitter", 1500);
+        assertEquals(50, statistics.getEmitCount());
+        assertEquals(0.0, statistics.getEmitRate(), 0.001);
+        assertEquals(1500, statistics.getLastEmitTimestamp());
+
+        statistics = counter.sample("emitter", 3000);
+        assertEquals(25.0, statistics.getEmitRate(), 0.001);
+
+        counter.emitted(3500);
+        statistics = counter.sample("emitter", 3500);
+        assertEquals(51, statistics.getEmitCount());
+        assertEquals(25.0, statistics.getEmitRate(), 0.001);
+
+        statistics = counter.sample("emitter", 5000);
+        assertEquals(0.5, statistics.getEmitRate(), 0.001);
+    }
+
+    @Test
+    public void testEmitListenerTopics() {
+        assertTrue(EmitListenerTrackerCustomizer.isSubscribed("org/eclipse/kura/wires/emit"));
+        assertTrue(EmitListenerTrackerCustomizer.isSubscribed("org/eclipse/kura/wires/*"));
+        assertTrue(EmitListenerTrackerCustomizer.isSubscribed("*"));
+        assertTrue(EmitListenerTrackerCustomizer
+                .isSubscribed(new String[] { "org/eclipse/kura/other", "org/eclipse/kura/wires/emit" }));
+        assertTrue(EmitListenerTrackerCustomizer.isSubscribed(Arrays.asList("org/eclipse/kura/*")));
+
+        assertFalse(EmitListenerTrackerCustomizer.isSubscribed(null));
+        assertFalse(EmitListenerTrackerCustomizer.isSubscribed("org/eclipse/kura/wires"));
+        assertFalse(EmitListenerTrackerCustomizer.isSubscribed("org/eclipse/kura/cloud/*"));
+        assertFalse(EmitListenerTrackerCustomizer.isSubscribed(new String[] { "org/eclipse/kura/other" }));
+    }
+}
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.wire.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.internal.wire.helper.WireDispatchOptions.BackpressurePolicy;
+import org.eclipse.kura.internal.wire.helper.WireDispatchOptions.DispatchMode;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireRecord;
+import org.junit.Test;
+
+public class WireDispatcherTest {
+
+    @Test
+    public void testSynchronousDelivery() {
+        WireDispatcher dispatcher = new WireDispatcher();
+        List<Thread> threads = new ArrayList<>();
+        WireDispatcher.Mailbox mailbox = dispatcher.newMailbox(envelope -> threads.add(Thread.currentThread()));
+
+        mailbox.dispatch(newEnvelope("emitter"));
+
+        assertEquals(1, threads.size());
+        assertSame(Thread.currentThread(), threads.get(0));
+        assertEquals(1, dispatcher.getDeliveredCount());
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testAsynchronousDeliveryKeepsOrder() throws InterruptedException {
+        WireDispatcher dispatcher = new WireDispatcher(newOptions(DispatchMode.ASYNCHRONOUS, 4, 10000,
+                BackpressurePolicy.BLOCK));
+
+        final int count = 1000;
+        List<WireEnvelope> sent = new ArrayList<>();
+        List<WireEnvelope> received = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(count);
+        WireDispatcher.Mailbox mailbox = dispatcher.newMailbox(envelope -> {
+            received.add(envelope);
+            threads.add(Thread.currentThread());
+            done.countDown();
+        });
+
+        for (int i = 0; i < count; i++) {
+            WireEnvelope envelope = newEnvelope("emitter" + i);
+            sent.add(envelope);
+            mailbox.dispatch(envelope);
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(sent, received);
+        assertNotSame(Thread.currentThread(), threads.get(0));
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testBranchesRunConcurrently() throws InterruptedException {
+        WireDispatcher dispatcher = new WireDispatcher(newOptions(DispatchMode.ASYNCHRONOUS, 2, 10,
+                BackpressurePolicy.BLOCK));
+
+        // each receiver waits for the other one, the delivery only completes if both run at the same time
+        CountDownLatch running = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(2);
+        WireDispatcher.Mailbox first = dispatcher.newMailbox(envelope -> awaitBranch(running, done));
+        WireDispatcher.Mailbox second = dispatcher.newMailbox(envelope -> awaitBranch(running, done));
+
+        WireEnvelope envelope = newEnvelope("emitter");
+        first.dispatch(envelope);
+        second.dispatch(envelope);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testDropNewest() throws InterruptedException {
+        List<WireEnvelope> received = dispatchToFullMailbox(BackpressurePolicy.DROP_NEWEST, 4, 3);
+
+        assertEquals(3, received.size());
+        assertEquals("emitter0", received.get(0).getEmitterPid());
+        assertEquals("emitter1", received.get(1).getEmitterPid());
+        assertEquals("emitter2", received.get(2).getEmitterPid());
+    }
+
+    @Test
+    public void testDropOldest() throws InterruptedException {
+        List<WireEnvelope> received = dispatchToFullMailbox(BackpressurePolicy.DROP_OLDEST, 4, 3);
+
+        assertEquals(3, received.size());
+        assertEquals("emitter0", received.get(0).getEmitterPid());
+        assertEquals("emitter2", received.get(1).getEmitterPid());
+        assertEquals("emitter3", received.get(2).getEmitterPid());
+    }
+
+    @Test
+    public void testBlock() throws InterruptedException {
+        WireDispatcher dispatcher = new WireDispatcher(newOptions(DispatchMode.ASYNCHRONOUS, 1, 1,
+                BackpressurePolicy.BLOCK));
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        List<WireEnvelope> received = Collections.synchronizedList(new ArrayList<>());
+        WireDispatcher.Mailbox mailbox = dispatcher.newMailbox(envelope -> {
+            started.countDown();
+            await(release);
+            received.add(envelope);
+            done.countDown();
+        });
+
+        mailbox.dispatch(newEnvelope("emitter0"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        mailbox.dispatch(newEnvelope("emitter1"));
+
+        Thread emitter = new Thread(() -> mailbox.dispatch(newEnvelope("emitter2")));
+        emitter.start();
+        emitter.join(200);
+        assertTrue(emitter.isAlive());
+
+        release.countDown();
+        emitter.join(5000);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("emitter0", received.get(0).getEmitterPid());
+        assertEquals("emitter1", received.get(1).getEmitterPid());
+        assertEquals("emitter2", received.get(2).getEmitterPid());
+        assertEquals(0, dispatcher.getDroppedCount());
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testReceiverFailure() throws InterruptedException {
+        WireDispatcher dispatcher = new WireDispatcher(newOptions(DispatchMode.ASYNCHRONOUS, 1, 10,
+                BackpressurePolicy.BLOCK));
+
+        CountDownLatch done = new CountDownLatch(2);
+        WireDispatcher.Mailbox mailbox = dispatcher.newMailbox(envelope -> {
+            done.countDown();
+            throw new IllegalStateException("test");
+        });
+
+        mailbox.dispatch(newEnvelope("emitter0"));
+        mailbox.dispatch(newEnvelope("emitter1"));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        dispatcher.shutdown();
+    }
+
+    private List<WireEnvelope> dispatchToFullMailbox(BackpressurePolicy policy, int dispatched, int expected)
+            throws InterruptedException {
+        WireDispatcher dispatcher = new WireDispatcher(newOptions(DispatchMode.ASYNCHRONOUS, 1, 2, policy));
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(expected);
+        List<WireEnvelope> received = Collections.synchronizedList(new ArrayList<>());
+        WireDispatcher.Mailbox mailbox = dispatcher.newMailbox(envelope -> {
+            started.countDown();
+            await(release);
+            received.add(envelope);
+            done.countDown();
+        });
+
+        // the first envelope is taken by the dispatcher thread, the others fill the mailbox
+        mailbox.dispatch(newEnvelope("emitter0"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < dispatched; i++) {
+            mailbox.dispatch(newEnvelope("emitter" + i));
+        }
+        assertEquals(2, mailbox.size());
+        assertEquals(dispatched - expected, dispatcher.getDroppedCount());
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        dispatcher.shutdown();
+        return received;
+    }
+
+    private static void awaitBranch(CountDownLatch running, CountDownLatch done) {
+        running.countDown();
+        await(running);
+        done.countDown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static WireEnvelope newEnvelope(String emitterPid) {
+        return new WireEnvelope(emitterPid, Collections.<WireRecord> emptyList());
+    }
+
+    private static WireDispatchOptions newOptions(DispatchMode mode, int threadCount, int mailboxCapacity,
+            BackpressurePolicy policy) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("wire.dispatch.mode", mode.name());
+        properties.put("wire.dispatch.thread-count", threadCount);
+        properties.put("wire.dispatch.mailbox-capacity", mailboxCapacity);
+        properties.put("wire.dispatch.backpressure", policy.name());
+        return new WireDispatchOptions(properties);
+    }
+}
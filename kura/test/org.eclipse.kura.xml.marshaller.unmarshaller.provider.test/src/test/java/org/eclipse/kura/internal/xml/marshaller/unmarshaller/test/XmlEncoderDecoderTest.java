@@ -8,10 +8,13 @@
  *******************************************************************************/
 package org.eclipse.kura.internal.xml.marshaller.unmarshaller.test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -421,4 +424,72 @@ public class XmlEncoderDecoderTest {
         Map<String, Object> properties1 = config1.getConfigurations().get(0).getConfigurationProperties();
         assertEquals(properties, properties1);
     }
+
+    @Test
+    public void testStreamMarshallUnmarshall() throws Exception {
+        XmlMarshallUnmarshallImpl xmlMarshallerImpl = new XmlMarshallUnmarshallImpl();
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("prop.string", "<value> & \"quoted\"\r\nnext line");
+        properties.put("prop.empty", "");
+        properties.put("prop.array", new Integer[] { 1, 2, 3 });
+        properties.put("prop.long", Long.MAX_VALUE);
+
+        XmlComponentConfigurations xcc = new XmlComponentConfigurations();
+        List<ComponentConfiguration> ccis = new ArrayList<>();
+        ccis.add(new ComponentConfigurationImpl("pid1", getSampleTocdObject(), properties));
+        ccis.add(new ComponentConfigurationImpl("pid2", null, new HashMap<String, Object>()));
+        xcc.setConfigurations(ccis);
+
+        StringWriter writer = new StringWriter();
+        xmlMarshallerImpl.marshal(xcc, writer);
+        assertEquals(xmlMarshallerImpl.marshal(xcc), writer.toString());
+
+        XmlComponentConfigurations result = xmlMarshallerImpl.unmarshal(new StringReader(writer.toString()),
+                XmlComponentConfigurations.class);
+
+        assertEquals(2, result.getConfigurations().size());
+        assertEquals("pid1", result.getConfigurations().get(0).getPid());
+        assertEquals("pid2", result.getConfigurations().get(1).getPid());
+
+        Map<String, Object> properties1 = result.getConfigurations().get(0).getConfigurationProperties();
+        assertEquals(properties.get("prop.string"), properties1.get("prop.string"));
+        assertEquals("", properties1.get("prop.empty"));
+        assertArrayEquals((Object[]) properties.get("prop.array"), (Object[]) properties1.get("prop.array"));
+        assertEquals(Long.MAX_VALUE, properties1.get("prop.long"));
+        assertTrue(result.getConfigurations().get(1).getConfigurationProperties().isEmpty());
+    }
+
+    @Test
+    public void testUnmarshallDomFormattedSnapshot() throws Exception {
+        // snapshot as written by the previous DOM based marshaller, with the definition before the properties
+        String snapshot = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n"
+                + "<esf:configurations xmlns:esf=\"http://eurotech.com/esf/2.0\" "
+                + "xmlns:ocd=\"http://www.osgi.org/xmlns/metatype/v1.2.0\">\n"
+                + "    <esf:configuration pid=\"org.eclipse.kura.clock.ClockService\">\n"
+                + "        <ocd:OCD id=\"org.eclipse.kura.clock.ClockService\" name=\"ClockService\">\n"
+                + "            <ocd:AD cardinality=\"0\" id=\"enabled\" required=\"true\" type=\"Boolean\"/>\n"
+                + "        </ocd:OCD>\n"
+                + "        <esf:properties>\n"
+                + "            <esf:property array=\"false\" encrypted=\"false\" name=\"enabled\" type=\"Boolean\">\n"
+                + "                <esf:value>true</esf:value>\n"
+                + "            </esf:property>\n"
+                + "            <esf:property array=\"true\" encrypted=\"false\" name=\"servers\" type=\"String\">\n"
+                + "                <esf:value>0.pool.ntp.org</esf:value>\n"
+                + "                <esf:value>1.pool.ntp.org</esf:value>\n"
+                + "            </esf:property>\n"
+                + "        </esf:properties>\n"
+                + "    </esf:configuration>\n"
+                + "</esf:configurations>\n";
+
+        XmlMarshallUnmarshallImpl xmlMarshallerImpl = new XmlMarshallUnmarshallImpl();
+        XmlComponentConfigurations result = xmlMarshallerImpl.unmarshal(new StringReader(snapshot),
+                XmlComponentConfigurations.class);
+
+        assertEquals(1, result.getConfigurations().size());
+        Map<String, Object> properties = result.getConfigurations().get(0).getConfigurationProperties();
+        assertEquals(2, properties.size());
+        assertEquals(true, properties.get("enabled"));
+        assertArrayEquals(new String[] { "0.pool.ntp.org", "1.pool.ntp.org" }, (String[]) properties.get("servers"));
+    }
 }
@@ -1,5 +1,5 @@
 /*=============================================================================|
-|  PROJECT Moka7                                                         1.0.2 |
+|  PROJECT Moka7                                                         1.1.0 |
 |==============================================================================|
 |  Copyright (C) 2013, 2016 Davide Nardella                                    |
 |  All rights reserved.                                                        |
@@ -55,6 +55,11 @@ public class S7Client
     public static final int errS7BufferTooSmall    = 0x000C;
     public static final int errS7FunctionError     = 0x000D;
     public static final int errS7InvalidParams     = 0x000E;           
+    public static final int errS7TooManyItems      = 0x000F;
+    public static final int errS7SizeOverPDU       = 0x0010;
+
+    // Max number of variables of a ReadMultiVars/WriteMultiVars request
+    public static final int MaxVars = 20;
     
     // Public fields
     public boolean Connected = false;
@@ -347,6 +352,10 @@ public class S7Client
                 return "S7 function refused by the CPU.";
             case errS7InvalidParams :
                 return "Invalid parameters supplied to the function.";
+            case errS7TooManyItems :
+                return "Too many items (>20) in multi read/write.";
+            case errS7SizeOverPDU :
+                return "The request exceeds the negotiated PDU length.";
             default : 
                 return "Unknown error : 0x"+Integer.toHexString(Error);
         }
@@ -800,6 +809,213 @@ public class S7Client
         return LastError;
     }
    
+    // Sets the variable specification of a multi read/write request item
+    // (12 bytes starting at Pos) and returns the size in bytes of its data
+    private int SetVarSpecAt(int Pos, S7DataItem Item)
+    {
+        int Address;
+        int WordSize = 1;
+
+        PDU[Pos]   = (byte)0x12; // Var spec.
+        PDU[Pos+1] = (byte)0x0a; // Length of remaining bytes
+        PDU[Pos+2] = (byte)0x10; // Syntax ID
+        PDU[Pos+3] = S7WLByte;   // Transport Size
+        if ((Item.Area==S7.S7AreaCT) || (Item.Area==S7.S7AreaTM))
+        {
+            WordSize = 2;
+            Address = Item.Start;
+            if (Item.Area==S7.S7AreaCT)
+                PDU[Pos+3]=S7WLCounter;
+            else
+                PDU[Pos+3]=S7WLTimer;
+        }
+        else
+            Address = Item.Start<<3;
+        // Num elements
+        S7.SetWordAt(PDU,Pos+4,Item.Amount);
+        // DB Number (if any, else 0)
+        if (Item.Area==S7.S7AreaDB)
+            S7.SetWordAt(PDU,Pos+6,Item.DBNumber);
+        else
+            S7.SetWordAt(PDU,Pos+6,0);
+        // Area Type
+        PDU[Pos+8] = (byte) Item.Area;
+        // Address into the PLC (only 3 bytes)
+        PDU[Pos+11] = (byte) (Address & 0x0FF);
+        Address = Address >> 8;
+        PDU[Pos+10] = (byte) (Address & 0x0FF);
+        Address = Address >> 8;
+        PDU[Pos+9] = (byte) (Address & 0x0FF);
+
+        return Item.Amount * WordSize;
+    }
+
+    // Reads several variables, possibly from different areas and DBs, with a
+    // single telegram. The request and the whole reply must fit the negotiated
+    // PDU. The function result only reports telegram level errors, the
+    // outcome of each variable is stored into its Result field.
+    public int ReadMultiVars(S7DataItem[] Items, int ItemsCount)
+    {
+        int Length;
+        int ItemSize;
+        int RequestSize;
+        int ReplySize;
+        int Offset;
+        int[] Sizes;
+
+        LastError=0;
+
+        if ((ItemsCount<1) || (ItemsCount>Items.length))
+            return errS7InvalidParams;
+        if (ItemsCount>MaxVars)
+            return errS7TooManyItems;
+
+        // Setup the telegram
+        System.arraycopy(S7_RW, 0, PDU, 0, 19);
+        Sizes = new int[ItemsCount];
+        ReplySize = 14; // S7 reply header + Function + Items count
+        for (int c = 0; c < ItemsCount; c++)
+        {
+            Sizes[c] = SetVarSpecAt(19+c*12, Items[c]);
+            if (Items[c].Data.length<Sizes[c])
+                return errS7BufferTooSmall;
+            ReplySize += 4 + Sizes[c] + (Sizes[c] & 0x01);
+            Items[c].Result = errS7DataRead;
+        }
+        RequestSize = 19+ItemsCount*12;
+        if ((RequestSize-IsoHSize>_PDULength) || (ReplySize>_PDULength))
+            return errS7SizeOverPDU;
+
+        // Whole telegram Size
+        S7.SetWordAt(PDU,2,RequestSize);
+        // Parameters Length
+        S7.SetWordAt(PDU,13,ItemsCount*12+2);
+        // Items count
+        PDU[18] = (byte) ItemsCount;
+
+        SendPacket(PDU, RequestSize);
+        if (LastError==0)
+        {
+            Length=RecvIsoPacket();
+            if (LastError==0)
+            {
+                if ((Length<22) || (PDU[20]!=(byte)ItemsCount))
+                    LastError = errS7InvalidPDU;
+                else if (S7.GetWordAt(PDU,17)!=0)
+                    LastError = errS7DataRead;
+                else
+                {
+                    Offset = 21;
+                    for (int c = 0; (c < ItemsCount) && (LastError==0); c++)
+                    {
+                        if (Offset+4>Length)
+                        {
+                            LastError = errS7InvalidPDU;
+                            break;
+                        }
+                        ItemSize = S7.GetWordAt(PDU,Offset+2);
+                        // Length is expressed in bits unless the transport size
+                        // is bit (0x03), real (0x07) or octet string (0x09)
+                        if ((PDU[Offset+1]!=0x03) && (PDU[Offset+1]!=0x07) && (PDU[Offset+1]!=0x09))
+                            ItemSize = ItemSize >> 3;
+                        if (Offset+4+ItemSize>Length)
+                        {
+                            LastError = errS7InvalidPDU;
+                            break;
+                        }
+                        if ((PDU[Offset]==(byte)0xFF) && (ItemSize==Sizes[c]))
+                        {
+                            System.arraycopy(PDU, Offset+4, Items[c].Data, 0, ItemSize);
+                            Items[c].Result = 0;
+                        }
+                        // Fill byte after odd sized items (except the last one)
+                        Offset += 4 + ItemSize + (ItemSize & 0x01);
+                    }
+                }
+            }
+        }
+        return LastError;
+    }
+
+    // Writes several variables, possibly into different areas and DBs, with a
+    // single telegram that must fit the negotiated PDU. The function result
+    // only reports telegram level errors, the outcome of each variable is
+    // stored into its Result field.
+    public int WriteMultiVars(S7DataItem[] Items, int ItemsCount)
+    {
+        int Length;
+        int DataSize = 0;
+        int DataLength;
+        int IsoSize;
+        int Offset;
+
+        LastError=0;
+
+        if ((ItemsCount<1) || (ItemsCount>Items.length))
+            return errS7InvalidParams;
+        if (ItemsCount>MaxVars)
+            return errS7TooManyItems;
+
+        // Setup the telegram
+        System.arraycopy(S7_RW, 0, PDU, 0, 19);
+        Offset = 19+ItemsCount*12;
+        for (int c = 0; c < ItemsCount; c++)
+        {
+            // Fill byte after odd sized items (except the last one)
+            if ((DataSize & 0x01)!=0)
+                PDU[Offset++] = (byte)0x00;
+            DataSize = SetVarSpecAt(19+c*12, Items[c]);
+            if (Items[c].Data.length<DataSize)
+                return errS7BufferTooSmall;
+            if (Offset+4+DataSize-IsoHSize>_PDULength)
+                return errS7SizeOverPDU;
+            PDU[Offset] = (byte)0x00;   // Reserved
+            PDU[Offset+1] = (byte)0x04; // Transport size
+            if ((Items[c].Area==S7.S7AreaCT) || (Items[c].Area==S7.S7AreaTM))
+                S7.SetWordAt(PDU,Offset+2,DataSize);
+            else
+                S7.SetWordAt(PDU,Offset+2,DataSize<<3);
+            System.arraycopy(Items[c].Data, 0, PDU, Offset+4, DataSize);
+            Offset += 4 + DataSize;
+            Items[c].Result = errS7DataWrite;
+        }
+        IsoSize = Offset;
+        DataLength = IsoSize-19-ItemsCount*12;
+
+        // Whole telegram Size
+        S7.SetWordAt(PDU,2,IsoSize);
+        // Parameters Length
+        S7.SetWordAt(PDU,13,ItemsCount*12+2);
+        // Data Length
+        S7.SetWordAt(PDU,15,DataLength);
+        // Function
+        PDU[17] = (byte)0x05;
+        // Items count
+        PDU[18] = (byte) ItemsCount;
+
+        SendPacket(PDU, IsoSize);
+        if (LastError==0)
+        {
+            Length=RecvIsoPacket();
+            if (LastError==0)
+            {
+                if ((Length!=21+ItemsCount) || (PDU[20]!=(byte)ItemsCount))
+                    LastError = errS7InvalidPDU;
+                else if (S7.GetWordAt(PDU,17)!=0)
+                    LastError = errS7DataWrite;
+                else
+                {
+                    for (int c = 0; c < ItemsCount; c++)
+                    {
+                        if (PDU[21+c]==(byte)0xFF)
+                            Items[c].Result = 0;
+                    }
+                }
+            }
+        }
+        return LastError;
+    }
+
     public int GetAgBlockInfo(int BlockType, int BlockNumber, S7BlockInfo Block)
     {
     	int Length;